@@ -0,0 +1,144 @@
+package application;
+
+/**
+ * A rotation that reads and writes one of the rotations of an object in its body store instead of holding its own values.
+ * Changing it changes the object, so code that gets an object's rotation and changes it still works.
+ * If the store keeps orientations as quaternions the x,y,z axis rotations are converted to and from the quaternion.
+ * @author Sam Dark
+ *
+ */
+public class BodyRotation extends Rotation
+{
+	/** The object the rotation belongs to */
+	private CustomObject owner;
+	/** The rotation in the body store (BodyStore.ROTATION or BodyStore.PREV_ROTATION) */
+	private int vector;
+	/** View of the rotation velocity in the body store */
+	private BodyVector vel;
+	/** View of the rotation acceleration in the body store */
+	private BodyVector acc;
+
+	/**
+	 * Creates a view of one of an object's rotations
+	 * @param inpOwner The object
+	 * @param inpVector The rotation in the body store (BodyStore.ROTATION or BodyStore.PREV_ROTATION)
+	 */
+	BodyRotation(CustomObject inpOwner, int inpVector)
+	{
+		owner=inpOwner;
+		vector=inpVector;
+		vel=new BodyVector(inpOwner,BodyStore.ROTATION_VELOCITY);
+		acc=new BodyVector(inpOwner,BodyStore.ROTATION_ACCELERATION);
+	}
+	/**
+	 * Sets the rotation for each axis.
+	 * @param inpX The x axis rotation
+	 * @param inpY The y axis rotation
+	 * @param inpZ The z axis rotation
+	 */
+	@Override
+	public void setRotation(double inpX, double inpY, double inpZ)
+	{
+		owner.getBodyStore().setRotation(owner.getBodyId(), vector, inpX, inpY, inpZ);
+	}
+	/**
+	 * Gets an array of doubles with the rotation information in.
+	 * @return An array of doubles {x,y,z}
+	 */
+	@Override
+	public double[] getRotation()
+	{
+		double[] output= {getX(),getY(),getZ()};
+		return output;
+	}
+	/**
+	 * Gets the x axis rotation
+	 * @return The x axis rotation
+	 */
+	@Override
+	public double getX()
+	{
+		return owner.getBodyStore().getRotation(owner.getBodyId(), vector, 0);
+	}
+	/**
+	 * Gets the y axis rotation
+	 * @return The y axis rotation
+	 */
+	@Override
+	public double getY()
+	{
+		return owner.getBodyStore().getRotation(owner.getBodyId(), vector, 1);
+	}
+	/**
+	 * Gets the z axis rotation
+	 * @return The z axis rotation
+	 */
+	@Override
+	public double getZ()
+	{
+		return owner.getBodyStore().getRotation(owner.getBodyId(), vector, 2);
+	}
+	/**
+	 * Sets the x axis component of the rotation
+	 * @param inpX The x to set to
+	 */
+	@Override
+	public void setX(double inpX)
+	{
+		setRotation(inpX>=360 ? inpX-360 : inpX, getY(), getZ());
+	}
+	/**
+	 * Sets the y axis component of the rotation
+	 * @param inpY The y to set to
+	 */
+	@Override
+	public void setY(double inpY)
+	{
+		setRotation(getX(), inpY>=360 ? inpY-360 : inpY, getZ());
+	}
+	/**
+	 * Sets the z axis component of the rotation
+	 * @param inpZ The z to set to
+	 */
+	@Override
+	public void setZ(double inpZ)
+	{
+		setRotation(getX(), getY(), inpZ>=360 ? inpZ-360 : inpZ);
+	}
+	/**
+	 * Gets the acceleration of the rotation, changing it changes the object
+	 * @return The acceleration
+	 */
+	@Override
+	public Position getAcc()
+	{
+		return acc;
+	}
+	/**
+	 * Sets the acceleration of the rotation, the values are copied into the body store
+	 * @param inpAcc the acceleration to set to
+	 */
+	@Override
+	public void setAcc(Position inpAcc)
+	{
+		acc.setPosition(inpAcc.getX(),inpAcc.getY(),inpAcc.getZ());
+	}
+	/**
+	 * Gets the velocity of the rotation, changing it changes the object
+	 * @return The velocity
+	 */
+	@Override
+	public Position getVel()
+	{
+		return vel;
+	}
+	/**
+	 * Sets the velocity of the rotation, the values are copied into the body store
+	 * @param inpVel The velocity to set to
+	 */
+	@Override
+	public void setVel(Position inpVel)
+	{
+		vel.setPosition(inpVel.getX(),inpVel.getY(),inpVel.getZ());
+	}
+}
@@ -0,0 +1,514 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * Stores the physics state of a set of bodies as structure of arrays, each value of every body is kept next to the same value of the other bodies.
+ * Vectors are stored {x,y,z} for body 0 then body 1 etc, one array for each vector (position, velocity etc).
+ * This lets the simulation update every body in one loop over a few arrays instead of going through an object for each body.
+ * CustomObject reads and writes its state from here so existing code using positions and rotations still works.
+ * 
+ * Orientations are either stored as x,y,z axis rotations in degrees, or as quaternions if the store is made in quaternion mode.
+ * In quaternion mode the rotation velocity is integrated straight into the quaternion and the x,y,z axis rotations
+ * are only worked out when something asks for them (e.g. saving a config), setting them sets the quaternion.
+ * @author Sam Dark
+ *
+ */
+public class BodyStore
+{
+	/** The position of each body */
+	static final int POSITION=0;
+	/** The position of each body before the last move */
+	static final int PREV_POSITION=1;
+	/** The velocity of each body in x,y,z per second */
+	static final int VELOCITY=2;
+	/** The velocity of each body before it was last changed */
+	static final int PREV_VELOCITY=3;
+	/** The acceleration of each body in x,y,z per second */
+	static final int ACCELERATION=4;
+	/** The rotation of each body about the x,y,z axis in degrees */
+	static final int ROTATION=5;
+	/** The rotation of each body before the last move */
+	static final int PREV_ROTATION=6;
+	/** The rotation velocity of each body about x,y,z per second */
+	static final int ROTATION_VELOCITY=7;
+	/** The rotation acceleration of each body about x,y,z per second */
+	static final int ROTATION_ACCELERATION=8;
+	/** The number of vectors stored for each body */
+	private static final int VECTOR_COUNT=9;
+
+	/** Flag for bodies that can move */
+	static final int CAN_MOVE=1;
+	/** Flag for bodies effected by gravity */
+	static final int GRAVITY=2;
+	/** Flag for bodies that are asleep */
+	static final int ASLEEP=4;
+
+	/** The vectors of the bodies, one array for each vector stored {x,y,z} for body 0 then body 1 etc */
+	private double[][] vectors=new double[VECTOR_COUNT][];
+	/** The inverse mass (1/mass) of each body */
+	private double[] inverseMass;
+	/** The flags of each body */
+	private int[] flags;
+	/** The number of updates in a row each body has been resting */
+	private int[] restingSteps;
+	/** The number of bodies in the store */
+	private int count=0;
+	/** Are orientations stored as quaternions instead of x,y,z axis rotations */
+	private boolean quaternions=false;
+	/** The orientation of each body in quaternion mode, stored {x,y,z,w} for body 0 then body 1 etc */
+	private double[] orientations;
+	/** The orientation of each body before the last move in quaternion mode */
+	private double[] prevOrientations;
+	/** The quaternion of the rotation being added in rotate, here for garbage collection reasons */
+	private double[] rotation=new double[4];
+
+	/**
+	 * Creates an empty store with orientations stored as x,y,z axis rotations
+	 * @param inpCapacity The number of bodies to make room for, the store grows if more are added
+	 */
+	BodyStore(int inpCapacity)
+	{
+		this(inpCapacity,false);
+	}
+	/**
+	 * Creates an empty store
+	 * @param inpCapacity The number of bodies to make room for, the store grows if more are added
+	 * @param inpQuaternions True to store orientations as quaternions
+	 */
+	BodyStore(int inpCapacity, boolean inpQuaternions)
+	{
+		int capacity=Math.max(inpCapacity,1);
+		quaternions=inpQuaternions;
+		orientations=new double[4*capacity];
+		prevOrientations=new double[4*capacity];
+		for(int i=0;i<VECTOR_COUNT;i++)
+		{
+			vectors[i]=new double[3*capacity];
+		}
+		inverseMass=new double[capacity];
+		flags=new int[capacity];
+		restingSteps=new int[capacity];
+	}
+	/**
+	 * Adds a body at the origin with no rotation or velocity that can move, is effected by gravity and has an inverse mass of 900
+	 * @return The id of the body
+	 */
+	public int add()
+	{
+		if(count==flags.length)
+		{
+			int capacity=flags.length*2;
+			for(int i=0;i<VECTOR_COUNT;i++)
+			{
+				vectors[i]=Arrays.copyOf(vectors[i], 3*capacity);
+			}
+			inverseMass=Arrays.copyOf(inverseMass, capacity);
+			flags=Arrays.copyOf(flags, capacity);
+			restingSteps=Arrays.copyOf(restingSteps, capacity);
+			orientations=Arrays.copyOf(orientations, 4*capacity);
+			prevOrientations=Arrays.copyOf(prevOrientations, 4*capacity);
+		}
+		int id=count;
+		count++;
+		inverseMass[id]=900;
+		flags[id]=CAN_MOVE|GRAVITY;
+		//No rotation
+		orientations[4*id+3]=1;
+		prevOrientations[4*id+3]=1;
+		return id;
+	}
+	/**
+	 * Copies a body from another store into this one
+	 * @param id The body in this store to copy to
+	 * @param from The store to copy from
+	 * @param fromId The body in the other store to copy
+	 */
+	public void copyBody(int id, BodyStore from, int fromId)
+	{
+		for(int i=0;i<VECTOR_COUNT;i++)
+		{
+			System.arraycopy(from.vectors[i], 3*fromId, vectors[i], 3*id, 3);
+		}
+		inverseMass[id]=from.inverseMass[fromId];
+		flags[id]=from.flags[fromId];
+		restingSteps[id]=from.restingSteps[fromId];
+		if(quaternions&&from.quaternions)
+		{
+			System.arraycopy(from.orientations, 4*fromId, orientations, 4*id, 4);
+			System.arraycopy(from.prevOrientations, 4*fromId, prevOrientations, 4*id, 4);
+		}
+		else if(quaternions!=from.quaternions)
+		{
+			//Convert between the two ways of storing orientations
+			for(int vector=ROTATION;vector<=PREV_ROTATION;vector++)
+			{
+				setRotation(id,vector,from.getRotation(fromId,vector,0),from.getRotation(fromId,vector,1),from.getRotation(fromId,vector,2));
+			}
+		}
+	}
+	/**
+	 * Checks if orientations are stored as quaternions
+	 * @return True if they are quaternions, false if they are x,y,z axis rotations
+	 */
+	public boolean isQuaternions()
+	{
+		return quaternions;
+	}
+	/**
+	 * Gets the number of bodies in the store
+	 * @return The number of bodies
+	 */
+	public int size()
+	{
+		return count;
+	}
+	/**
+	 * Gets one component of a vector of a body
+	 * @param id The body
+	 * @param vector The vector (POSITION, VELOCITY etc)
+	 * @param axis The axis (0=x, 1=y, 2=z)
+	 * @return The component
+	 */
+	public double get(int id, int vector, int axis)
+	{
+		return vectors[vector][3*id+axis];
+	}
+	/**
+	 * Sets one component of a vector of a body
+	 * @param id The body
+	 * @param vector The vector (POSITION, VELOCITY etc)
+	 * @param axis The axis (0=x, 1=y, 2=z)
+	 * @param value The value to set to
+	 */
+	public void set(int id, int vector, int axis, double value)
+	{
+		vectors[vector][3*id+axis]=value;
+	}
+	/**
+	 * Sets a vector of a body
+	 * @param id The body
+	 * @param vector The vector (POSITION, VELOCITY etc)
+	 * @param x The x component
+	 * @param y The y component
+	 * @param z The z component
+	 */
+	public void set(int id, int vector, double x, double y, double z)
+	{
+		double[] values=vectors[vector];
+		values[3*id]=x;
+		values[3*id+1]=y;
+		values[3*id+2]=z;
+	}
+	/**
+	 * Copies one vector of a body over another, e.g. the position over the previous position
+	 * @param id The body
+	 * @param from The vector to copy
+	 * @param to The vector to copy over
+	 */
+	public void copy(int id, int from, int to)
+	{
+		System.arraycopy(vectors[from], 3*id, vectors[to], 3*id, 3);
+	}
+	/**
+	 * Gets one of the x,y,z axis rotations of a body, worked out from the quaternion in quaternion mode
+	 * @param id The body
+	 * @param vector The rotation (ROTATION or PREV_ROTATION)
+	 * @param axis The axis (0=x, 1=y, 2=z)
+	 * @return The rotation in degrees
+	 */
+	public double getRotation(int id, int vector, int axis)
+	{
+		if(!quaternions)
+		{
+			return vectors[vector][3*id+axis];
+		}
+		double[] values=vector==ROTATION ? orientations : prevOrientations;
+		int i=4*id;
+		double x=values[i], y=values[i+1], z=values[i+2], w=values[i+3];
+		//The angles come from the matrix of the rotation, which is the x rotation times the y rotation times the z rotation
+		if(axis==1)
+		{
+			double m02=2*(x*z+y*w);
+			return Math.toDegrees(Math.asin(Math.max(-1,Math.min(1,m02))));
+		}
+		if(axis==0)
+		{
+			double m12=2*(y*z-x*w);
+			double m22=1-2*(x*x+y*y);
+			return Math.toDegrees(Math.atan2(-m12,m22));
+		}
+		double m01=2*(x*y-z*w);
+		double m00=1-2*(y*y+z*z);
+		return Math.toDegrees(Math.atan2(-m01,m00));
+	}
+	/**
+	 * Sets the x,y,z axis rotations of a body, converted to a quaternion in quaternion mode
+	 * @param id The body
+	 * @param vector The rotation (ROTATION or PREV_ROTATION)
+	 * @param x The x axis rotation in degrees
+	 * @param y The y axis rotation in degrees
+	 * @param z The z axis rotation in degrees
+	 */
+	public void setRotation(int id, int vector, double x, double y, double z)
+	{
+		if(!quaternions)
+		{
+			set(id,vector,x,y,z);
+			return;
+		}
+		double[] values=vector==ROTATION ? orientations : prevOrientations;
+		eulerToQuaternion(x,y,z,values,4*id);
+	}
+	/**
+	 * Gets one component of the quaternion orientation of a body, only used in quaternion mode
+	 * @param id The body
+	 * @param component The component (0=x, 1=y, 2=z, 3=w)
+	 * @return The component
+	 */
+	public double getOrientation(int id, int component)
+	{
+		return orientations[4*id+component];
+	}
+	/**
+	 * Rotates a body by an x, y and z axis rotation on top of its current orientation, only used in quaternion mode
+	 * @param id The body
+	 * @param xDegrees The x axis rotation in degrees
+	 * @param yDegrees The y axis rotation in degrees
+	 * @param zDegrees The z axis rotation in degrees
+	 */
+	public void rotate(int id, double xDegrees, double yDegrees, double zDegrees)
+	{
+		eulerToQuaternion(xDegrees,yDegrees,zDegrees,rotation,0);
+		int i=4*id;
+		double x=orientations[i], y=orientations[i+1], z=orientations[i+2], w=orientations[i+3];
+		orientations[i]=rotation[3]*x+rotation[0]*w+rotation[1]*z-rotation[2]*y;
+		orientations[i+1]=rotation[3]*y+rotation[1]*w+rotation[2]*x-rotation[0]*z;
+		orientations[i+2]=rotation[3]*z+rotation[2]*w+rotation[0]*y-rotation[1]*x;
+		orientations[i+3]=rotation[3]*w-rotation[0]*x-rotation[1]*y-rotation[2]*z;
+		normalise(orientations,i);
+	}
+	/**
+	 * Copies the position and orientation of a body over its previous ones, call before moving it
+	 * @param id The body
+	 */
+	public void savePrevious(int id)
+	{
+		copy(id,POSITION,PREV_POSITION);
+		copy(id,ROTATION,PREV_ROTATION);
+		System.arraycopy(orientations, 4*id, prevOrientations, 4*id, 4);
+	}
+	/**
+	 * Copies the previous position and orientation of a body back over its current ones, undoing the last move
+	 * @param id The body
+	 */
+	public void restorePrevious(int id)
+	{
+		copy(id,PREV_POSITION,POSITION);
+		copy(id,PREV_ROTATION,ROTATION);
+		System.arraycopy(prevOrientations, 4*id, orientations, 4*id, 4);
+	}
+	/**
+	 * Gets the inverse mass of a body
+	 * @param id The body
+	 * @return The inverse mass
+	 */
+	public double getInverseMass(int id)
+	{
+		return inverseMass[id];
+	}
+	/**
+	 * Sets the inverse mass of a body
+	 * @param id The body
+	 * @param inpIMass The inverse mass to set to
+	 */
+	public void setInverseMass(int id, double inpIMass)
+	{
+		inverseMass[id]=inpIMass;
+	}
+	/**
+	 * Checks if a body has a flag
+	 * @param id The body
+	 * @param flag The flag (CAN_MOVE, GRAVITY or ASLEEP)
+	 * @return True if the flag is set
+	 */
+	public boolean hasFlag(int id, int flag)
+	{
+		return (flags[id]&flag)!=0;
+	}
+	/**
+	 * Sets or clears a flag of a body
+	 * @param id The body
+	 * @param flag The flag (CAN_MOVE, GRAVITY or ASLEEP)
+	 * @param value True to set the flag, false to clear it
+	 */
+	public void setFlag(int id, int flag, boolean value)
+	{
+		if(value)
+		{
+			flags[id]|=flag;
+		}
+		else
+		{
+			flags[id]&=~flag;
+		}
+	}
+	/**
+	 * Gets the number of updates in a row a body has been resting
+	 * @param id The body
+	 * @return The number of updates
+	 */
+	public int getRestingSteps(int id)
+	{
+		return restingSteps[id];
+	}
+	/**
+	 * Sets the number of updates in a row a body has been resting
+	 * @param id The body
+	 * @param steps The number of updates
+	 */
+	public void setRestingSteps(int id, int steps)
+	{
+		restingSteps[id]=steps;
+	}
+	/**
+	 * Accelerates and moves every body that is awake by a time step, bodies that can't move are skipped as they never speed up.
+	 * Doesn't create any objects, call updateMatrices on the moved objects afterwards.
+	 * @param time The time step (in ms)
+	 */
+	public void integrate(double time)
+	{
+		double step=0.001*time;
+		for(int id=0;id<count;id++)
+		{
+			int bodyFlags=flags[id];
+			//Sleeping bodies stay where they are, and bodies that can't move don't build up speed from gravity
+			if((bodyFlags&ASLEEP)!=0||(bodyFlags&CAN_MOVE)==0)
+			{
+				continue;
+			}
+			acceleratePosition(id,step);
+			accelerateRotation(id,step);
+			savePrevious(id);
+			translate(id,step);
+		}
+	}
+	/**
+	 * Accelerates the velocity of a body
+	 * @param id The body
+	 * @param step The time step in seconds
+	 */
+	public void acceleratePosition(int id, double step)
+	{
+		double[] vel=vectors[VELOCITY];
+		double[] acc=vectors[ACCELERATION];
+		int i=3*id;
+		copy(id,VELOCITY,PREV_VELOCITY);
+		vel[i]+=acc[i]*step;
+		//Stop speeding up once falling at 10 per second
+		if(vel[i+1]>-10)
+		{
+			vel[i+1]+=acc[i+1]*step;
+		}
+		vel[i+2]+=acc[i+2]*step;
+	}
+	/**
+	 * Accelerates the rotation velocity of a body
+	 * @param id The body
+	 * @param step The time step in seconds
+	 */
+	public void accelerateRotation(int id, double step)
+	{
+		double[] rotVel=vectors[ROTATION_VELOCITY];
+		double[] rotAcc=vectors[ROTATION_ACCELERATION];
+		int i=3*id;
+		rotVel[i]+=rotAcc[i]*step;
+		rotVel[i+1]+=rotAcc[i+1]*step;
+		rotVel[i+2]+=rotAcc[i+2]*step;
+	}
+	/**
+	 * Moves and rotates a body according to its velocities, doesn't change the previous position or rotation
+	 * @param id The body
+	 * @param step The time step in seconds
+	 */
+	public void translate(int id, double step)
+	{
+		double[] pos=vectors[POSITION];
+		double[] vel=vectors[VELOCITY];
+		double[] rot=vectors[ROTATION];
+		double[] rotVel=vectors[ROTATION_VELOCITY];
+		for(int i=3*id;i<3*id+3;i++)
+		{
+			pos[i]=pos[i]+(vel[i]*step);
+			if(!quaternions)
+			{
+				rot[i]=rot[i]+(rotVel[i]*step);
+				//Keep the rotation under 360 degrees
+				if(rot[i]>=360)
+				{
+					rot[i]-=360;
+				}
+			}
+		}
+		if(quaternions)
+		{
+			integrateOrientation(id,step);
+		}
+	}
+	/**
+	 * Rotates the quaternion orientation of a body by its rotation velocity, treated as an angular velocity in degrees per second
+	 * @param id The body
+	 * @param step The time step in seconds
+	 */
+	private void integrateOrientation(int id, double step)
+	{
+		double[] rotVel=vectors[ROTATION_VELOCITY];
+		double wx=Math.toRadians(rotVel[3*id]);
+		double wy=Math.toRadians(rotVel[3*id+1]);
+		double wz=Math.toRadians(rotVel[3*id+2]);
+		if(wx==0&&wy==0&&wz==0)
+		{
+			return;//Not rotating
+		}
+		int i=4*id;
+		double x=orientations[i], y=orientations[i+1], z=orientations[i+2], w=orientations[i+3];
+		//q+=0.5*step*(angular velocity*q)
+		double half=0.5*step;
+		orientations[i]=x+half*(wx*w+wy*z-wz*y);
+		orientations[i+1]=y+half*(wy*w+wz*x-wx*z);
+		orientations[i+2]=z+half*(wz*w+wx*y-wy*x);
+		orientations[i+3]=w-half*(wx*x+wy*y+wz*z);
+		normalise(orientations,i);
+	}
+	/**
+	 * Converts x, y and z axis rotations to a quaternion. The rotation is the x rotation times the y rotation times the z rotation,
+	 * the same as the rotation matrix of RigidTransform.setRotation.
+	 * @param xDegrees The x axis rotation in degrees
+	 * @param yDegrees The y axis rotation in degrees
+	 * @param zDegrees The z axis rotation in degrees
+	 * @param output The array to put the quaternion in, stored {x,y,z,w}
+	 * @param index The position in the array to put it
+	 */
+	private static void eulerToQuaternion(double xDegrees, double yDegrees, double zDegrees, double[] output, int index)
+	{
+		double cx=Math.cos(Math.toRadians(xDegrees)*0.5), sx=Math.sin(Math.toRadians(xDegrees)*0.5);
+		double cy=Math.cos(Math.toRadians(yDegrees)*0.5), sy=Math.sin(Math.toRadians(yDegrees)*0.5);
+		double cz=Math.cos(Math.toRadians(zDegrees)*0.5), sz=Math.sin(Math.toRadians(zDegrees)*0.5);
+		output[index]=sx*cy*cz+cx*sy*sz;
+		output[index+1]=cx*sy*cz-sx*cy*sz;
+		output[index+2]=cx*cy*sz+sx*sy*cz;
+		output[index+3]=cx*cy*cz-sx*sy*sz;
+	}
+	/**
+	 * Scales a quaternion back to length 1 so rounding errors don't build up
+	 * @param values The array the quaternion is stored in
+	 * @param index The position of the quaternion in the array
+	 */
+	private static void normalise(double[] values, int index)
+	{
+		double length=Math.sqrt(values[index]*values[index]+values[index+1]*values[index+1]+values[index+2]*values[index+2]+values[index+3]*values[index+3]);
+		values[index]/=length;
+		values[index+1]/=length;
+		values[index+2]/=length;
+		values[index+3]/=length;
+	}
+}
@@ -0,0 +1,110 @@
+package application;
+
+/**
+ * A position that reads and writes one of the vectors of an object in its body store instead of holding its own values.
+ * Changing it changes the object, so code that gets an object's position and changes it still works.
+ * @author Sam Dark
+ *
+ */
+public class BodyVector extends Position
+{
+	/** The object the vector belongs to */
+	private CustomObject owner;
+	/** The vector in the body store (BodyStore.POSITION etc) */
+	private int vector;
+
+	/**
+	 * Creates a view of one of an object's vectors
+	 * @param inpOwner The object
+	 * @param inpVector The vector in the body store (BodyStore.POSITION etc)
+	 */
+	BodyVector(CustomObject inpOwner, int inpVector)
+	{
+		owner=inpOwner;
+		vector=inpVector;
+	}
+	/**
+	 * Sets the vector to the input one.
+	 * @param inpX The x component
+	 * @param inpY The y component
+	 * @param inpZ The z component
+	 */
+	@Override
+	public void setPosition(double inpX, double inpY, double inpZ)
+	{
+		owner.getBodyStore().set(owner.getBodyId(), vector, inpX, inpY, inpZ);
+	}
+	/**
+	 * Sets the vector to one specified in an array of doubles
+	 * @param inpPosition The array of doubles to set to, in order {x,y,z}
+	 */
+	@Override
+	public void setPosition(double[] inpPosition)
+	{
+		setPosition(inpPosition[0],inpPosition[1],inpPosition[2]);
+	}
+	/**
+	 * Gets an array of doubles containing the vector.
+	 * @return An array of doubles for the vector {x,y,z}
+	 */
+	@Override
+	public double[] getPosition()
+	{
+		double[] output= {getX(),getY(),getZ()};
+		return output;
+	}
+	/**
+	 * Gets the x component of the vector
+	 * @return The x component
+	 */
+	@Override
+	public double getX()
+	{
+		return owner.getBodyStore().get(owner.getBodyId(), vector, 0);
+	}
+	/**
+	 * Gets the y component of the vector
+	 * @return The y component
+	 */
+	@Override
+	public double getY()
+	{
+		return owner.getBodyStore().get(owner.getBodyId(), vector, 1);
+	}
+	/**
+	 * Gets the z component of the vector
+	 * @return The z component
+	 */
+	@Override
+	public double getZ()
+	{
+		return owner.getBodyStore().get(owner.getBodyId(), vector, 2);
+	}
+	/**
+	 * Sets the x component of the vector
+	 * @param inpX The x to change to
+	 */
+	@Override
+	public void setX(double inpX)
+	{
+		owner.getBodyStore().set(owner.getBodyId(), vector, 0, inpX);
+	}
+	/**
+	 * Sets the y component of the vector
+	 * @param inpY The y to change to
+	 */
+	@Override
+	public void setY(double inpY)
+	{
+		owner.getBodyStore().set(owner.getBodyId(), vector, 1, inpY);
+	}
+	/**
+	 * Sets the z component of the vector
+	 * @param inpZ The z to change to
+	 */
+	@Override
+	public void setZ(double inpZ)
+	{
+		owner.getBodyStore().set(owner.getBodyId(), vector, 2, inpZ);
+	}
+}
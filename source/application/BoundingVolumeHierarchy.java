@@ -0,0 +1,258 @@
+package application;
+
+/**
+ * A bounding volume hierarchy built once over a fixed set of boxes, used for finding which boxes overlap a query box.
+ * Built top down by splitting the boxes in half along the longest axis of their centres.
+ * The tree can't be changed after it is built, use DynamicAABBTree for boxes that move.
+ * Searching doesn't change the tree so it is safe to search from more than one thread at once.
+ * @author Sam Dark
+ *
+ */
+public class BoundingVolumeHierarchy
+{
+	/** The most items stored in a leaf */
+	private static final int LEAF_SIZE=4;
+	/** The boxes of the items, stored {minX,minY,minZ,maxX,maxY,maxZ} for item 0 then item 1 etc */
+	private double[] itemBoxes;
+	/** The item numbers, ordered so the items in each leaf are next to each other */
+	private int[] items;
+	/** The boxes of the nodes, stored the same as itemBoxes */
+	private double[] nodeBoxes;
+	/** For leaves the first item in the items array, for branches the second child (the first child is the next node) */
+	private int[] nodeData;
+	/** The number of items in each leaf, 0 for branches */
+	private int[] nodeCounts;
+	/** The number of nodes in the tree */
+	private int nodeCount=0;
+
+	/**
+	 * Builds a hierarchy over the given boxes
+	 * @param inpBoxes The boxes, stored {minX,minY,minZ,maxX,maxY,maxZ} for item 0 then item 1 etc. Not copied so don't change them.
+	 * @param inpCount The number of boxes
+	 */
+	BoundingVolumeHierarchy(double[] inpBoxes, int inpCount)
+	{
+		itemBoxes=inpBoxes;
+		items=new int[inpCount];
+		for(int i=0;i<inpCount;i++)
+		{
+			items[i]=i;
+		}
+		//A tree with leaves of at least one item has at most 2n-1 nodes
+		int maxNodes=Math.max(2*inpCount-1,1);
+		nodeBoxes=new double[6*maxNodes];
+		nodeData=new int[maxNodes];
+		nodeCounts=new int[maxNodes];
+		if(inpCount>0)
+		{
+			build(0,inpCount);
+		}
+	}
+	/**
+	 * Finds all the items whose boxes overlap a query box
+	 * @param minX Min x of the query box
+	 * @param minY Min y of the query box
+	 * @param minZ Min z of the query box
+	 * @param maxX Max x of the query box
+	 * @param maxY Max y of the query box
+	 * @param maxZ Max z of the query box
+	 * @param output The list to add the overlapping item numbers to, isn't cleared first
+	 */
+	public void query(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, IntList output)
+	{
+		if(nodeCount>0)
+		{
+			query(0,minX,minY,minZ,maxX,maxY,maxZ,output);
+		}
+	}
+	/**
+	 * Gets the number of items in the hierarchy
+	 * @return The number of items
+	 */
+	public int getItemCount()
+	{
+		return items.length;
+	}
+	/**
+	 * Gets the min coord of the box around everything in the hierarchy
+	 * @param axis The axis (0=x, 1=y, 2=z)
+	 * @return The min coord on that axis
+	 */
+	public double getMin(int axis)
+	{
+		return nodeBoxes[axis];
+	}
+	/**
+	 * Gets the max coord of the box around everything in the hierarchy
+	 * @param axis The axis (0=x, 1=y, 2=z)
+	 * @return The max coord on that axis
+	 */
+	public double getMax(int axis)
+	{
+		return nodeBoxes[3+axis];
+	}
+	/**
+	 * Searches a node and its children for items overlapping the query box
+	 * @param node The node to search
+	 * @param minX Min x of the query box
+	 * @param minY Min y of the query box
+	 * @param minZ Min z of the query box
+	 * @param maxX Max x of the query box
+	 * @param maxY Max y of the query box
+	 * @param maxZ Max z of the query box
+	 * @param output The list to add the overlapping item numbers to
+	 */
+	private void query(int node, double minX, double minY, double minZ, double maxX, double maxY, double maxZ, IntList output)
+	{
+		if(!overlaps(nodeBoxes,node,minX,minY,minZ,maxX,maxY,maxZ))
+		{
+			return;
+		}
+		if(nodeCounts[node]>0)
+		{
+			//Leaf, test the items
+			int start=nodeData[node];
+			for(int i=start;i<start+nodeCounts[node];i++)
+			{
+				if(overlaps(itemBoxes,items[i],minX,minY,minZ,maxX,maxY,maxZ))
+				{
+					output.add(items[i]);
+				}
+			}
+		}
+		else
+		{
+			query(node+1,minX,minY,minZ,maxX,maxY,maxZ,output);
+			query(nodeData[node],minX,minY,minZ,maxX,maxY,maxZ,output);
+		}
+	}
+	/**
+	 * Builds a node for a range of the items array, splitting it into two children if it has too many items
+	 * @param start The first item
+	 * @param end One past the last item
+	 * @return The node
+	 */
+	private int build(int start, int end)
+	{
+		int node=nodeCount;
+		nodeCount++;
+		//Get the box around the items and the box around their centres
+		double[] centreMin={Double.MAX_VALUE,Double.MAX_VALUE,Double.MAX_VALUE};
+		double[] centreMax={-Double.MAX_VALUE,-Double.MAX_VALUE,-Double.MAX_VALUE};
+		for(int k=0;k<3;k++)
+		{
+			nodeBoxes[6*node+k]=Double.MAX_VALUE;
+			nodeBoxes[6*node+3+k]=-Double.MAX_VALUE;
+		}
+		for(int i=start;i<end;i++)
+		{
+			int item=items[i];
+			for(int k=0;k<3;k++)
+			{
+				nodeBoxes[6*node+k]=Math.min(nodeBoxes[6*node+k], itemBoxes[6*item+k]);
+				nodeBoxes[6*node+3+k]=Math.max(nodeBoxes[6*node+3+k], itemBoxes[6*item+3+k]);
+				double centre=centre(item,k);
+				centreMin[k]=Math.min(centreMin[k], centre);
+				centreMax[k]=Math.max(centreMax[k], centre);
+			}
+		}
+		if(end-start<=LEAF_SIZE)
+		{
+			nodeData[node]=start;
+			nodeCounts[node]=end-start;
+			return node;
+		}
+		//Split in half along the axis the centres are most spread out on
+		int axis=0;
+		for(int k=1;k<3;k++)
+		{
+			if(centreMax[k]-centreMin[k]>centreMax[axis]-centreMin[axis])
+			{
+				axis=k;
+			}
+		}
+		int mid=(start+end)>>>1;
+		partition(start,end-1,mid,axis);
+		nodeCounts[node]=0;
+		build(start,mid);//First child is always the next node
+		nodeData[node]=build(mid,end);
+		return node;
+	}
+	/**
+	 * Reorders a range of the items so the item at position k is the one that would be there if they were sorted by centre,
+	 * with smaller centres before it and bigger ones after (quickselect)
+	 * @param left The first item in the range
+	 * @param right The last item in the range
+	 * @param k The position to put in place
+	 * @param axis The axis to compare centres on
+	 */
+	private void partition(int left, int right, int k, int axis)
+	{
+		while(left<right)
+		{
+			double pivot=centre(items[(left+right)>>>1],axis);
+			int i=left;
+			int j=right;
+			while(i<=j)
+			{
+				while(centre(items[i],axis)<pivot)
+				{
+					i++;
+				}
+				while(centre(items[j],axis)>pivot)
+				{
+					j--;
+				}
+				if(i<=j)
+				{
+					int temp=items[i];
+					items[i]=items[j];
+					items[j]=temp;
+					i++;
+					j--;
+				}
+			}
+			if(k<=j)
+			{
+				right=j;
+			}
+			else if(k>=i)
+			{
+				left=i;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+	/**
+	 * Gets the centre of an item's box on an axis
+	 * @param item The item
+	 * @param axis The axis
+	 * @return The centre
+	 */
+	private double centre(int item, int axis)
+	{
+		return (itemBoxes[6*item+axis]+itemBoxes[6*item+3+axis])*0.5;
+	}
+	/**
+	 * Checks if a stored box overlaps the query box
+	 * @param boxes The array the box is stored in
+	 * @param index The box's position in the array
+	 * @param minX Min x of the query box
+	 * @param minY Min y of the query box
+	 * @param minZ Min z of the query box
+	 * @param maxX Max x of the query box
+	 * @param maxY Max y of the query box
+	 * @param maxZ Max z of the query box
+	 * @return True if they overlap or touch
+	 */
+	private static boolean overlaps(double[] boxes, int index, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+	{
+		int b=6*index;
+		return boxes[b]<=maxX&&boxes[b+3]>=minX
+				&&boxes[b+1]<=maxY&&boxes[b+4]>=minY
+				&&boxes[b+2]<=maxZ&&boxes[b+5]>=minZ;
+	}
+}
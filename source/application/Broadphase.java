@@ -0,0 +1,31 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * The first stage of collision detection. Finds the pairs of objects whose AABBs overlap so only those
+ * pairs need checking by the more expensive collision checks.
+ * @author Sam Dark
+ *
+ */
+public interface Broadphase
+{
+	/**
+	 * Finds all the pairs of overlapping AABBs. Pairs between two objects that aren't active (can't move or are asleep) are not reported.
+	 * @param inpAABBs The AABBs of the objects, in the same order as the objects
+	 * @param inpObjs The objects the AABBs belong to
+	 * @return The number of overlapping pairs found
+	 */
+	public int findPairs(ArrayList<AABB> inpAABBs, ArrayList<CustomObject> inpObjs);
+	/**
+	 * Gets the pairs found by the last call to findPairs.
+	 * Pair k is (pairs[2*k], pairs[2*k+1]) and the first object is always the smaller index.
+	 * Pairs are ordered by first object then second object.
+	 * @return The array of pairs, only the first 2*getPairCount() values are valid
+	 */
+	public int[] getPairs();
+	/**
+	 * Gets the number of pairs found by the last call to findPairs
+	 * @return The number of pairs
+	 */
+	public int getPairCount();
+}
@@ -0,0 +1,478 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * A simple shape standing in for the low poly mesh of an object in collision checks, so checks between two simple shapes
+ * can be worked out directly instead of testing the mesh faces one by one.
+ * The shape is in the object's own space and is fitted to its low poly vertices, either when it is declared for the object
+ * in the config or automatically when the vertices are all close enough to the shape.
+ * Shapes are lined up with the axes of the object's own space, which is how the meshes are made.
+ * Any mesh can also use its convex hull, which fits exactly if the mesh has no dents.
+ * @author Sam Dark
+ *
+ */
+public class Collider
+{
+	/** A ball around a centre */
+	public static final int SPHERE=1;
+	/** A line segment along an axis with a radius around it, a cylinder with rounded ends */
+	public static final int CAPSULE=2;
+	/** A flat box that is thin along one axis, a plane if it has no thickness */
+	public static final int PLANE=3;
+	/** The convex hull of the vertices */
+	public static final int HULL=4;
+	/** Shapes closer than this fraction of their radius are touching */
+	static final double TOUCHING=0.01;
+
+	/** The type of shape */
+	int type;
+	/** The x coord of the centre of the shape */
+	double centerX;
+	/** The y coord of the centre of the shape */
+	double centerY;
+	/** The z coord of the centre of the shape */
+	double centerZ;
+	/** The axis of a capsule's segment or a plane's normal, 0 for x, 1 for y and 2 for z */
+	int axis;
+	/** Half the length of a capsule's segment or half the thickness of a plane */
+	double halfLength;
+	/** The radius of a sphere or capsule */
+	double radius;
+	/** The low corner of the box around the vertices {minX,minY,minZ}, the edges of a plane */
+	double[] min=new double[3];
+	/** The high corner of the box around the vertices {maxX,maxY,maxZ}, the edges of a plane */
+	double[] max=new double[3];
+	/** The hull of a hull shape */
+	ConvexHull hull;
+	/** The furthest any point of the shape is from the origin of the object's own space, how far it can move when the object turns */
+	double reach;
+
+	/**
+	 * Creates a collider of the given type, the sizes need setting
+	 * @param inpType The type of shape
+	 */
+	Collider(int inpType)
+	{
+		type=inpType;
+	}
+	/**
+	 * Fits a shape to the low poly mesh of an object
+	 * @param shape "sphere", "capsule", "plane" or "hull" to fit that shape whatever the mesh looks like, "auto" to use the first
+	 * shape that fits within the tolerance or "mesh" or "sdf" to use the mesh
+	 * @param inpVertices The low poly vertices of the object in its own space
+	 * @param inpFaces The low poly faces of the object
+	 * @param tolerance How far the mesh can be from an automatically fitted shape, as a fraction of the shape's size. 0 to never fit automatically
+	 * @return The shape, null if the mesh should be used
+	 */
+	public static Collider fit(String shape, ArrayList<Vertex> inpVertices, ArrayList<TriangularFace> inpFaces, double tolerance)
+	{
+		if(inpVertices.size()==0)
+		{
+			return null;
+		}
+		Collider collider;
+		switch(shape)
+		{
+			case "sphere": collider=fitSphere(inpVertices,Double.POSITIVE_INFINITY);break;
+			case "capsule": collider=fitCapsule(inpVertices,Double.POSITIVE_INFINITY);break;
+			case "plane": collider=fitPlane(inpVertices,inpFaces,Double.POSITIVE_INFINITY);break;
+			case "hull": collider=fitHull(inpVertices,inpFaces,Double.POSITIVE_INFINITY);break;
+			case "mesh": return null;
+			case "sdf": return null;//The mesh is checked using its distance field instead
+			case "auto":
+				if(tolerance<=0)
+				{
+					return null;
+				}
+				//Try the simplest shapes first
+				collider=fitSphere(inpVertices,tolerance);
+				if(collider==null)
+				{
+					collider=fitCapsule(inpVertices,tolerance);
+				}
+				if(collider==null)
+				{
+					collider=fitPlane(inpVertices,inpFaces,tolerance);
+				}
+				if(collider==null)
+				{
+					collider=fitHull(inpVertices,inpFaces,tolerance);
+				}
+				break;
+			default: System.out.println("Unknown collider shape: "+shape);return null;
+		}
+		if(collider!=null)
+		{
+			collider.setReach();
+		}
+		return collider;
+	}
+	/**
+	 * Fits a sphere around the average of the vertices with their average distance from it as the radius
+	 * @param inpVertices The vertices
+	 * @param tolerance How much the distances of the vertices from the centre can differ, as a fraction of the radius
+	 * @return The sphere, null if the vertices don't fit
+	 */
+	private static Collider fitSphere(ArrayList<Vertex> inpVertices, double tolerance)
+	{
+		Collider sphere=new Collider(SPHERE);
+		sphere.setBounds(inpVertices);
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			sphere.centerX+=inpVertices.get(i).getX();
+			sphere.centerY+=inpVertices.get(i).getY();
+			sphere.centerZ+=inpVertices.get(i).getZ();
+		}
+		sphere.centerX/=inpVertices.size();
+		sphere.centerY/=inpVertices.size();
+		sphere.centerZ/=inpVertices.size();
+		double minDistance=Double.MAX_VALUE, maxDistance=0, total=0;
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			double dx=v.getX()-sphere.centerX, dy=v.getY()-sphere.centerY, dz=v.getZ()-sphere.centerZ;
+			double distance=Math.sqrt(dx*dx+dy*dy+dz*dz);
+			minDistance=Math.min(minDistance, distance);
+			maxDistance=Math.max(maxDistance, distance);
+			total+=distance;
+		}
+		sphere.radius=total/inpVertices.size();
+		if(maxDistance-minDistance>tolerance*sphere.radius)
+		{
+			return null;
+		}
+		return sphere;
+	}
+	/**
+	 * Fits a capsule along the longest axis of the box around the vertices, with half the average width of the box
+	 * across the other two axes as the radius
+	 * @param inpVertices The vertices
+	 * @param tolerance How much the distances of the vertices from the segment can differ from the radius, as a fraction of the radius
+	 * @return The capsule, null if the vertices don't fit
+	 */
+	private static Collider fitCapsule(ArrayList<Vertex> inpVertices, double tolerance)
+	{
+		Collider capsule=new Collider(CAPSULE);
+		capsule.setBounds(inpVertices);
+		capsule.axis=capsule.longestAxis();
+		capsule.radius=0.25*(capsule.size((capsule.axis+1)%3)+capsule.size((capsule.axis+2)%3));
+		capsule.halfLength=Math.max(0, 0.5*capsule.size(capsule.axis)-capsule.radius);
+		if(capsule.radius<=0)
+		{
+			return null;
+		}
+		double[] segmentPoint=new double[3];
+		double[] center={capsule.centerX,capsule.centerY,capsule.centerZ};
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			double[] point={v.getX(),v.getY(),v.getZ()};
+			//The closest point on the segment
+			segmentPoint[0]=center[0];
+			segmentPoint[1]=center[1];
+			segmentPoint[2]=center[2];
+			segmentPoint[capsule.axis]=Math.max(center[capsule.axis]-capsule.halfLength, Math.min(center[capsule.axis]+capsule.halfLength, point[capsule.axis]));
+			double dx=point[0]-segmentPoint[0], dy=point[1]-segmentPoint[1], dz=point[2]-segmentPoint[2];
+			if(Math.abs(Math.sqrt(dx*dx+dy*dy+dz*dz)-capsule.radius)>tolerance*capsule.radius)
+			{
+				return null;
+			}
+		}
+		return capsule;
+	}
+	/**
+	 * Fits a plane across the shortest axis of the box around the vertices, as thick as the box is along that axis.
+	 * The faces pointing along the axis have to cover the box, so a thin mesh with holes or curved edges isn't made a plane.
+	 * @param inpVertices The vertices
+	 * @param inpFaces The faces
+	 * @param tolerance How thick the plane can be and how much of it can be uncovered, as a fraction of its width
+	 * @return The plane, null if the mesh doesn't fit
+	 */
+	private static Collider fitPlane(ArrayList<Vertex> inpVertices, ArrayList<TriangularFace> inpFaces, double tolerance)
+	{
+		Collider plane=new Collider(PLANE);
+		plane.setBounds(inpVertices);
+		plane.axis=plane.shortestAxis();
+		plane.halfLength=0.5*plane.size(plane.axis);
+		double width1=plane.size((plane.axis+1)%3);
+		double width2=plane.size((plane.axis+2)%3);
+		if(width1<=0||width2<=0)
+		{
+			return null;
+		}
+		if(tolerance==Double.POSITIVE_INFINITY)
+		{
+			return plane;
+		}
+		if(plane.size(plane.axis)>tolerance*Math.min(width1, width2))
+		{
+			return null;
+		}
+		//Add up the area of the faces seen looking along the axis, at least one side has to be covered
+		double area=0;
+		for(int i=0; i<inpFaces.size(); i++)
+		{
+			Vertex a=inpVertices.get(inpFaces.get(i).getVertex(0)-1);
+			Vertex b=inpVertices.get(inpFaces.get(i).getVertex(1)-1);
+			Vertex c=inpVertices.get(inpFaces.get(i).getVertex(2)-1);
+			double[] ab={b.getX()-a.getX(),b.getY()-a.getY(),b.getZ()-a.getZ()};
+			double[] ac={c.getX()-a.getX(),c.getY()-a.getY(),c.getZ()-a.getZ()};
+			int u=(plane.axis+1)%3, v=(plane.axis+2)%3;
+			area+=0.5*Math.abs(ab[u]*ac[v]-ab[v]*ac[u]);
+		}
+		if(area<(1-tolerance)*width1*width2)
+		{
+			return null;
+		}
+		return plane;
+	}
+	/**
+	 * Uses the convex hull of the vertices. Only fits automatically if the mesh has no dents, so every vertex and the
+	 * middle of every face is on the surface of the hull
+	 * @param inpVertices The vertices
+	 * @param inpFaces The faces
+	 * @param tolerance How far inside the hull the mesh can be, as a fraction of the smallest size of the box around the vertices
+	 * @return The hull, null if the mesh doesn't fit or is flat
+	 */
+	private static Collider fitHull(ArrayList<Vertex> inpVertices, ArrayList<TriangularFace> inpFaces, double tolerance)
+	{
+		Collider hull=new Collider(HULL);
+		hull.setBounds(inpVertices);
+		try
+		{
+			hull.hull=new ConvexHull(inpVertices);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return null;//Flat meshes are planes
+		}
+		if(tolerance==Double.POSITIVE_INFINITY)
+		{
+			return hull;
+		}
+		double allowed=tolerance*hull.size(hull.shortestAxis());
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			if(hull.hull.depth(v.getX(),v.getY(),v.getZ())>allowed)
+			{
+				return null;
+			}
+		}
+		//A dent can be made from vertices that are all on the hull, but then the middle of a face in it isn't
+		for(int i=0; i<inpFaces.size(); i++)
+		{
+			Vertex a=inpVertices.get(inpFaces.get(i).getVertex(0)-1);
+			Vertex b=inpVertices.get(inpFaces.get(i).getVertex(1)-1);
+			Vertex c=inpVertices.get(inpFaces.get(i).getVertex(2)-1);
+			if(hull.hull.depth((a.getX()+b.getX()+c.getX())/3,(a.getY()+b.getY()+c.getY())/3,(a.getZ()+b.getZ()+c.getZ())/3)>allowed)
+			{
+				return null;
+			}
+		}
+		return hull;
+	}
+	/**
+	 * Works out how far the shape reaches from the origin of the object's own space
+	 */
+	private void setReach()
+	{
+		double center=Math.sqrt(centerX*centerX+centerY*centerY+centerZ*centerZ);
+		switch(type)
+		{
+			case SPHERE: reach=center+radius;break;
+			case CAPSULE: reach=center+halfLength+radius;break;
+			case HULL:
+				reach=0;
+				for(int i=0; i<hull.getVertexCount(); i++)
+				{
+					double x=hull.getX(i), y=hull.getY(i), z=hull.getZ(i);
+					reach=Math.max(reach, Math.sqrt(x*x+y*y+z*z));
+				}
+				break;
+			default:
+				//The furthest corner of the box
+				double x=Math.max(Math.abs(min[0]), Math.abs(max[0]));
+				double y=Math.max(Math.abs(min[1]), Math.abs(max[1]));
+				double z=Math.max(Math.abs(min[2]), Math.abs(max[2]));
+				reach=Math.sqrt(x*x+y*y+z*z);
+		}
+	}
+	/**
+	 * Finds the point of the shape furthest along a direction, in the object's own space
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 * @param output Array of at least 3 to put the point's x,y,z in
+	 */
+	public void support(double dx, double dy, double dz, double[] output)
+	{
+		switch(type)
+		{
+			case HULL:
+				int point=hull.support(dx,dy,dz);
+				output[0]=hull.getX(point);
+				output[1]=hull.getY(point);
+				output[2]=hull.getZ(point);
+				return;
+			case PLANE:
+				//The corner of the box on the side of the direction
+				output[0]=dx>=0 ? max[0] : min[0];
+				output[1]=dy>=0 ? max[1] : min[1];
+				output[2]=dz>=0 ? max[2] : min[2];
+				return;
+			default:
+				//The centre, or the end of the capsule's segment on the side of the direction, then out by the radius
+				output[0]=centerX;
+				output[1]=centerY;
+				output[2]=centerZ;
+				if(type==CAPSULE)
+				{
+					double along=axis==0 ? dx : (axis==1 ? dy : dz);
+					output[axis]+=along>=0 ? halfLength : -halfLength;
+				}
+				double length=Math.sqrt(dx*dx+dy*dy+dz*dz);
+				if(length>0)
+				{
+					output[0]+=radius*dx/length;
+					output[1]+=radius*dy/length;
+					output[2]+=radius*dz/length;
+				}
+		}
+	}
+	/**
+	 * Gets how big the shape is for working out how close counts as touching. Planes don't count as they can be any size.
+	 * @return The radius of a sphere or capsule, half the smallest size of a hull's box, infinity for a plane
+	 */
+	public double getSize()
+	{
+		switch(type)
+		{
+			case SPHERE:
+			case CAPSULE: return radius;
+			case HULL: return 0.5*size(shortestAxis());
+			default: return Double.POSITIVE_INFINITY;
+		}
+	}
+	/**
+	 * Grows a box in actual space to cover a sphere or capsule and the distance around a shape that counts as touching,
+	 * so objects that are touching always have overlapping boxes
+	 * @param inpTransform The transform of the object
+	 * @param bounds The box to grow {minX,minY,minZ,maxX,maxY,maxZ}
+	 */
+	public void growBounds(RigidTransform inpTransform, double[] bounds)
+	{
+		if(type==PLANE)
+		{
+			return;//A plane is the box around the vertices, and whatever touches it reaches out to it
+		}
+		if(type==HULL)
+		{
+			//A hull is inside the box around the vertices, so only the touching distance is added
+			double touching=TOUCHING*getSize();
+			for(int k=0; k<3; k++)
+			{
+				bounds[k]-=touching;
+				bounds[k+3]+=touching;
+			}
+			return;
+		}
+		double grown=radius*(1+TOUCHING);
+		for(int e=-1; e<=1; e+=2)
+		{
+			//The ends of the capsule's segment, or the centre twice for a sphere
+			double offset=e*halfLength;
+			double x=centerX+(axis==0 ? offset : 0), y=centerY+(axis==1 ? offset : 0), z=centerZ+(axis==2 ? offset : 0);
+			for(int k=0; k<3; k++)
+			{
+				//Each actual coord of the end worked out on its own, called every update so nothing is made
+				double translation=k==0 ? inpTransform.getTranslationX() : (k==1 ? inpTransform.getTranslationY() : inpTransform.getTranslationZ());
+				double point=inpTransform.getRotation(k,0)*x+inpTransform.getRotation(k,1)*y+inpTransform.getRotation(k,2)*z+translation;
+				bounds[k]=Math.min(bounds[k], point-grown);
+				bounds[k+3]=Math.max(bounds[k+3], point+grown);
+			}
+		}
+	}
+	/**
+	 * Sets the box around the vertices and puts the centre in the middle of it
+	 * @param inpVertices The vertices
+	 */
+	private void setBounds(ArrayList<Vertex> inpVertices)
+	{
+		for(int k=0; k<3; k++)
+		{
+			min[k]=Double.MAX_VALUE;
+			max[k]=-Double.MAX_VALUE;
+		}
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			min[0]=Math.min(min[0], v.getX());
+			min[1]=Math.min(min[1], v.getY());
+			min[2]=Math.min(min[2], v.getZ());
+			max[0]=Math.max(max[0], v.getX());
+			max[1]=Math.max(max[1], v.getY());
+			max[2]=Math.max(max[2], v.getZ());
+		}
+		centerX=0.5*(min[0]+max[0]);
+		centerY=0.5*(min[1]+max[1]);
+		centerZ=0.5*(min[2]+max[2]);
+	}
+	/**
+	 * Gets the size of the box around the vertices along an axis
+	 * @param inpAxis The axis
+	 * @return The size
+	 */
+	private double size(int inpAxis)
+	{
+		return max[inpAxis]-min[inpAxis];
+	}
+	/**
+	 * Gets the axis the box around the vertices is longest along
+	 * @return The axis
+	 */
+	private int longestAxis()
+	{
+		if(size(0)>=size(1)&&size(0)>=size(2))
+		{
+			return 0;
+		}
+		return size(1)>=size(2) ? 1 : 2;
+	}
+	/**
+	 * Gets the axis the box around the vertices is shortest along
+	 * @return The axis
+	 */
+	private int shortestAxis()
+	{
+		if(size(0)<=size(1)&&size(0)<=size(2))
+		{
+			return 0;
+		}
+		return size(1)<=size(2) ? 1 : 2;
+	}
+	/**
+	 * Gets the type of shape
+	 * @return SPHERE, CAPSULE, PLANE or HULL
+	 */
+	public int getType()
+	{
+		return type;
+	}
+	/**
+	 * Gets how far the shape reaches from the origin of the object's own space
+	 * @return The distance
+	 */
+	public double getReach()
+	{
+		return reach;
+	}
+	/**
+	 * Gets the radius of a sphere or capsule
+	 * @return The radius
+	 */
+	public double getRadius()
+	{
+		return radius;
+	}
+}
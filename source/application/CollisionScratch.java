@@ -0,0 +1,42 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * Working storage for the narrowphase collision checks.
+ * Each thread checking collisions has its own so checks can run at the same time without sharing anything they change.
+ * @author Sam Dark
+ *
+ */
+public class CollisionScratch
+{
+	/** The faces that could be hit in the current check */
+	IntList candidateFaces=new IntList();
+	/** Moves the first object's vertices from actual space into the second object's space */
+	RigidTransform toRelative=new RigidTransform();
+	/** The normal of the face that was hit, in actual space */
+	double[] normal=new double[3];
+	/** A vertex of the first object at the start of the update moved into the second object's space */
+	double[] relativeStartPoint=new double[3];
+	/** The first object's vertices at the start of the update moved into the second object's space, only the first vertex count of them are used */
+	VertexCoords relativeStart=new VertexCoords();
+	/** The first object's vertices at the end of the update moved into the second object's space, only the first vertex count of them are used */
+	VertexCoords relativeEnd=new VertexCoords();
+	/** The box around the first object's vertices at both the start and end of the update, in actual space */
+	double[] pathBounds=new double[6];
+	/** The path bounds moved into the second object's space */
+	double[] relativeBounds=new double[6];
+	/** The distance and way out sampled from a distance field */
+	double[] sample=new double[4];
+	/** The start and end points of the rays being checked in the second object's space, {startX,startY,startZ,endX,endY,endZ} for each ray */
+	double[] rays=new double[96];
+	/** The candidate faces as a batch of triangles for the ray tests */
+	TriangleBatch triangles=new TriangleBatch();
+	/** The earliest hit of the rays being checked */
+	RayHit hit=new RayHit();
+	/** Checks for objects with simple shapes instead of meshes */
+	PrimitiveCollisions primitives=new PrimitiveCollisions();
+	/** The manifolds with contacts in the island being resolved */
+	ArrayList<ContactManifold> manifolds=new ArrayList<ContactManifold>();
+	/** Working storage for the contact solver */
+	SolverScratch solver=new SolverScratch();
+}
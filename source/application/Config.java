@@ -15,5 +15,29 @@ public class Config
 	public double grav=0;//gravity
 	/** The elasticity value of the simulation */
 	public double elas=0;//elasticity ("bounciness")
+	/** The broadphase the simulation uses, "sap" for sweep and prune, "grid" for a uniform grid or "tree" for a dynamic AABB tree */
+	public String broadphase="sap";//Broadphase collision detection
+	/** The number of threads used to check for collisions, 0 for one per processor */
+	public int threads=0;//Collision detection threads
+	/** The number of updates in a row an object has to be resting before it sleeps, 0 to never sleep */
+	public int sleepSteps=30;//Updates before a resting object sleeps
+	/** The length of each fixed time step in ms, 0 to step by the time since the last update */
+	public double timestep=0;//Fixed time step
+	/** The most fixed time steps simulated in one update */
+	public int maxSubsteps=8;//Most fixed steps per update
+	/** How orientations are stored while simulating, "euler" for x,y,z axis rotations or "quaternion" */
+	public String orientation="euler";//Orientation storage
+	/** The most times the contact solver goes over the contacts of an island each update */
+	public int solverIterations=10;//Contact solver iteration budget
+	/** How many times the collisions of each island are checked and resolved each update, more can help with stacking */
+	public int colResolves=1;//Collision resolutions per update
+	/** The contact solver stops early once no velocity changes by more than this (in units/s) */
+	public double solverTolerance=0.001;//Contact solver tolerance
+	/** The friction coefficient of the contacts, 0 for none so configs made before friction slide the same as they used to */
+	public double friction=0;//Contact friction
+	/** How far a low poly mesh can be from a simple shape for the shape to be used automatically, as a fraction of its size. 0 to only use declared shapes */
+	public double colliderTolerance=0.1;//Collider fitting tolerance
+	/** The number of cells along the longest side of a mesh in the distance fields of "sdf" objects */
+	public int distanceFieldCells=128;//Distance field resolution
 	
 }
@@ -277,6 +277,8 @@ public class ConfigController
 		{
 			objects.get(i).setLPVertices(lowPolyObjects.get(i).getVertices());
 			objects.get(i).setLPFaces(lowPolyObjects.get(i).getFaces());
+			objects.get(i).setLPFaceHierarchy(lowPolyObjects.get(i).getFaceHierarchy());
+			objects.get(i).setLPLocalMesh(lowPolyObjects.get(i).getLocalMesh());
 			objects.get(i).setLPName(lowPolyObjects.get(i).getName());
 		}
 		//Put the objects in a visible position so that they can be seen when added
@@ -477,7 +479,7 @@ public class ConfigController
     	    	    	try 
     	    	    	{
     	    	    		ArrayList<CustomObject> objs= mainSim.getObjects();
-							ConfigSaver.saveConfig(fileNameToSave, objs, grav, elas);
+							ConfigSaver.saveConfig(fileNameToSave, objs, grav, elas, mainSim.getConfig());
 						} 
     	    	    	catch (IOException e1) 
     	    	    	{
@@ -20,6 +20,8 @@ public class ConfigCreatorSim extends MainSimulation implements Runnable
 {
 	/** The simulation used and displayed in the window */
 	private ConfigSimulation sim;//The sim used
+	/** The config the sim was started from, kept for the simulation settings the gui doesn't change */
+	private Config config=new Config();//The config being edited
 	/**
 	 * Runs the the renderer and animator
 	 */
@@ -52,10 +54,10 @@ public class ConfigCreatorSim extends MainSimulation implements Runnable
 		objects= new ArrayList<CustomObject>();
 		lowPolyObjects = new ArrayList<CustomObject>();
 		renderer = new Renderer();
-		Config config= new Config();
+		config= new Config();
 		try 
 		{
-			config=readConfig(configPath);
+			config=ConfigReader.readConfig(configPath);
 		} 
 		catch (IOException e) 
 		{
@@ -71,6 +73,8 @@ public class ConfigCreatorSim extends MainSimulation implements Runnable
 		{
 			objects.get(i).setLPVertices(lowPolyObjects.get(i).getVertices());
 			objects.get(i).setLPFaces(lowPolyObjects.get(i).getFaces());
+			objects.get(i).setLPFaceHierarchy(lowPolyObjects.get(i).getFaceHierarchy());
+			objects.get(i).setLPLocalMesh(lowPolyObjects.get(i).getLocalMesh());
 			objects.get(i).setLPName(lowPolyObjects.get(i).getName());
 		}
 		
@@ -228,5 +232,13 @@ public class ConfigCreatorSim extends MainSimulation implements Runnable
 	{
 		return sim.getElasticity();
 	}
+	/**
+	 * Gets the config the currently running simulation was started from
+	 * @return The config
+	 */
+	public Config getConfig()
+	{
+		return config;
+	}
 	
 }
@@ -0,0 +1,182 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * A utility class for reading configs from a file. Doesn't use any of the gui, so it can be used by the simulations that run without a display
+ * @author Sam Dark
+ *
+ */
+public class ConfigReader 
+{
+	/**
+	 * Reads a config file and returns the information as a config object
+	 * @param filePath The path to the config file to read
+	 * @return The contents of the config file
+	 * @throws IOException if it has trouble reading the config
+	 */
+	public static Config readConfig(String filePath) throws IOException
+	{
+		int noObjects=0;
+		
+		File config= new File(filePath);
+		BufferedReader reader = new BufferedReader(new FileReader(config));
+		String line;
+		//Number of objects
+		if((line = reader.readLine()) != null)
+		{
+			noObjects=Integer.parseInt(line);
+		}
+		ArrayList<ObjectInit> iObjects= new ArrayList<ObjectInit>();
+		Config conf= new Config();
+		//File path for high poly object
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+			{
+				iObjects.add(new ObjectInit());
+				iObjects.get(i).filePath=line;
+			}
+		}
+		//File path for low poly
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+				iObjects.get(i).LPFilePath=line;
+		}
+		//Position
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+			{
+				 Scanner lineScanner = new Scanner(line);
+			     while (!lineScanner.hasNextDouble())
+			     {
+			    	 lineScanner.next();
+			     }
+			     double x = lineScanner.nextDouble();
+			     double y = lineScanner.nextDouble();
+			     double z = lineScanner.nextDouble();
+			     iObjects.get(i).pos=new Position(x,y,z);
+			}
+		}
+		//Rotation
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+			{
+				 Scanner lineScanner = new Scanner(line);
+			     while (!lineScanner.hasNextDouble())
+			     {
+			    	 lineScanner.next();
+			     }
+			     double x = lineScanner.nextDouble();
+			     double y = lineScanner.nextDouble();
+			     double z = lineScanner.nextDouble();
+			     iObjects.get(i).rot=new Rotation(x,y,z);
+			}
+		}
+		//CanMove
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+			{
+				iObjects.get(i).canMove=Boolean.valueOf(line);
+			}
+		}
+		//InverseMass
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+				iObjects.get(i).inverseMass=Integer.parseInt(line);
+		}
+		//Gravity
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+				iObjects.get(i).gravity=Boolean.valueOf(line);
+		}
+		//Velocity
+		for(int i=0;i<noObjects;i++)
+		{
+			if((line = reader.readLine()) != null)
+			{
+				 Scanner lineScanner = new Scanner(line);
+				 while (!lineScanner.hasNextDouble())
+				 {
+					 lineScanner.next();
+				 }
+				 double x = lineScanner.nextDouble();
+				 double y = lineScanner.nextDouble();
+				 double z = lineScanner.nextDouble();
+				 iObjects.get(i).velocity=new Position(x,y,z);
+			}
+		}
+		conf.objs=iObjects;
+		//Global Gravity
+		if((line = reader.readLine()) != null)
+			conf.grav=Double.valueOf(line);
+		//Global elasticity
+		if((line = reader.readLine()) != null)
+			conf.elas=Double.valueOf(line);
+		//Optional simulation settings, one "name value" pair per line. Older configs don't have any.
+		while((line = reader.readLine()) != null)
+		{
+			readSetting(conf,line);
+		}
+		reader.close();
+		return conf;
+	}
+	/**
+	 * Reads an optional setting from a line of a config file and puts it in the config.
+	 * Settings are written as the name of the setting followed by its value, for example "broadphase grid".
+	 * @param conf The config to put the setting in
+	 * @param line The line containing the setting
+	 */
+	static void readSetting(Config conf, String line)
+	{
+		String[] tokens=line.trim().split("\\s+");
+		if(tokens.length<2)
+		{
+			return;//Blank line or no value
+		}
+		switch(tokens[0])
+		{
+			case "broadphase": conf.broadphase=tokens[1];break;
+			case "threads": conf.threads=Integer.parseInt(tokens[1]);break;
+			case "sleepSteps": conf.sleepSteps=Integer.parseInt(tokens[1]);break;
+			case "timestep": conf.timestep=Double.parseDouble(tokens[1]);break;
+			case "maxSubsteps": conf.maxSubsteps=Integer.parseInt(tokens[1]);break;
+			case "orientation": conf.orientation=tokens[1];break;
+			case "solverIterations": conf.solverIterations=Integer.parseInt(tokens[1]);break;
+			case "colResolves": conf.colResolves=Integer.parseInt(tokens[1]);break;
+			case "solverTolerance": conf.solverTolerance=Double.parseDouble(tokens[1]);break;
+			case "friction": conf.friction=Double.parseDouble(tokens[1]);break;
+			case "colliderTolerance": conf.colliderTolerance=Double.parseDouble(tokens[1]);break;
+			case "distanceFieldCells": conf.distanceFieldCells=Integer.parseInt(tokens[1]);break;
+			case "collider": readCollider(conf,tokens);break;
+			default: System.out.println("Unknown config setting: "+tokens[0]);break;
+		}
+	}
+	/**
+	 * Reads the shape of an object from a "collider" setting, written as the object's number in the config (from 0)
+	 * followed by the shape, for example "collider 3 sphere"
+	 * @param conf The config to put the shape in
+	 * @param tokens The words of the setting
+	 */
+	private static void readCollider(Config conf, String[] tokens)
+	{
+		int objNo=Integer.parseInt(tokens[1]);
+		if(tokens.length<3||objNo<0||objNo>=conf.objs.size())
+		{
+			System.out.println("Invalid collider setting, needs an object number and a shape");
+			return;
+		}
+		conf.objs.get(objNo).collider=tokens[2];
+	}
+}
@@ -20,9 +20,10 @@ public class ConfigSaver
 	 * @param objects The objects in the config to save
 	 * @param grav The gravity of the config to save
 	 * @param elas The elasticity of the object to save
+	 * @param settings The config holding the optional simulation settings to save, only the ones that aren't the defaults are written
 	 * @throws IOException Throws exceptions if it cannot save to the file
 	 */
-	public static void saveConfig(String filename, ArrayList<CustomObject> objects, double grav, double elas) throws IOException
+	public static void saveConfig(String filename, ArrayList<CustomObject> objects, double grav, double elas, Config settings) throws IOException
 	{
 		String current="";
 		try {
@@ -95,7 +96,89 @@ public class ConfigSaver
 		//Global elasticity
 		writer.write(String.valueOf(elas));
 		writer.newLine();
+		//Optional simulation settings
+		writeSettings(writer,objects,settings);
 		//Close the writer
 		writer.close();
 	}
+	/**
+	 * Writes the optional simulation settings, one "name value" pair per line, that aren't the same as the defaults.
+	 * A config saved with all of them at the defaults looks the same as one saved before there were any.
+	 * @param writer The writer to write the settings with
+	 * @param objects The objects in the config, for the shapes they ask for
+	 * @param settings The config holding the settings
+	 * @throws IOException Throws exceptions if it cannot write to the file
+	 */
+	private static void writeSettings(BufferedWriter writer, ArrayList<CustomObject> objects, Config settings) throws IOException
+	{
+		Config defaults=new Config();
+		if(!settings.broadphase.equals(defaults.broadphase))
+		{
+			writeSetting(writer,"broadphase",settings.broadphase);
+		}
+		if(settings.threads!=defaults.threads)
+		{
+			writeSetting(writer,"threads",String.valueOf(settings.threads));
+		}
+		if(settings.sleepSteps!=defaults.sleepSteps)
+		{
+			writeSetting(writer,"sleepSteps",String.valueOf(settings.sleepSteps));
+		}
+		if(settings.timestep!=defaults.timestep)
+		{
+			writeSetting(writer,"timestep",String.valueOf(settings.timestep));
+		}
+		if(settings.maxSubsteps!=defaults.maxSubsteps)
+		{
+			writeSetting(writer,"maxSubsteps",String.valueOf(settings.maxSubsteps));
+		}
+		if(!settings.orientation.equals(defaults.orientation))
+		{
+			writeSetting(writer,"orientation",settings.orientation);
+		}
+		if(settings.solverIterations!=defaults.solverIterations)
+		{
+			writeSetting(writer,"solverIterations",String.valueOf(settings.solverIterations));
+		}
+		if(settings.colResolves!=defaults.colResolves)
+		{
+			writeSetting(writer,"colResolves",String.valueOf(settings.colResolves));
+		}
+		if(settings.solverTolerance!=defaults.solverTolerance)
+		{
+			writeSetting(writer,"solverTolerance",String.valueOf(settings.solverTolerance));
+		}
+		if(settings.friction!=defaults.friction)
+		{
+			writeSetting(writer,"friction",String.valueOf(settings.friction));
+		}
+		if(settings.colliderTolerance!=defaults.colliderTolerance)
+		{
+			writeSetting(writer,"colliderTolerance",String.valueOf(settings.colliderTolerance));
+		}
+		if(settings.distanceFieldCells!=defaults.distanceFieldCells)
+		{
+			writeSetting(writer,"distanceFieldCells",String.valueOf(settings.distanceFieldCells));
+		}
+		//The shapes objects ask for, by their number in the config
+		for(int i=0;i<objects.size();i++)
+		{
+			if(!objects.get(i).getColliderName().equals("auto"))
+			{
+				writeSetting(writer,"collider",i+" "+objects.get(i).getColliderName());
+			}
+		}
+	}
+	/**
+	 * Writes an optional setting on its own line
+	 * @param writer The writer to write the setting with
+	 * @param name The name of the setting
+	 * @param value The value of the setting
+	 * @throws IOException Throws exceptions if it cannot write to the file
+	 */
+	private static void writeSetting(BufferedWriter writer, String name, String value) throws IOException
+	{
+		writer.write(name+" "+value);
+		writer.newLine();
+	}
 }
@@ -0,0 +1,88 @@
+package application;
+
+/**
+ * A point where one object hit a face of another during an update.
+ * Contacts are kept in a ContactManifold and reused every update so finding collisions creates no garbage.
+ * @author Sam Dark
+ *
+ */
+public class Contact
+{
+	/** The low poly face of the second object that was hit */
+	int face=-1;
+	/** The normal of the face that was hit, normalised and in actual space */
+	double normalX, normalY, normalZ;
+	/** The time during the update that the contact happened (in ms) */
+	double time;
+	/** How far the vertex of the first object had gone through the face by the end of the update */
+	double penetration;
+	/** How far the objects have to be moved apart along the normal once they are moved to the time of the contact, 0 unless they were already touching */
+	double pushOut;
+	/** The normal impulse the contact solver built up for the contact */
+	double normalImpulse;
+	/** The impulse along the first friction direction the contact solver built up for the contact */
+	double tangentImpulse1;
+	/** The impulse along the second friction direction the contact solver built up for the contact */
+	double tangentImpulse2;
+
+	/**
+	 * Creates an empty contact
+	 */
+	Contact()
+	{
+	}
+	/**
+	 * Sets all the values of the contact, the impulses start at nothing until the contact is solved and the objects aren't pushed apart
+	 * @param inpFace The face of the second object that was hit
+	 * @param inpNormalX The x component of the face's normal
+	 * @param inpNormalY The y component of the face's normal
+	 * @param inpNormalZ The z component of the face's normal
+	 * @param inpTime The time during the update that the contact happened (in ms)
+	 * @param inpPenetration How far the vertex had gone through the face by the end of the update
+	 */
+	public void set(int inpFace, double inpNormalX, double inpNormalY, double inpNormalZ, double inpTime, double inpPenetration)
+	{
+		face=inpFace;
+		normalX=inpNormalX;
+		normalY=inpNormalY;
+		normalZ=inpNormalZ;
+		time=inpTime;
+		penetration=inpPenetration;
+		pushOut=0;
+		normalImpulse=0;
+		tangentImpulse1=0;
+		tangentImpulse2=0;
+	}
+	/**
+	 * Gets the face of the second object that was hit
+	 * @return The face number
+	 */
+	public int getFace()
+	{
+		return face;
+	}
+	/**
+	 * Gets the time during the update that the contact happened
+	 * @return The time (in ms)
+	 */
+	public double getTime()
+	{
+		return time;
+	}
+	/**
+	 * Gets how far the vertex of the first object had gone through the face by the end of the update
+	 * @return The penetration depth
+	 */
+	public double getPenetration()
+	{
+		return penetration;
+	}
+	/**
+	 * Gets the normal impulse the contact solver built up for the contact
+	 * @return The normal impulse
+	 */
+	public double getNormalImpulse()
+	{
+		return normalImpulse;
+	}
+}
@@ -0,0 +1,46 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * One contact manifold for each collision pair, in the same order as the pairs.
+ * The manifolds are made once and reused every update, the narrowphase fills them in and collision resolution reads them.
+ * @author Sam Dark
+ *
+ */
+public class ContactBuffer
+{
+	/** The manifolds, there can be more than there are pairs */
+	private ContactManifold[] manifolds=new ContactManifold[0];
+
+	/**
+	 * Creates an empty buffer
+	 */
+	ContactBuffer()
+	{
+	}
+	/**
+	 * Makes sure there is a manifold for each pair, making more if there aren't enough
+	 * @param pairCount The number of pairs
+	 */
+	public void ensureCapacity(int pairCount)
+	{
+		if(manifolds.length<pairCount)
+		{
+			int oldLength=manifolds.length;
+			manifolds=Arrays.copyOf(manifolds, Math.max(pairCount, 2*oldLength));
+			for(int k=oldLength; k<manifolds.length; k++)
+			{
+				manifolds[k]=new ContactManifold();
+			}
+		}
+	}
+	/**
+	 * Gets the manifold of a pair
+	 * @param pairNo The pair
+	 * @return The manifold
+	 */
+	public ContactManifold get(int pairNo)
+	{
+		return manifolds[pairNo];
+	}
+}
@@ -0,0 +1,96 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * The contacts found between a pair of objects. The contacts are pooled, clearing the manifold keeps them
+ * so they can be filled in again next update without creating new ones.
+ * @author Sam Dark
+ *
+ */
+public class ContactManifold
+{
+	/** The first object of the pair, the one whose vertices hit */
+	int bodyA=-1;
+	/** The second object of the pair, the one whose faces were hit */
+	int bodyB=-1;
+	/** The pool of contacts, the first count are in use */
+	private Contact[] contacts=new Contact[0];
+	/** The number of contacts in use */
+	private int count=0;
+
+	/**
+	 * Creates an empty manifold
+	 */
+	ContactManifold()
+	{
+	}
+	/**
+	 * Empties the manifold and sets the pair of objects it is for
+	 * @param inpBodyA The first object of the pair
+	 * @param inpBodyB The second object of the pair
+	 */
+	public void reset(int inpBodyA, int inpBodyB)
+	{
+		bodyA=inpBodyA;
+		bodyB=inpBodyB;
+		count=0;
+	}
+	/**
+	 * Gets an unused contact from the pool and adds it to the manifold, growing the pool if it is all in use
+	 * @return The contact, its values are left over from before and need setting
+	 */
+	public Contact addContact()
+	{
+		if(count==contacts.length)
+		{
+			contacts=Arrays.copyOf(contacts, Math.max(1, 2*contacts.length));
+			for(int i=count; i<contacts.length; i++)
+			{
+				contacts[i]=new Contact();
+			}
+		}
+		count++;
+		return contacts[count-1];
+	}
+	/**
+	 * Gets a contact in the manifold
+	 * @param index The position of the contact
+	 * @return The contact
+	 */
+	public Contact get(int index)
+	{
+		return contacts[index];
+	}
+	/**
+	 * Gets the number of contacts in the manifold
+	 * @return The number of contacts
+	 */
+	public int size()
+	{
+		return count;
+	}
+	/**
+	 * Gets if the pair of objects are colliding
+	 * @return True if the manifold has any contacts, False otherwise
+	 */
+	public boolean isColliding()
+	{
+		return count>0;
+	}
+	/**
+	 * Gets the first object of the pair
+	 * @return The object number
+	 */
+	public int getBodyA()
+	{
+		return bodyA;
+	}
+	/**
+	 * Gets the second object of the pair
+	 * @return The object number
+	 */
+	public int getBodyB()
+	{
+		return bodyB;
+	}
+}
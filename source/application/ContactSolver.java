@@ -0,0 +1,349 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * Works out the velocities of the objects in an island after their collisions using sequential impulses.
+ * Every contact is a row that pushes its two objects apart along the contact normal and rubs them along the face with friction.
+ * The rows are solved one after another, over and over, each time correcting the velocities left by the others,
+ * until the velocities stop changing or the iteration budget runs out. The impulse built up by each row is never allowed
+ * to pull the objects together, and friction is never more than the friction coefficient times the normal impulse.
+ * The impulses a pair needed last update are applied first (warm starting), so resting contacts start close to the answer
+ * and need few iterations.
+ * @author Sam Dark
+ *
+ */
+public class ContactSolver
+{
+	/** Objects hitting slower than this (in units/s) don't bounce, so resting contacts don't jitter */
+	private static final double RESTITUTION_THRESHOLD=0.5;
+	/** The most times the rows are solved each time the solver runs */
+	private int iterations=10;
+	/** The solver stops once no row changes a velocity by more than this (in units/s) */
+	private double tolerance=1e-3;
+	/** The friction coefficient of the contacts, 0 by default as the solver doesn't turn objects so nothing could roll */
+	private double friction=0;
+	/** The elasticity ("bounciness") of the simulation from the config, turned into how fast each contact separates by getRestitution */
+	private double elasticity=-0.4;
+	/** A sleeping object is only woken if the contacts leave it moving faster than this (in units/s) */
+	private double wakeSpeed=0.1;
+
+	/**
+	 * Creates a solver with the default settings
+	 */
+	ContactSolver()
+	{
+	}
+	/**
+	 * Solves the contacts in some manifolds and sets the velocities of their moving objects.
+	 * The impulses built up are stored in the contacts so they can be remembered for warm starting the next update.
+	 * @param manifolds The manifolds to solve, all with contacts
+	 * @param objects All the objects in the simulation
+	 * @param cache The impulses from the last update to warm start with, null to start from nothing
+	 * @param lastStep The number of the last update, cached impulses from any other update are ignored
+	 * @param s The working storage of the thread solving
+	 * @return The number of iterations used
+	 */
+	public int solve(ArrayList<ContactManifold> manifolds, ArrayList<CustomObject> objects, PairCache cache, int lastStep, SolverScratch s)
+	{
+		s.clear(objects.size());
+		//Set up a row for each contact
+		for(int m=0; m<manifolds.size(); m++)
+		{
+			ContactManifold manifold=manifolds.get(m);
+			int a=getBody(manifold.getBodyA(),objects,s);
+			int b=getBody(manifold.getBodyB(),objects,s);
+			if(a==-1&&b==-1)
+			{
+				continue;//Neither can move so there is nothing to solve
+			}
+			int slot=cache==null ? -1 : cache.find(manifold.getBodyA(),manifold.getBodyB());
+			boolean warm=slot!=-1&&cache.getLastContact(slot)==lastStep;
+			double restitution=getRestitution(objects.get(manifold.getBodyA()).getInverseMass(),objects.get(manifold.getBodyB()).getInverseMass());
+			for(int c=0; c<manifold.size(); c++)
+			{
+				//Each contact starts from the impulses of the contact in the same position last update
+				addRow(manifold.get(c),c,a,b,restitution,warm ? slot : -1,cache,s);
+			}
+		}
+		//Apply the impulses from last update
+		for(int r=0; r<s.rowCount; r++)
+		{
+			applyImpulse(s,r,s.normalImpulse[r],s.normalX[r],s.normalY[r],s.normalZ[r]);
+			applyImpulse(s,r,s.tangentImpulse1[r],s.tangent1X[r],s.tangent1Y[r],s.tangent1Z[r]);
+			applyImpulse(s,r,s.tangentImpulse2[r],s.tangent2X[r],s.tangent2Y[r],s.tangent2Z[r]);
+		}
+		//Solve the rows until the velocities stop changing
+		int used=0;
+		while(used<iterations)
+		{
+			used++;
+			double biggestChange=0;
+			for(int r=0; r<s.rowCount; r++)
+			{
+				biggestChange=Math.max(biggestChange, solveRow(s,r));
+			}
+			if(biggestChange<tolerance)
+			{
+				break;
+			}
+		}
+		//Give the objects their new velocities and keep the impulses for next update
+		for(int i=0; i<s.bodyCount; i++)
+		{
+			CustomObject obj=objects.get(s.objNos[i]);
+			double speedSq=s.velX[i]*s.velX[i]+s.velY[i]*s.velY[i]+s.velZ[i]*s.velZ[i];
+			if(obj.isAsleep()&&speedSq<wakeSpeed*wakeSpeed)
+			{
+				//A resting contact only nudges a sleeping object, it stays asleep and stopped instead of being woken by setting its velocity
+				continue;
+			}
+			obj.setVel(s.velX[i],s.velY[i],s.velZ[i]);
+		}
+		for(int r=0; r<s.rowCount; r++)
+		{
+			Contact contact=s.contacts[r];
+			contact.normalImpulse=s.normalImpulse[r];
+			contact.tangentImpulse1=s.tangentImpulse1[r];
+			contact.tangentImpulse2=s.tangentImpulse2[r];
+		}
+		return used;
+	}
+	/**
+	 * Gets the solver body of an object, adding it if it isn't in the solver yet
+	 * @param objNo The object number
+	 * @param objects All the objects in the simulation
+	 * @param s The working storage of the thread solving
+	 * @return The solver body, or -1 if the object can't move
+	 */
+	private int getBody(int objNo, ArrayList<CustomObject> objects, SolverScratch s)
+	{
+		CustomObject obj=objects.get(objNo);
+		if(!obj.canMove())
+		{
+			//Objects that can't move act as if they are infinitely heavy
+			return -1;
+		}
+		if(s.bodyOf[objNo]!=-1)
+		{
+			return s.bodyOf[objNo];
+		}
+		Position vel=obj.getVel();
+		return s.addBody(objNo,vel.getX(),vel.getY(),vel.getZ(),obj.getInverseMass());
+	}
+	/**
+	 * Adds a row for a contact
+	 * @param contact The contact
+	 * @param index The position of the contact in its manifold
+	 * @param a The solver body of the first object, -1 if it can't move
+	 * @param b The solver body of the second object, -1 if it can't move
+	 * @param restitution The fraction of the speed the objects hit at that they separate at
+	 * @param slot The cache slot to warm start from, -1 to start from nothing
+	 * @param cache The cache of impulses from last update
+	 * @param s The working storage of the thread solving
+	 */
+	private void addRow(Contact contact, int index, int a, int b, double restitution, int slot, PairCache cache, SolverScratch s)
+	{
+		int r=s.addRow();
+		s.contacts[r]=contact;
+		s.bodyA[r]=a;
+		s.bodyB[r]=b;
+		double nx=contact.normalX, ny=contact.normalY, nz=contact.normalZ;
+		s.normalX[r]=nx;
+		s.normalY[r]=ny;
+		s.normalZ[r]=nz;
+		//Two directions along the face at right angles to each other for friction, always the same for the same normal
+		//so the cached friction impulses point the same way next update
+		double t1x, t1y, t1z;
+		if(Math.abs(nx)>=0.57735)
+		{
+			double length=Math.sqrt(nx*nx+ny*ny);
+			t1x=ny/length;
+			t1y=-nx/length;
+			t1z=0;
+		}
+		else
+		{
+			double length=Math.sqrt(ny*ny+nz*nz);
+			t1x=0;
+			t1y=nz/length;
+			t1z=-ny/length;
+		}
+		s.tangent1X[r]=t1x;
+		s.tangent1Y[r]=t1y;
+		s.tangent1Z[r]=t1z;
+		s.tangent2X[r]=ny*t1z-nz*t1y;
+		s.tangent2Y[r]=nz*t1x-nx*t1z;
+		s.tangent2Z[r]=nx*t1y-ny*t1x;
+		double invMassA=a==-1 ? 0 : s.invMass[a];
+		double invMassB=b==-1 ? 0 : s.invMass[b];
+		s.effectiveMass[r]=invMassA+invMassB>0 ? 1/(invMassA+invMassB) : 0;
+		//Bounce if the objects are hitting fast enough
+		double approach=relativeVelocity(s,r,nx,ny,nz);
+		s.bias[r]=approach<-RESTITUTION_THRESHOLD ? -restitution*approach : 0;
+		if(slot!=-1)
+		{
+			s.normalImpulse[r]=cache.getNormalImpulse(slot,index);
+			s.tangentImpulse1[r]=cache.getTangentImpulse1(slot,index);
+			s.tangentImpulse2[r]=cache.getTangentImpulse2(slot,index);
+		}
+		else
+		{
+			s.normalImpulse[r]=0;
+			s.tangentImpulse1[r]=0;
+			s.tangentImpulse2[r]=0;
+		}
+	}
+	/**
+	 * Solves one row once, changing the velocities of its objects
+	 * @param s The working storage of the thread solving
+	 * @param r The row
+	 * @return The biggest change made to the speed of the objects along any of the row's directions
+	 */
+	private double solveRow(SolverScratch s, int r)
+	{
+		double mass=s.effectiveMass[r];
+		//Push the objects apart until they separate at the bias speed, the total impulse can't pull them together
+		double vn=relativeVelocity(s,r,s.normalX[r],s.normalY[r],s.normalZ[r]);
+		double total=Math.max(s.normalImpulse[r]+(s.bias[r]-vn)*mass, 0);
+		double change=total-s.normalImpulse[r];
+		s.normalImpulse[r]=total;
+		applyImpulse(s,r,change,s.normalX[r],s.normalY[r],s.normalZ[r]);
+		double biggest=Math.abs(change);
+		//Friction stops the objects sliding over each other, up to the friction coefficient times the normal impulse
+		double maxFriction=friction*s.normalImpulse[r];
+		double vt=relativeVelocity(s,r,s.tangent1X[r],s.tangent1Y[r],s.tangent1Z[r]);
+		total=Math.max(-maxFriction, Math.min(maxFriction, s.tangentImpulse1[r]-vt*mass));
+		change=total-s.tangentImpulse1[r];
+		s.tangentImpulse1[r]=total;
+		applyImpulse(s,r,change,s.tangent1X[r],s.tangent1Y[r],s.tangent1Z[r]);
+		biggest=Math.max(biggest, Math.abs(change));
+		vt=relativeVelocity(s,r,s.tangent2X[r],s.tangent2Y[r],s.tangent2Z[r]);
+		total=Math.max(-maxFriction, Math.min(maxFriction, s.tangentImpulse2[r]-vt*mass));
+		change=total-s.tangentImpulse2[r];
+		s.tangentImpulse2[r]=total;
+		applyImpulse(s,r,change,s.tangent2X[r],s.tangent2Y[r],s.tangent2Z[r]);
+		biggest=Math.max(biggest, Math.abs(change));
+		//Impulse times the inverse masses is the change in speed
+		return mass>0 ? biggest/mass : 0;
+	}
+	/**
+	 * Gets how fast the first object of a row is moving away from the second along a direction
+	 * @param s The working storage of the thread solving
+	 * @param r The row
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 * @return The speed, negative if they are moving together
+	 */
+	private double relativeVelocity(SolverScratch s, int r, double dx, double dy, double dz)
+	{
+		double vx=0, vy=0, vz=0;
+		int a=s.bodyA[r];
+		int b=s.bodyB[r];
+		if(a!=-1)
+		{
+			vx+=s.velX[a];
+			vy+=s.velY[a];
+			vz+=s.velZ[a];
+		}
+		if(b!=-1)
+		{
+			vx-=s.velX[b];
+			vy-=s.velY[b];
+			vz-=s.velZ[b];
+		}
+		return vx*dx+vy*dy+vz*dz;
+	}
+	/**
+	 * Applies an impulse along a direction to the objects of a row, pushing the first object along it and the second the other way
+	 * @param s The working storage of the thread solving
+	 * @param r The row
+	 * @param impulse The size of the impulse
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 */
+	private void applyImpulse(SolverScratch s, int r, double impulse, double dx, double dy, double dz)
+	{
+		int a=s.bodyA[r];
+		int b=s.bodyB[r];
+		if(a!=-1)
+		{
+			double scale=impulse*s.invMass[a];
+			s.velX[a]+=dx*scale;
+			s.velY[a]+=dy*scale;
+			s.velZ[a]+=dz*scale;
+		}
+		if(b!=-1)
+		{
+			double scale=impulse*s.invMass[b];
+			s.velX[b]-=dx*scale;
+			s.velY[b]-=dy*scale;
+			s.velZ[b]-=dz*scale;
+		}
+	}
+	/**
+	 * Sets the most times the rows are solved each time the solver runs
+	 * @param inpIterations The iteration budget, at least 1
+	 */
+	public void setIterations(int inpIterations)
+	{
+		iterations=Math.max(1, inpIterations);
+	}
+	/**
+	 * Gets the most times the rows are solved each time the solver runs
+	 * @return The iteration budget
+	 */
+	public int getIterations()
+	{
+		return iterations;
+	}
+	/**
+	 * Sets how small the changes to the velocities have to get before the solver stops early
+	 * @param inpTolerance The tolerance (in units/s)
+	 */
+	public void setTolerance(double inpTolerance)
+	{
+		tolerance=inpTolerance;
+	}
+	/**
+	 * Sets the friction coefficient of the contacts
+	 * @param inpFriction The friction coefficient, 0 for no friction
+	 */
+	public void setFriction(double inpFriction)
+	{
+		friction=Math.max(0, inpFriction);
+	}
+	/**
+	 * Sets how bouncy the contacts are
+	 * @param inpElasticity The elasticity of the simulation from the config
+	 */
+	public void setElasticity(double inpElasticity)
+	{
+		elasticity=inpElasticity;
+	}
+	/**
+	 * Gets the fraction of the speed a pair of objects hit at that they separate at. Config elasticities were made for the old
+	 * collision response, which gave the first object (1+e) times its share of the pair's inverse mass of their normal speed
+	 * back and then took a third off its speed, so the same bounce is kept. Objects that can't move still have an inverse mass
+	 * in the config, so a moving object hitting a floor gets nearly all of the bounce like it used to. The share of the lighter
+	 * object is used as it is the one that bounces.
+	 * @param invMassA The inverse mass of the first object
+	 * @param invMassB The inverse mass of the second object
+	 * @return The restitution, limited to between 0 and 1
+	 */
+	private double getRestitution(double invMassA, double invMassB)
+	{
+		double total=invMassA+invMassB;
+		double share=total>0 ? Math.max(invMassA, invMassB)/total : 0.5;
+		return Math.max(0, Math.min(1, (1+elasticity)*share-2.0/3.0));
+	}
+	/**
+	 * Sets how fast the contacts have to leave a sleeping object moving before it is woken up
+	 * @param inpWakeSpeed The speed (in units/s), usually the fastest an object can move and still be resting
+	 */
+	public void setWakeSpeed(double inpWakeSpeed)
+	{
+		wakeSpeed=inpWakeSpeed;
+	}
+}
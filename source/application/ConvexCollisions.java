@@ -0,0 +1,851 @@
+package application;
+
+/**
+ * Checks for collisions between two convex shapes (colliders) using only the point of each shape furthest along a direction,
+ * so any pair of shapes is checked the same way and a shape's cost doesn't grow with how many faces its mesh has.
+ * The distance between the shapes is found with GJK, which searches the shape made by subtracting every point of the second
+ * shape from every point of the first for its point closest to the origin. Shapes that overlap have the origin inside that
+ * shape, and EPA grows a polytope out from where GJK stopped to find the shortest way out of it, the penetration depth.
+ * Like the other checks the shapes are moved from where they were last update to where they are now. The time of the hit
+ * is found by conservative advancement, stepping forward by the distance between the shapes over the fastest they could
+ * be getting closer, so a fast shape can't pass through another between updates.
+ * Shapes that were already touching at the start of the update hit at the end of it and are pushed apart, the same as
+ * the simple shape checks, and are left half the touching distance apart so the next check starts with them apart.
+ * Each thread checking collisions has its own as it keeps working values between checks, nothing is created during a check.
+ * @author Sam Dark
+ *
+ */
+public class ConvexCollisions
+{
+	/** The most points GJK adds before taking the closest it has found */
+	private static final int MAX_ITERATIONS=64;
+	/** The most steps conservative advancement takes before taking where it has got to as the hit */
+	private static final int MAX_ADVANCES=32;
+	/** The most points EPA adds to its polytope */
+	private static final int MAX_EPA_POINTS=64;
+	/** The most faces EPA's polytope can have */
+	private static final int MAX_EPA_FACES=2*MAX_EPA_POINTS;
+	/** How close GJK has to get to stop, as a fraction of the distance */
+	private static final double TOLERANCE=1e-9;
+	/** How close EPA has to get to stop, as a fraction of the depth. Round shapes only get closer bit by bit so it is looser than GJK */
+	private static final double EPA_TOLERANCE=1e-6;
+
+	/** The first shape's transform during a check, the rotation matrix row by row then the translation */
+	private double[] pose1=new double[12];
+	/** The second shape's transform during a check, stored the same way */
+	private double[] pose2=new double[12];
+	/** The points of the GJK simplex, x,y,z for each with the newest last */
+	private double[] simplex=new double[12];
+	/** The number of points in the simplex */
+	private int simplexSize;
+	/** The simplex points kept by the closest point search */
+	private int[] kept=new int[4];
+	/** The number of simplex points kept */
+	private int keptCount;
+	/** The closest point found by the closest point search */
+	private double[] closest=new double[3];
+	/** The simplex points kept for the closest point on a triangle */
+	private int[] triangleKept=new int[3];
+	/** The number of points kept for the closest point on a triangle */
+	private int triangleKeptCount;
+	/** The closest point on a triangle */
+	private double[] triangleClosest=new double[3];
+	/** A direction moved into a shape's own space */
+	private double[] localDirection=new double[3];
+	/** A point of a shape in its own space */
+	private double[] localPoint=new double[3];
+	/** The point of the first shape furthest along a direction, in actual space */
+	private double[] point1=new double[3];
+	/** The point of the second shape furthest along a direction, in actual space */
+	private double[] point2=new double[3];
+	/** A point of the shape made by subtracting the second shape from the first */
+	private double[] difference=new double[3];
+	/** The direction from the second shape to the first found by the last distance or depth check, normalised */
+	private double normalX, normalY, normalZ;
+	/** The points of EPA's polytope, x,y,z for each */
+	private double[] epaPoints=new double[3*MAX_EPA_POINTS];
+	/** The number of points in the polytope */
+	private int epaPointCount;
+	/** The faces of the polytope, 3 point numbers for each, anticlockwise looking from outside */
+	private int[] epaFaces=new int[3*MAX_EPA_FACES];
+	/** The planes of the faces, {normalX,normalY,normalZ,distance from the origin} for each, the normal pointing out */
+	private double[] epaPlanes=new double[4*MAX_EPA_FACES];
+	/** The number of faces of the polytope */
+	private int epaFaceCount;
+	/** The edges around the faces being removed from the polytope, from then to for each */
+	private int[] epaEdges=new int[6*MAX_EPA_FACES];
+	/** The number of edges */
+	private int epaEdgeCount;
+
+	/**
+	 * Creates the working values for checking collisions
+	 */
+	ConvexCollisions()
+	{
+	}
+	/**
+	 * Checks two shapes for a hit during an update. A hit is added to the manifold as one contact with no face.
+	 * @param collider1 The shape of the first object
+	 * @param start1 The transform of the first object at the start of the update
+	 * @param end1 The transform of the first object now
+	 * @param collider2 The shape of the second object
+	 * @param start2 The transform of the second object at the start of the update
+	 * @param end2 The transform of the second object now
+	 * @param time The time step of this update
+	 * @param output The manifold to put the contact in, already reset for the pair
+	 */
+	public void collide(Collider collider1, RigidTransform start1, RigidTransform end1, Collider collider2, RigidTransform start2, RigidTransform end2,
+			double time, ContactManifold output)
+	{
+		//Planes don't have a size so only the other shape counts, two planes just have to touch
+		double touching=Collider.TOUCHING*Math.min(collider1.getSize(), collider2.getSize());
+		if(touching==Double.POSITIVE_INFINITY)
+		{
+			touching=0;
+		}
+		setPose(start1,end1,0,pose1);
+		setPose(start2,end2,0,pose2);
+		double startDistance=distance(collider1,collider2);
+		if(startDistance<=touching)
+		{
+			//Already touching, find which way they are touching and how far they have moved along that way
+			double startGap=startDistance;
+			if(startDistance==0)
+			{
+				startGap=-depth(collider1,collider2);
+			}
+			setPose(start1,end1,1,pose1);
+			setPose(start2,end2,1,pose2);
+			double endGap=separation(collider1,collider2);
+			if(endGap>=startGap)
+			{
+				return;//Moving apart
+			}
+			PrimitiveCollisions.setContact(output,normalX,normalY,normalZ,1,time,Math.max(0, -endGap),Math.max(0, 0.5*touching-endGap));
+			return;
+		}
+		//Step forward by as far as the shapes could have got closer in the distance between them, until they touch
+		double bound=approachBound(collider1,start1,end1,collider2,start2,end2);
+		double fraction=0, distance=startDistance;
+		for(int i=0; i<MAX_ADVANCES&&distance>touching; i++)
+		{
+			if(bound<=0)
+			{
+				return;//Not moving relative to each other
+			}
+			fraction+=(distance-0.5*touching)/bound;
+			if(fraction>1)
+			{
+				return;//Don't touch until after this update
+			}
+			setPose(start1,end1,fraction,pose1);
+			setPose(start2,end2,fraction,pose2);
+			distance=distance(collider1,collider2);
+		}
+		//The normal is from the last time they were apart, the depth is how far they have moved through each other along it
+		setPose(start1,end1,1,pose1);
+		setPose(start2,end2,1,pose2);
+		if(distance>touching&&distance(collider1,collider2)>touching)
+		{
+			return;//Ran out of steps while still apart and are still apart at the end of the update, so they only pass close by
+		}
+		double endGap=separation(collider1,collider2);
+		PrimitiveCollisions.setContact(output,normalX,normalY,normalZ,fraction,time,Math.max(0, -endGap),0);
+	}
+	/**
+	 * Sets a pose part way between two transforms. The rotation matrices are blended element by element, which is close
+	 * to a rotation for how far an object turns in one update and still moves points in a straight line between the two.
+	 * @param start The transform at fraction 0
+	 * @param end The transform at fraction 1
+	 * @param fraction How far between them
+	 * @param pose The pose to set
+	 */
+	private static void setPose(RigidTransform start, RigidTransform end, double fraction, double[] pose)
+	{
+		for(int row=0; row<3; row++)
+		{
+			for(int col=0; col<3; col++)
+			{
+				double from=start.getRotation(row,col);
+				pose[3*row+col]=from+fraction*(end.getRotation(row,col)-from);
+			}
+		}
+		pose[9]=start.getTranslationX()+fraction*(end.getTranslationX()-start.getTranslationX());
+		pose[10]=start.getTranslationY()+fraction*(end.getTranslationY()-start.getTranslationY());
+		pose[11]=start.getTranslationZ()+fraction*(end.getTranslationZ()-start.getTranslationZ());
+	}
+	/**
+	 * Gets the most the distance between two shapes can shrink over the update. Any point of a shape moves by its object's
+	 * translation plus the change in its rotation matrix times the point, which is at most the shape's reach times the
+	 * size of the change.
+	 * @param collider1 The first shape
+	 * @param start1 The transform of the first object at the start of the update
+	 * @param end1 The transform of the first object now
+	 * @param collider2 The second shape
+	 * @param start2 The transform of the second object at the start of the update
+	 * @param end2 The transform of the second object now
+	 * @return The bound
+	 */
+	private static double approachBound(Collider collider1, RigidTransform start1, RigidTransform end1, Collider collider2, RigidTransform start2, RigidTransform end2)
+	{
+		double dx=(end1.getTranslationX()-start1.getTranslationX())-(end2.getTranslationX()-start2.getTranslationX());
+		double dy=(end1.getTranslationY()-start1.getTranslationY())-(end2.getTranslationY()-start2.getTranslationY());
+		double dz=(end1.getTranslationZ()-start1.getTranslationZ())-(end2.getTranslationZ()-start2.getTranslationZ());
+		return Math.sqrt(dx*dx+dy*dy+dz*dz)+collider1.getReach()*rotationChange(start1,end1)+collider2.getReach()*rotationChange(start2,end2);
+	}
+	/**
+	 * Gets the size of the change between the rotations of two transforms, the square root of the sum of the squares
+	 * of the changes in each element, which is at least as much as it can stretch any direction
+	 * @param start The first transform
+	 * @param end The second transform
+	 * @return The size of the change
+	 */
+	private static double rotationChange(RigidTransform start, RigidTransform end)
+	{
+		double total=0;
+		for(int row=0; row<3; row++)
+		{
+			for(int col=0; col<3; col++)
+			{
+				double change=end.getRotation(row,col)-start.getRotation(row,col);
+				total+=change*change;
+			}
+		}
+		return Math.sqrt(total);
+	}
+	/**
+	 * Finds the point of a shape furthest along a direction in actual space, moving the direction into the shape's own space
+	 * with the transpose of its rotation, which is still right for a blended rotation
+	 * @param collider The shape
+	 * @param pose The pose of the shape
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 * @param output Array of at least 3 to put the point's x,y,z in
+	 */
+	private void support(Collider collider, double[] pose, double dx, double dy, double dz, double[] output)
+	{
+		localDirection[0]=pose[0]*dx+pose[3]*dy+pose[6]*dz;
+		localDirection[1]=pose[1]*dx+pose[4]*dy+pose[7]*dz;
+		localDirection[2]=pose[2]*dx+pose[5]*dy+pose[8]*dz;
+		collider.support(localDirection[0],localDirection[1],localDirection[2],localPoint);
+		output[0]=pose[0]*localPoint[0]+pose[1]*localPoint[1]+pose[2]*localPoint[2]+pose[9];
+		output[1]=pose[3]*localPoint[0]+pose[4]*localPoint[1]+pose[5]*localPoint[2]+pose[10];
+		output[2]=pose[6]*localPoint[0]+pose[7]*localPoint[1]+pose[8]*localPoint[2]+pose[11];
+	}
+	/**
+	 * Finds the point furthest along a direction of the shape made by subtracting every point of the second shape from
+	 * every point of the first, which is the first shape's furthest point along it minus the second's furthest point the other way
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 * @param output Array of at least 3 to put the point's x,y,z in
+	 */
+	private void supportDifference(Collider collider1, Collider collider2, double dx, double dy, double dz, double[] output)
+	{
+		support(collider1,pose1,dx,dy,dz,point1);
+		support(collider2,pose2,-dx,-dy,-dz,point2);
+		output[0]=point1[0]-point2[0];
+		output[1]=point1[1]-point2[1];
+		output[2]=point1[2]-point2[2];
+	}
+	/**
+	 * Gets the gap between two shapes at their current poses along the last normal found, negative if they overlap along it
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @return The gap
+	 */
+	private double separation(Collider collider1, Collider collider2)
+	{
+		//The lowest point of the first shape along the normal minus the highest point of the second
+		supportDifference(collider1,collider2,-normalX,-normalY,-normalZ,difference);
+		return difference[0]*normalX+difference[1]*normalY+difference[2]*normalZ;
+	}
+	/**
+	 * Finds the distance between two shapes at their current poses with GJK. GJK keeps a simplex (a point, line,
+	 * triangle or tetrahedron) of points of the difference shape, finds the point of it closest to the origin, then adds
+	 * the point of the difference shape furthest towards the origin from there, until no point gets any closer.
+	 * If the shapes are apart the normal is set to the direction from the second to the first.
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @return The distance, 0 if the shapes overlap
+	 */
+	private double distance(Collider collider1, Collider collider2)
+	{
+		//Start by looking from the second object towards the first
+		double vx=pose1[9]-pose2[9], vy=pose1[10]-pose2[10], vz=pose1[11]-pose2[11];
+		if(vx==0&&vy==0&&vz==0)
+		{
+			vx=1;
+		}
+		double scale=collider1.getReach()+collider2.getReach();
+		double tiny=1e-20*scale*scale;
+		simplexSize=0;
+		for(int i=0; i<MAX_ITERATIONS; i++)
+		{
+			supportDifference(collider1,collider2,-vx,-vy,-vz,difference);
+			double vv=vx*vx+vy*vy+vz*vz;
+			//The new point is no closer to the origin than the closest point so far
+			if(simplexSize>0&&vv-(vx*difference[0]+vy*difference[1]+vz*difference[2])<=TOLERANCE*vv)
+			{
+				break;
+			}
+			addSimplexPoint();
+			closestOnSimplex();
+			vx=closest[0];
+			vy=closest[1];
+			vz=closest[2];
+			//The origin is inside the simplex so the shapes overlap
+			if(simplexSize==4||vx*vx+vy*vy+vz*vz<=tiny)
+			{
+				return 0;
+			}
+		}
+		double length=Math.sqrt(vx*vx+vy*vy+vz*vz);
+		normalX=vx/length;
+		normalY=vy/length;
+		normalZ=vz/length;
+		return length;
+	}
+	/**
+	 * Finds the point of the simplex closest to the origin and keeps only the points needed to make it
+	 */
+	private void closestOnSimplex()
+	{
+		switch(simplexSize)
+		{
+			case 1:
+				keptCount=1;
+				kept[0]=0;
+				closest[0]=simplex[0];
+				closest[1]=simplex[1];
+				closest[2]=simplex[2];
+				break;
+			case 2:
+				closestOnSegment(0,1);
+				break;
+			case 3:
+				closestOnTriangle(0,1,2);
+				copyTriangleResult();
+				break;
+			default:
+				closestOnTetrahedron();
+		}
+		//Keep the points the closest point is made from, in the same order
+		for(int k=0; k<keptCount; k++)
+		{
+			int from=kept[k];
+			simplex[3*k]=simplex[3*from];
+			simplex[3*k+1]=simplex[3*from+1];
+			simplex[3*k+2]=simplex[3*from+2];
+		}
+		simplexSize=keptCount;
+	}
+	/**
+	 * Finds the point of a line between two simplex points closest to the origin
+	 * @param a The first point
+	 * @param b The second point
+	 */
+	private void closestOnSegment(int a, int b)
+	{
+		double ax=simplex[3*a], ay=simplex[3*a+1], az=simplex[3*a+2];
+		double abx=simplex[3*b]-ax, aby=simplex[3*b+1]-ay, abz=simplex[3*b+2]-az;
+		double length=abx*abx+aby*aby+abz*abz;
+		double t=length>0 ? -(ax*abx+ay*aby+az*abz)/length : 0;
+		if(t<=0)
+		{
+			keptCount=1;
+			kept[0]=a;
+			t=0;
+		}
+		else if(t>=1)
+		{
+			keptCount=1;
+			kept[0]=b;
+			t=1;
+		}
+		else
+		{
+			keptCount=2;
+			kept[0]=a;
+			kept[1]=b;
+		}
+		closest[0]=ax+t*abx;
+		closest[1]=ay+t*aby;
+		closest[2]=az+t*abz;
+	}
+	/**
+	 * Finds the point of a triangle of simplex points closest to the origin, by working out which corner, edge or the
+	 * inside of the triangle the origin is closest to, and puts it in the triangle result
+	 * @param a The first point
+	 * @param b The second point
+	 * @param c The third point
+	 */
+	private void closestOnTriangle(int a, int b, int c)
+	{
+		double ax=simplex[3*a], ay=simplex[3*a+1], az=simplex[3*a+2];
+		double bx=simplex[3*b], by=simplex[3*b+1], bz=simplex[3*b+2];
+		double cx=simplex[3*c], cy=simplex[3*c+1], cz=simplex[3*c+2];
+		double abx=bx-ax, aby=by-ay, abz=bz-az;
+		double acx=cx-ax, acy=cy-ay, acz=cz-az;
+		//Closest to corner a
+		double d1=-(abx*ax+aby*ay+abz*az);
+		double d2=-(acx*ax+acy*ay+acz*az);
+		if(d1<=0&&d2<=0)
+		{
+			setTriangleResult(ax,ay,az,a,-1,-1);
+			return;
+		}
+		//Closest to corner b
+		double d3=-(abx*bx+aby*by+abz*bz);
+		double d4=-(acx*bx+acy*by+acz*bz);
+		if(d3>=0&&d4<=d3)
+		{
+			setTriangleResult(bx,by,bz,b,-1,-1);
+			return;
+		}
+		//Closest to edge ab
+		double vc=d1*d4-d3*d2;
+		if(vc<=0&&d1>=0&&d3<=0)
+		{
+			double t=d1/(d1-d3);
+			setTriangleResult(ax+t*abx,ay+t*aby,az+t*abz,a,b,-1);
+			return;
+		}
+		//Closest to corner c
+		double d5=-(abx*cx+aby*cy+abz*cz);
+		double d6=-(acx*cx+acy*cy+acz*cz);
+		if(d6>=0&&d5<=d6)
+		{
+			setTriangleResult(cx,cy,cz,c,-1,-1);
+			return;
+		}
+		//Closest to edge ac
+		double vb=d5*d2-d1*d6;
+		if(vb<=0&&d2>=0&&d6<=0)
+		{
+			double t=d2/(d2-d6);
+			setTriangleResult(ax+t*acx,ay+t*acy,az+t*acz,a,c,-1);
+			return;
+		}
+		//Closest to edge bc
+		double va=d3*d6-d5*d4;
+		if(va<=0&&d4-d3>=0&&d5-d6>=0)
+		{
+			double t=(d4-d3)/((d4-d3)+(d5-d6));
+			setTriangleResult(bx+t*(cx-bx),by+t*(cy-by),bz+t*(cz-bz),b,c,-1);
+			return;
+		}
+		double total=va+vb+vc;
+		if(total<=0)
+		{
+			//The triangle is flat so take the closest corner
+			double da=ax*ax+ay*ay+az*az, db=bx*bx+by*by+bz*bz, dc=cx*cx+cy*cy+cz*cz;
+			if(da<=db&&da<=dc)
+			{
+				setTriangleResult(ax,ay,az,a,-1,-1);
+			}
+			else if(db<=dc)
+			{
+				setTriangleResult(bx,by,bz,b,-1,-1);
+			}
+			else
+			{
+				setTriangleResult(cx,cy,cz,c,-1,-1);
+			}
+			return;
+		}
+		//Closest to the inside of the triangle
+		double v=vb/total, w=vc/total;
+		setTriangleResult(ax+abx*v+acx*w,ay+aby*v+acy*w,az+abz*v+acz*w,a,b,c);
+	}
+	/**
+	 * Sets the closest point on a triangle and the points kept for it
+	 * @param x The x coord of the closest point
+	 * @param y The y coord of the closest point
+	 * @param z The z coord of the closest point
+	 * @param a The first point kept
+	 * @param b The second point kept, -1 for none
+	 * @param c The third point kept, -1 for none
+	 */
+	private void setTriangleResult(double x, double y, double z, int a, int b, int c)
+	{
+		triangleClosest[0]=x;
+		triangleClosest[1]=y;
+		triangleClosest[2]=z;
+		triangleKept[0]=a;
+		triangleKept[1]=b;
+		triangleKept[2]=c;
+		triangleKeptCount=c!=-1 ? 3 : (b!=-1 ? 2 : 1);
+	}
+	/**
+	 * Uses the closest point on a triangle as the closest point on the simplex
+	 */
+	private void copyTriangleResult()
+	{
+		closest[0]=triangleClosest[0];
+		closest[1]=triangleClosest[1];
+		closest[2]=triangleClosest[2];
+		keptCount=triangleKeptCount;
+		for(int k=0; k<triangleKeptCount; k++)
+		{
+			kept[k]=triangleKept[k];
+		}
+	}
+	/**
+	 * Finds the point of a tetrahedron of simplex points closest to the origin. If the origin is outside a face it is
+	 * closest to one of the faces it is outside of, otherwise it is inside and all four points are kept.
+	 */
+	private void closestOnTetrahedron()
+	{
+		double best=Double.POSITIVE_INFINITY;
+		keptCount=4;
+		for(int f=0; f<4; f++)
+		{
+			//The face without point f
+			int a=(f+1)%4, b=(f+2)%4, c=(f+3)%4;
+			if(!isOriginOutside(a,b,c,f))
+			{
+				continue;
+			}
+			closestOnTriangle(a,b,c);
+			double distance=triangleClosest[0]*triangleClosest[0]+triangleClosest[1]*triangleClosest[1]+triangleClosest[2]*triangleClosest[2];
+			if(distance<best)
+			{
+				best=distance;
+				copyTriangleResult();
+			}
+		}
+		if(keptCount==4)
+		{
+			for(int k=0; k<4; k++)
+			{
+				kept[k]=k;
+			}
+			closest[0]=0;
+			closest[1]=0;
+			closest[2]=0;
+		}
+		else
+		{
+			//Keep the kept points in the order they were added
+			for(int i=1; i<keptCount; i++)
+			{
+				for(int j=i; j>0&&kept[j-1]>kept[j]; j--)
+				{
+					int temp=kept[j];
+					kept[j]=kept[j-1];
+					kept[j-1]=temp;
+				}
+			}
+		}
+	}
+	/**
+	 * Gets if the origin is on the other side of a face of the tetrahedron from the point not on the face
+	 * @param a The first point of the face
+	 * @param b The second point of the face
+	 * @param c The third point of the face
+	 * @param other The point not on the face
+	 * @return True if the origin is outside the face, or the tetrahedron is flat
+	 */
+	private boolean isOriginOutside(int a, int b, int c, int other)
+	{
+		double ax=simplex[3*a], ay=simplex[3*a+1], az=simplex[3*a+2];
+		double abx=simplex[3*b]-ax, aby=simplex[3*b+1]-ay, abz=simplex[3*b+2]-az;
+		double acx=simplex[3*c]-ax, acy=simplex[3*c+1]-ay, acz=simplex[3*c+2]-az;
+		double nx=aby*acz-abz*acy, ny=abz*acx-abx*acz, nz=abx*acy-aby*acx;
+		double originSide=-(nx*ax+ny*ay+nz*az);
+		double otherSide=nx*(simplex[3*other]-ax)+ny*(simplex[3*other+1]-ay)+nz*(simplex[3*other+2]-az);
+		return otherSide==0||originSide*otherSide<0;
+	}
+	/**
+	 * Finds how far two overlapping shapes at their current poses go into each other with EPA, after GJK has found they overlap.
+	 * EPA starts with GJK's tetrahedron around the origin and keeps pushing out the face closest to the origin to the point
+	 * of the difference shape furthest along its normal, until the closest face is on the surface of the difference shape.
+	 * That face's distance is the depth and its normal the way to push the shapes apart. If GJK stopped with the origin on
+	 * the edge of its simplex, so the shapes are only just touching, or EPA can't make progress, the shapes are pushed apart
+	 * along the line between their centres instead. The normal is set to the direction to move the first shape to separate them.
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @return The depth
+	 */
+	private double depth(Collider collider1, Collider collider2)
+	{
+		if(!expandPolytope(collider1,collider2))
+		{
+			//Use the line between the centres
+			double x1=pose1[0]*collider1.centerX+pose1[1]*collider1.centerY+pose1[2]*collider1.centerZ+pose1[9];
+			double y1=pose1[3]*collider1.centerX+pose1[4]*collider1.centerY+pose1[5]*collider1.centerZ+pose1[10];
+			double z1=pose1[6]*collider1.centerX+pose1[7]*collider1.centerY+pose1[8]*collider1.centerZ+pose1[11];
+			double x2=pose2[0]*collider2.centerX+pose2[1]*collider2.centerY+pose2[2]*collider2.centerZ+pose2[9];
+			double y2=pose2[3]*collider2.centerX+pose2[4]*collider2.centerY+pose2[5]*collider2.centerZ+pose2[10];
+			double z2=pose2[6]*collider2.centerX+pose2[7]*collider2.centerY+pose2[8]*collider2.centerZ+pose2[11];
+			double dx=x1-x2, dy=y1-y2, dz=z1-z2;
+			double length=Math.sqrt(dx*dx+dy*dy+dz*dz);
+			if(length==0)
+			{
+				//The centres are in the same place so there is no direction to push them apart in, push straight up
+				dx=0;
+				dy=1;
+				dz=0;
+				length=1;
+			}
+			normalX=dx/length;
+			normalY=dy/length;
+			normalZ=dz/length;
+		}
+		return Math.max(0, -separation(collider1,collider2));
+	}
+	/**
+	 * Runs EPA from GJK's simplex and sets the normal to the way out of the closest face found
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @return True if a face was found, False if the simplex didn't surround the origin
+	 */
+	private boolean expandPolytope(Collider collider1, Collider collider2)
+	{
+		if(!fillSimplex(collider1,collider2))
+		{
+			return false;
+		}
+		epaPointCount=4;
+		System.arraycopy(simplex, 0, epaPoints, 0, 12);
+		epaFaceCount=0;
+		for(int f=0; f<4; f++)
+		{
+			int a=(f+1)%4, b=(f+2)%4, c=(f+3)%4;
+			if(!addEpaFace(a,b,c))
+			{
+				return false;//The tetrahedron is flat
+			}
+			//Wind the face the other way if its normal points towards the point not on it
+			int last=epaFaceCount-1;
+			if(epaPlanes[4*last]*(epaPoints[3*f]-epaPoints[3*a])+epaPlanes[4*last+1]*(epaPoints[3*f+1]-epaPoints[3*a+1])
+					+epaPlanes[4*last+2]*(epaPoints[3*f+2]-epaPoints[3*a+2])>0)
+			{
+				removeEpaFace(last);
+				addEpaFace(a,c,b);
+			}
+		}
+		int best=-1;
+		for(int i=0; i<MAX_ITERATIONS; i++)
+		{
+			//The face closest to the origin
+			best=0;
+			for(int f=1; f<epaFaceCount; f++)
+			{
+				if(epaPlanes[4*f+3]<epaPlanes[4*best+3])
+				{
+					best=f;
+				}
+			}
+			double nx=epaPlanes[4*best], ny=epaPlanes[4*best+1], nz=epaPlanes[4*best+2], distance=epaPlanes[4*best+3];
+			supportDifference(collider1,collider2,nx,ny,nz,difference);
+			double reach=nx*difference[0]+ny*difference[1]+nz*difference[2];
+			//The face can't be pushed out any further, or there is no room to add more
+			if(reach-distance<=EPA_TOLERANCE*Math.max(reach, 1e-12)||epaPointCount==MAX_EPA_POINTS)
+			{
+				break;
+			}
+			int point=epaPointCount;
+			epaPoints[3*point]=difference[0];
+			epaPoints[3*point+1]=difference[1];
+			epaPoints[3*point+2]=difference[2];
+			epaPointCount++;
+			//Remove the faces the new point can see, keeping the edges around them
+			epaEdgeCount=0;
+			for(int f=epaFaceCount-1; f>=0; f--)
+			{
+				int a=epaFaces[3*f];
+				if(epaPlanes[4*f]*(difference[0]-epaPoints[3*a])+epaPlanes[4*f+1]*(difference[1]-epaPoints[3*a+1])
+						+epaPlanes[4*f+2]*(difference[2]-epaPoints[3*a+2])>0)
+				{
+					addEpaEdge(epaFaces[3*f],epaFaces[3*f+1]);
+					addEpaEdge(epaFaces[3*f+1],epaFaces[3*f+2]);
+					addEpaEdge(epaFaces[3*f+2],epaFaces[3*f]);
+					removeEpaFace(f);
+				}
+			}
+			if(epaEdgeCount==0||epaFaceCount+epaEdgeCount>MAX_EPA_FACES)
+			{
+				return false;
+			}
+			//Join the edges to the new point
+			for(int e=0; e<epaEdgeCount; e++)
+			{
+				if(!addEpaFace(epaEdges[2*e],epaEdges[2*e+1],point))
+				{
+					return false;
+				}
+			}
+		}
+		if(best==-1||epaFaceCount==0)
+		{
+			return false;
+		}
+		//The polytope's face points out of the difference shape, the first shape has to move the other way
+		normalX=-epaPlanes[4*best];
+		normalY=-epaPlanes[4*best+1];
+		normalZ=-epaPlanes[4*best+2];
+		return true;
+	}
+	/**
+	 * Adds points to GJK's simplex until it is a tetrahedron with some volume. GJK stops with fewer points when the origin
+	 * is on a corner, edge or face of the simplex, which happens for round shapes whose centres line up.
+	 * The new points are on the surface of the difference shape so the origin is still inside or on the edge of the tetrahedron.
+	 * @param collider1 The first shape
+	 * @param collider2 The second shape
+	 * @return True if the simplex is a tetrahedron, False if the difference shape is flat
+	 */
+	private boolean fillSimplex(Collider collider1, Collider collider2)
+	{
+		double scale=collider1.getReach()+collider2.getReach();
+		double tiny=1e-12*scale;
+		if(simplexSize==1)
+		{
+			//Any direction away from the point
+			supportDifference(collider1,collider2,1,0,0,difference);
+			if(Math.abs(difference[0]-simplex[0])+Math.abs(difference[1]-simplex[1])+Math.abs(difference[2]-simplex[2])<=tiny)
+			{
+				supportDifference(collider1,collider2,-1,0,0,difference);
+			}
+			addSimplexPoint();
+		}
+		if(simplexSize==2)
+		{
+			//Directions square to the line, starting from the axis the line is least along
+			double dx=simplex[3]-simplex[0], dy=simplex[4]-simplex[1], dz=simplex[5]-simplex[2];
+			double ax=0, ay=0, az=0;
+			if(Math.abs(dx)<=Math.abs(dy)&&Math.abs(dx)<=Math.abs(dz))
+			{
+				ax=1;
+			}
+			else if(Math.abs(dy)<=Math.abs(dz))
+			{
+				ay=1;
+			}
+			else
+			{
+				az=1;
+			}
+			double e1x=dy*az-dz*ay, e1y=dz*ax-dx*az, e1z=dx*ay-dy*ax;
+			double e2x=dy*e1z-dz*e1y, e2y=dz*e1x-dx*e1z, e2z=dx*e1y-dy*e1x;
+			double[] directions={e1x,e1y,e1z,-e1x,-e1y,-e1z,e2x,e2y,e2z,-e2x,-e2y,-e2z};
+			for(int d=0; d<directions.length&&simplexSize==2; d+=3)
+			{
+				supportDifference(collider1,collider2,directions[d],directions[d+1],directions[d+2],difference);
+				//Only keep the point if it is off the line
+				double px=difference[0]-simplex[0], py=difference[1]-simplex[1], pz=difference[2]-simplex[2];
+				double cx=dy*pz-dz*py, cy=dz*px-dx*pz, cz=dx*py-dy*px;
+				if(Math.sqrt(cx*cx+cy*cy+cz*cz)>tiny*Math.sqrt(dx*dx+dy*dy+dz*dz))
+				{
+					addSimplexPoint();
+				}
+			}
+			if(simplexSize==2)
+			{
+				return false;
+			}
+		}
+		if(simplexSize==3)
+		{
+			//The point furthest off the plane of the triangle on either side
+			double ax=simplex[0], ay=simplex[1], az=simplex[2];
+			double abx=simplex[3]-ax, aby=simplex[4]-ay, abz=simplex[5]-az;
+			double acx=simplex[6]-ax, acy=simplex[7]-ay, acz=simplex[8]-az;
+			double nx=aby*acz-abz*acy, ny=abz*acx-abx*acz, nz=abx*acy-aby*acx;
+			supportDifference(collider1,collider2,nx,ny,nz,difference);
+			double above=nx*(difference[0]-ax)+ny*(difference[1]-ay)+nz*(difference[2]-az);
+			double aboveX=difference[0], aboveY=difference[1], aboveZ=difference[2];
+			supportDifference(collider1,collider2,-nx,-ny,-nz,difference);
+			double below=-(nx*(difference[0]-ax)+ny*(difference[1]-ay)+nz*(difference[2]-az));
+			if(above>=below)
+			{
+				difference[0]=aboveX;
+				difference[1]=aboveY;
+				difference[2]=aboveZ;
+			}
+			if(Math.max(above, below)<=tiny*Math.sqrt(nx*nx+ny*ny+nz*nz))
+			{
+				return false;
+			}
+			addSimplexPoint();
+		}
+		return simplexSize==4;
+	}
+	/**
+	 * Adds the last point found of the difference shape to the simplex
+	 */
+	private void addSimplexPoint()
+	{
+		simplex[3*simplexSize]=difference[0];
+		simplex[3*simplexSize+1]=difference[1];
+		simplex[3*simplexSize+2]=difference[2];
+		simplexSize++;
+	}
+	/**
+	 * Adds a face to EPA's polytope
+	 * @param a The first point
+	 * @param b The second point
+	 * @param c The third point
+	 * @return True if the face was added, False if it has no area
+	 */
+	private boolean addEpaFace(int a, int b, int c)
+	{
+		double ax=epaPoints[3*a], ay=epaPoints[3*a+1], az=epaPoints[3*a+2];
+		double abx=epaPoints[3*b]-ax, aby=epaPoints[3*b+1]-ay, abz=epaPoints[3*b+2]-az;
+		double acx=epaPoints[3*c]-ax, acy=epaPoints[3*c+1]-ay, acz=epaPoints[3*c+2]-az;
+		double nx=aby*acz-abz*acy, ny=abz*acx-abx*acz, nz=abx*acy-aby*acx;
+		double length=Math.sqrt(nx*nx+ny*ny+nz*nz);
+		if(length==0)
+		{
+			return false;
+		}
+		int f=epaFaceCount;
+		epaFaces[3*f]=a;
+		epaFaces[3*f+1]=b;
+		epaFaces[3*f+2]=c;
+		epaPlanes[4*f]=nx/length;
+		epaPlanes[4*f+1]=ny/length;
+		epaPlanes[4*f+2]=nz/length;
+		epaPlanes[4*f+3]=(nx*ax+ny*ay+nz*az)/length;
+		epaFaceCount++;
+		return true;
+	}
+	/**
+	 * Removes a face from EPA's polytope by moving the last face into its place
+	 * @param f The face
+	 */
+	private void removeEpaFace(int f)
+	{
+		int last=epaFaceCount-1;
+		System.arraycopy(epaFaces, 3*last, epaFaces, 3*f, 3);
+		System.arraycopy(epaPlanes, 4*last, epaPlanes, 4*f, 4);
+		epaFaceCount--;
+	}
+	/**
+	 * Adds an edge of a removed face to the edges around the removed faces. If the face next to it across the edge was also
+	 * removed the edge is in the middle of the removed faces, so the edge is removed instead.
+	 * @param from The point the edge starts at, going the way the face winds
+	 * @param to The point the edge ends at
+	 */
+	private void addEpaEdge(int from, int to)
+	{
+		for(int e=0; e<epaEdgeCount; e++)
+		{
+			//The face on the other side has the edge going the other way
+			if(epaEdges[2*e]==to&&epaEdges[2*e+1]==from)
+			{
+				epaEdgeCount--;
+				epaEdges[2*e]=epaEdges[2*epaEdgeCount];
+				epaEdges[2*e+1]=epaEdges[2*epaEdgeCount+1];
+				return;
+			}
+		}
+		epaEdges[2*epaEdgeCount]=from;
+		epaEdges[2*epaEdgeCount+1]=to;
+		epaEdgeCount++;
+	}
+}
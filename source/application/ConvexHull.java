@@ -0,0 +1,449 @@
+package application;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The convex hull of a set of points, the smallest convex shape that holds all of them, worked out with quickhull.
+ * Quickhull starts with a tetrahedron of four far apart points and keeps adding the point furthest outside a face,
+ * replacing the faces that point can see with faces joining it to the edge of what it can see, until no point is outside.
+ * Built once for a mesh in the mesh's own space, only the points on the hull and its faces are kept.
+ * Nothing is changed after it is built so it is safe to use from more than one thread at once.
+ * @author Sam Dark
+ *
+ */
+public class ConvexHull
+{
+	/** The x coords of the points on the hull */
+	private double[] xs;
+	/** The y coords of the points on the hull */
+	private double[] ys;
+	/** The z coords of the points on the hull */
+	private double[] zs;
+	/** The faces of the hull, stored as 3 point numbers for face 0 then face 1 etc, anticlockwise looking from outside */
+	private int[] faces;
+	/** The planes of the faces, stored {normalX,normalY,normalZ,offset} for face 0 then face 1 etc, with the normal pointing out of the hull */
+	private double[] planes;
+
+	/**
+	 * A face of the hull while it is being built
+	 * @author Sam Dark
+	 *
+	 */
+	private static class BuildFace
+	{
+		/** The points of the face, anticlockwise looking from outside */
+		int a, b, c;
+		/** The normal of the face, normalised and pointing out of the hull */
+		double nx, ny, nz;
+		/** The normal dotted with any point on the face */
+		double offset;
+		/** The points outside the face that haven't been added to the hull yet */
+		IntList outside=new IntList();
+		/** Has the face been replaced */
+		boolean removed=false;
+	}
+
+	/**
+	 * Works out the hull of some points
+	 * @param inpVertices The points
+	 * @throws IllegalArgumentException If the points are all on one plane so they have no hull with any volume
+	 */
+	ConvexHull(ArrayList<Vertex> inpVertices)
+	{
+		int count=inpVertices.size();
+		double[] px=new double[count], py=new double[count], pz=new double[count];
+		for(int i=0; i<count; i++)
+		{
+			px[i]=inpVertices.get(i).getX();
+			py[i]=inpVertices.get(i).getY();
+			pz[i]=inpVertices.get(i).getZ();
+		}
+		//Points closer to a face than this are on it, so rounding doesn't add points that are only just outside
+		double scale=0;
+		for(int i=0; i<count; i++)
+		{
+			scale=Math.max(scale, Math.max(Math.abs(px[i]), Math.max(Math.abs(py[i]), Math.abs(pz[i]))));
+		}
+		double epsilon=1e-9*Math.max(scale, 1);
+		int[] start=startingTetrahedron(px,py,pz,epsilon);
+		if(start==null)
+		{
+			throw new IllegalArgumentException("The points are flat so have no hull");
+		}
+		ArrayList<BuildFace> built=new ArrayList<BuildFace>();
+		//Make the tetrahedron's faces point away from the fourth point
+		for(int f=0; f<4; f++)
+		{
+			int a=start[f], b=start[(f+1)%4], c=start[(f+2)%4], other=start[(f+3)%4];
+			BuildFace face=makeFace(a,b,c,px,py,pz);
+			if(face.nx*px[other]+face.ny*py[other]+face.nz*pz[other]>face.offset)
+			{
+				face=makeFace(a,c,b,px,py,pz);
+			}
+			built.add(face);
+		}
+		//Give each point to the first face it is outside of
+		for(int i=0; i<count; i++)
+		{
+			if(i!=start[0]&&i!=start[1]&&i!=start[2]&&i!=start[3])
+			{
+				assignPoint(i,built,0,px,py,pz,epsilon);
+			}
+		}
+		IntList visible=new IntList();
+		IntList horizon=new IntList();
+		for(int f=0; f<built.size(); f++)
+		{
+			BuildFace face=built.get(f);
+			if(face.removed||face.outside.size()==0)
+			{
+				continue;
+			}
+			//Add the point furthest outside the face
+			int furthest=-1;
+			double furthestDistance=0;
+			for(int o=0; o<face.outside.size(); o++)
+			{
+				int p=face.outside.get(o);
+				double distance=face.nx*px[p]+face.ny*py[p]+face.nz*pz[p]-face.offset;
+				if(distance>furthestDistance)
+				{
+					furthest=p;
+					furthestDistance=distance;
+				}
+			}
+			//Find every face the point can see
+			visible.clear();
+			for(int g=0; g<built.size(); g++)
+			{
+				BuildFace other=built.get(g);
+				if(!other.removed&&other.nx*px[furthest]+other.ny*py[furthest]+other.nz*pz[furthest]-other.offset>epsilon)
+				{
+					visible.add(g);
+				}
+			}
+			//The edges of the visible faces that aren't shared with another visible face are the edge of what the point can see
+			horizon.clear();
+			for(int v=0; v<visible.size(); v++)
+			{
+				BuildFace seen=built.get(visible.get(v));
+				addHorizonEdge(seen.a,seen.b,visible,built,horizon);
+				addHorizonEdge(seen.b,seen.c,visible,built,horizon);
+				addHorizonEdge(seen.c,seen.a,visible,built,horizon);
+			}
+			//Replace the visible faces with faces joining the point to the horizon, keeping the same winding
+			int firstNew=built.size();
+			for(int e=0; e<horizon.size(); e+=2)
+			{
+				built.add(makeFace(horizon.get(e),horizon.get(e+1),furthest,px,py,pz));
+			}
+			for(int v=0; v<visible.size(); v++)
+			{
+				BuildFace seen=built.get(visible.get(v));
+				seen.removed=true;
+				//The points outside the old faces are either inside the hull now or outside one of the new faces
+				for(int o=0; o<seen.outside.size(); o++)
+				{
+					int p=seen.outside.get(o);
+					if(p!=furthest)
+					{
+						assignPoint(p,built,firstNew,px,py,pz,epsilon);
+					}
+				}
+				seen.outside.clear();
+			}
+		}
+		store(built,px,py,pz);
+	}
+	/**
+	 * Finds four points that are far apart and not on one plane to start the hull with
+	 * @param px The x coords of the points
+	 * @param py The y coords of the points
+	 * @param pz The z coords of the points
+	 * @param epsilon How close to a line or plane a point has to be to count as on it
+	 * @return The four point numbers, null if all the points are on one plane
+	 */
+	private static int[] startingTetrahedron(double[] px, double[] py, double[] pz, double epsilon)
+	{
+		int count=px.length;
+		if(count<4)
+		{
+			return null;
+		}
+		//The furthest apart pair of the points with the smallest and largest x, y and z
+		int[] extremes=new int[6];
+		for(int i=0; i<count; i++)
+		{
+			if(px[i]<px[extremes[0]]) extremes[0]=i;
+			if(px[i]>px[extremes[1]]) extremes[1]=i;
+			if(py[i]<py[extremes[2]]) extremes[2]=i;
+			if(py[i]>py[extremes[3]]) extremes[3]=i;
+			if(pz[i]<pz[extremes[4]]) extremes[4]=i;
+			if(pz[i]>pz[extremes[5]]) extremes[5]=i;
+		}
+		int a=0, b=0;
+		double furthest=-1;
+		for(int i=0; i<6; i++)
+		{
+			for(int j=i+1; j<6; j++)
+			{
+				double dx=px[extremes[i]]-px[extremes[j]], dy=py[extremes[i]]-py[extremes[j]], dz=pz[extremes[i]]-pz[extremes[j]];
+				double distance=dx*dx+dy*dy+dz*dz;
+				if(distance>furthest)
+				{
+					furthest=distance;
+					a=extremes[i];
+					b=extremes[j];
+				}
+			}
+		}
+		//The point furthest from the line between them
+		double lx=px[b]-px[a], ly=py[b]-py[a], lz=pz[b]-pz[a];
+		int c=-1;
+		furthest=epsilon*epsilon;
+		for(int i=0; i<count; i++)
+		{
+			double dx=px[i]-px[a], dy=py[i]-py[a], dz=pz[i]-pz[a];
+			double cx=ly*dz-lz*dy, cy=lz*dx-lx*dz, cz=lx*dy-ly*dx;
+			double distance=cx*cx+cy*cy+cz*cz;
+			if(distance>furthest)
+			{
+				furthest=distance;
+				c=i;
+			}
+		}
+		if(c==-1)
+		{
+			return null;
+		}
+		//The point furthest from the plane of the three
+		BuildFace base=makeFace(a,b,c,px,py,pz);
+		int d=-1;
+		furthest=epsilon;
+		for(int i=0; i<count; i++)
+		{
+			double distance=Math.abs(base.nx*px[i]+base.ny*py[i]+base.nz*pz[i]-base.offset);
+			if(distance>furthest)
+			{
+				furthest=distance;
+				d=i;
+			}
+		}
+		if(d==-1)
+		{
+			return null;
+		}
+		return new int[]{a,b,c,d};
+	}
+	/**
+	 * Creates a face from three points, its normal facing the side the points go anticlockwise on
+	 * @param a The first point
+	 * @param b The second point
+	 * @param c The third point
+	 * @param px The x coords of the points
+	 * @param py The y coords of the points
+	 * @param pz The z coords of the points
+	 * @return The face
+	 */
+	private static BuildFace makeFace(int a, int b, int c, double[] px, double[] py, double[] pz)
+	{
+		BuildFace face=new BuildFace();
+		face.a=a;
+		face.b=b;
+		face.c=c;
+		double abx=px[b]-px[a], aby=py[b]-py[a], abz=pz[b]-pz[a];
+		double acx=px[c]-px[a], acy=py[c]-py[a], acz=pz[c]-pz[a];
+		double nx=aby*acz-abz*acy, ny=abz*acx-abx*acz, nz=abx*acy-aby*acx;
+		double length=Math.sqrt(nx*nx+ny*ny+nz*nz);
+		if(length>0)
+		{
+			nx/=length;
+			ny/=length;
+			nz/=length;
+		}
+		face.nx=nx;
+		face.ny=ny;
+		face.nz=nz;
+		face.offset=nx*px[a]+ny*py[a]+nz*pz[a];
+		return face;
+	}
+	/**
+	 * Gives a point to the first face it is outside of, starting from a given face. Points not outside any face are inside the hull and dropped.
+	 * @param point The point
+	 * @param built The faces
+	 * @param first The first face to try
+	 * @param px The x coords of the points
+	 * @param py The y coords of the points
+	 * @param pz The z coords of the points
+	 * @param epsilon How far outside a face a point has to be
+	 */
+	private static void assignPoint(int point, ArrayList<BuildFace> built, int first, double[] px, double[] py, double[] pz, double epsilon)
+	{
+		for(int f=first; f<built.size(); f++)
+		{
+			BuildFace face=built.get(f);
+			if(!face.removed&&face.nx*px[point]+face.ny*py[point]+face.nz*pz[point]-face.offset>epsilon)
+			{
+				face.outside.add(point);
+				return;
+			}
+		}
+	}
+	/**
+	 * Adds an edge of a visible face to the horizon if the face on the other side of it can't be seen
+	 * @param from The point the edge starts at, going the way the visible face winds
+	 * @param to The point the edge ends at
+	 * @param visible The visible faces
+	 * @param built The faces
+	 * @param horizon The horizon edges, stored as from then to for each edge
+	 */
+	private static void addHorizonEdge(int from, int to, IntList visible, ArrayList<BuildFace> built, IntList horizon)
+	{
+		//The face on the other side has the edge going the other way
+		for(int v=0; v<visible.size(); v++)
+		{
+			BuildFace other=built.get(visible.get(v));
+			if((other.a==to&&other.b==from)||(other.b==to&&other.c==from)||(other.c==to&&other.a==from))
+			{
+				return;
+			}
+		}
+		horizon.add(from);
+		horizon.add(to);
+	}
+	/**
+	 * Keeps the faces that are left and the points they use
+	 * @param built The faces
+	 * @param px The x coords of the points
+	 * @param py The y coords of the points
+	 * @param pz The z coords of the points
+	 */
+	private void store(ArrayList<BuildFace> built, double[] px, double[] py, double[] pz)
+	{
+		int[] newNumbers=new int[px.length];
+		Arrays.fill(newNumbers, -1);
+		IntList used=new IntList();
+		IntList kept=new IntList();
+		for(int f=0; f<built.size(); f++)
+		{
+			BuildFace face=built.get(f);
+			if(face.removed)
+			{
+				continue;
+			}
+			kept.add(f);
+			int[] points={face.a,face.b,face.c};
+			for(int p=0; p<3; p++)
+			{
+				if(newNumbers[points[p]]==-1)
+				{
+					newNumbers[points[p]]=used.size();
+					used.add(points[p]);
+				}
+			}
+		}
+		xs=new double[used.size()];
+		ys=new double[used.size()];
+		zs=new double[used.size()];
+		for(int i=0; i<used.size(); i++)
+		{
+			xs[i]=px[used.get(i)];
+			ys[i]=py[used.get(i)];
+			zs[i]=pz[used.get(i)];
+		}
+		faces=new int[3*kept.size()];
+		planes=new double[4*kept.size()];
+		for(int k=0; k<kept.size(); k++)
+		{
+			BuildFace face=built.get(kept.get(k));
+			faces[3*k]=newNumbers[face.a];
+			faces[3*k+1]=newNumbers[face.b];
+			faces[3*k+2]=newNumbers[face.c];
+			planes[4*k]=face.nx;
+			planes[4*k+1]=face.ny;
+			planes[4*k+2]=face.nz;
+			planes[4*k+3]=face.offset;
+		}
+	}
+	/**
+	 * Finds the point of the hull furthest along a direction
+	 * @param dx The x component of the direction
+	 * @param dy The y component of the direction
+	 * @param dz The z component of the direction
+	 * @return The point number
+	 */
+	public int support(double dx, double dy, double dz)
+	{
+		int best=0;
+		double bestDistance=dx*xs[0]+dy*ys[0]+dz*zs[0];
+		for(int i=1; i<xs.length; i++)
+		{
+			double distance=dx*xs[i]+dy*ys[i]+dz*zs[i];
+			if(distance>bestDistance)
+			{
+				best=i;
+				bestDistance=distance;
+			}
+		}
+		return best;
+	}
+	/**
+	 * Gets how far inside the hull a point is, the distance to the closest face plane. Negative if the point is outside.
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @return The depth
+	 */
+	public double depth(double x, double y, double z)
+	{
+		double depth=Double.MAX_VALUE;
+		for(int f=0; f<planes.length; f+=4)
+		{
+			depth=Math.min(depth, planes[f+3]-(planes[f]*x+planes[f+1]*y+planes[f+2]*z));
+		}
+		return depth;
+	}
+	/**
+	 * Gets the number of points on the hull
+	 * @return The number of points
+	 */
+	public int getVertexCount()
+	{
+		return xs.length;
+	}
+	/**
+	 * Gets the number of faces of the hull
+	 * @return The number of faces
+	 */
+	public int getFaceCount()
+	{
+		return faces.length/3;
+	}
+	/**
+	 * Gets the x coord of a point on the hull
+	 * @param i The point number
+	 * @return The x coord
+	 */
+	public double getX(int i)
+	{
+		return xs[i];
+	}
+	/**
+	 * Gets the y coord of a point on the hull
+	 * @param i The point number
+	 * @return The y coord
+	 */
+	public double getY(int i)
+	{
+		return ys[i];
+	}
+	/**
+	 * Gets the z coord of a point on the hull
+	 * @param i The point number
+	 * @return The z coord
+	 */
+	public double getZ(int i)
+	{
+		return zs[i];
+	}
+}
@@ -1,9 +1,6 @@
 package application;
 import java.util.ArrayList;
 
-import org.ejml.data.DenseMatrix64F;
-import org.ejml.ops.CommonOps;
-import org.ejml.simple.SimpleMatrix;
 
 import com.jogamp.opengl.util.texture.Texture;
 
@@ -47,61 +44,75 @@ public class CustomObject
 	private ArrayList<TriangularFace> lpFaces= new ArrayList<TriangularFace>();
 	/** The vertices of the object */
 	private ArrayList<Vertex> lpVertices= new ArrayList<Vertex>();
+	/** Hierarchy over the bounds of the faces in the object's own space, shared by all objects imported from the same file */
+	private BoundingVolumeHierarchy faceHierarchy=null;
+	/** Hierarchy over the bounds of the low poly faces in the object's own space */
+	private BoundingVolumeHierarchy lpFaceHierarchy=null;
+	/** The face planes, edges and bounds of the object's faces in its own space, shared with objects from the same file */
+	private LocalMesh localMesh=null;
+	/** The face planes, edges and bounds of the object's low poly faces in its own space, shared with objects from the same file */
+	private LocalMesh lpLocalMesh=null;
+	/** The distance from the object's low poly mesh on a grid around it, null to check the faces instead */
+	private DistanceField distanceField=null;
+	/** The faces next to each low poly face, worked out the first time they are asked for */
+	private FaceNeighbours lpFaceNeighbours=null;
+	/** The low poly faces the face neighbours were worked out from */
+	private ArrayList<TriangularFace> lpFaceNeighboursSource=null;
+	/** The simple shape used instead of the low poly mesh in collision checks, null to use the mesh */
+	private Collider collider=null;
+	/** The shape the object's config asks for, "auto" to fit one if the mesh is close enough to a simple shape */
+	private String colliderName="auto";
 	/** List of the actual LP Vertices (not relative to position/rotation) */
 	private ArrayList<Vertex> actualLPVertices= new ArrayList<Vertex>();
-	/** Has the actual vertex position of the low poly vertices been updated since the last movement */
-	private boolean actualLPVertsUpdated=false;
+	/** The transform version the actual low poly vertices were worked out at, -1 if they never have been */
+	private int actualLPVertsVersion=-1;
+	/** The low poly vertices the flat coordinate arrays were made from */
+	private ArrayList<Vertex> lpCoordsSource=null;
+	/** The x, y and z coords of the low poly vertices in the object's own space, as flat arrays for the vertex kernels */
+	private double[] lpXs=new double[0], lpYs=new double[0], lpZs=new double[0];
+	/** The low poly vertices in actual space and the box around them, worked out by the vertex kernels */
+	private VertexCoords actualLPCoords=new VertexCoords();
+	/** The low poly vertices in actual space at the previous transform. When the object moves the current ones are swapped in here instead of being worked out again */
+	private VertexCoords prevActualLPCoords=new VertexCoords();
+	/** Kernels for transforming whole meshes at once, SIMD if available */
+	private static final VertexKernels KERNELS=VertexKernels.create();
+	/** Goes up by one every time the transform changes, the vertex caches are out of date if they were worked out at an older version */
+	private int transformVersion=0;
 	
 	//Physics things
+	/** The store the physics state of the object is kept in, a store of its own until a simulation moves it into a shared one */
+	private BodyStore bodyStore=new BodyStore(1);//Store for the physics state
+	/** The object's body in the body store */
+	private int bodyId=bodyStore.add();//Body number in the store
 	/** The position of the object in 3d space */
-	private Position position=new Position();//Position of the object in 3d space
+	private Position position=new BodyVector(this,BodyStore.POSITION);//Position of the object in 3d space
 	/** The rotation of the object about x,y,z axis */
-	private Rotation rotation=new Rotation();//Rotation of the object about x,y,z axis 
+	private Rotation rotation=new BodyRotation(this,BodyStore.ROTATION);//Rotation of the object about x,y,z axis 
 	/** The position of the object after the last physics update */
-	private Position prevPosition=new Position();//Position last update
+	private Position prevPosition=new BodyVector(this,BodyStore.PREV_POSITION);//Position last update
 	/** The rotation of the object after the last physics update */
-	private Rotation prevRotation=new Rotation();//Rotation last update
-	/** The matrix representing translation (position) of the object from the origin (4x4 matrix) */
-	private DenseMatrix64F translationMatrix;
-	/** The matrix representing rotation of the object around x,y,z axis (4x4 matrix) */
-	private DenseMatrix64F rotationMatrix=new DenseMatrix64F();
-	/** The translation matrix from the last update */
-	private DenseMatrix64F prevTranslationMatrix;//From last update
-	/** The rotation matrix from the last update */
-	private DenseMatrix64F prevRotationMatrix=new DenseMatrix64F();//From last update
+	private Rotation prevRotation=new BodyRotation(this,BodyStore.PREV_ROTATION);//Rotation last update
+	/** The rotation and translation (position) of the object, moves vertices from the object's own space to actual space */
+	private RigidTransform transform=new RigidTransform();
+	/** The transform from the last update */
+	private RigidTransform prevTransform=new RigidTransform();//From last update
 	/** The acceleration of the object in x,y,z per second (not per update) */
-	private Position acc=new Position(0,0,0);//Acceleration of the object per second not per update
+	private Position acc=new BodyVector(this,BodyStore.ACCELERATION);//Acceleration of the object per second not per update
 	/** The velocity of the object in x,y,z per second (not per update) */
-	private Position vel=new Position(0,0,0);//Velocity of the object per second not per update
-	/** The velocity of the object last update */
-	private Position prevVel=new Position(0,0,0);//Velocity last update
-	/** Can the object move? */
-	private boolean canMove=true;//Can the object move?
-	/** The inverse mass (1/mass) of the object */
-	private double inverseMass=900;//Inverse mass (1/mass)
-	/** The list of actual vertex positions of the object from last update (not relative to object position/rotation) */
-	private ArrayList<Vertex> oldActualVertices= new ArrayList<Vertex>();//Actual vertices from last update
-	/** The list of actual vertex positions of the low poly part of the object from last update (not relative to object position/rotation) */
-	private ArrayList<Vertex> oldActualLPVertices= new ArrayList<Vertex>();//Actual lp vertices from last update
-	/** Is the object effected by gravity */
-	private boolean gravity=true;//Is the object effected by gravity?
+	private Position vel=new BodyVector(this,BodyStore.VELOCITY);//Velocity of the object per second not per update
 	/** The center of mass of the object assuming each vertex has mass 1 and only vertices have mass*/
 	private Position centerOfMass;//Center of mass of the object
 	/** The center of mass of the object relative to its position */
 	private Position relativeCenterOfMass;//Center of mass relative to object position
 	/** The location of the last collision */
 	private Position lastCol=null;//Last collision location
-	/**  Has the actual vertex position of the vertices been updated since the last movement */
-	private boolean actualVertsUpdated=false;
+	/** The transform version the actual vertices were worked out at, -1 if they never have been */
+	private int actualVertsVersion=-1;
 	/** List of the actual vertices (not relative to position/rotation) */
 	private ArrayList<Vertex> actualVertices= new ArrayList<Vertex>();
 	
 	//Used in get actual vertex, here for GC reasons
 	/** Used in "getActualVertex()" just here for garbage collection reduction */
-	private DenseMatrix64F vertexMatrix=new DenseMatrix64F(4,1,false, 0,0,0,0);
-	/** Used in "getActualVertex()" just here for garbage collection reduction */
-	private DenseMatrix64F tempMatrix=new DenseMatrix64F(4,1,false,0,0,0,0);
-	/** Used in "getActualVertex()" just here for garbage collection reduction */
 	private Vertex vertex= new Vertex();
 	/** Used in "getActualVertex()" just here for garbage collection reduction */
 	private Vertex outputVertex= new Vertex();
@@ -115,7 +126,6 @@ public class CustomObject
 		vertices=null;
 		faces=null;
 		relativeCenterOfMass=null;
-		rotationMatrix=CommonOps.identity(4);
 	}
 	/**
 	 * Creates an object with the input face and vertices 
@@ -137,7 +147,6 @@ public class CustomObject
 			vertexNo=vertices.size()-1;
 		}
 		faces=inpFaces;
-		rotationMatrix=CommonOps.identity(4);
 		relativeCenterOfMass=relativeCenterOfMass();
 	}
 	/**
@@ -151,15 +160,14 @@ public class CustomObject
 		textureNo=inpObj.textureNo;
 		material=inpObj.material;
 		hasTexture=inpObj.hasTexture;
-		position=new Position(inpObj.position.getX(),inpObj.position.getY(),inpObj.position.getZ());
-		rotation=new Rotation(inpObj.rotation.getX(),inpObj.rotation.getY(),inpObj.rotation.getZ());
-		translationMatrix=inpObj.translationMatrix;
-		rotationMatrix=inpObj.rotationMatrix;
-		canMove=inpObj.canMove;
-		inverseMass=inpObj.inverseMass;
-		oldActualVertices=inpObj.oldActualVertices;
+		position.setPosition(inpObj.position.getX(),inpObj.position.getY(),inpObj.position.getZ());
+		rotation.setRotation(inpObj.rotation.getX(),inpObj.rotation.getY(),inpObj.rotation.getZ());
+		transform.set(inpObj.transform);
+		setCanMove(inpObj.canMove());
+		bodyStore.setInverseMass(bodyId, inpObj.getInverseMass());
 		name=inpObj.name;
-		gravity=inpObj.gravity;
+		colliderName=inpObj.colliderName;
+		setGravity(inpObj.getGravity());
 		relativeCenterOfMass=relativeCenterOfMass();
 	}
 	/**
@@ -184,7 +192,7 @@ public class CustomObject
 	 */
 	public void setGravity(boolean inpGrav)
 	{
-		gravity=inpGrav;
+		bodyStore.setFlag(bodyId, BodyStore.GRAVITY, inpGrav);
 	}
 	/**
 	 * Gets if the object is effected by gravity
@@ -192,7 +200,7 @@ public class CustomObject
 	 */
 	public boolean getGravity()
 	{
-		return gravity;
+		return bodyStore.hasFlag(bodyId, BodyStore.GRAVITY);
 	}
 	/**
 	 * Sets the name of the object, this is used in the config creator
@@ -234,7 +242,7 @@ public class CustomObject
 	{
 		if(inpIMass!=0)
 		{
-			inverseMass=inpIMass;
+			bodyStore.setInverseMass(bodyId, inpIMass);
 		}
 	}
 	/**
@@ -243,7 +251,35 @@ public class CustomObject
 	 */
 	public double getInverseMass()
 	{
-		return inverseMass;
+		return bodyStore.getInverseMass(bodyId);
+	}
+	/**
+	 * Gets the store the physics state of the object is kept in
+	 * @return The body store
+	 */
+	BodyStore getBodyStore()
+	{
+		return bodyStore;
+	}
+	/**
+	 * Gets the object's body in its body store
+	 * @return The body id
+	 */
+	int getBodyId()
+	{
+		return bodyId;
+	}
+	/**
+	 * Moves the physics state of the object into another store, e.g. one shared by all the objects in a simulation.
+	 * The object's position, rotation etc carry on working as before.
+	 * @param inpStore The store to move to
+	 */
+	void moveToStore(BodyStore inpStore)
+	{
+		int id=inpStore.add();
+		inpStore.copyBody(id, bodyStore, bodyId);
+		bodyStore=inpStore;
+		bodyId=id;
 	}
 	/**
 	 * Sets the objects material to the one input
@@ -254,13 +290,14 @@ public class CustomObject
 		material=inpMaterial;
 	}
 	/**
-	 * Sets the objects position to the one input
+	 * Sets the objects position to the one input, the values are copied so changing the input afterwards doesn't move the object
 	 * @param inpPosition The position to set to
 	 */
 	public void setPosition(Position inpPosition)
 	{
-		prevPosition=position;
-		position=inpPosition;
+		wake();
+		bodyStore.copy(bodyId, BodyStore.POSITION, BodyStore.PREV_POSITION);
+		position.setPosition(inpPosition.getX(),inpPosition.getY(),inpPosition.getZ());
 		updateMatrices();
 	}
 	/**
@@ -272,7 +309,7 @@ public class CustomObject
 		return material;
 	}
 	/**
-	 * Gets the position of the object
+	 * Gets the position of the object, changing it changes the object
 	 * @return The objects position
 	 */
 	public Position getPosition()
@@ -295,6 +332,135 @@ public class CustomObject
 	{
 		lpFaces=inpFaces;
 	}
+	/**
+	 * Sets the hierarchy over the bounds of the faces of the object
+	 * @param inpHierarchy The hierarchy to set to
+	 */
+	public void setFaceHierarchy(BoundingVolumeHierarchy inpHierarchy)
+	{
+		faceHierarchy=inpHierarchy;
+	}
+	/**
+	 * Sets the hierarchy over the bounds of the low poly faces of the object
+	 * @param inpHierarchy The hierarchy to set to
+	 */
+	public void setLPFaceHierarchy(BoundingVolumeHierarchy inpHierarchy)
+	{
+		lpFaceHierarchy=inpHierarchy;
+	}
+	/**
+	 * Gets the hierarchy over the bounds of the faces of the object, in the object's own space
+	 * @return The hierarchy, null if the object wasn't imported
+	 */
+	public BoundingVolumeHierarchy getFaceHierarchy()
+	{
+		return faceHierarchy;
+	}
+	/**
+	 * Gets the hierarchy over the bounds of the low poly faces of the object, in the object's own space
+	 * @return The hierarchy, null if it hasn't been set
+	 */
+	public BoundingVolumeHierarchy getLPFaceHierarchy()
+	{
+		return lpFaceHierarchy;
+	}
+	/**
+	 * Sets the local collision information of the faces of the object
+	 * @param inpMesh The information to set to
+	 */
+	public void setLocalMesh(LocalMesh inpMesh)
+	{
+		localMesh=inpMesh;
+	}
+	/**
+	 * Sets the local collision information of the low poly faces of the object
+	 * @param inpMesh The information to set to
+	 */
+	public void setLPLocalMesh(LocalMesh inpMesh)
+	{
+		lpLocalMesh=inpMesh;
+	}
+	/**
+	 * Gets the local collision information of the faces of the object
+	 * @return The information, null if the object wasn't imported
+	 */
+	public LocalMesh getLocalMesh()
+	{
+		return localMesh;
+	}
+	/**
+	 * Gets the local collision information of the low poly faces of the object, working it out if it hasn't been set
+	 * @return The information
+	 */
+	public LocalMesh getLPLocalMesh()
+	{
+		if(lpLocalMesh==null)
+		{
+			lpLocalMesh=new LocalMesh(lpVertices,lpFaces);
+		}
+		return lpLocalMesh;
+	}
+	/**
+	 * Sets the distance field used instead of the low poly faces in collision checks
+	 * @param inpField The field, in the object's own space. null to check the faces
+	 */
+	public void setDistanceField(DistanceField inpField)
+	{
+		distanceField=inpField;
+	}
+	/**
+	 * Gets the distance field used instead of the low poly faces in collision checks
+	 * @return The field, null if the faces are checked
+	 */
+	public DistanceField getDistanceField()
+	{
+		return distanceField;
+	}
+	/**
+	 * Sets the simple shape used instead of the low poly mesh in collision checks
+	 * @param inpCollider The shape, in the object's own space. null to use the mesh
+	 */
+	public void setCollider(Collider inpCollider)
+	{
+		collider=inpCollider;
+	}
+	/**
+	 * Gets the simple shape used instead of the low poly mesh in collision checks
+	 * @return The shape, null if the mesh is used
+	 */
+	public Collider getCollider()
+	{
+		return collider;
+	}
+	/**
+	 * Sets the shape the object's config asks for, kept so it can be saved back to a config
+	 * @param inpName The shape, "auto", "sphere", "capsule", "plane", "hull", "mesh" or "sdf"
+	 */
+	public void setColliderName(String inpName)
+	{
+		colliderName=inpName;
+	}
+	/**
+	 * Gets the shape the object's config asks for
+	 * @return The shape, "auto" if the config doesn't name one
+	 */
+	public String getColliderName()
+	{
+		return colliderName;
+	}
+	/**
+	 * Gets the faces next to each low poly face of the object, working them out if the faces have changed since last time
+	 * @return The face neighbours
+	 */
+	public FaceNeighbours getLPFaceNeighbours()
+	{
+		if(lpFaceNeighboursSource!=lpFaces)
+		{
+			lpFaceNeighbours=new FaceNeighbours(lpFaces);
+			lpFaceNeighboursSource=lpFaces;
+		}
+		return lpFaceNeighbours;
+	}
 	/**
 	 * Gets the faces of the object
 	 * @return The objects faces
@@ -371,16 +537,19 @@ public class CustomObject
 		return hasTexture;
 	}
 	/**
-	 * Sets the objects rotation to the one input
+	 * Sets the objects rotation, rotation velocity and rotation acceleration to the ones input, the values are copied
 	 * @param inpRotation The rotation to set to
 	 */
 	public void setRotation(Rotation inpRotation)
 	{
-		rotation=inpRotation;
+		wake();
+		rotation.setRotation(inpRotation.getX(),inpRotation.getY(),inpRotation.getZ());
+		rotation.setVel(inpRotation.getVel());
+		rotation.setAcc(inpRotation.getAcc());
 		updateMatrices();
 	}
 	/**
-	 * Gets the rotation of the object
+	 * Gets the rotation of the object, changing it changes the object
 	 * @return The objects rotation
 	 */
 	public Rotation getRotation()
@@ -464,267 +633,213 @@ public class CustomObject
 	public void setLPVertices(ArrayList<Vertex> inpVertices) 
 	{
 		lpVertices=inpVertices;
+		//The actual vertices were worked out from the old ones
+		actualLPVertsVersion=-1;
+		actualLPCoords.version=-1;
+		prevActualLPCoords.version=-1;
 	}
 	/**
-	 * Gets the list of vertices of the object at their actual position, not relative to the position/rotation of the object
+	 * Gets the list of vertices of the object at their actual position, not relative to the position/rotation of the object.
+	 * Only worked out again if the object has moved since they were last asked for
 	 * @return The list of vertices
 	 */
 	public ArrayList<Vertex> getActualVertices()
 	{
-		if(position==prevPosition&&rotation==prevRotation&&oldActualVertices.size()>0)
-		{
-			return oldActualVertices;
-		}
-		else if(actualVertsUpdated==true)
-		{
-			return actualVertices;
-		}
-		else
+		if(actualVertsVersion!=transformVersion)
 		{
 			updateActualVertices();
-			return actualVertices;
 		}
-
+		return actualVertices;
 	}
 	/**
-	 * Gets the list of low poly vertices of the object at their actual position, not relative to the position/rotation of the object
+	 * Gets the list of low poly vertices of the object at their actual position, not relative to the position/rotation of the object.
+	 * Only worked out again if the object has moved since they were last asked for
 	 * @return The list of vertices
 	 */
 	public ArrayList<Vertex> getActualLPVertices()
 	{
-
-		if(position==prevPosition&&rotation==prevRotation&&oldActualLPVertices.size()>0)
-		{
-			return oldActualLPVertices;
-		}
-		else if(actualLPVertsUpdated==true)
-		{
-			return actualLPVertices;
-		}
-		else
+		if(actualLPVertsVersion!=transformVersion)
 		{
 			updateActualLPVertices();
-			return actualLPVertices;
 		}
+		return actualLPVertices;
 	}
 	/**
-	 * Updates the list of actual low poly vertices or creates a new one is the current one is empty
+	 * Updates the list of actual low poly vertices or creates a new one if the current one is the wrong size
 	 */
 	private void updateActualLPVertices()
 	{
-		if(actualLPVertices.size()==0)
+		if(actualLPVertices.size()!=lpVertices.size())
 		{
+			actualLPVertices=new ArrayList<Vertex>(lpVertices.size());
 			for(int i=0;i<lpVertices.size();i++)
 			{
-				actualLPVertices.add(getNewActualLPVertex(i));
+				actualLPVertices.add(new Vertex());
 			}
 		}
-		else
+		VertexCoords coords=getActualLPCoords();
+		for(int i=0;i<coords.size();i++)
 		{
-			for(int i=0;i<lpVertices.size();i++)
-			{
-				updateActualLPVertex(i);
-			}
+			actualLPVertices.get(i).setPosition(coords.xs[i],coords.ys[i],coords.zs[i]);
 		}
-		actualLPVertsUpdated=true;
+		actualLPVertsVersion=transformVersion;
 	}
 	/**
-	 * Updates the list of actual vertices or creates a new one if the current one is empty
+	 * Gets the low poly vertices of the object at their actual position as flat coordinate arrays, with the box around them.
+	 * Only worked out again if the object has moved since they were last asked for
+	 * @return The vertices, don't change them
 	 */
-	private void updateActualVertices()
+	public VertexCoords getActualLPCoords()
 	{
-		if(actualVertices.size()==0)
+		if(actualLPCoords.version!=transformVersion)
 		{
-			for(int i=0;i<vertices.get(vertexNo).size();i++)
-			{
-				actualVertices.add(getNewActualVertex(i));
-			}
+			transformLPCoords(transform,actualLPCoords);
 		}
-		else
+		return actualLPCoords;
+	}
+	/**
+	 * Gets the low poly vertices of the object at their actual position from the <strong>previous update</strong> as flat coordinate arrays.
+	 * These are the current ones from before the object last moved, so they are only worked out if the current ones weren't
+	 * @return The vertices, don't change them
+	 */
+	public VertexCoords getPrevActualLPCoords()
+	{
+		if(prevActualLPCoords.version!=transformVersion)
 		{
-			for(int i=0;i<vertices.get(vertexNo).size();i++)
-			{
-				updateActualVertex(i);
-			}
+			transformLPCoords(prevTransform,prevActualLPCoords);
 		}
-		actualLPVertsUpdated=true;
+		return prevActualLPCoords;
 	}
 	/**
-	 * Gets the actual position (not relative to the position/rotation of the object) of a vertex
-	 * @param vertexNumber The vertex to get the position of
-	 * @return The vertex with actual position
+	 * Moves the low poly vertices into actual space and works out the box around them in one pass over the flat arrays
+	 * @param inpTransform The transform to move them by
+	 * @param output Where to put the vertices, marked as worked out at the current transform version
 	 */
-	public Vertex getActualVertex(int vertexNumber)
+	private void transformLPCoords(RigidTransform inpTransform, VertexCoords output)
 	{
-		if(position==prevPosition&&rotation==prevRotation&&oldActualVertices.size()>0)
+		updateLPCoords();
+		int count=lpVertices.size();
+		output.setSize(count);
+		if(count>0)
 		{
-			return oldActualVertices.get(vertexNumber);
+			KERNELS.transform(inpTransform,lpXs,lpYs,lpZs,count,output.xs,output.ys,output.zs,output.bounds);
 		}
-		else if(actualVertsUpdated==true)
+		output.version=transformVersion;
+	}
+	/**
+	 * Makes the flat coordinate arrays of the low poly vertices if they haven't been made for the current low poly vertices
+	 */
+	private void updateLPCoords()
+	{
+		int count=lpVertices.size();
+		if(lpCoordsSource==lpVertices&&lpXs.length==count)
 		{
-			return actualVertices.get(vertexNumber);
+			return;
 		}
-		else
+		lpXs=new double[count];
+		lpYs=new double[count];
+		lpZs=new double[count];
+		for(int i=0;i<count;i++)
 		{
-			updateActualVertices();
-			return actualVertices.get(vertexNumber);
+			lpXs[i]=lpVertices.get(i).getX();
+			lpYs[i]=lpVertices.get(i).getY();
+			lpZs[i]=lpVertices.get(i).getZ();
 		}
+		lpCoordsSource=lpVertices;
 	}
 	/**
-	 * Gets the actual position (not relative to the position/rotation of the object) of a low poly vertex
-	 * @param vertexNumber The vertex to get the position of
-	 * @return The vertex with actual position
+	 * Gets the box around the low poly vertices at their actual position, worked out along with them.
+	 * Exact but goes through every vertex, so only used for objects that can't move, moving objects use the box of their LocalMesh
+	 * @return The box {minX,minY,minZ,maxX,maxY,maxZ}, don't change it
 	 */
-	public Vertex getActualLPVertex(int vertexNumber)
+	public double[] getActualLPBounds()
 	{
-		if(position==prevPosition&&rotation==prevRotation&&oldActualLPVertices.size()>0)
-		{
-			return oldActualLPVertices.get(vertexNumber);
-		}
-		else if(actualLPVertsUpdated==true)
+		return getActualLPCoords().bounds;
+	}
+	/**
+	 * Updates the list of actual vertices or creates a new one if the current one is the wrong size
+	 */
+	private void updateActualVertices()
+	{
+		ArrayList<Vertex> relative=vertices.get(vertexNo);
+		if(actualVertices.size()!=relative.size())
 		{
-			return actualLPVertices.get(vertexNumber);
+			actualVertices=new ArrayList<Vertex>(relative.size());
+			for(int i=0;i<relative.size();i++)
+			{
+				actualVertices.add(new Vertex());
+			}
 		}
-		else
+		for(int i=0;i<relative.size();i++)
 		{
-			updateActualLPVertices();
-			return actualLPVertices.get(vertexNumber);
+			transformVertex(relative.get(i),actualVertices.get(i));
 		}
+		actualVertsVersion=transformVersion;
 	}
 	/**
-	 * Updates the actual position (not relative to the position/rotation of the object) of a low poly vertex
-	 * @param vertexNumber The vertex to update the position of
+	 * Gets the actual position (not relative to the position/rotation of the object) of a vertex
+	 * @param vertexNumber The vertex to get the position of
+	 * @return The vertex with actual position
 	 */
-	private void updateActualLPVertex(int vertexNumber)
+	public Vertex getActualVertex(int vertexNumber)
 	{
-		
-		//Get the relative position of the vertex
-		vertex.copyOf(lpVertices.get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//Multiply it by the two transform matrices
-		CommonOps.mult(rotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(translationMatrix, tempMatrix, vertexMatrix);
-		
-		actualLPVertices.get(vertexNumber).setPosition(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
+		return getActualVertices().get(vertexNumber);
 	}
 	/**
-	 * Updates the actual position (not relative to the position/rotation of the object) of a vertex
-	 * @param vertexNumber The vertex to update the position of
+	 * Moves a vertex from the object's own space to actual space using the current transform
+	 * @param inpVertex The relative vertex
+	 * @param output The vertex to put the actual position in
 	 */
-	private void updateActualVertex(int vertexNumber)
+	private void transformVertex(Vertex inpVertex, Vertex output)
 	{
-		
-		//Get the relative position of the vertex
-		vertex.copyOf(vertices.get(vertexNo).get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//Multiply it by the two transform matrices
-		CommonOps.mult(rotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(translationMatrix, tempMatrix, vertexMatrix);
-		
-		actualLPVertices.get(vertexNumber).setPosition(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
+		transform.transformPoint(inpVertex.getX(),inpVertex.getY(),inpVertex.getZ(),output);
 	}
 	/**
-	 * Gets the actual position (not relative to the position/rotation of the object) of a low poly vertex.
-	 * Returns a vertex object instead of just updating an existing one
-	 * @param vertexNumber The vertex to get the position of
-	 * @return The vertex with actual position
+	 * Gets the transform from the object's own space to actual space. Don't change it, it is worked out from the position and rotation
+	 * @return The transform
 	 */
-	private Vertex getNewActualLPVertex(int vertexNumber)
+	public RigidTransform getTransform()
 	{
-		if(position==prevPosition&&rotation==prevRotation&&oldActualLPVertices.size()>0)
-		{
-			return oldActualLPVertices.get(vertexNumber);
-		}
-		//Get the relative position of the vertex
-		vertex.copyOf(lpVertices.get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//Multiply it by the two transform matrices
-		CommonOps.mult(rotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(translationMatrix, tempMatrix, vertexMatrix);
-		//Get the actual position of the matrix
-		outputVertex=new Vertex(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
-		//Output it
-		return outputVertex;
+		return transform;
 	}
 	/**
-	 * Gets the actual position (not relative to the position/rotation of the object) of a vertex.
-	 * Returns a vertex object instead of just updating an existing one
-	 * @param vertexNumber The vertex to get the position of
-	 * @return The vertex with actual position
+	 * Gets the transform from the object's own space to actual space from the <strong>previous update</strong>. Don't change it
+	 * @return The previous transform
 	 */
-	private Vertex getNewActualVertex(int vertexNumber)
+	public RigidTransform getPrevTransform()
 	{
-		if(position==prevPosition&&rotation==prevRotation&&oldActualLPVertices.size()>0)
-		{
-			return oldActualVertices.get(vertexNumber);
-		}
-		//Get the relative position of the vertex
-		vertex.copyOf(vertices.get(vertexNo).get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//Multiply it by the two transform matrices
-		CommonOps.mult(rotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(translationMatrix, tempMatrix, vertexMatrix);
-		//Get the actual position of the matrix
-		outputVertex=new Vertex(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
-		//Output it
-		return outputVertex;
+		return prevTransform;
 	}
 	/**
-	 * Gets the actual position of a vertex (not relative) from the <strong>previous update</strong>
-	 * @param vertexNumber The vertex to get position of
-	 * @return The vertex with actual position
+	 * Gets the number of times the transform of the object has changed, goes up by one each time the object is moved or rotated.
+	 * Anything worked out from the actual vertices is out of date if it was worked out at an older version
+	 * @return The transform version
 	 */
-	public Vertex getPrevActualVertex(int vertexNumber)
+	public int getTransformVersion()
 	{
-
-		vertex.copyOf(vertices.get(vertexNo).get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//vertexMatrix=transformMatrix.mult(vertexMatrix);
-		CommonOps.mult(prevRotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(prevTranslationMatrix, tempMatrix, vertexMatrix);
-		//outputVertex.setX(vertexMatrix.get(0));
-		//outputVertex.setY(vertexMatrix.get(1));
-		//outputVertex.setZ(vertexMatrix.get(2));
-		
-		outputVertex=new Vertex(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
-		return outputVertex;
+		return transformVersion;
 	}
 	/**
-	 * Gets the actual position of a low poly vertex (not relative) from the <strong>previous update</strong>
+	 * Moves an actual position (not relative) into the object's own space, so it is relative to the
+	 * current position/rotation of the object. The opposite of getting an actual vertex.
+	 * @param inpPosition The actual position
+	 * @param output Array of at least 3 to put the relative x,y,z in
+	 */
+	public void toRelative(Position inpPosition, double[] output)
+	{
+		transform.inverseTransformPoint(inpPosition.getX(),inpPosition.getY(),inpPosition.getZ(),output);
+	}
+	/**
+	 * Gets the actual position of a vertex (not relative) from the <strong>previous update</strong>
 	 * @param vertexNumber The vertex to get position of
 	 * @return The vertex with actual position
 	 */
-	public Vertex getPrevActualLPVertex(int vertexNumber)
+	public Vertex getPrevActualVertex(int vertexNumber)
 	{
 
-		vertex.copyOf(lpVertices.get(vertexNumber));
-		vertexMatrix.set(0,vertex.getX());
-		vertexMatrix.set(1,vertex.getY());
-		vertexMatrix.set(2,vertex.getZ());
-		vertexMatrix.set(3,1);
-		//vertexMatrix=transformMatrix.mult(vertexMatrix);
-		CommonOps.mult(prevRotationMatrix, vertexMatrix, tempMatrix);
-		CommonOps.mult(prevTranslationMatrix, tempMatrix, vertexMatrix);
-		//outputVertex.setX(vertexMatrix.get(0));
-		//outputVertex.setY(vertexMatrix.get(1));
-		//outputVertex.setZ(vertexMatrix.get(2));
-		
-		outputVertex=new Vertex(vertexMatrix.get(0),vertexMatrix.get(1),vertexMatrix.get(2));
+		vertex.copyOf(vertices.get(vertexNo).get(vertexNumber));
+		outputVertex=new Vertex();
+		prevTransform.transformPoint(vertex.getX(),vertex.getY(),vertex.getZ(),outputVertex);
 		return outputVertex;
 	}
 	/**
@@ -740,95 +855,54 @@ public class CustomObject
 	 */
 	public void rotateAboutPoint(Position relativePoint, double xRot, double yRot, double zRot)
 	{
-		//Get the rotation matrix
-		double xTheta=xRot;
-		double[] xRotation= {1,0,0,0,
-							0,Math.cos(Math.toRadians(xTheta)),-Math.sin(Math.toRadians(xTheta)),0,
-							0,Math.sin(Math.toRadians(xTheta)),Math.cos(Math.toRadians(xTheta)),0,
-							0,0,0,1};
-		
-		DenseMatrix64F xRotationMatrix = new DenseMatrix64F(4,4,true, xRotation);
-		
-		double yTheta=yRot;
-		double[] yRotation= {Math.cos(Math.toRadians(yTheta)),0,Math.sin(Math.toRadians(yTheta)),0,
-							0,1,0,0,
-							-Math.sin(Math.toRadians(yTheta)),0,Math.cos(Math.toRadians(yTheta)),0,
-							0,0,0,1};
-		DenseMatrix64F yRotationMatrix = new DenseMatrix64F(4,4,true, yRotation);
-		
-		double zTheta=zRot;
-		double[] zRotation= {Math.cos(Math.toRadians(zTheta)),-Math.sin(Math.toRadians(zTheta)),0,0,
-							Math.sin(Math.toRadians(zTheta)),Math.cos(Math.toRadians(zTheta)),0,0,
-							0,0,1,0,
-							0,0,0,1};
-		DenseMatrix64F zRotationMatrix = new DenseMatrix64F(4,4,true, zRotation);
-		
-		
-		//Translate -point
-		double[] translation= {-relativePoint.getX(),-relativePoint.getY(),-relativePoint.getZ(),0};
-		DenseMatrix64F translationMatrix1=new DenseMatrix64F(4,1,false,translation);
-		DenseMatrix64F identityMat=CommonOps.identity(4);
-		CommonOps.insert(translationMatrix1,identityMat,0,3);
-		translationMatrix1=identityMat;
-		
-		//Rotate
-		DenseMatrix64F rotationMatrix1 = CommonOps.identity(4);
-		CommonOps.mult(yRotationMatrix, zRotationMatrix, rotationMatrix1);
-		DenseMatrix64F tempMat=CommonOps.identity(4);
-		CommonOps.mult(xRotationMatrix, rotationMatrix1, tempMat);
-		rotationMatrix1=tempMat;
+		//Translate -point, rotate, then translate +point (undo previous translate)
+		RigidTransform toPoint=new RigidTransform();
+		toPoint.setTranslation(-relativePoint.getX(),-relativePoint.getY(),-relativePoint.getZ());
+		RigidTransform rotate=new RigidTransform();
+		rotate.setRotation(xRot,yRot,zRot);
+		RigidTransform fromPoint=new RigidTransform();
+		fromPoint.setTranslation(relativePoint.getX(),relativePoint.getY(),relativePoint.getZ());
+		//Combine to one transform
+		RigidTransform transformOut=new RigidTransform();
+		transformOut.compose(toPoint,rotate);
+		transformOut.compose(transformOut,fromPoint);
 		
+		//The translation of the object after the rotation is where point 0,0,0 ends up
+		Position translationOut=new Position();
+		transformOut.transformPoint(0,0,0,translationOut);
 
-		//Translate +point (undo previous translate)
-		double[] translation2= {relativePoint.getX(),relativePoint.getY(),relativePoint.getZ(),0};
-		DenseMatrix64F translationMatrix2=new DenseMatrix64F(4,1,false,translation2);
-		DenseMatrix64F identityMat2=CommonOps.identity(4);
-		CommonOps.insert(translationMatrix2,identityMat2,0,3);
-		translationMatrix2=identityMat2;
 		
-		//Combine to a transform matrix
-		DenseMatrix64F transformMatrix= CommonOps.identity(4);
-		DenseMatrix64F tempMatrix1= CommonOps.identity(4);
-		CommonOps.mult(translationMatrix1, rotationMatrix1, tempMatrix1);
-		CommonOps.mult(tempMatrix1,translationMatrix2,transformMatrix);
-		
-		//Get the translation out of the matrix by seeing where point 0,0,0 ends up
-		Position testPos= new Position(0,0,0);
-		DenseMatrix64F testMatrix=new DenseMatrix64F(4,1,false, 0,0,0,0);
-		DenseMatrix64F tempMatrix2=new DenseMatrix64F(4,1,false, 0,0,0,0);
-		testMatrix.set(0, testPos.getX());
-		testMatrix.set(1, testPos.getY());
-		testMatrix.set(2, testPos.getZ());
-		testMatrix.set(3, 1);
-		
-		CommonOps.mult(transformMatrix, testMatrix, tempMatrix2);
-		
-		//The translation of the object after the rotation
-		Position translationOut=new Position(tempMatrix2.get(0),tempMatrix2.get(1),tempMatrix2.get(2));
-
+		//Apply the translation to the object
+		position.setX(position.getX()+translationOut.getX()-relativePoint.getX());
+		position.setY(position.getY()+translationOut.getY()-relativePoint.getY());
+		position.setZ(position.getZ()+translationOut.getZ()-relativePoint.getZ());
+		if(bodyStore.isQuaternions())
+		{
+			//The rotation can be added straight onto the quaternion, no need to get angles back out of the matrix
+			bodyStore.rotate(bodyId,xRot,yRot,zRot);
+			updateMatrices();
+			return;
+		}
 		
 		//Get the rotation of the object after it is rotated about the point
 		double xRotOut=0;
 		double yRotOut=0;
 		double zRotOut=0;
-		double yRadians=Math.asin(transformMatrix.get(2));
+		double yRadians=Math.asin(transformOut.getRotation(0,2));
 		yRotOut=Math.toDegrees(yRadians);
 		
-		double COverCosYRot = transformMatrix.get(6)/Math.cos(yRadians);
+		double COverCosYRot = transformOut.getRotation(1,2)/Math.cos(yRadians);
 		double xRadians=Math.asin(COverCosYRot);
 		xRotOut=Math.toDegrees(xRadians);
 		
-		double AOverCosYRot = transformMatrix.get(0)/Math.cos(yRadians);
+		double AOverCosYRot = transformOut.getRotation(0,0)/Math.cos(yRadians);
 		double zRadians=Math.acos(AOverCosYRot);
 		zRotOut=Math.toDegrees(zRadians);
 		
 		//The rotation of the object
 		Position rotationOut=new Position(xRotOut,yRotOut,zRotOut);
 		
-		//Apply the rotation and translation to the object
-		position.setX(position.getX()+translationOut.getX()-relativePoint.getX());
-		position.setY(position.getY()+translationOut.getY()-relativePoint.getY());
-		position.setZ(position.getZ()+translationOut.getZ()-relativePoint.getZ());
+		//Apply the rotation to the object
 		rotation.setX(rotation.getX()+rotationOut.getX());
 		rotation.setY(rotation.getY()+rotationOut.getY());
 		rotation.setZ(rotation.getZ()+rotationOut.getZ());
@@ -837,61 +911,42 @@ public class CustomObject
 		
 	}
 	/**
-	 * Updates the transformation matrices. Called after a position or rotation change. 
+	 * Updates the transform. Called after a position or rotation change, including changes made straight to the body store. 
 	 * Also updates center of mass
 	 */
-	private void updateMatrices()
+	void updateMatrices()
 	{
-		actualLPVertsUpdated=false;
-		actualVertsUpdated=false;
-		//Store the current matrices as they're about to be changed
-		prevTranslationMatrix=translationMatrix;
-		prevRotationMatrix=rotationMatrix;
-		
-		//Get the rotation matrices
-		double xTheta=rotation.getX();
-		double[] xRotation= {1,0,0,0,
-							0,Math.cos(Math.toRadians(xTheta)),-Math.sin(Math.toRadians(xTheta)),0,
-							0,Math.sin(Math.toRadians(xTheta)),Math.cos(Math.toRadians(xTheta)),0,
-							0,0,0,1};
-		
-		DenseMatrix64F xRotationMatrix = new DenseMatrix64F(4,4,true, xRotation);
-		
-		double yTheta=rotation.getY();
-		double[] yRotation= {Math.cos(Math.toRadians(yTheta)),0,Math.sin(Math.toRadians(yTheta)),0,
-							0,1,0,0,
-							-Math.sin(Math.toRadians(yTheta)),0,Math.cos(Math.toRadians(yTheta)),0,
-							0,0,0,1};
-		DenseMatrix64F yRotationMatrix = new DenseMatrix64F(4,4,true, yRotation);
-		
-		double zTheta=rotation.getZ();
-		double[] zRotation= {Math.cos(Math.toRadians(zTheta)),-Math.sin(Math.toRadians(zTheta)),0,0,
-							Math.sin(Math.toRadians(zTheta)),Math.cos(Math.toRadians(zTheta)),0,0,
-							0,0,1,0,
-							0,0,0,1};
-		DenseMatrix64F zRotationMatrix = new DenseMatrix64F(4,4,true, zRotation);
+		//The actual low poly vertices at the old transform are the previous ones now, so keep them instead of working them out again
+		boolean swap=actualLPCoords.version==transformVersion;
+		//Everything worked out from the old transform is now out of date
+		transformVersion++;
+		if(swap)
+		{
+			VertexCoords old=prevActualLPCoords;
+			prevActualLPCoords=actualLPCoords;
+			prevActualLPCoords.version=transformVersion;
+			actualLPCoords=old;
+		}
+		//Store the current transform as it's about to be changed
+		prevTransform.set(transform);
 		
-		//Get the translation matrix
-		double[] translation= {position.getX(),position.getY(),position.getZ(),0};
-		translationMatrix=new DenseMatrix64F(4,1,false,translation);
-		DenseMatrix64F identityMat=CommonOps.identity(4);
-		CommonOps.insert(translationMatrix,identityMat,0,3);
-		translationMatrix=identityMat;
-		//Combine the rotation matrices
-		CommonOps.mult(yRotationMatrix, zRotationMatrix, rotationMatrix);
-		DenseMatrix64F tempMat=CommonOps.identity(4);
-		CommonOps.mult(xRotationMatrix, rotationMatrix, tempMat);
-		rotationMatrix=tempMat;
+		//Rotate, then translate to the position
+		if(bodyStore.isQuaternions())
+		{
+			transform.setRotationQuaternion(bodyStore.getOrientation(bodyId,0),bodyStore.getOrientation(bodyId,1),bodyStore.getOrientation(bodyId,2),bodyStore.getOrientation(bodyId,3));
+		}
+		else
+		{
+			transform.setRotation(rotation.getX(),rotation.getY(),rotation.getZ());
+		}
+		transform.setTranslation(position.getX(),position.getY(),position.getZ());
 		
 		//Also update center of mass
-		DenseMatrix64F cOfMassMatrix=new DenseMatrix64F(4,1,false, 0,0,0,0);
-		cOfMassMatrix.set(0,relativeCenterOfMass.getX());
-		cOfMassMatrix.set(1,relativeCenterOfMass.getY());
-		cOfMassMatrix.set(2,relativeCenterOfMass.getZ());
-		cOfMassMatrix.set(3,1);
-		CommonOps.mult(rotationMatrix, cOfMassMatrix, tempMatrix);
-		CommonOps.mult(translationMatrix, tempMatrix, cOfMassMatrix);
-		centerOfMass=new Position(cOfMassMatrix.get(0),cOfMassMatrix.get(1),cOfMassMatrix.get(2));
+		if(centerOfMass==null)
+		{
+			centerOfMass=new Position();
+		}
+		transform.transformPoint(relativeCenterOfMass.getX(),relativeCenterOfMass.getY(),relativeCenterOfMass.getZ(),centerOfMass);
 	}
 	/**
 	 * Gets the center of mass of the object in actual space, not relative to the object.
@@ -908,16 +963,28 @@ public class CustomObject
 	 */
 	public void setAcc(Position inpAcc)
 	{
-		acc=inpAcc;
+		wake();
+		acc.setPosition(inpAcc.getX(),inpAcc.getY(),inpAcc.getZ());
 	}
 	/**
-	 * Sets the velocity of the object
+	 * Sets the velocity of the object, the values are copied so changing the input afterwards doesn't change the object
 	 * @param inpVel The velocity to set to
 	 */
 	public void setVel(Position inpVel)
 	{
-			prevVel=vel;
-			vel=inpVel;
+		setVel(inpVel.getX(),inpVel.getY(),inpVel.getZ());
+	}
+	/**
+	 * Sets the velocity of the object
+	 * @param inpX The x velocity
+	 * @param inpY The y velocity
+	 * @param inpZ The z velocity
+	 */
+	public void setVel(double inpX, double inpY, double inpZ)
+	{
+		wake();
+		bodyStore.copy(bodyId, BodyStore.VELOCITY, BodyStore.PREV_VELOCITY);
+		vel.setPosition(inpX,inpY,inpZ);
 	}
 	/**
 	 * gets the acceleration of the object
@@ -933,7 +1000,7 @@ public class CustomObject
 	 */
 	public Position getVel()
 	{
-		if(canMove)
+		if(canMove())
 		{
 			return vel;
 		}
@@ -949,7 +1016,7 @@ public class CustomObject
 	 */
 	public void setCanMove(boolean inpMove)
 	{
-		canMove=inpMove;
+		bodyStore.setFlag(bodyId, BodyStore.CAN_MOVE, inpMove);
 	}
 	/**
 	 * Can the object move true or false
@@ -957,7 +1024,76 @@ public class CustomObject
 	 */
 	public boolean canMove()
 	{
-		return canMove;
+		return bodyStore.hasFlag(bodyId, BodyStore.CAN_MOVE);
+	}
+	/**
+	 * Is the object asleep
+	 * @return True if the object is asleep
+	 */
+	public boolean isAsleep()
+	{
+		return bodyStore.hasFlag(bodyId, BodyStore.ASLEEP);
+	}
+	/**
+	 * Is the object awake but was resting last update, so it is on its way to sleeping
+	 * @return True if the object is resting
+	 */
+	public boolean isResting()
+	{
+		return !isAsleep()&&bodyStore.getRestingSteps(bodyId)>0;
+	}
+	/**
+	 * Is the object active, it can move and isn't asleep
+	 * @return True if the object is active
+	 */
+	public boolean isActive()
+	{
+		return canMove()&&!isAsleep();
+	}
+	/**
+	 * Wakes the object up so it starts moving again. Does nothing if the object is already awake,
+	 * so collisions changing a resting object's velocity don't stop it from going to sleep
+	 */
+	public void wake()
+	{
+		if(isAsleep())
+		{
+			bodyStore.setFlag(bodyId, BodyStore.ASLEEP, false);
+			bodyStore.setRestingSteps(bodyId, 0);
+		}
+	}
+	/**
+	 * Counts how many updates in a row the object has been resting and puts it to sleep if it has been resting for long enough.
+	 * Call once at the end of each update.
+	 * @param maxSpeed The fastest the object can be moving and still be resting
+	 * @param maxRotationSpeed The fastest the object can be rotating and still be resting
+	 * @param steps The number of updates in a row the object has to be resting before it sleeps
+	 */
+	public void updateSleep(double maxSpeed, double maxRotationSpeed, int steps)
+	{
+		if(!isActive())
+		{
+			return;
+		}
+		Position rotVel=rotation.getVel();
+		double speedSq=vel.getX()*vel.getX()+vel.getY()*vel.getY()+vel.getZ()*vel.getZ();
+		double rotationSpeedSq=rotVel.getX()*rotVel.getX()+rotVel.getY()*rotVel.getY()+rotVel.getZ()*rotVel.getZ();
+		if(speedSq<maxSpeed*maxSpeed&&rotationSpeedSq<maxRotationSpeed*maxRotationSpeed)
+		{
+			int restingSteps=bodyStore.getRestingSteps(bodyId)+1;
+			bodyStore.setRestingSteps(bodyId, restingSteps);
+			if(restingSteps>=steps)
+			{
+				//Stop the object completely, it stays where it is until something wakes it
+				bodyStore.setFlag(bodyId, BodyStore.ASLEEP, true);
+				vel.setPosition(0,0,0);
+				rotVel.setPosition(0,0,0);
+			}
+		}
+		else
+		{
+			bodyStore.setRestingSteps(bodyId, 0);
+		}
 	}
 	/**
 	 * Moves the object according to its velocity
@@ -966,39 +1102,45 @@ public class CustomObject
 	public void move(double time)
 	{
 		//If the object can move then move it
-		if(canMove)
+		if(canMove())
 		{
-			prevPosition=new Position(position.getX(), position.getY(), position.getZ());
-			prevRotation=new Rotation(rotation);
-			
-			position.setX(position.getX()+(vel.getX()*(0.001*time)));
-			position.setY(position.getY()+(vel.getY()*(0.001*time)));
-			position.setZ(position.getZ()+(vel.getZ()*(0.001*time)));
-			
-			rotation.setX(rotation.getX()+(rotation.getVel().getX()*(0.001*time)));
-			rotation.setY(rotation.getY()+(rotation.getVel().getY()*(0.001*time)));
-			rotation.setZ(rotation.getZ()+(rotation.getVel().getZ()*(0.001*time)));
+			bodyStore.savePrevious(bodyId);
+			bodyStore.translate(bodyId, 0.001*time);
 			updateMatrices();
 		}
 	}	
 	/**
-	 * Moves the object according to its velocity. Doesn't update the previous position and rotation
+	 * Moves the object according to its velocity after its movement has been undone.
+	 * The previous position and rotation move with it, so another collision this update undoes back to here.
 	 * @param time How much time to advance the object by
 	 */
 	public void postCollisionMove(double time)
 	{
-		if(canMove)
+		if(canMove())
 		{
-			position.setX(position.getX()+(vel.getX()*(0.001*time*0.98)));
-			position.setY(position.getY()+(vel.getY()*(0.001*time*0.98)));
-			position.setZ(position.getZ()+(vel.getZ()*(0.001*time*0.98)));
 			//0.98 so it's not quite colliding
-			rotation.setX(rotation.getX()+(rotation.getVel().getX()*(0.001*time*0.98)));
-			rotation.setY(rotation.getY()+(rotation.getVel().getY()*(0.001*time*0.98)));
-			rotation.setZ(rotation.getZ()+(rotation.getVel().getZ()*(0.001*time*0.98)));
+			bodyStore.translate(bodyId, 0.001*time*0.98);
+			bodyStore.savePrevious(bodyId);
 			updateMatrices();
 		}
 	}	
+	/**
+	 * Moves the object without changing its velocity, used to push it out of an object it is resting on.
+	 * The previous position moves with it, so another collision this update undoes back to here.
+	 * @param dx The distance to move along x
+	 * @param dy The distance to move along y
+	 * @param dz The distance to move along z
+	 */
+	public void shift(double dx, double dy, double dz)
+	{
+		if(canMove())
+		{
+			bodyStore.set(bodyId, BodyStore.POSITION, bodyStore.get(bodyId, BodyStore.POSITION, 0)+dx,
+					bodyStore.get(bodyId, BodyStore.POSITION, 1)+dy, bodyStore.get(bodyId, BodyStore.POSITION, 2)+dz);
+			bodyStore.savePrevious(bodyId);
+			updateMatrices();
+		}
+	}
 	/**
 	 * Accelerate the object by a certain time peroid
 	 * @param time The amount of time to accelerate the object for
@@ -1014,11 +1156,7 @@ public class CustomObject
 	 */
 	public void acceleratePosition(double time)
 	{
-		prevVel=vel;
-		vel.setX(vel.getX()+(acc.getX()*(0.001*time)));
-		if(vel.getY()>-10)
-		vel.setY(vel.getY()+(acc.getY()*(0.001*time)));
-		vel.setZ(vel.getZ()+(acc.getZ()*(0.001*time)));
+		bodyStore.acceleratePosition(bodyId, 0.001*time);
 	}
 	/**
 	 * Accelerate just the rotation of the object by a certain time
@@ -1026,21 +1164,16 @@ public class CustomObject
 	 */
 	public void accelerateRotation(double time)
 	{
-		Position rVel=new Position();
-		rVel.setX(rotation.getVel().getX()+(rotation.getAcc().getX()*(0.001*time)));
-		rVel.setY(rotation.getVel().getY()+(rotation.getAcc().getY()*(0.001*time)));
-		rVel.setZ(rotation.getVel().getZ()+(rotation.getAcc().getZ()*(0.001*time)));
-		rotation.setVel(rVel);
+		bodyStore.accelerateRotation(bodyId, 0.001*time);
 	}
 	/**
 	 * Reverts the position and rotation of the object to its last update
 	 */
 	public void undoPosRot()
 	{
-		if(canMove)
+		if(canMove())
 		{
-			position=prevPosition;
-			rotation=prevRotation;
+			bodyStore.restorePrevious(bodyId);
 		}
 	}
 	/**
@@ -1048,7 +1181,7 @@ public class CustomObject
 	 */
 	public void undoVel()
 	{
-		vel=prevVel;
+		bodyStore.copy(bodyId, BodyStore.PREV_VELOCITY, BodyStore.VELOCITY);
 	}
 	/**
 	 * Calculates the relative center of mass of the object assuming mass only comes from vertices
@@ -0,0 +1,418 @@
+package application;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The signed distance from a low poly mesh worked out on a grid of points in the mesh's own space, so how far a point is
+ * from the mesh and which way is out can be found by blending the 8 grid points around it, however many faces the mesh has.
+ * Points in front of the nearest face are outside (positive), points behind it are inside (negative). Meshes that aren't
+ * closed, like the ground, count everything behind their faces as inside.
+ * Parts of the mesh thinner than a cell can be missed, so thin meshes like the ground need enough cells for grid points to land inside them.
+ * Only used for objects that can't move, as the grid takes a while to work out it is saved next to the object file and
+ * read back the next time the same mesh is used with the same number of cells.
+ * Nothing is changed after it is built so it is safe to sample from more than one thread at once.
+ * @author Sam Dark
+ *
+ */
+public class DistanceField
+{
+	/** Written at the start of saved grids, changed if the file layout changes */
+	private static final int FILE_VERSION=0x53444602;
+	/** The number of cells left around the mesh on each side, so points coming towards it are found before they reach it */
+	private static final int PADDING=2;
+
+	/** The position of the first grid point, the low corner of the grid */
+	private double originX, originY, originZ;
+	/** The distance between neighbouring grid points */
+	private double cellSize;
+	/** The number of grid points along each axis */
+	private int sizeX, sizeY, sizeZ;
+	/** The signed distance at each grid point, x changing fastest then y then z. Floats as the grids can be big */
+	private float[] distances;
+
+	/**
+	 * Creates an empty field, the grid needs setting
+	 */
+	private DistanceField()
+	{
+
+	}
+	/**
+	 * Gets the field of a mesh, reading it from its saved file if the mesh has been used with the same number of cells before
+	 * and working it out and saving it otherwise
+	 * @param filename The filename of the mesh's .obj file, the field is saved in the objects folder next to it
+	 * @param inpMesh The mesh
+	 * @param inpHierarchy The hierarchy over the bounds of the mesh's faces, used to find the faces near each grid point. null to check every face
+	 * @param cells The number of cells along the longest side of the mesh
+	 * @return The field, null if the mesh has no faces
+	 */
+	public static DistanceField load(String filename, LocalMesh inpMesh, BoundingVolumeHierarchy inpHierarchy, int cells)
+	{
+		if(inpMesh.getFaceCount()==0)
+		{
+			return null;
+		}
+		File file=new File("objects", filename+"."+cells+".sdf");
+		long meshHash=hash(inpMesh);
+		DistanceField field=read(file,meshHash,cells);
+		if(field==null)
+		{
+			field=new DistanceField();
+			field.build(inpMesh,inpHierarchy,cells);
+			field.write(file,meshHash,cells);
+		}
+		return field;
+	}
+	/**
+	 * Works out the grid around a mesh and the distance from it at every grid point
+	 * @param inpMesh The mesh
+	 * @param inpHierarchy The hierarchy over the bounds of the mesh's faces, null to check every face
+	 * @param cells The number of cells along the longest side of the mesh
+	 */
+	private void build(LocalMesh inpMesh, BoundingVolumeHierarchy inpHierarchy, int cells)
+	{
+		double[] min={Double.MAX_VALUE,Double.MAX_VALUE,Double.MAX_VALUE};
+		double[] max={-Double.MAX_VALUE,-Double.MAX_VALUE,-Double.MAX_VALUE};
+		for(int i=0; i<inpMesh.getFaceCount(); i++)
+		{
+			double[] xs={inpMesh.ax[i],inpMesh.ax[i]+inpMesh.abx[i],inpMesh.ax[i]+inpMesh.acx[i]};
+			double[] ys={inpMesh.ay[i],inpMesh.ay[i]+inpMesh.aby[i],inpMesh.ay[i]+inpMesh.acy[i]};
+			double[] zs={inpMesh.az[i],inpMesh.az[i]+inpMesh.abz[i],inpMesh.az[i]+inpMesh.acz[i]};
+			for(int k=0; k<3; k++)
+			{
+				min[0]=Math.min(min[0], xs[k]); max[0]=Math.max(max[0], xs[k]);
+				min[1]=Math.min(min[1], ys[k]); max[1]=Math.max(max[1], ys[k]);
+				min[2]=Math.min(min[2], zs[k]); max[2]=Math.max(max[2], zs[k]);
+			}
+		}
+		double longest=Math.max(max[0]-min[0], Math.max(max[1]-min[1], max[2]-min[2]));
+		cellSize=longest>0 ? longest/Math.max(1, cells) : 1;
+		originX=min[0]-PADDING*cellSize;
+		originY=min[1]-PADDING*cellSize;
+		originZ=min[2]-PADDING*cellSize;
+		sizeX=(int)Math.ceil((max[0]-min[0])/cellSize)+2*PADDING+1;
+		sizeY=(int)Math.ceil((max[1]-min[1])/cellSize)+2*PADDING+1;
+		sizeZ=(int)Math.ceil((max[2]-min[2])/cellSize)+2*PADDING+1;
+		distances=new float[sizeX*sizeY*sizeZ];
+		IntList faces=new IntList();
+		double[] closest=new double[3];
+		for(int z=0; z<sizeZ; z++)
+		{
+			for(int y=0; y<sizeY; y++)
+			{
+				for(int x=0; x<sizeX; x++)
+				{
+					double px=originX+x*cellSize, py=originY+y*cellSize, pz=originZ+z*cellSize;
+					double distance;
+					if(inpHierarchy==null)
+					{
+						distance=signedDistance(inpMesh,null,px,py,pz,closest);
+					}
+					else
+					{
+						//Look for faces in a box around the point, a face closer than the box's half width must overlap it
+						//so if the nearest face found is that close it is the nearest of all. Otherwise look again further out,
+						//until the box is big enough to hold the whole mesh
+						double reach=cellSize;
+						while(true)
+						{
+							faces.clear();
+							inpHierarchy.query(px-reach,py-reach,pz-reach,px+reach,py+reach,pz+reach,faces);
+							distance=signedDistance(inpMesh,faces,px,py,pz,closest);
+							if(Math.abs(distance)<=reach||reach>=longest+PADDING*cellSize)
+							{
+								break;
+							}
+							reach=Math.min(Math.abs(distance)<Double.MAX_VALUE ? Math.abs(distance) : 2*reach, longest+PADDING*cellSize);
+						}
+					}
+					distances[x+sizeX*(y+sizeY*z)]=(float)distance;
+				}
+			}
+		}
+	}
+	/**
+	 * Works out the signed distance from a point to a mesh by finding the nearest point on every face.
+	 * Where faces are equally near, like where the nearest point is on an edge or corner they share, the face the point
+	 * is most directly in front of or behind decides the sign, which is the right side for dents and bumps alike.
+	 * @param inpMesh The mesh
+	 * @param inpFaces The faces to check, null to check every face
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param closest Array of at least 3 used to hold the nearest point on each face
+	 * @return The distance, negative if the point is behind the nearest face. The largest double if there are no faces to check
+	 */
+	private static double signedDistance(LocalMesh inpMesh, IntList inpFaces, double x, double y, double z, double[] closest)
+	{
+		double bestSquared=Double.MAX_VALUE;
+		double bestAlignment=-1;
+		double bestSide=1;
+		int count=inpFaces==null ? inpMesh.getFaceCount() : inpFaces.size();
+		for(int f=0; f<count; f++)
+		{
+			int i=inpFaces==null ? f : inpFaces.get(f);
+			if(inpMesh.normalLengths[i]==0)
+			{
+				continue;//No area so no side
+			}
+			closestOnFace(inpMesh,i,x,y,z,closest);
+			double dx=x-closest[0], dy=y-closest[1], dz=z-closest[2];
+			double squared=dx*dx+dy*dy+dz*dz;
+			double side=(dx*inpMesh.nx[i]+dy*inpMesh.ny[i]+dz*inpMesh.nz[i])/inpMesh.normalLengths[i];
+			//How directly in front of or behind the face the point is, 1 if straight out from it
+			double alignment=squared>0 ? Math.abs(side)/Math.sqrt(squared) : 1;
+			double tie=1e-12*(1+bestSquared);
+			if(squared<bestSquared-tie||(squared<=bestSquared+tie&&alignment>bestAlignment))
+			{
+				bestSquared=Math.min(bestSquared, squared);
+				bestAlignment=alignment;
+				bestSide=side;
+			}
+		}
+		if(bestSquared==Double.MAX_VALUE)
+		{
+			return Double.MAX_VALUE;
+		}
+		double distance=Math.sqrt(bestSquared);
+		return bestSide<0 ? -distance : distance;
+	}
+	/**
+	 * Finds the nearest point on a face to a point, by working out which corner, edge or the inside of the face it is nearest
+	 * (from Real-Time Collision Detection, Ericson)
+	 * @param inpMesh The mesh
+	 * @param face The face
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output Array of at least 3 to put the nearest point's x,y,z in
+	 */
+	private static void closestOnFace(LocalMesh inpMesh, int face, double x, double y, double z, double[] output)
+	{
+		double ax=inpMesh.ax[face], ay=inpMesh.ay[face], az=inpMesh.az[face];
+		double abx=inpMesh.abx[face], aby=inpMesh.aby[face], abz=inpMesh.abz[face];
+		double acx=inpMesh.acx[face], acy=inpMesh.acy[face], acz=inpMesh.acz[face];
+		double apx=x-ax, apy=y-ay, apz=z-az;
+		double d1=abx*apx+aby*apy+abz*apz;
+		double d2=acx*apx+acy*apy+acz*apz;
+		if(d1<=0&&d2<=0)
+		{
+			setPoint(output,ax,ay,az);//Corner a
+			return;
+		}
+		double bpx=apx-abx, bpy=apy-aby, bpz=apz-abz;
+		double d3=abx*bpx+aby*bpy+abz*bpz;
+		double d4=acx*bpx+acy*bpy+acz*bpz;
+		if(d3>=0&&d4<=d3)
+		{
+			setPoint(output,ax+abx,ay+aby,az+abz);//Corner b
+			return;
+		}
+		double vc=d1*d4-d3*d2;
+		if(vc<=0&&d1>=0&&d3<=0)
+		{
+			double v=d1/(d1-d3);
+			setPoint(output,ax+v*abx,ay+v*aby,az+v*abz);//Edge ab
+			return;
+		}
+		double cpx=apx-acx, cpy=apy-acy, cpz=apz-acz;
+		double d5=abx*cpx+aby*cpy+abz*cpz;
+		double d6=acx*cpx+acy*cpy+acz*cpz;
+		if(d6>=0&&d5<=d6)
+		{
+			setPoint(output,ax+acx,ay+acy,az+acz);//Corner c
+			return;
+		}
+		double vb=d5*d2-d1*d6;
+		if(vb<=0&&d2>=0&&d6<=0)
+		{
+			double w=d2/(d2-d6);
+			setPoint(output,ax+w*acx,ay+w*acy,az+w*acz);//Edge ac
+			return;
+		}
+		double va=d3*d6-d5*d4;
+		if(va<=0&&(d4-d3)>=0&&(d5-d6)>=0)
+		{
+			double w=(d4-d3)/((d4-d3)+(d5-d6));
+			double bx=ax+abx, by=ay+aby, bz=az+abz;
+			setPoint(output,bx+w*(acx-abx),by+w*(acy-aby),bz+w*(acz-abz));//Edge bc
+			return;
+		}
+		//Inside the face
+		double denom=1/(va+vb+vc);
+		double v=vb*denom;
+		double w=vc*denom;
+		setPoint(output,ax+v*abx+w*acx,ay+v*aby+w*acy,az+v*abz+w*acz);
+	}
+	/**
+	 * Puts a point in an array
+	 * @param output Array of at least 3 to put the x,y,z in
+	 * @param x The x coord
+	 * @param y The y coord
+	 * @param z The z coord
+	 */
+	private static void setPoint(double[] output, double x, double y, double z)
+	{
+		output[0]=x;
+		output[1]=y;
+		output[2]=z;
+	}
+	/**
+	 * Gets if a box in the mesh's own space overlaps the grid, so any point in it could be sampled
+	 * @param bounds The box {minX,minY,minZ,maxX,maxY,maxZ}
+	 * @return True if they overlap, False otherwise
+	 */
+	public boolean overlapsBounds(double[] bounds)
+	{
+		return bounds[0]<=originX+(sizeX-1)*cellSize&&bounds[3]>=originX
+				&&bounds[1]<=originY+(sizeY-1)*cellSize&&bounds[4]>=originY
+				&&bounds[2]<=originZ+(sizeZ-1)*cellSize&&bounds[5]>=originZ;
+	}
+	/**
+	 * Works out the distance and the way out at a point by blending the distances at the 8 grid points around it
+	 * @param x The x coord of the point, in the mesh's own space
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output Array of at least 4 to put the distance and the x,y,z of the way out in, the way out isn't normalised
+	 * @return True if the point is within the grid, False if it is too far from the mesh to say
+	 */
+	public boolean sample(double x, double y, double z, double[] output)
+	{
+		double fx=(x-originX)/cellSize, fy=(y-originY)/cellSize, fz=(z-originZ)/cellSize;
+		int ix=(int)Math.floor(fx), iy=(int)Math.floor(fy), iz=(int)Math.floor(fz);
+		if(ix<0||iy<0||iz<0||ix>=sizeX-1||iy>=sizeY-1||iz>=sizeZ-1)
+		{
+			return false;
+		}
+		double tx=fx-ix, ty=fy-iy, tz=fz-iz;
+		int i=ix+sizeX*(iy+sizeY*iz);
+		int stepY=sizeX, stepZ=sizeX*sizeY;
+		double d000=distances[i], d100=distances[i+1];
+		double d010=distances[i+stepY], d110=distances[i+1+stepY];
+		double d001=distances[i+stepZ], d101=distances[i+1+stepZ];
+		double d011=distances[i+stepY+stepZ], d111=distances[i+1+stepY+stepZ];
+		//Blend along x, then y, then z
+		double d00=d000+tx*(d100-d000), d10=d010+tx*(d110-d010);
+		double d01=d001+tx*(d101-d001), d11=d011+tx*(d111-d011);
+		double d0=d00+ty*(d10-d00), d1=d01+ty*(d11-d01);
+		output[0]=d0+tz*(d1-d0);
+		//The way out is the slope of the blend along each axis
+		output[1]=((1-ty)*(1-tz)*(d100-d000)+ty*(1-tz)*(d110-d010)+(1-ty)*tz*(d101-d001)+ty*tz*(d111-d011))/cellSize;
+		output[2]=((1-tz)*(d10-d00)+tz*(d11-d01))/cellSize;
+		output[3]=(d1-d0)/cellSize;
+		return true;
+	}
+	/**
+	 * Gets the distance between neighbouring grid points
+	 * @return The cell size
+	 */
+	public double getCellSize()
+	{
+		return cellSize;
+	}
+	/**
+	 * Gets how close a point has to be to the mesh to be touching it, a small fraction of a cell as the distances are only
+	 * as accurate as the grid
+	 * @return The touching distance
+	 */
+	public double getTouchingDistance()
+	{
+		return Collider.TOUCHING*cellSize;
+	}
+	/**
+	 * Works out a number from the faces of a mesh that changes if the mesh does, saved with the grid so a grid saved for an older
+	 * version of the object file isn't used
+	 * @param inpMesh The mesh
+	 * @return The number
+	 */
+	private static long hash(LocalMesh inpMesh)
+	{
+		long hash=inpMesh.getFaceCount();
+		double[][] arrays={inpMesh.ax,inpMesh.ay,inpMesh.az,inpMesh.abx,inpMesh.aby,inpMesh.abz,inpMesh.acx,inpMesh.acy,inpMesh.acz};
+		for(int k=0; k<arrays.length; k++)
+		{
+			for(int i=0; i<arrays[k].length; i++)
+			{
+				hash=31*hash+Double.doubleToLongBits(arrays[k][i]);
+			}
+		}
+		return hash;
+	}
+	/**
+	 * Reads a saved grid
+	 * @param file The file the grid is saved in
+	 * @param meshHash The number worked out from the mesh the grid is for
+	 * @param cells The number of cells along the longest side of the mesh
+	 * @return The field, null if there is no saved grid or it is for a different mesh or number of cells
+	 */
+	private static DistanceField read(File file, long meshHash, int cells)
+	{
+		if(!file.isFile())
+		{
+			return null;
+		}
+		try(DataInputStream input=new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if(input.readInt()!=FILE_VERSION||input.readLong()!=meshHash||input.readInt()!=cells)
+			{
+				return null;
+			}
+			DistanceField field=new DistanceField();
+			field.originX=input.readDouble();
+			field.originY=input.readDouble();
+			field.originZ=input.readDouble();
+			field.cellSize=input.readDouble();
+			field.sizeX=input.readInt();
+			field.sizeY=input.readInt();
+			field.sizeZ=input.readInt();
+			field.distances=new float[field.sizeX*field.sizeY*field.sizeZ];
+			for(int i=0; i<field.distances.length; i++)
+			{
+				field.distances[i]=input.readFloat();
+			}
+			return field;
+		}
+		catch(IOException e)
+		{
+			//Unreadable so work it out again
+			System.out.println("Error reading distance field ("+file.getName()+"), working it out again");
+			return null;
+		}
+	}
+	/**
+	 * Saves the grid so it doesn't have to be worked out next time, carrying on without saving if it can't be written
+	 * @param file The file to save the grid in
+	 * @param meshHash The number worked out from the mesh the grid is for
+	 * @param cells The number of cells along the longest side of the mesh
+	 */
+	private void write(File file, long meshHash, int cells)
+	{
+		try(DataOutputStream output=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			output.writeInt(FILE_VERSION);
+			output.writeLong(meshHash);
+			output.writeInt(cells);
+			output.writeDouble(originX);
+			output.writeDouble(originY);
+			output.writeDouble(originZ);
+			output.writeDouble(cellSize);
+			output.writeInt(sizeX);
+			output.writeInt(sizeY);
+			output.writeInt(sizeZ);
+			for(int i=0; i<distances.length; i++)
+			{
+				output.writeFloat(distances[i]);
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println("Error saving distance field ("+file.getName()+"), it will be worked out again next time");
+		}
+	}
+}
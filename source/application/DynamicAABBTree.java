@@ -0,0 +1,579 @@
+package application;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A dynamic bounding volume tree broadphase. Each object is a leaf holding an enlarged ("fat") copy of its AABB,
+ * branches hold the box around their two children.
+ * An object is only taken out and put back into the tree when its AABB leaves its fat box, so objects that
+ * move a little each update don't change the tree at all.
+ * The tree is kept balanced with rotations so finding the pairs takes O(n log n) even when the objects
+ * are very different sizes, for example a large floor with lots of small objects on it.
+ * Nodes are stored in primitive arrays and reused.
+ * @author Sam Dark
+ *
+ */
+public class DynamicAABBTree implements Broadphase
+{
+	/** Used for the links of nodes that don't exist */
+	private static final int NULL_NODE=-1;
+	/** How much bigger a fat box is than the AABB on each side, as a fraction of the AABB's largest side */
+	private double fatRatio=0.1;
+	/** The smallest amount a fat box is bigger than the AABB on each side */
+	private double fatMargin=0.05;
+	/** The number of objects in the tree */
+	private int count=0;
+	/** The root node of the tree */
+	private int root=NULL_NODE;
+	/** The boxes of the nodes, stored {minX,minY,minZ,maxX,maxY,maxZ} for node 0 then node 1 etc */
+	private double[] nodeBoxes= new double[0];
+	/** The parent of each node, for free nodes this is the next free node instead */
+	private int[] parents= new int[0];
+	/** The first child of each node, NULL_NODE for leaves */
+	private int[] child1s= new int[0];
+	/** The second child of each node, NULL_NODE for leaves */
+	private int[] child2s= new int[0];
+	/** The height of each node, leaves are 0 and free nodes are -1 */
+	private int[] heights= new int[0];
+	/** The object each leaf belongs to, -1 for branches */
+	private int[] nodeObjects= new int[0];
+	/** The first free node */
+	private int freeList=NULL_NODE;
+	/** The leaf node of each object */
+	private int[] leaves= new int[0];
+	/** The tight AABB of each object, stored the same as nodeBoxes */
+	private double[] boxes= new double[0];
+	/** Is each object active (can move and is awake)? */
+	private boolean[] movable= new boolean[0];
+	/** The stack used when searching the tree */
+	private int[] stack= new int[64];
+	/** The overlapping pairs found in the last update */
+	private PairList pairs= new PairList();
+
+	/**
+	 * Reinserts any objects that have left their fat boxes and then searches the tree with each moving object's AABB.
+	 */
+	@Override
+	public int findPairs(ArrayList<AABB> inpAABBs, ArrayList<CustomObject> inpObjs)
+	{
+		int size=inpAABBs.size();
+		boolean rebuild=size!=count;
+		if(rebuild)
+		{
+			resize(size);
+		}
+		for(int i=0;i<size;i++)
+		{
+			AABB box=inpAABBs.get(i);
+			boxes[6*i]=box.getMinX();
+			boxes[6*i+1]=box.getMinY();
+			boxes[6*i+2]=box.getMinZ();
+			boxes[6*i+3]=box.getMaxX();
+			boxes[6*i+4]=box.getMaxY();
+			boxes[6*i+5]=box.getMaxZ();
+			movable[i]=inpObjs.get(i).isActive();
+			if(rebuild)
+			{
+				leaves[i]=insertObject(i);
+			}
+			else if(!fatBoxContains(leaves[i],i))
+			{
+				//The object has left its fat box, move it to where it is now
+				removeLeaf(leaves[i]);
+				freeNode(leaves[i]);
+				leaves[i]=insertObject(i);
+			}
+		}
+		pairs.clear();
+		for(int i=0;i<size;i++)
+		{
+			//Objects that can't move or are asleep never need to search, moving objects will find them
+			if(movable[i])
+			{
+				query(i);
+			}
+		}
+		//Sort the pairs so they are always resolved in the same order
+		pairs.sort();
+		return pairs.size();
+	}
+	@Override
+	public int[] getPairs()
+	{
+		return pairs.getPairs();
+	}
+	@Override
+	public int getPairCount()
+	{
+		return pairs.size();
+	}
+	/**
+	 * Sets how much bigger the fat boxes are than the AABBs.
+	 * Bigger fat boxes mean objects are reinserted less often but more pairs have to be checked.
+	 * @param inpRatio The extra size on each side as a fraction of the AABB's largest side
+	 * @param inpMargin The smallest extra size on each side
+	 */
+	public void setFatness(double inpRatio, double inpMargin)
+	{
+		fatRatio=inpRatio;
+		fatMargin=inpMargin;
+	}
+	/**
+	 * Gets the height of the tree, the number of branches between the root and the deepest leaf
+	 * @return The height of the tree, -1 if it is empty
+	 */
+	public int getHeight()
+	{
+		if(root==NULL_NODE)
+		{
+			return -1;
+		}
+		return heights[root];
+	}
+	/**
+	 * Empties the tree and makes the per object arrays the right size
+	 * @param size The number of objects
+	 */
+	private void resize(int size)
+	{
+		count=size;
+		root=NULL_NODE;
+		leaves=new int[size];
+		boxes=new double[6*size];
+		movable=new boolean[size];
+		//A tree with n leaves has 2n-1 nodes
+		int capacity=Math.max(2*size-1,1);
+		nodeBoxes=new double[6*capacity];
+		parents=new int[capacity];
+		child1s=new int[capacity];
+		child2s=new int[capacity];
+		heights=new int[capacity];
+		nodeObjects=new int[capacity];
+		linkFreeNodes(0,capacity);
+	}
+	/**
+	 * Searches the tree for every leaf whose fat box overlaps an object's AABB and adds a pair for each one that
+	 * overlaps its actual AABB too.
+	 * @param obj The object to search with
+	 */
+	private void query(int obj)
+	{
+		int top=0;
+		stack[top++]=root;
+		while(top>0)
+		{
+			int node=stack[--top];
+			if(node==NULL_NODE||!overlapsNode(node,obj))
+			{
+				continue;
+			}
+			if(child1s[node]==NULL_NODE)
+			{
+				int other=nodeObjects[node];
+				//Moving pairs are found from both objects so only keep them from the smaller index
+				if(other!=obj&&(!movable[other]||obj<other)&&overlapsObject(obj,other))
+				{
+					pairs.add(obj,other);
+				}
+			}
+			else
+			{
+				if(top+2>stack.length)
+				{
+					stack=Arrays.copyOf(stack, stack.length*2);
+				}
+				stack[top++]=child1s[node];
+				stack[top++]=child2s[node];
+			}
+		}
+	}
+	/**
+	 * Makes a leaf for an object with a fat box around its AABB and inserts it into the tree
+	 * @param obj The object
+	 * @return The leaf node
+	 */
+	private int insertObject(int obj)
+	{
+		int leaf=allocateNode();
+		double extent=Math.max(boxes[6*obj+3]-boxes[6*obj], Math.max(boxes[6*obj+4]-boxes[6*obj+1], boxes[6*obj+5]-boxes[6*obj+2]));
+		double margin=Math.max(fatMargin, extent*fatRatio);
+		for(int k=0;k<3;k++)
+		{
+			nodeBoxes[6*leaf+k]=boxes[6*obj+k]-margin;
+			nodeBoxes[6*leaf+3+k]=boxes[6*obj+3+k]+margin;
+		}
+		nodeObjects[leaf]=obj;
+		heights[leaf]=0;
+		insertLeaf(leaf);
+		return leaf;
+	}
+	/**
+	 * Inserts a leaf into the tree next to the sibling that increases the surface area of the tree the least,
+	 * then walks back up to the root rebalancing and refitting the boxes.
+	 * @param leaf The leaf to insert
+	 */
+	private void insertLeaf(int leaf)
+	{
+		if(root==NULL_NODE)
+		{
+			root=leaf;
+			parents[root]=NULL_NODE;
+			return;
+		}
+		//Find the best sibling
+		int index=root;
+		while(child1s[index]!=NULL_NODE)
+		{
+			int child1=child1s[index];
+			int child2=child2s[index];
+			double area=surfaceArea(index);
+			double combinedArea=combinedSurfaceArea(index,leaf);
+			//Cost of making a new parent for this node and the leaf
+			double cost=2*combinedArea;
+			//Minimum cost of pushing the leaf further down the tree
+			double inheritanceCost=2*(combinedArea-area);
+			double cost1=descendCost(child1,leaf)+inheritanceCost;
+			double cost2=descendCost(child2,leaf)+inheritanceCost;
+			if(cost<cost1&&cost<cost2)
+			{
+				break;
+			}
+			index=cost1<cost2 ? child1 : child2;
+		}
+		int sibling=index;
+		//Make a new parent for the sibling and the leaf
+		int oldParent=parents[sibling];
+		int newParent=allocateNode();
+		parents[newParent]=oldParent;
+		nodeObjects[newParent]=-1;
+		union(sibling,leaf,newParent);
+		heights[newParent]=heights[sibling]+1;
+		if(oldParent!=NULL_NODE)
+		{
+			if(child1s[oldParent]==sibling)
+			{
+				child1s[oldParent]=newParent;
+			}
+			else
+			{
+				child2s[oldParent]=newParent;
+			}
+		}
+		else
+		{
+			root=newParent;
+		}
+		child1s[newParent]=sibling;
+		child2s[newParent]=leaf;
+		parents[sibling]=newParent;
+		parents[leaf]=newParent;
+		refitFrom(parents[leaf]);
+	}
+	/**
+	 * Takes a leaf out of the tree, its sibling takes the place of their parent
+	 * @param leaf The leaf to remove
+	 */
+	private void removeLeaf(int leaf)
+	{
+		if(leaf==root)
+		{
+			root=NULL_NODE;
+			return;
+		}
+		int parent=parents[leaf];
+		int grandParent=parents[parent];
+		int sibling=child1s[parent]==leaf ? child2s[parent] : child1s[parent];
+		if(grandParent!=NULL_NODE)
+		{
+			if(child1s[grandParent]==parent)
+			{
+				child1s[grandParent]=sibling;
+			}
+			else
+			{
+				child2s[grandParent]=sibling;
+			}
+			parents[sibling]=grandParent;
+			freeNode(parent);
+			refitFrom(grandParent);
+		}
+		else
+		{
+			root=sibling;
+			parents[sibling]=NULL_NODE;
+			freeNode(parent);
+		}
+	}
+	/**
+	 * Walks up the tree from a node to the root, rebalancing each node and refitting its box and height
+	 * @param start The node to start from
+	 */
+	private void refitFrom(int start)
+	{
+		int index=start;
+		while(index!=NULL_NODE)
+		{
+			index=balance(index);
+			int child1=child1s[index];
+			int child2=child2s[index];
+			heights[index]=1+Math.max(heights[child1],heights[child2]);
+			union(child1,child2,index);
+			index=parents[index];
+		}
+	}
+	/**
+	 * Rotates a node's taller grandchild up if one of its children is more than one taller than the other
+	 * @param a The node to balance
+	 * @return The node now in a's place in the tree
+	 */
+	private int balance(int a)
+	{
+		if(child1s[a]==NULL_NODE||heights[a]<2)
+		{
+			return a;
+		}
+		int b=child1s[a];
+		int c=child2s[a];
+		int balance=heights[c]-heights[b];
+		if(balance>1)
+		{
+			//Rotate c up
+			int f=child1s[c];
+			int g=child2s[c];
+			child1s[c]=a;
+			parents[c]=parents[a];
+			parents[a]=c;
+			replaceChild(parents[c],a,c);
+			if(heights[f]>heights[g])
+			{
+				child2s[c]=f;
+				child2s[a]=g;
+				parents[g]=a;
+				union(b,g,a);
+				union(a,f,c);
+				heights[a]=1+Math.max(heights[b],heights[g]);
+				heights[c]=1+Math.max(heights[a],heights[f]);
+			}
+			else
+			{
+				child2s[c]=g;
+				child2s[a]=f;
+				parents[f]=a;
+				union(b,f,a);
+				union(a,g,c);
+				heights[a]=1+Math.max(heights[b],heights[f]);
+				heights[c]=1+Math.max(heights[a],heights[g]);
+			}
+			return c;
+		}
+		if(balance<-1)
+		{
+			//Rotate b up
+			int d=child1s[b];
+			int e=child2s[b];
+			child1s[b]=a;
+			parents[b]=parents[a];
+			parents[a]=b;
+			replaceChild(parents[b],a,b);
+			if(heights[d]>heights[e])
+			{
+				child2s[b]=d;
+				child1s[a]=e;
+				parents[e]=a;
+				union(c,e,a);
+				union(a,d,b);
+				heights[a]=1+Math.max(heights[c],heights[e]);
+				heights[b]=1+Math.max(heights[a],heights[d]);
+			}
+			else
+			{
+				child2s[b]=e;
+				child1s[a]=d;
+				parents[d]=a;
+				union(c,d,a);
+				union(a,e,b);
+				heights[a]=1+Math.max(heights[c],heights[d]);
+				heights[b]=1+Math.max(heights[a],heights[e]);
+			}
+			return b;
+		}
+		return a;
+	}
+	/**
+	 * Points a parent at a new child in place of an old one, or makes the new child the root if there's no parent
+	 * @param parent The parent node, NULL_NODE if the old child was the root
+	 * @param oldChild The child being replaced
+	 * @param newChild The replacement child
+	 */
+	private void replaceChild(int parent, int oldChild, int newChild)
+	{
+		if(parent==NULL_NODE)
+		{
+			root=newChild;
+		}
+		else if(child1s[parent]==oldChild)
+		{
+			child1s[parent]=newChild;
+		}
+		else
+		{
+			child2s[parent]=newChild;
+		}
+	}
+	/**
+	 * Gets the cost of putting the leaf somewhere under a node
+	 * @param node The node
+	 * @param leaf The leaf being inserted
+	 * @return The increase in surface area
+	 */
+	private double descendCost(int node, int leaf)
+	{
+		if(child1s[node]==NULL_NODE)
+		{
+			return combinedSurfaceArea(node,leaf);
+		}
+		return combinedSurfaceArea(node,leaf)-surfaceArea(node);
+	}
+	/**
+	 * Sets a node's box to the box around two other nodes
+	 * @param a The first node
+	 * @param b The second node
+	 * @param out The node to store the box in, can be a or b
+	 */
+	private void union(int a, int b, int out)
+	{
+		for(int k=0;k<3;k++)
+		{
+			nodeBoxes[6*out+k]=Math.min(nodeBoxes[6*a+k],nodeBoxes[6*b+k]);
+			nodeBoxes[6*out+3+k]=Math.max(nodeBoxes[6*a+3+k],nodeBoxes[6*b+3+k]);
+		}
+	}
+	/**
+	 * Gets the surface area of a node's box
+	 * @param node The node
+	 * @return The surface area
+	 */
+	private double surfaceArea(int node)
+	{
+		double dx=nodeBoxes[6*node+3]-nodeBoxes[6*node];
+		double dy=nodeBoxes[6*node+4]-nodeBoxes[6*node+1];
+		double dz=nodeBoxes[6*node+5]-nodeBoxes[6*node+2];
+		return 2*(dx*dy+dy*dz+dz*dx);
+	}
+	/**
+	 * Gets the surface area of the box around two nodes
+	 * @param a The first node
+	 * @param b The second node
+	 * @return The surface area
+	 */
+	private double combinedSurfaceArea(int a, int b)
+	{
+		double dx=Math.max(nodeBoxes[6*a+3],nodeBoxes[6*b+3])-Math.min(nodeBoxes[6*a],nodeBoxes[6*b]);
+		double dy=Math.max(nodeBoxes[6*a+4],nodeBoxes[6*b+4])-Math.min(nodeBoxes[6*a+1],nodeBoxes[6*b+1]);
+		double dz=Math.max(nodeBoxes[6*a+5],nodeBoxes[6*b+5])-Math.min(nodeBoxes[6*a+2],nodeBoxes[6*b+2]);
+		return 2*(dx*dy+dy*dz+dz*dx);
+	}
+	/**
+	 * Checks if a leaf's fat box still contains its object's AABB
+	 * @param leaf The leaf
+	 * @param obj The object
+	 * @return True if the AABB is completely inside the fat box
+	 */
+	private boolean fatBoxContains(int leaf, int obj)
+	{
+		for(int k=0;k<3;k++)
+		{
+			if(boxes[6*obj+k]<nodeBoxes[6*leaf+k]||boxes[6*obj+3+k]>nodeBoxes[6*leaf+3+k])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Checks if an object's AABB overlaps a node's box
+	 * @param node The node
+	 * @param obj The object
+	 * @return True if they overlap or touch
+	 */
+	private boolean overlapsNode(int node, int obj)
+	{
+		for(int k=0;k<3;k++)
+		{
+			if(boxes[6*obj+k]>nodeBoxes[6*node+3+k]||nodeBoxes[6*node+k]>boxes[6*obj+3+k])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Checks if two objects' AABBs overlap
+	 * @param a The first object
+	 * @param b The second object
+	 * @return True if they overlap or touch
+	 */
+	private boolean overlapsObject(int a, int b)
+	{
+		for(int k=0;k<3;k++)
+		{
+			if(boxes[6*a+k]>boxes[6*b+3+k]||boxes[6*b+k]>boxes[6*a+3+k])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Takes a node off the free list, growing the node arrays if there are no free nodes
+	 * @return The node
+	 */
+	private int allocateNode()
+	{
+		if(freeList==NULL_NODE)
+		{
+			int oldCapacity=parents.length;
+			int capacity=Math.max(oldCapacity*2,16);
+			nodeBoxes=Arrays.copyOf(nodeBoxes, 6*capacity);
+			parents=Arrays.copyOf(parents, capacity);
+			child1s=Arrays.copyOf(child1s, capacity);
+			child2s=Arrays.copyOf(child2s, capacity);
+			heights=Arrays.copyOf(heights, capacity);
+			nodeObjects=Arrays.copyOf(nodeObjects, capacity);
+			linkFreeNodes(oldCapacity,capacity);
+		}
+		int node=freeList;
+		freeList=parents[node];
+		parents[node]=NULL_NODE;
+		child1s[node]=NULL_NODE;
+		child2s[node]=NULL_NODE;
+		heights[node]=0;
+		return node;
+	}
+	/**
+	 * Puts a node back on the free list
+	 * @param node The node
+	 */
+	private void freeNode(int node)
+	{
+		parents[node]=freeList;
+		heights[node]=-1;
+		freeList=node;
+	}
+	/**
+	 * Links a range of unused nodes into the free list
+	 * @param start The first node
+	 * @param end One past the last node
+	 */
+	private void linkFreeNodes(int start, int end)
+	{
+		for(int i=start;i<end-1;i++)
+		{
+			parents[i]=i+1;
+			heights[i]=-1;
+		}
+		parents[end-1]=NULL_NODE;
+		heights[end-1]=-1;
+		freeList=start;
+	}
+}
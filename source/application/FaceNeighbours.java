@@ -0,0 +1,130 @@
+package application;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The faces next to each face of a mesh, where faces are next to each other if they share a vertex.
+ * The neighbours of all the faces are stored one after another in one array, with the start of each face's neighbours
+ * in another, so looking them up creates no garbage. Built once for a mesh as the faces never change.
+ * @author Sam Dark
+ *
+ */
+public class FaceNeighbours
+{
+	/** Where the neighbours of each face start in the neighbours array, with one extra entry for the end of the last face */
+	private int[] starts;
+	/** The neighbours of every face, smallest face number first for each face */
+	private int[] neighbours;
+
+	/**
+	 * Works out the neighbours of the faces of a mesh
+	 * @param inpFaces The faces of the mesh
+	 */
+	FaceNeighbours(ArrayList<TriangularFace> inpFaces)
+	{
+		int faceCount=inpFaces.size();
+		//Vertex numbers in faces start at 1
+		int vertexCount=0;
+		for(int i=0; i<faceCount; i++)
+		{
+			for(int v=0; v<3; v++)
+			{
+				vertexCount=Math.max(vertexCount, inpFaces.get(i).getVertex(v));
+			}
+		}
+		//Find the faces using each vertex, stored the same way as the neighbours
+		int[] vertexStarts=new int[vertexCount+2];
+		for(int i=0; i<faceCount; i++)
+		{
+			for(int v=0; v<3; v++)
+			{
+				vertexStarts[inpFaces.get(i).getVertex(v)+1]++;
+			}
+		}
+		for(int v=0; v<=vertexCount; v++)
+		{
+			vertexStarts[v+1]+=vertexStarts[v];
+		}
+		int[] vertexFaces=new int[vertexStarts[vertexCount+1]];
+		int[] filled=Arrays.copyOf(vertexStarts, vertexCount+1);
+		for(int i=0; i<faceCount; i++)
+		{
+			for(int v=0; v<3; v++)
+			{
+				int vertex=inpFaces.get(i).getVertex(v);
+				vertexFaces[filled[vertex]]=i;
+				filled[vertex]++;
+			}
+		}
+		//The neighbours of a face are the faces using any of its vertices, each only added once
+		int[] lastAddedBy=new int[faceCount];
+		Arrays.fill(lastAddedBy, -1);
+		IntList found=new IntList();
+		starts=new int[faceCount+1];
+		for(int i=0; i<faceCount; i++)
+		{
+			lastAddedBy[i]=i;
+			int first=found.size();
+			for(int v=0; v<3; v++)
+			{
+				int vertex=inpFaces.get(i).getVertex(v);
+				for(int f=vertexStarts[vertex]; f<vertexStarts[vertex+1]; f++)
+				{
+					int face=vertexFaces[f];
+					if(lastAddedBy[face]!=i)
+					{
+						lastAddedBy[face]=i;
+						found.add(face);
+					}
+				}
+			}
+			starts[i]=first;
+			starts[i+1]=found.size();
+		}
+		neighbours=new int[found.size()];
+		for(int n=0; n<neighbours.length; n++)
+		{
+			neighbours[n]=found.get(n);
+		}
+		//Sort each face's neighbours so they are checked in the same order as a search of every face would
+		for(int i=0; i<faceCount; i++)
+		{
+			Arrays.sort(neighbours, starts[i], starts[i+1]);
+		}
+	}
+	/**
+	 * Gets where the neighbours of a face start
+	 * @param face The face
+	 * @return The position of the face's first neighbour
+	 */
+	public int getStart(int face)
+	{
+		return starts[face];
+	}
+	/**
+	 * Gets where the neighbours of a face end
+	 * @param face The face
+	 * @return One past the position of the face's last neighbour
+	 */
+	public int getEnd(int face)
+	{
+		return starts[face+1];
+	}
+	/**
+	 * Gets a neighbour
+	 * @param index The position of the neighbour, between the start and end of a face
+	 * @return The neighbouring face
+	 */
+	public int get(int index)
+	{
+		return neighbours[index];
+	}
+	/**
+	 * Gets the number of faces in the mesh
+	 * @return The number of faces
+	 */
+	public int getFaceCount()
+	{
+		return starts.length-1;
+	}
+}
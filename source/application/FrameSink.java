@@ -0,0 +1,41 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * Where the physics simulation sends its objects after each update. The Renderer displays them on the screen,
+ * HeadlessFrameSink throws them away so the simulation can run without a display.
+ * @author Sam Dark
+ *
+ */
+public interface FrameSink
+{
+	/**
+	 * Returns if the sink is closing, the simulation stops when it is
+	 * @return True if the sink is closing
+	 */
+	public boolean getClosing();
+	/**
+	 * Sets the objects the sink is to show to the given objects, called after every update
+	 * @param inpObjs The objects to show
+	 */
+	public void setObjects(ArrayList<CustomObject> inpObjs);
+	/**
+	 * Creates textures for any objects with textures and returns the objects
+	 * @param inpObjs The objects to create textures for
+	 * @return The objects with textures added
+	 */
+	public ArrayList<CustomObject> initTextures(ArrayList<CustomObject> inpObjs);
+	/**
+	 * Requests that the sink updates anything it has worked out from the objects' vertices, materials or textures
+	 */
+	public void requestVBOUpdate();
+	/**
+	 * Updates the number of vertices in the scene. Call once each time a new object or multiple objects are added.
+	 */
+	public void updateVerticesInScene();
+	/**
+	 * Sets an external string to show. Used for showing physics update time.
+	 * @param inpString The string to show
+	 */
+	public void setStringForDisplay(String inpString);
+}
@@ -0,0 +1,59 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * A frame sink that doesn't display anything, used for running simulations without a display or OpenGL.
+ * @author Sam Dark
+ *
+ */
+public class HeadlessFrameSink implements FrameSink
+{
+	/** Has the sink been closed */
+	private boolean closing=false;
+	/** The objects from the last update */
+	private ArrayList<CustomObject> objects=new ArrayList<CustomObject>();
+
+	/**
+	 * Closes the sink, a simulation running on it will stop after its current update
+	 */
+	public void close()
+	{
+		closing=true;
+	}
+	@Override
+	public boolean getClosing()
+	{
+		return closing;
+	}
+	@Override
+	public void setObjects(ArrayList<CustomObject> inpObjs)
+	{
+		objects=inpObjs;
+	}
+	/**
+	 * Gets the objects from the last update
+	 * @return The objects
+	 */
+	public ArrayList<CustomObject> getObjects()
+	{
+		return objects;
+	}
+	@Override
+	public ArrayList<CustomObject> initTextures(ArrayList<CustomObject> inpObjs)
+	{
+		//No textures without a display
+		return inpObjs;
+	}
+	@Override
+	public void requestVBOUpdate()
+	{
+	}
+	@Override
+	public void updateVerticesInScene()
+	{
+	}
+	@Override
+	public void setStringForDisplay(String inpString)
+	{
+	}
+}
@@ -0,0 +1,93 @@
+package application;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Runs a config without a display, as fast as possible, and prints where the objects end up.
+ * Only the low poly objects are imported as they are all the physics uses, no high poly objects or textures are loaded.
+ *
+ * Usage: HeadlessSimulation configPath steps [stepLength]
+ * steps can also be a simulated duration ending in "ms", e.g. 5000ms.
+ * stepLength is the length of each step in ms, if not given the config's timestep is used or 16ms if it doesn't have one.
+ * @author Sam Dark
+ *
+ */
+public class HeadlessSimulation
+{
+	/** The step length used if neither the command line nor the config give one (in ms) */
+	private static final double DEFAULT_STEP=16;
+
+	/**
+	 * Runs a config without a display
+	 * @param args The config path, the number of steps or duration, and optionally the step length
+	 */
+	public static void main(String[] args)
+	{
+		if(args.length<2)
+		{
+			System.out.println("Usage: HeadlessSimulation configPath steps|durationms [stepLength]");
+			return;
+		}
+		Config config;
+		try
+		{
+			config=ConfigReader.readConfig(args[0]);
+		}
+		catch(IOException e)
+		{
+			System.out.println("Failed to read config ("+args[0]+")");
+			e.printStackTrace();
+			return;
+		}
+		double step=config.timestep>0 ? config.timestep : DEFAULT_STEP;
+		if(args.length>2)
+		{
+			step=Double.parseDouble(args[2]);
+		}
+		int steps;
+		if(args[1].endsWith("ms"))
+		{
+			steps=(int)Math.ceil(Double.parseDouble(args[1].substring(0,args[1].length()-2))/step);
+		}
+		else
+		{
+			steps=Integer.parseInt(args[1]);
+		}
+		HeadlessFrameSink sink=new HeadlessFrameSink();
+		PhysicsSimulation sim=new PhysicsSimulation();
+		sim.init(sink,importObjects(config),config);
+		long start=System.nanoTime();
+		sim.runSteps(steps,step);
+		long end=System.nanoTime();
+		//Print where everything ended up
+		ArrayList<CustomObject> objects=sink.getObjects();
+		for(int i=0; i<objects.size();i++)
+		{
+			CustomObject obj=objects.get(i);
+			Position pos=obj.getPosition();
+			Position vel=obj.getVel();
+			System.out.println(i+" "+obj.getName()+" pos=("+pos.getX()+", "+pos.getY()+", "+pos.getZ()+") vel=("+vel.getX()+", "+vel.getY()+", "+vel.getZ()+")");
+		}
+		double seconds=(end-start)/1e9;
+		System.out.println("Simulated "+steps+" steps of "+step+"ms in "+seconds+"s ("+Math.round(steps/seconds)+" steps per second)");
+	}
+	/**
+	 * Imports the low poly objects for a config. The low poly object is used for both the object and its low poly part.
+	 * @param config The config
+	 * @return The objects
+	 */
+	static ArrayList<CustomObject> importObjects(Config config)
+	{
+		ArrayList<CustomObject> objects=new ArrayList<CustomObject>();
+		for(int i=0;i<config.objs.size();i++)
+		{
+			CustomObject obj=ObjImporter.importObj(config.objs.get(i).LPFilePath);
+			obj.setLPVertices(obj.getVertices());
+			obj.setLPFaces(obj.getFaces());
+			obj.setLPFaceHierarchy(obj.getFaceHierarchy());
+			obj.setLPLocalMesh(obj.getLocalMesh());
+			objects.add(obj);
+		}
+		return objects;
+	}
+}
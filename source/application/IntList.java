@@ -0,0 +1,67 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * A growable list of ints stored in a primitive array. Used for collecting search results without creating garbage.
+ * @author Sam Dark
+ *
+ */
+public class IntList
+{
+	/** The values in the list */
+	private int[] values;
+	/** The number of values in the list */
+	private int count=0;
+
+	/**
+	 * Creates an empty list
+	 */
+	IntList()
+	{
+		values=new int[16];
+	}
+	/**
+	 * Empties the list
+	 */
+	public void clear()
+	{
+		count=0;
+	}
+	/**
+	 * Adds a value to the end of the list, growing the list if it is full
+	 * @param value The value to add
+	 */
+	public void add(int value)
+	{
+		if(count==values.length)
+		{
+			values=Arrays.copyOf(values, values.length*2);
+		}
+		values[count]=value;
+		count++;
+	}
+	/**
+	 * Gets a value from the list
+	 * @param index The position of the value
+	 * @return The value
+	 */
+	public int get(int index)
+	{
+		return values[index];
+	}
+	/**
+	 * Sorts the values in the list from smallest to biggest
+	 */
+	public void sort()
+	{
+		Arrays.sort(values,0,count);
+	}
+	/**
+	 * Gets the number of values in the list
+	 * @return The number of values
+	 */
+	public int size()
+	{
+		return count;
+	}
+}
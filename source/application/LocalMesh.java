@@ -0,0 +1,197 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * The collision information of a mesh worked out once in the mesh's own space: the plane, first vertex and edges of every
+ * face, the box around the vertices and a sphere around them.
+ * The faces are stored as flat arrays the same way as a TriangleBatch so they can be read straight into the ray tests.
+ * Moving or rotating an object doesn't change any of it, so its actual box is worked out from the box or sphere
+ * here instead of from every vertex, and the normal of a face that was hit is just rotated instead of worked out again.
+ * Nothing is changed after it is built so it is shared by every object imported from the same file and is safe to use from more than one thread at once.
+ * @author Sam Dark
+ *
+ */
+public class LocalMesh
+{
+	/** The first vertex of each face */
+	double[] ax, ay, az;
+	/** The edge from the first vertex to the second of each face */
+	double[] abx, aby, abz;
+	/** The edge from the first vertex to the third of each face */
+	double[] acx, acy, acz;
+	/** The normal of each face, ab x ac, not normalised */
+	double[] nx, ny, nz;
+	/** The length of the normal of each face */
+	double[] normalLengths;
+	/** The normalised normal of each face dotted with any point on the face, so the face's plane is all the points p with normal.p equal to it */
+	double[] offsets;
+	/** The low corner of the box around the vertices {minX,minY,minZ} */
+	private double[] min={0,0,0};
+	/** The high corner of the box around the vertices {maxX,maxY,maxZ} */
+	private double[] max={0,0,0};
+	/** The centre of the sphere around the vertices */
+	private double sphereX, sphereY, sphereZ;
+	/** The radius of the sphere around the vertices */
+	private double sphereRadius;
+
+	/**
+	 * Works out the collision information of a mesh
+	 * @param inpVertices The vertices of the mesh in its own space
+	 * @param inpFaces The faces of the mesh
+	 */
+	LocalMesh(ArrayList<Vertex> inpVertices, ArrayList<TriangularFace> inpFaces)
+	{
+		int count=inpFaces.size();
+		ax=new double[count]; ay=new double[count]; az=new double[count];
+		abx=new double[count]; aby=new double[count]; abz=new double[count];
+		acx=new double[count]; acy=new double[count]; acz=new double[count];
+		nx=new double[count]; ny=new double[count]; nz=new double[count];
+		normalLengths=new double[count];
+		offsets=new double[count];
+		for(int i=0; i<count; i++)
+		{
+			Vertex a=inpVertices.get(inpFaces.get(i).getVertex(0)-1);
+			Vertex b=inpVertices.get(inpFaces.get(i).getVertex(1)-1);
+			Vertex c=inpVertices.get(inpFaces.get(i).getVertex(2)-1);
+			ax[i]=a.getX();
+			ay[i]=a.getY();
+			az[i]=a.getZ();
+			abx[i]=b.getX()-a.getX();
+			aby[i]=b.getY()-a.getY();
+			abz[i]=b.getZ()-a.getZ();
+			acx[i]=c.getX()-a.getX();
+			acy[i]=c.getY()-a.getY();
+			acz[i]=c.getZ()-a.getZ();
+			//Normal is the cross product of the two edges
+			nx[i]=(aby[i]*acz[i])-(abz[i]*acy[i]);
+			ny[i]=(abz[i]*acx[i])-(abx[i]*acz[i]);
+			nz[i]=(abx[i]*acy[i])-(aby[i]*acx[i]);
+			normalLengths[i]=Math.sqrt(nx[i]*nx[i]+ny[i]*ny[i]+nz[i]*nz[i]);
+			offsets[i]=normalLengths[i]>0 ? (nx[i]*ax[i]+ny[i]*ay[i]+nz[i]*az[i])/normalLengths[i] : 0;
+		}
+		if(inpVertices.size()==0)
+		{
+			return;
+		}
+		for(int k=0; k<3; k++)
+		{
+			min[k]=Double.MAX_VALUE;
+			max[k]=-Double.MAX_VALUE;
+		}
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			min[0]=Math.min(min[0], v.getX());
+			min[1]=Math.min(min[1], v.getY());
+			min[2]=Math.min(min[2], v.getZ());
+			max[0]=Math.max(max[0], v.getX());
+			max[1]=Math.max(max[1], v.getY());
+			max[2]=Math.max(max[2], v.getZ());
+		}
+		//The sphere is around the middle of the box, which is usually tighter than the box for round meshes
+		sphereX=0.5*(min[0]+max[0]);
+		sphereY=0.5*(min[1]+max[1]);
+		sphereZ=0.5*(min[2]+max[2]);
+		for(int i=0; i<inpVertices.size(); i++)
+		{
+			Vertex v=inpVertices.get(i);
+			double dx=v.getX()-sphereX, dy=v.getY()-sphereY, dz=v.getZ()-sphereZ;
+			sphereRadius=Math.max(sphereRadius, Math.sqrt(dx*dx+dy*dy+dz*dz));
+		}
+	}
+	/**
+	 * Works out the box around the mesh in actual space. The box around the rotated local box is found by adding up how
+	 * far each of its half widths reaches along each axis, the same as transforming its 8 corners. Where the box around the
+	 * sphere is tighter it is used instead, so a rotated round mesh doesn't get a box much bigger than it is.
+	 * @param inpTransform The transform of the object
+	 * @param output Array of at least 6 to put the box in {minX,minY,minZ,maxX,maxY,maxZ}
+	 */
+	public void transformBounds(RigidTransform inpTransform, double[] output)
+	{
+		double halfX=0.5*(max[0]-min[0]), halfY=0.5*(max[1]-min[1]), halfZ=0.5*(max[2]-min[2]);
+		for(int k=0; k<3; k++)
+		{
+			double r0=inpTransform.getRotation(k,0), r1=inpTransform.getRotation(k,1), r2=inpTransform.getRotation(k,2);
+			double translation=k==0 ? inpTransform.getTranslationX() : (k==1 ? inpTransform.getTranslationY() : inpTransform.getTranslationZ());
+			//Box and sphere have the same centre
+			double center=r0*sphereX+r1*sphereY+r2*sphereZ+translation;
+			double reach=Math.min(Math.abs(r0)*halfX+Math.abs(r1)*halfY+Math.abs(r2)*halfZ, sphereRadius);
+			output[k]=center-reach;
+			output[k+3]=center+reach;
+		}
+	}
+	/**
+	 * Gets if a point in the mesh's own space is within the box around the vertices
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @return True if the point is within the box, False otherwise
+	 */
+	public boolean isInBounds(double x, double y, double z)
+	{
+		return x>=min[0]&&x<=max[0]&&y>=min[1]&&y<=max[1]&&z>=min[2]&&z<=max[2];
+	}
+	/**
+	 * Gets if a box in the mesh's own space overlaps the box around the vertices
+	 * @param bounds The box {minX,minY,minZ,maxX,maxY,maxZ}
+	 * @return True if they overlap, False otherwise
+	 */
+	public boolean overlapsBounds(double[] bounds)
+	{
+		return bounds[0]<=max[0]&&bounds[3]>=min[0]&&bounds[1]<=max[1]&&bounds[4]>=min[1]&&bounds[2]<=max[2]&&bounds[5]>=min[2];
+	}
+	/**
+	 * Gets if a box in the mesh's own space is all within the box around the vertices
+	 * @param bounds The box {minX,minY,minZ,maxX,maxY,maxZ}
+	 * @return True if it is within, False otherwise
+	 */
+	public boolean containsBounds(double[] bounds)
+	{
+		return bounds[0]>=min[0]&&bounds[3]<=max[0]&&bounds[1]>=min[1]&&bounds[4]<=max[1]&&bounds[2]>=min[2]&&bounds[5]<=max[2];
+	}
+	/**
+	 * Gets if the box around a face overlaps a box in the mesh's own space
+	 * @param face The face
+	 * @param minX The low x of the box
+	 * @param minY The low y of the box
+	 * @param minZ The low z of the box
+	 * @param maxX The high x of the box
+	 * @param maxY The high y of the box
+	 * @param maxZ The high z of the box
+	 * @return True if they overlap, False otherwise
+	 */
+	public boolean faceOverlaps(int face, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+	{
+		//The face's box is from its first vertex out along whichever of its edges go furthest each way
+		return ax[face]+Math.min(0, Math.min(abx[face], acx[face]))<=maxX&&ax[face]+Math.max(0, Math.max(abx[face], acx[face]))>=minX
+				&&ay[face]+Math.min(0, Math.min(aby[face], acy[face]))<=maxY&&ay[face]+Math.max(0, Math.max(aby[face], acy[face]))>=minY
+				&&az[face]+Math.min(0, Math.min(abz[face], acz[face]))<=maxZ&&az[face]+Math.max(0, Math.max(abz[face], acz[face]))>=minZ;
+	}
+	/**
+	 * Rotates the normal of a face into actual space
+	 * @param inpTransform The transform of the object
+	 * @param face The face
+	 * @param output Array of at least 3 to put the normalised normal's x,y,z in
+	 */
+	public void getNormal(RigidTransform inpTransform, int face, double[] output)
+	{
+		double length=normalLengths[face];
+		inpTransform.transformVector(nx[face]/length,ny[face]/length,nz[face]/length,output);
+	}
+	/**
+	 * Gets the number of faces in the mesh
+	 * @return The number of faces
+	 */
+	public int getFaceCount()
+	{
+		return normalLengths.length;
+	}
+	/**
+	 * Gets the radius of the sphere around the vertices
+	 * @return The radius
+	 */
+	public double getSphereRadius()
+	{
+		return sphereRadius;
+	}
+}
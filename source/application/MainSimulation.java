@@ -3,20 +3,8 @@ import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
-
-
-
-
-
-
-
-import javafx.stage.Stage;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -29,7 +17,7 @@ import com.jogamp.opengl.util.Animator;
 
 
 /**
- * The class that starts the physics simulation and reads configs for it.
+ * The class that starts the physics simulation.
  * Also calls all the object importing.
  * @author Sam Dark
  *
@@ -60,7 +48,7 @@ public class MainSimulation
 		try 
 		{
 			//Read the config file and put the information in the cofig object prepared earlier
-			config=readConfig(configFilePath);
+			config=ConfigReader.readConfig(configFilePath);
 		} 
 		catch (IOException e) 
 		{
@@ -76,6 +64,8 @@ public class MainSimulation
 		{
 			objects.get(i).setLPVertices(lowPolyObjects.get(i).getVertices());
 			objects.get(i).setLPFaces(lowPolyObjects.get(i).getFaces());
+			objects.get(i).setLPFaceHierarchy(lowPolyObjects.get(i).getFaceHierarchy());
+			objects.get(i).setLPLocalMesh(lowPolyObjects.get(i).getLocalMesh());
 			objects.get(i).setLPName(lowPolyObjects.get(i).getName());
 		}
 		//Create a window to show the physics in
@@ -111,117 +101,4 @@ public class MainSimulation
 		animator=null;
 		return true;
 	}
-	/**
-	 * Reads a config file and returns the information as a config object
-	 * @param filePath The path to the config file to read
-	 * @return The contents of the config file
-	 * @throws IOException if it has trouble reading the config
-	 */
-	protected static Config readConfig(String filePath) throws IOException
-	{
-		int noObjects=0;
-		
-		File config= new File(filePath);
-		BufferedReader reader = new BufferedReader(new FileReader(config));
-		String line;
-		//Number of objects
-		if((line = reader.readLine()) != null)
-		{
-			noObjects=Integer.parseInt(line);
-		}
-		ArrayList<ObjectInit> iObjects= new ArrayList<ObjectInit>();
-		Config conf= new Config();
-		//File path for high poly object
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-			{
-				iObjects.add(new ObjectInit());
-				iObjects.get(i).filePath=line;
-			}
-		}
-		//File path for low poly
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-				iObjects.get(i).LPFilePath=line;
-		}
-		//Position
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-			{
-				 Scanner lineScanner = new Scanner(line);
-			     while (!lineScanner.hasNextDouble())
-			     {
-			    	 lineScanner.next();
-			     }
-			     double x = lineScanner.nextDouble();
-			     double y = lineScanner.nextDouble();
-			     double z = lineScanner.nextDouble();
-			     iObjects.get(i).pos=new Position(x,y,z);
-			}
-		}
-		//Rotation
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-			{
-				 Scanner lineScanner = new Scanner(line);
-			     while (!lineScanner.hasNextDouble())
-			     {
-			    	 lineScanner.next();
-			     }
-			     double x = lineScanner.nextDouble();
-			     double y = lineScanner.nextDouble();
-			     double z = lineScanner.nextDouble();
-			     iObjects.get(i).rot=new Rotation(x,y,z);
-			}
-		}
-		//CanMove
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-			{
-				iObjects.get(i).canMove=Boolean.valueOf(line);
-			}
-		}
-		//InverseMass
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-				iObjects.get(i).inverseMass=Integer.parseInt(line);
-		}
-		//Gravity
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-				iObjects.get(i).gravity=Boolean.valueOf(line);
-		}
-		//Velocity
-		for(int i=0;i<noObjects;i++)
-		{
-			if((line = reader.readLine()) != null)
-			{
-				 Scanner lineScanner = new Scanner(line);
-				 while (!lineScanner.hasNextDouble())
-				 {
-					 lineScanner.next();
-				 }
-				 double x = lineScanner.nextDouble();
-				 double y = lineScanner.nextDouble();
-				 double z = lineScanner.nextDouble();
-				 iObjects.get(i).velocity=new Position(x,y,z);
-			}
-		}
-		conf.objs=iObjects;
-		//Global Gravity
-		if((line = reader.readLine()) != null)
-			conf.grav=Double.valueOf(line);
-		//Global elasticity
-		if((line = reader.readLine()) != null)
-			conf.elas=Double.valueOf(line);
-		reader.close();
-		return conf;
-	}
 }
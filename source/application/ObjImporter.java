@@ -47,6 +47,12 @@ public class ObjImporter
 	private static boolean normalsInOrder=true;
 	/** Does the object in the file have a texture? */
 	private static boolean hasTexture=false;
+	/** The filenames of the objects with face hierarchies already built */
+	private static ArrayList<String> hierarchyNames= new ArrayList<String>();
+	/** The face hierarchies already built, so objects imported from the same file share one */
+	private static ArrayList<BoundingVolumeHierarchy> hierarchies= new ArrayList<BoundingVolumeHierarchy>();
+	/** The local collision information already worked out, in the same order as the face hierarchies */
+	private static ArrayList<LocalMesh> localMeshes= new ArrayList<LocalMesh>();
 	
 	/**
 	 * Imports the object specified in the .obj file and returns a CustomObject containing the object.
@@ -77,6 +83,8 @@ public class ObjImporter
 	    {
 	    	goThroughChars();//Extract all the information from the characters in the file
 	    	CustomObject output = new CustomObject(vertices,faces,filename);//Create an object to store information gathered from file
+	    	output.setFaceHierarchy(getFaceHierarchy(filename,output.getVertices(),faces));//Used to find faces quickly during collision detection
+	    	output.setLocalMesh(getLocalMesh(filename));//Face planes and bounds worked out once for the file
 	    	//Set the material of the object
 	    	for(int i=0; i<materials.size(); i++)
 	    	{
@@ -107,6 +115,73 @@ public class ObjImporter
 	    }
 	    return null;
 	}
+	/**
+	 * Gets the hierarchy over the bounds of an object's faces, building it if no object from the same file has been imported yet.
+	 * The bounds are relative to the object so the hierarchy can be shared by every object imported from the file.
+	 * @param filename The filename of the .obj file
+	 * @param inpVertices The vertices of the object
+	 * @param inpFaces The faces of the object
+	 * @return The hierarchy, item numbers are face numbers
+	 */
+	private static BoundingVolumeHierarchy getFaceHierarchy(String filename, ArrayList<Vertex> inpVertices, ArrayList<TriangularFace> inpFaces)
+	{
+		for(int i=0; i<hierarchyNames.size();i++)
+		{
+			if(filename.equals(hierarchyNames.get(i)))
+			{
+				return hierarchies.get(i);
+			}
+		}
+		//Not built yet so get the box around each face and build it
+		double[] boxes=new double[6*inpFaces.size()];
+		for(int i=0; i<inpFaces.size();i++)
+		{
+			for(int k=0;k<3;k++)
+			{
+				Vertex vert=inpVertices.get(inpFaces.get(i).getVertex(k)-1);
+				if(k==0)
+				{
+					boxes[6*i]=vert.getX();
+					boxes[6*i+1]=vert.getY();
+					boxes[6*i+2]=vert.getZ();
+					boxes[6*i+3]=vert.getX();
+					boxes[6*i+4]=vert.getY();
+					boxes[6*i+5]=vert.getZ();
+				}
+				else
+				{
+					boxes[6*i]=Math.min(boxes[6*i], vert.getX());
+					boxes[6*i+1]=Math.min(boxes[6*i+1], vert.getY());
+					boxes[6*i+2]=Math.min(boxes[6*i+2], vert.getZ());
+					boxes[6*i+3]=Math.max(boxes[6*i+3], vert.getX());
+					boxes[6*i+4]=Math.max(boxes[6*i+4], vert.getY());
+					boxes[6*i+5]=Math.max(boxes[6*i+5], vert.getZ());
+				}
+			}
+		}
+		BoundingVolumeHierarchy hierarchy=new BoundingVolumeHierarchy(boxes,inpFaces.size());
+		hierarchyNames.add(filename);
+		hierarchies.add(hierarchy);
+		localMeshes.add(new LocalMesh(inpVertices,inpFaces));
+		return hierarchy;
+	}
+	/**
+	 * Gets the face planes, edges and bounds of an object imported from a file, worked out when its face hierarchy was built
+	 * so every object imported from the file shares them.
+	 * @param filename The filename of the .obj file
+	 * @return The local collision information, null if nothing has been imported from the file
+	 */
+	private static LocalMesh getLocalMesh(String filename)
+	{
+		for(int i=0; i<hierarchyNames.size();i++)
+		{
+			if(filename.equals(hierarchyNames.get(i)))
+			{
+				return localMeshes.get(i);
+			}
+		}
+		return null;
+	}
 	/**
 	 * Gets the list of materials the object importer has stored
 	 * @return The materials the object importer currently has stored
@@ -22,6 +22,8 @@ public class ObjectInit
 	boolean gravity;
 	/** The velocity of the object */
 	Position velocity;
+	/** The simple shape used for collisions, "auto", "sphere", "capsule", "plane", "hull", "mesh" or "sdf" */
+	String collider="auto";
 	
 	/**
 	 * Creates an empty object
@@ -0,0 +1,364 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * Remembers information about pairs of objects from one update to the next, stored in flat arrays and found by hashing the
+ * pair's object numbers so looking a pair up creates no garbage. Used to warm start the contact solver with the impulses
+ * the pair needed last update, and to let the narrowphase start from the face the pair hit last time or skip a pair
+ * that was apart and hasn't moved since.
+ * Pairs are only added and removed on the simulation thread between collision passes. While the collision threads run
+ * each one only changes the slots of the pairs it is checking.
+ * @author Sam Dark
+ *
+ */
+public class PairCache
+{
+	/** Marks an unused slot */
+	private static final long EMPTY=-1;
+	/** The most contacts of a pair whose impulses are kept, any more contacts start from nothing each update */
+	public static final int CONTACTS_PER_PAIR=4;
+	/** The pair in each slot, the first object number in the high 32 bits and the second in the low 32 bits */
+	private long[] keys;
+	/** The normal impulse of each contact of each pair at the end of the update it was last seen, CONTACTS_PER_PAIR for each slot */
+	private double[] normalImpulses;
+	/** The impulse along the first tangent of each contact of each pair at the end of the update it was last seen */
+	private double[] tangentImpulses1;
+	/** The impulse along the second tangent of each contact of each pair at the end of the update it was last seen */
+	private double[] tangentImpulses2;
+	/** The number of contacts each pair has impulses kept for */
+	private int[] contactCounts;
+	/** The update each pair was last seen colliding in */
+	private int[] lastContact;
+	/** The update each pair was last found by the broadphase in */
+	private int[] lastSeen;
+	/** The face of the second object each pair hit the last time it was checked, -1 if it didn't hit anything */
+	private int[] lastFaces;
+	/** The transform version of the first object when each pair was last found apart, -1 if it wasn't */
+	private int[] separatedVersions1;
+	/** The transform version of the second object when each pair was last found apart */
+	private int[] separatedVersions2;
+	/** The number of updates a pair is kept for after the broadphase last found it */
+	private int maxAge=60;
+	/** The update stale pairs were last removed in */
+	private int lastEvicted=0;
+	/** The number of slots in use */
+	private int count=0;
+
+	/**
+	 * Creates an empty cache
+	 */
+	PairCache()
+	{
+		setCapacity(64);
+	}
+	/**
+	 * Finds the slot of a pair
+	 * @param objNo1 The first object of the pair
+	 * @param objNo2 The second object of the pair
+	 * @return The slot, or -1 if the pair isn't in the cache
+	 */
+	public int find(int objNo1, int objNo2)
+	{
+		long key=key(objNo1,objNo2);
+		int mask=keys.length-1;
+		for(int slot=hash(key)&mask;;slot=(slot+1)&mask)
+		{
+			if(keys[slot]==key)
+			{
+				return slot;
+			}
+			if(keys[slot]==EMPTY)
+			{
+				return -1;
+			}
+		}
+	}
+	/**
+	 * Finds the slot of a pair, adding the pair if it isn't in the cache. A new pair has no impulses, no last face and has never been seen.
+	 * @param objNo1 The first object of the pair
+	 * @param objNo2 The second object of the pair
+	 * @return The slot
+	 */
+	public int findOrAdd(int objNo1, int objNo2)
+	{
+		//Keep at least half the slots empty so searches stay short
+		if(2*(count+1)>keys.length)
+		{
+			setCapacity(2*keys.length);
+		}
+		long key=key(objNo1,objNo2);
+		int mask=keys.length-1;
+		int slot=hash(key)&mask;
+		while(keys[slot]!=EMPTY)
+		{
+			if(keys[slot]==key)
+			{
+				return slot;
+			}
+			slot=(slot+1)&mask;
+		}
+		keys[slot]=key;
+		contactCounts[slot]=0;
+		lastContact[slot]=Integer.MIN_VALUE;
+		lastSeen[slot]=Integer.MIN_VALUE;
+		lastFaces[slot]=-1;
+		separatedVersions1[slot]=-1;
+		separatedVersions2[slot]=-1;
+		count++;
+		return slot;
+	}
+	/**
+	 * Makes enough slots for a number of pairs, so adding that many pairs with findOrAdd won't move the pairs to new slots.
+	 * Called before finding the slots of a whole update's pairs, as slots found before the cache grows are no longer valid.
+	 * @param pairCount The number of pairs the cache needs room for
+	 */
+	public void ensureCapacity(int pairCount)
+	{
+		int capacity=keys.length;
+		//Same limit as findOrAdd, at least half the slots empty
+		while(2*pairCount>capacity)
+		{
+			capacity*=2;
+		}
+		if(capacity!=keys.length)
+		{
+			setCapacity(capacity);
+		}
+	}
+	/**
+	 * Sets the impulses of each contact of a pair at the end of an update, up to CONTACTS_PER_PAIR of them.
+	 * Contacts are matched up by their position in the manifold next update.
+	 * @param slot The slot of the pair
+	 * @param inpManifold The solved contacts of the pair
+	 * @param step The update the pair was seen colliding in
+	 */
+	public void setImpulses(int slot, ContactManifold inpManifold, int step)
+	{
+		int kept=Math.min(inpManifold.size(), CONTACTS_PER_PAIR);
+		for(int c=0; c<kept; c++)
+		{
+			Contact contact=inpManifold.get(c);
+			normalImpulses[slot*CONTACTS_PER_PAIR+c]=contact.normalImpulse;
+			tangentImpulses1[slot*CONTACTS_PER_PAIR+c]=contact.tangentImpulse1;
+			tangentImpulses2[slot*CONTACTS_PER_PAIR+c]=contact.tangentImpulse2;
+		}
+		contactCounts[slot]=kept;
+		lastContact[slot]=step;
+	}
+	/**
+	 * Marks a pair as found by the broadphase, so it isn't removed as stale
+	 * @param slot The slot of the pair
+	 * @param step The update the pair was found in
+	 */
+	public void touch(int slot, int step)
+	{
+		lastSeen[slot]=step;
+	}
+	/**
+	 * Sets the face of the second object a pair hit, a hit also means the pair isn't apart any more
+	 * @param slot The slot of the pair
+	 * @param face The face that was hit, -1 if nothing was hit
+	 */
+	public void setLastFace(int slot, int face)
+	{
+		lastFaces[slot]=face;
+		separatedVersions1[slot]=-1;
+		separatedVersions2[slot]=-1;
+	}
+	/**
+	 * Gets the face of the second object a pair hit the last time it was checked
+	 * @param slot The slot of the pair
+	 * @return The face, -1 if the pair didn't hit anything
+	 */
+	public int getLastFace(int slot)
+	{
+		return lastFaces[slot];
+	}
+	/**
+	 * Records that a pair was found apart, along with the transform versions of the objects when it was
+	 * @param slot The slot of the pair
+	 * @param version1 The transform version of the first object
+	 * @param version2 The transform version of the second object
+	 */
+	public void setSeparated(int slot, int version1, int version2)
+	{
+		lastFaces[slot]=-1;
+		separatedVersions1[slot]=version1;
+		separatedVersions2[slot]=version2;
+	}
+	/**
+	 * Gets if a pair was found apart and neither object has moved since, so checking it again would find the same
+	 * @param slot The slot of the pair
+	 * @param version1 The current transform version of the first object
+	 * @param version2 The current transform version of the second object
+	 * @return True if the pair is still apart, False if it needs checking
+	 */
+	public boolean isSeparated(int slot, int version1, int version2)
+	{
+		return separatedVersions1[slot]==version1&&separatedVersions2[slot]==version2;
+	}
+	/**
+	 * Gets the normal impulse of a contact of a pair
+	 * @param slot The slot of the pair
+	 * @param index The position of the contact in the pair's manifold
+	 * @return The normal impulse, 0 if none was kept for the contact
+	 */
+	public double getNormalImpulse(int slot, int index)
+	{
+		return index<contactCounts[slot] ? normalImpulses[slot*CONTACTS_PER_PAIR+index] : 0;
+	}
+	/**
+	 * Gets the impulse along the first tangent of a contact of a pair
+	 * @param slot The slot of the pair
+	 * @param index The position of the contact in the pair's manifold
+	 * @return The impulse, 0 if none was kept for the contact
+	 */
+	public double getTangentImpulse1(int slot, int index)
+	{
+		return index<contactCounts[slot] ? tangentImpulses1[slot*CONTACTS_PER_PAIR+index] : 0;
+	}
+	/**
+	 * Gets the impulse along the second tangent of a contact of a pair
+	 * @param slot The slot of the pair
+	 * @param index The position of the contact in the pair's manifold
+	 * @return The impulse, 0 if none was kept for the contact
+	 */
+	public double getTangentImpulse2(int slot, int index)
+	{
+		return index<contactCounts[slot] ? tangentImpulses2[slot*CONTACTS_PER_PAIR+index] : 0;
+	}
+	/**
+	 * Gets the update a pair was last seen colliding in
+	 * @param slot The slot of the pair
+	 * @return The update number
+	 */
+	public int getLastContact(int slot)
+	{
+		return lastContact[slot];
+	}
+	/**
+	 * Removes the pairs the broadphase hasn't found for more than the max age. Only goes through the cache once every
+	 * max age updates, so it can be called every update and a pair is never kept for more than twice the max age.
+	 * Moves the pairs left to new slots, so slots found before are no longer valid.
+	 * @param step The current update
+	 */
+	public void evict(int step)
+	{
+		if(step-lastEvicted<maxAge)
+		{
+			return;
+		}
+		lastEvicted=step;
+		rebuild(keys.length,step-maxAge);
+	}
+	/**
+	 * Removes every pair, used when the objects change so the object numbers mean different objects
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, EMPTY);
+		count=0;
+	}
+	/**
+	 * Sets the number of updates a pair is kept for after the broadphase last found it
+	 * @param inpMaxAge The number of updates
+	 */
+	public void setMaxAge(int inpMaxAge)
+	{
+		maxAge=inpMaxAge;
+	}
+	/**
+	 * Gets the number of pairs in the cache
+	 * @return The number of pairs
+	 */
+	public int size()
+	{
+		return count;
+	}
+	/**
+	 * Combines the object numbers of a pair into one key
+	 * @param objNo1 The first object of the pair
+	 * @param objNo2 The second object of the pair
+	 * @return The key
+	 */
+	private static long key(int objNo1, int objNo2)
+	{
+		return ((long)objNo1<<32)|(objNo2&0xffffffffL);
+	}
+	/**
+	 * Mixes the bits of a key so pairs of nearby object numbers spread out over the slots
+	 * @param key The key
+	 * @return The hash
+	 */
+	private static int hash(long key)
+	{
+		long h=key*0x9E3779B97F4A7C15L;
+		return (int)(h^(h>>>32));
+	}
+	/**
+	 * Changes the number of slots, putting the pairs already in the cache in their new slots
+	 * @param capacity The new number of slots, a power of 2
+	 */
+	private void setCapacity(int capacity)
+	{
+		rebuild(capacity,Integer.MIN_VALUE);
+	}
+	/**
+	 * Makes new slots and puts the pairs already in the cache that are recent enough in them
+	 * @param capacity The number of slots, a power of 2
+	 * @param oldestKept The update a pair must have been found by the broadphase in or after to be kept
+	 */
+	private void rebuild(int capacity, int oldestKept)
+	{
+		long[] oldKeys=keys;
+		double[] oldNormals=normalImpulses;
+		double[] oldTangents1=tangentImpulses1;
+		double[] oldTangents2=tangentImpulses2;
+		int[] oldContactCounts=contactCounts;
+		int[] oldLastContact=lastContact;
+		int[] oldLastSeen=lastSeen;
+		int[] oldLastFaces=lastFaces;
+		int[] oldSeparated1=separatedVersions1;
+		int[] oldSeparated2=separatedVersions2;
+		keys=new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		normalImpulses=new double[capacity*CONTACTS_PER_PAIR];
+		tangentImpulses1=new double[capacity*CONTACTS_PER_PAIR];
+		tangentImpulses2=new double[capacity*CONTACTS_PER_PAIR];
+		contactCounts=new int[capacity];
+		lastContact=new int[capacity];
+		lastSeen=new int[capacity];
+		lastFaces=new int[capacity];
+		separatedVersions1=new int[capacity];
+		separatedVersions2=new int[capacity];
+		count=0;
+		if(oldKeys==null)
+		{
+			return;
+		}
+		int mask=capacity-1;
+		for(int i=0; i<oldKeys.length; i++)
+		{
+			if(oldKeys[i]==EMPTY||oldLastSeen[i]<oldestKept)
+			{
+				continue;
+			}
+			int slot=hash(oldKeys[i])&mask;
+			while(keys[slot]!=EMPTY)
+			{
+				slot=(slot+1)&mask;
+			}
+			keys[slot]=oldKeys[i];
+			System.arraycopy(oldNormals, i*CONTACTS_PER_PAIR, normalImpulses, slot*CONTACTS_PER_PAIR, CONTACTS_PER_PAIR);
+			System.arraycopy(oldTangents1, i*CONTACTS_PER_PAIR, tangentImpulses1, slot*CONTACTS_PER_PAIR, CONTACTS_PER_PAIR);
+			System.arraycopy(oldTangents2, i*CONTACTS_PER_PAIR, tangentImpulses2, slot*CONTACTS_PER_PAIR, CONTACTS_PER_PAIR);
+			contactCounts[slot]=oldContactCounts[i];
+			lastContact[slot]=oldLastContact[i];
+			lastSeen[slot]=oldLastSeen[i];
+			lastFaces[slot]=oldLastFaces[i];
+			separatedVersions1[slot]=oldSeparated1[i];
+			separatedVersions2[slot]=oldSeparated2[i];
+			count++;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * A growable list of object pairs stored in primitive arrays, used by the broadphases.
+ * Only grows when it runs out of space so it doesn't create garbage each update.
+ * @author Sam Dark
+ *
+ */
+public class PairList
+{
+	/** The pairs, stored as (first object, second object) one after the other */
+	private int[] pairs= new int[64];
+	/** The pairs packed into longs for sorting, first object in the upper 32 bits */
+	private long[] keys= new long[32];
+	/** The number of pairs in the list */
+	private int count=0;
+
+	/**
+	 * Empties the list
+	 */
+	public void clear()
+	{
+		count=0;
+	}
+	/**
+	 * Adds a pair to the list, the smaller index is always stored first
+	 * @param a One object in the pair
+	 * @param b The other object in the pair
+	 */
+	public void add(int a, int b)
+	{
+		if(count==keys.length)
+		{
+			keys=Arrays.copyOf(keys, keys.length*2);
+			pairs=Arrays.copyOf(pairs, keys.length*2);
+		}
+		int first=Math.min(a,b);
+		int second=Math.max(a,b);
+		keys[count]=((long)first<<32)|second;
+		count++;
+	}
+	/**
+	 * Sorts the pairs by first object then second object so they are always resolved in the same order.
+	 * Call after adding all the pairs and before getPairs.
+	 */
+	public void sort()
+	{
+		Arrays.sort(keys,0,count);
+		for(int k=0;k<count;k++)
+		{
+			pairs[2*k]=(int)(keys[k]>>>32);
+			pairs[2*k+1]=(int)keys[k];
+		}
+	}
+	/**
+	 * Gets the sorted pairs. Pair k is (pairs[2*k], pairs[2*k+1])
+	 * @return The array of pairs, only the first 2*size() values are valid
+	 */
+	public int[] getPairs()
+	{
+		return pairs;
+	}
+	/**
+	 * Gets the number of pairs in the list
+	 * @return The number of pairs
+	 */
+	public int size()
+	{
+		return count;
+	}
+}
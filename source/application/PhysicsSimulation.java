@@ -7,13 +7,10 @@ import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-
-import org.ejml.alg.dense.mult.VectorVectorMult;
-import org.ejml.data.D1Matrix64F;
-import org.ejml.data.DenseMatrix64F;
-import org.ejml.ops.CommonOps;
-import org.ejml.simple.SimpleBase;
-import org.ejml.simple.SimpleMatrix;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A class for running a physics simulation on a set of objects given certain starting parameters. 
@@ -24,28 +21,68 @@ import org.ejml.simple.SimpleMatrix;
 public class PhysicsSimulation extends Thread
 {
 	/** The renderer for displaying to the screen */
-	protected Renderer render;//Renderer for displaying the physics
+	protected FrameSink render;//Renderer for displaying the physics
 	/** The high poly objects given to the renderer */
 	protected ArrayList<CustomObject> objects=null;//The objects displayed on the renderer
 	/** The time the last physics update happened (in ms) */
 	protected long lastUpdate=0;//The time the last update happened (in ms)
 	/** The time since the simulations per second text was last updated (in ms) */
 	protected long timeSinceLastSimDisplay=0;//The time since the simulation time text was displayed on screen (in ms)
+	/** The length of each fixed time step (in ms), 0 to use the time since the last update instead */
+	protected double fixedStep=0;//Fixed time step (in ms)
+	/** The most fixed steps simulated in one update, if the simulation falls further behind than this the extra time is dropped */
+	protected int maxSubsteps=8;//Most fixed steps per update
+	/** The time the last fixed step update happened (in ns) */
+	protected long lastUpdateNanos=0;
+	/** The time that has passed but hasn't been simulated yet (in ns) */
+	protected long accumulator=0;
+	
 	
+	//Storage used for collision detection
+	/** Used for collision detection, one for each thread checking collisions, here for garbage collection reasons */
+	private ThreadLocal<CollisionScratch> scratch=new ThreadLocal<CollisionScratch>()
+	{
+		@Override
+		protected CollisionScratch initialValue()
+		{
+			return new CollisionScratch();
+		}
+	};
+	/** The threads the collision pairs are checked on */
+	protected ForkJoinPool narrowphasePool=null;
+	/** The contacts found for each collision pair, in the same order as the pairs */
+	private ContactBuffer contacts=new ContactBuffer();
+	/** Works out the velocities of the objects after their collisions */
+	protected ContactSolver solver=new ContactSolver();
+	/** What was found for each pair last time it was checked, kept from one update to the next so checks can start from it */
+	protected PairCache pairCache=new PairCache();
+	/** The slot in the pair cache of each collision pair, in the same order as the pairs */
+	private int[] pairSlots=new int[0];
+	/** The box of the object getAABB is working on {minX,minY,minZ,maxX,maxY,maxZ} */
+	private double[] bounds=new double[6];
+	/** The number of updates simulated so far */
+	private int stepCount=0;
+	/** Fewer pairs than this are checked on the simulation thread as splitting them up would take longer than checking them */
+	private static final int PARALLEL_PAIRS=32;
+	/** The most pairs checked by one task before it splits in two */
+	private static final int PAIRS_PER_TASK=8;
+	/** Kernels for testing rays against batches of faces in the narrowphase, SIMD if available */
+	private static final RayTriangleKernels RAY_KERNELS=RayTriangleKernels.create();
+	/** Kernels for moving whole meshes of vertices into another object's space in the narrowphase, SIMD if available */
+	private static final VertexKernels VERTEX_KERNELS=VertexKernels.create();
+	/** Union find parent of each object, used for building islands */
+	private int[] islandParents=new int[0];
+	/** The island each island root object is in, -1 if none yet */
+	private int[] islandNos=new int[0];
+	/** The collision pairs in each island, objects in different islands can't affect each other so islands are resolved at the same time */
+	private ArrayList<IntList> islands=new ArrayList<IntList>();
+	/** The number of islands this update */
+	private int islandCount=0;
 	
-	//Matrices used for collision detection
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F ab;
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F ac;
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F n;
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F qp;
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F ap;
-	/** Used for collision detection, here for garbage collection reasons */
-	protected DenseMatrix64F e;
+	/** The physics state of all the objects, in the same order as the objects */
+	protected BodyStore bodies=new BodyStore(1);
+	/** Are orientations stored as quaternions while simulating, the x,y,z axis rotations are then only used for loading and saving */
+	protected boolean quaternions=false;//Quaternion orientations
 	
 	/** The global gravity of the simulation */
 	protected double gravity=-9;//Global gravity (negative is towards ground)
@@ -55,6 +92,32 @@ public class PhysicsSimulation extends Thread
 	protected ArrayList<AABB> AABBs= new ArrayList<AABB>();//Bounding boxes for the objects
 	/** How many times the collisions are resolved each update */
 	protected int colResolves=1;//How many times collisions are resolved per update
+	/** The number of updates in a row an object has to be resting before it sleeps, 0 to never sleep */
+	protected int sleepSteps=30;//Updates before a resting object sleeps
+	/** The fastest an object can be moving and still be resting */
+	protected double sleepSpeed=0.1;//Resting speed
+	/** The fastest an object can be rotating and still be resting */
+	protected double sleepRotationSpeed=1;//Resting rotation speed
+	/** How far a low poly mesh can be from a simple shape for the shape to be used automatically, as a fraction of its size */
+	protected double colliderTolerance=0.1;//Collider fitting tolerance
+	/** The shapes fitted to each low poly mesh file, so objects using the same mesh share one shape and its hull is only worked out once */
+	private HashMap<String,Collider> colliders=new HashMap<String,Collider>();
+	/** The number of cells along the longest side of a mesh in the distance fields of "sdf" objects */
+	protected int distanceFieldCells=128;//Distance field resolution
+	/** The distance fields of each low poly mesh file, so objects using the same mesh share one and it is only read or worked out once */
+	private HashMap<String,DistanceField> distanceFields=new HashMap<String,DistanceField>();
+	/** Finds the pairs of moving objects with overlapping AABBs each update */
+	protected Broadphase broadphase=new SweepAndPrune();//Broadphase collision detection
+	/** The collision information of the objects that can't move, only worked out once */
+	protected StaticWorld staticWorld=new StaticWorld();//Objects that can't move
+	/** The pairs of objects that could be colliding this update */
+	protected PairList collisionPairs=new PairList();
+	/** The AABBs of the objects that can move, passed to the broadphase */
+	private ArrayList<AABB> dynamicAABBs=new ArrayList<AABB>();
+	/** The objects that can move, passed to the broadphase */
+	private ArrayList<CustomObject> dynamicObjects=new ArrayList<CustomObject>();
+	/** The object number of each object that can move */
+	private IntList dynamicNos=new IntList();
 	
 	/** For logging sim time for benchmarking */
 	protected ArrayList<Long> times= new ArrayList<Long>();
@@ -118,25 +181,79 @@ public class PhysicsSimulation extends Thread
 	
 	/**
 	 * Initialises the physics simulation with some input initial values.
-	 * @param inpRend The renderer to output to
+	 * @param inpRend The renderer (or other frame sink) to output to
 	 * @param inpObjs The objects to simulate
 	 * @param inpConf The config to run containing information about the global values and object starting values
 	 */
-	public void init(Renderer inpRend, ArrayList<CustomObject> inpObjs, Config inpConf)
+	public void init(FrameSink inpRend, ArrayList<CustomObject> inpObjs, Config inpConf)
 	{
 		render=inpRend;
 		objects=new ArrayList<CustomObject>();
 		objects=inpObjs;
 		lastUpdate=System.currentTimeMillis();
+		lastUpdateNanos=System.nanoTime();
+		accumulator=0;
+		fixedStep=inpConf.timestep;
+		maxSubsteps=Math.max(1,inpConf.maxSubsteps);
 		gravity=inpConf.grav;
 		elas=inpConf.elas;
+		broadphase=createBroadphase(inpConf.broadphase);
+		sleepSteps=inpConf.sleepSteps;
+		quaternions=inpConf.orientation.equals("quaternion");
+		colliderTolerance=inpConf.colliderTolerance;
+		distanceFieldCells=inpConf.distanceFieldCells;
+		colResolves=Math.max(1,inpConf.colResolves);
+		solver.setIterations(inpConf.solverIterations);
+		solver.setTolerance(inpConf.solverTolerance);
+		solver.setFriction(inpConf.friction);
+		solver.setElasticity(elas);
+		//Contacts that leave an object slow enough to rest don't wake it, the same as touching a resting object doesn't
+		solver.setWakeSpeed(sleepSpeed);
+		if(narrowphasePool!=null)
+		{
+			//Let the threads from the last init finish and stop instead of leaving them waiting forever
+			narrowphasePool.shutdown();
+		}
+		narrowphasePool=createNarrowphasePool(inpConf.threads);
 		initObjects(inpConf.objs);
-		ab=new DenseMatrix64F(3,1,true,0,0,0);
-		ac=new DenseMatrix64F(3,1,true,0,0,0);
-		n=new DenseMatrix64F();
-		qp= new DenseMatrix64F(3,1,true,0,0,0);
-		ap= new DenseMatrix64F(3,1,true,0,0,0);
-		e=new DenseMatrix64F();
+	}
+	/**
+	 * Creates the threads the collision pairs are checked on
+	 * @param threads The number of threads, 0 or less for one per processor
+	 * @return The pool of threads
+	 */
+	protected ForkJoinPool createNarrowphasePool(int threads)
+	{
+		if(threads<=0)
+		{
+			threads=Runtime.getRuntime().availableProcessors();
+		}
+		return new ForkJoinPool(threads);
+	}
+	/**
+	 * Creates the broadphase with the given name
+	 * @param name The name of the broadphase, "sap" for sweep and prune, "grid" for a uniform grid or "tree" for a dynamic AABB tree
+	 * @return The broadphase, sweep and prune if the name isn't recognised
+	 */
+	protected Broadphase createBroadphase(String name)
+	{
+		if(name.equals("grid"))
+		{
+			return new SpatialHashGrid();
+		}
+		if(name.equals("tree"))
+		{
+			return new DynamicAABBTree();
+		}
+		return new SweepAndPrune();
+	}
+	/**
+	 * Sets the broadphase used to find the pairs of objects that could be colliding
+	 * @param inpBroadphase The broadphase to use
+	 */
+	public void setBroadphase(Broadphase inpBroadphase)
+	{
+		broadphase=inpBroadphase;
 	}
 	/**
 	 * Initialises the objects in the simulation using values passes. 
@@ -164,6 +281,32 @@ public class PhysicsSimulation extends Thread
 			objects.get(i).setGravity(initObjs.get(i).gravity);
 			//Set the initial velocity of the objects
 			objects.get(i).setVel(initObjs.get(i).velocity);
+			//Remember the shape the config asks for so saving the config keeps it
+			objects.get(i).setColliderName(initObjs.get(i).collider);
+			//Fit a simple shape to the object if it has one, once for each mesh
+			String colliderKey=initObjs.get(i).LPFilePath+" "+initObjs.get(i).collider;
+			if(!colliders.containsKey(colliderKey))
+			{
+				colliders.put(colliderKey,Collider.fit(initObjs.get(i).collider,objects.get(i).getLPVertices(),objects.get(i).getLPFaces(),colliderTolerance));
+			}
+			objects.get(i).setCollider(colliders.get(colliderKey));
+			//Objects that can't move can check against a grid of distances from their mesh instead of its faces
+			if(initObjs.get(i).collider.equals("sdf"))
+			{
+				if(initObjs.get(i).canMove)
+				{
+					System.out.println("Distance fields are only used for objects that can't move, object "+i+" will use its mesh");
+				}
+				else
+				{
+					if(!distanceFields.containsKey(initObjs.get(i).LPFilePath))
+					{
+						distanceFields.put(initObjs.get(i).LPFilePath,DistanceField.load(initObjs.get(i).LPFilePath,objects.get(i).getLPLocalMesh(),
+								objects.get(i).getLPFaceHierarchy(),distanceFieldCells));
+					}
+					objects.get(i).setDistanceField(distanceFields.get(initObjs.get(i).LPFilePath));
+				}
+			}
 			//If object is effected by gravity
 			if(objects.get(i).getGravity())
 			{
@@ -202,16 +345,26 @@ public class PhysicsSimulation extends Thread
 	}
 	/**
 	 * Updates the simulation based on the time since the last update. 
-	 * Updates the position, velocity etc of all the objects, detects and resolves collisions and then sends the updated objects to the renderer.
+	 * If there is a fixed time step it simulates as many fixed steps as have passed, otherwise it simulates one step of the time since the last update.
 	 */
 	private void update()
 	{
-		
+		if(fixedStep>0)
+		{
+			updateFixed();
+			return;
+		}
 		long time=(System.currentTimeMillis()-lastUpdate);//The time since the last update, how long we will be simulating this update. Also known as time step
 		long maxTime=16;//The maximum time an update can simulate. Prevents the engine not being able to update as fast as it needs. Will cause slow motion effect if physics takes longer than this to update.
 		//Note: 16ms is approximately the time the update has to update once per frame at 60fps
 		//If time is more than max time update the max time instead.
 		time=Math.min(time,maxTime);
+		//No time has passed so there is nothing to simulate, wait a moment instead of doing a collision pass that can't move anything
+		if(time<=0)
+		{
+			LockSupport.parkNanos(100000);
+			return;
+		}
 		
 		//Every 500ms update the physics update time display on the screen
 		timeSinceLastSimDisplay+=time;
@@ -224,32 +377,117 @@ public class PhysicsSimulation extends Thread
 		}
 		lastUpdate=System.currentTimeMillis();//The last update is now as we are updating
 		
+		step(time);
+	}
+	/**
+	 * Updates the simulation in fixed time steps. Adds the time since the last update (measured in ns) to the accumulator
+	 * then simulates fixed steps until the accumulator has less than one step left, so the same config always gives the same result.
+	 * At most maxSubsteps steps are simulated each update, if the simulation can't keep up the extra time is dropped.
+	 */
+	private void updateFixed()
+	{
+		long now=System.nanoTime();
+		long stepNanos=(long)(fixedStep*1000000);
+		accumulator+=now-lastUpdateNanos;
+		lastUpdateNanos=now;
+		//Don't let the simulation fall further and further behind if steps take longer than they simulate
+		accumulator=Math.min(accumulator,maxSubsteps*stepNanos);
+		//Not time for a step yet, wait until it is instead of doing a collision pass that can't move anything
+		if(accumulator<stepNanos)
+		{
+			LockSupport.parkNanos(stepNanos-accumulator);
+			return;
+		}
+		int steps=0;
+		while(accumulator>=stepNanos)
+		{
+			step(fixedStep);
+			accumulator-=stepNanos;
+			steps++;
+		}
+		//Every 500ms update the physics update time display on the screen
+		long frameTime=Math.round(steps*fixedStep);
+		timeSinceLastSimDisplay+=frameTime;
+		if(timeSinceLastSimDisplay>500)
+		{
+			render.setStringForDisplay("Simulating:"+steps+"x"+fixedStep+"ms steps   "+"Which is: "+Math.round(1000/fixedStep)+" steps per second");
+			timeSinceLastSimDisplay=0;
+			takeSimTimeLog(frameTime);
+		}
+	}
+	/**
+	 * Simulates a number of time steps one after the other as fast as possible, without waiting for real time to pass.
+	 * Used for running simulations without a display.
+	 * @param steps The number of steps
+	 * @param time The length of each step (in ms)
+	 */
+	public void runSteps(int steps, double time)
+	{
+		for(int i=0; i<steps&&render.getClosing()==false;i++)
+		{
+			step(time);
+		}
+	}
+	/**
+	 * Simulates one time step.
+	 * Updates the position, velocity etc of all the objects, detects and resolves collisions and then sends the updated objects to the renderer.
+	 * @param time The length of the step (in ms)
+	 */
+	private void step(double time)
+	{
+		stepCount++;
 		//Update the objects by the time step
 		updateObjects(time);
 		
-		//Create axis aligned bounding boxes for collision detection
-		AABBs=new ArrayList<AABB>();
-		for(int j=0; j<objects.size();j++)
+		//Objects that can't move never change so the static world only needs building again if objects are added or removed
+		if(staticWorld.needsRebuild(objects))
 		{
-			CustomObject temp=objects.get(j);
-			AABB tempAABB=getAABB(temp);
-			AABBs.add(tempAABB);
+			staticWorld.build(objects);
+			//Object numbers may now be different objects so nothing remembered about pairs can be trusted
+			pairCache.clear();
 		}
-		
-		//Resolve collisions "colResolves" number of times, more resolutions can help with stacking
-		int x=0;
-		while(x<colResolves)
+		//Create axis aligned bounding boxes for collision detection, objects that can't move use the ones from the static world
+		//and sleeping objects haven't moved so they use the ones from last update
+		ArrayList<AABB> prevAABBs=AABBs;
+		AABBs=new ArrayList<AABB>();
+		dynamicAABBs.clear();
+		dynamicObjects.clear();
+		dynamicNos.clear();
+		for(int j=0; j<objects.size();j++)
 		{
-			//If there was a collision keep resolving
-			if(checkAABBCollisions(AABBs,time))
+			if(staticWorld.isStatic(j))
 			{
-				
-				x++;
+				AABBs.add(staticWorld.getAABB(j));
 			}
-			//Otherwise stop resolving collisions
 			else
 			{
-				x=colResolves+1;
+				CustomObject temp=objects.get(j);
+				AABB tempAABB;
+				if(temp.isAsleep()&&j<prevAABBs.size())
+				{
+					tempAABB=prevAABBs.get(j);
+				}
+				else
+				{
+					tempAABB=getAABB(temp);
+				}
+				AABBs.add(tempAABB);
+				dynamicAABBs.add(tempAABB);
+				dynamicObjects.add(temp);
+				dynamicNos.add(j);
+			}
+		}
+		//Find the objects with overlapping AABBs, these are the only ones that can be colliding
+		findCollisionPairs();
+		
+		//Resolve collisions up to "colResolves" number of times, more resolutions can help with stacking
+		checkAABBCollisions(AABBs,time);
+		//Put objects that have been resting for long enough to sleep
+		if(sleepSteps>0)
+		{
+			for(int j=0; j<dynamicObjects.size();j++)
+			{
+				dynamicObjects.get(j).updateSleep(sleepSpeed,sleepRotationSpeed,sleepSteps);
 			}
 		}
 		//Pass the updated objects to the renderer
@@ -257,199 +495,395 @@ public class PhysicsSimulation extends Thread
 		
 	}
 	/**
-	 * Checks collisions between axis aligned bounding boxes and moves on to the
-	 * next stage of the collision detection if AABBs are colliding.
-	 * @param inpAABBs The AABBs to check collisions between.
+	 * Finds the pairs of objects with overlapping AABBs. The moving objects are paired up by the broadphase
+	 * and then each one searches the static world for objects that can't move that it overlaps.
+	 */
+	private void findCollisionPairs()
+	{
+		collisionPairs.clear();
+		int count=broadphase.findPairs(dynamicAABBs,dynamicObjects);
+		int[] pairs=broadphase.getPairs();
+		//The broadphase only knows the moving objects so change its pairs back to object numbers
+		for(int k=0; k<count;k++)
+		{
+			CustomObject obj1=dynamicObjects.get(pairs[2*k]);
+			CustomObject obj2=dynamicObjects.get(pairs[2*k+1]);
+			//Something moving is touching a sleeping object so wake it up. Resting objects don't, or a group of touching
+			//objects that rest at slightly different times would keep waking each other and never all be asleep
+			if(obj1.isAsleep()!=obj2.isAsleep()&&!obj1.isResting()&&!obj2.isResting())
+			{
+				obj1.wake();
+				obj2.wake();
+			}
+			collisionPairs.add(dynamicNos.get(pairs[2*k]),dynamicNos.get(pairs[2*k+1]));
+		}
+		//Sleeping objects don't need checking against objects that can't move as neither of them is moving
+		for(int k=0; k<dynamicNos.size();k++)
+		{
+			if(!dynamicObjects.get(k).isAsleep())
+			{
+				staticWorld.findPairs(dynamicNos.get(k),dynamicAABBs.get(k),collisionPairs);
+			}
+		}
+		//Sort the pairs so they are always resolved in the same order
+		collisionPairs.sort();
+	}
+	/**
+	 * Goes through the pairs of objects found with overlapping AABBs and moves on to the
+	 * next stage of the collision detection for each of them.
+	 * All the pairs are checked first, at the same time on the narrowphase threads if there are enough of them.
+	 * Then the pairs are split into islands of objects that are touching and each island is resolved on its own,
+	 * at the same time as the other islands. Each island's collisions are resolved in pair order so the result is always the same.
+	 * @param inpAABBs The AABBs of the objects, used to check for collisions.
 	 * @param time The time step for this update, used to resolve collisions later.
 	 * @return True if there were any collisions False if there were no collisions.
 	 */
 	private boolean checkAABBCollisions(ArrayList<AABB> inpAABBs, double time)
 	{
+		int pairCount=collisionPairs.size();
+		contacts.ensureCapacity(pairCount);
+		//Find the pairs in the pair cache now, so the checks only change the slots of their own pairs
+		pairCache.evict(stepCount);
+		//Grow the cache before finding any slots, growing it part way through would move the pairs already found
+		pairCache.ensureCapacity(pairCache.size()+pairCount);
+		if(pairSlots.length<pairCount)
+		{
+			pairSlots=new int[Math.max(pairCount, 2*pairSlots.length)];
+		}
+		int[] pairs=collisionPairs.getPairs();
+		for(int k=0; k<pairCount;k++)
+		{
+			pairSlots[k]=pairCache.findOrAdd(pairs[2*k],pairs[2*k+1]);
+			pairCache.touch(pairSlots[k],stepCount);
+		}
+		//Work out the face neighbours and actual vertices of the objects now so the checks only read them
+		prepareMeshPairs();
+		//Check every pair for a collision
+		NarrowphaseTask task=new NarrowphaseTask(inpAABBs,time,0,pairCount);
+		if(pairCount<PARALLEL_PAIRS||narrowphasePool==null)
+		{
+			task.compute();
+		}
+		else
+		{
+			narrowphasePool.invoke(task);
+		}
 		boolean hasCollided=false;//No collisions yet
-		//Check all the objects for collisions
-		for(int i=0; i<inpAABBs.size();i++)
+		for(int k=0; k<pairCount;k++)
+		{
+			if(contacts.get(k).isColliding())
+			{
+				hasCollided=true;//There has been a collision
+				break;
+			}
+		}
+		if(hasCollided==false)
+		{
+			return false;
+		}
+		//Resolve each island
+		buildIslands();
+		IslandTask islandTask=new IslandTask(inpAABBs,time,0,islandCount);
+		if(islandCount<2||narrowphasePool==null)
+		{
+			islandTask.compute();
+		}
+		else
+		{
+			narrowphasePool.invoke(islandTask);
+		}
+		//Remember the impulses the colliding pairs needed for warm starting next update
+		for(int k=0; k<pairCount;k++)
+		{
+			ContactManifold manifold=contacts.get(k);
+			if(manifold.isColliding())
+			{
+				pairCache.setImpulses(pairSlots[k],manifold,stepCount);
+			}
+		}
+		return true;
+	}
+	/**
+	 * Splits the collision pairs into islands. Moving objects in the same pair are joined together (union find)
+	 * and each pair goes in the island of its moving objects. Objects that can't move aren't joined as they don't
+	 * pass movement from one object to another, so a floor doesn't put everything on it into one island.
+	 * Islands and the pairs in them are in pair order so the result is always the same.
+	 */
+	private void buildIslands()
+	{
+		int objectCount=objects.size();
+		if(islandParents.length<objectCount)
+		{
+			islandParents=new int[objectCount];
+			islandNos=new int[objectCount];
+		}
+		for(int i=0; i<objectCount;i++)
 		{
-			for(int j=0; j<inpAABBs.size();j++)
+			islandParents[i]=i;
+			islandNos[i]=-1;
+		}
+		int[] pairs=collisionPairs.getPairs();
+		for(int k=0; k<collisionPairs.size();k++)
+		{
+			int i=pairs[2*k];
+			int j=pairs[2*k+1];
+			if(!staticWorld.isStatic(i)&&!staticWorld.isStatic(j))
 			{
-				//Don't check for collisions with objects that have already been done or with themselves
-				//Example: check object1 and object2 then don't check object2 and object1 as it has already been checked
-				if(j>i)
+				int rootI=findIslandRoot(i);
+				int rootJ=findIslandRoot(j);
+				//Join the smaller root to the bigger one so the result doesn't depend on anything but the pairs
+				if(rootI<rootJ)
 				{
-					if(objects.get(i).canMove()==false && objects.get(j).canMove()==false)
-					{
-						//Don't check or resolve for collisions between objects that don't move
-					}
-					else
-					{
-						//Check if the bounding boxes are colliding either way around
-						if(checkAABB(inpAABBs.get(i),inpAABBs.get(j))||checkAABB(inpAABBs.get(j),inpAABBs.get(i)))
-						{
-							resolveCollision(inpAABBs,time,i,j);//Resolve the collision between the objects
-							hasCollided=true;//There has been a collision
-						}
-					}
+					islandParents[rootJ]=rootI;
+				}
+				else if(rootJ<rootI)
+				{
+					islandParents[rootI]=rootJ;
 				}
 			}
 		}
-		return hasCollided;
-	}
-	/**
-	 * Resolves a collision between two objects that have intersecting AABBs and updates them if a full collision is present
-	 * @param inpAABBs The list of AABBs, used for reducing number of points to test for collisions
-	 * @param time The time step for this update, used for resolving the collisions
-	 * @param i The first object to test
-	 * @param j The second object to test
-	 */
-	private void resolveCollision(ArrayList<AABB> inpAABBs, double time, int i, int j)
-	{
-		//Check if an actual collision happened
-		double[] results=checkCollision(objects.get(i), objects.get(j),time,inpAABBs.get(i),inpAABBs.get(j));
-		//If the objects are colliding deal with the collisions
-		if(results[0]!=-1)
-		{
-			boolean angled=false;
-			//Undo the movement of both objects
-			objects.get(i).undoPosRot();
-			objects.get(j).undoPosRot();
-			//Move them to the point of collision (results[1] is the collision time)
-			objects.get(i).postCollisionMove(results[1]);
-			objects.get(j).postCollisionMove(results[1]);
-			//Get the impulse for each object
-			Position faceNormal=faceNormal(objects.get(j),(int)results[2]);
-			ArrayList<Position> newVels=getImpulses(objects.get(i).getVel(), objects.get(j).getVel(), faceNormal, objects.get(i).getInverseMass(),objects.get(j).getInverseMass());
-			Position newVeli=newVels.get(0);
-			Position newVelj=newVels.get(1);
-			//Get the new velocities for the objects
-			newVeli=new Position(objects.get(i).getVel().getX()/1.5+newVeli.getX(),objects.get(i).getVel().getY()/1.5+newVeli.getY(),objects.get(i).getVel().getZ()/1.5+newVeli.getZ());
-			newVelj=new Position(objects.get(j).getVel().getX()/1.5+newVeli.getX(),objects.get(j).getVel().getY()/1.5+newVeli.getY(),objects.get(j).getVel().getZ()/1.5+newVeli.getZ());	
-			//Apply the new velocities to the objects
-			objects.get(i).setVel(newVeli);
-			objects.get(j).setVel(newVelj);
-		}
-	}
-	/**
-	 * Gets the length of a vector
-	 * @param v The vector to get the length of
-	 * @return The length of the vector as a double
-	 */
-	private double vectorLength(Position v)
-	{
-		return Math.sqrt( (v.getX()*v.getX()) + (v.getY()*v.getY()) + (v.getZ()*v.getZ()) );
-	}
-	/**
-	 * Calculates the normal of a face and returns the vector.
-	 * @param obj The object the face to check is on
-	 * @param faceNo The face of the object to check
-	 * @return The normal of the face
-	 */
-	private Position faceNormal(CustomObject obj, int faceNo)
-	{
-		//Make sure the face given is a valid face number
-		if(faceNo<obj.getLPFaces().size())
-		{
-			//Get the positions of the 3 vertices in the face
-			Position p1= obj.getActualLPVertex(obj.getFaces().get(faceNo).getVertices().get(0)-1);
-			Position p2= obj.getActualLPVertex(obj.getFaces().get(faceNo).getVertices().get(1)-1);
-			Position p3= obj.getActualLPVertex(obj.getFaces().get(faceNo).getVertices().get(2)-1);
-			//Make 2 vectors, point2-point1 and point3-point1
-			Position u= new Position(p2.getX()-p1.getX(), p2.getY()-p1.getY(), p2.getZ()-p1.getZ());
-			Position v= new Position(p3.getX()-p1.getX(), p3.getY()-p1.getY(), p3.getZ()-p1.getZ());
-			//Calculate the normal from the two vectors
-			Position normal=new Position();
-			normal.setX((u.getY()*v.getZ())-(u.getZ()*v.getY()));
-			normal.setY((u.getZ()*v.getX())-(u.getX()*v.getZ()));
-			normal.setZ((u.getX()*v.getY())-(u.getY()*v.getX()));
-			//Normalise the normal
-			double normalLength=vectorLength(normal);
-			normal.setX(normal.getX()/normalLength);
-			normal.setY(normal.getY()/normalLength);
-			normal.setZ(normal.getZ()/normalLength);
-			return normal;
-		}
-		return new Position(0,0,0);//The face wasn't valid
-	}
-	/**
-	 * Gets the impulses to be applied to the objects in the collision
-	 * @param va The velocity of the first object
-	 * @param vb The velocity of the second object
-	 * @param n The normal of the face the collision is happening on
-	 * @param ima The inverse mass of the first object
-	 * @param imb The inverse mass of the second object
-	 * @return The impulse vectors in an ArrayList
-	 */
-	private ArrayList<Position> getImpulses(Position va, Position vb, Position n, double ima, double imb)
-	{
-		//Formulas
-		//Before resolution
-		//Vr= Va-Vb
-		//I= (1+e)*N*(Vr.N)/(1/ma+1/mb)
-		//After resolution
-		//Va -= I*1/ma
-		//Vb += I* 1/mb
-		//ima=1/ma
-		//imb=1/mb
-		
-		ArrayList<Position> impulseVectors=new ArrayList<Position>();//The ArrayList returned at the end
-		
-		DenseMatrix64F Vr = new DenseMatrix64F(3,1,true,vb.getX()-va.getX(), vb.getY()-va.getY(), vb.getZ()-va.getZ());//The relative velocity of the objects
-		DenseMatrix64F N = new DenseMatrix64F(3,1,true,n.getX(), n.getY(), n.getZ());//The face normal in matrix form
-		
-		double onePlusE= 1+elas;//Elasticity or coefficient of restitution
-		double VrdotN=VectorVectorMult.innerProd(Vr,N);//Dot product of Vr and N (Vr.N)
-		VrdotN=VrdotN/(ima+imb);//Divide by inverse mass A + inverse mass B ((Vr.N)/(1/ma+1/mb))
-		DenseMatrix64F I = new DenseMatrix64F(3,1,true,1,1,1);//Array for storing impulse
-		CommonOps.scale(VrdotN,N,I);//Scale the normal by the double we just calculated (N*(Vr.N)/(1/ma+1/mb))
-		CommonOps.scale(onePlusE,I);//Scale by (1+e) for (I= (1+e)*N*(Vr.N)/(1/ma+1/mb))
-		
-		DenseMatrix64F impulseVectMatrixA = new DenseMatrix64F(3,1,true,1,1,1);//Impulse vector for A
-		CommonOps.scale(ima, I, impulseVectMatrixA);//Times impulse by inverse mass to get the impulse for this object
-		
-		//Add to the impulse vectors list
-		Position impulseVector=new Position();
-		impulseVector.setX(impulseVectMatrixA.get(0));
-		impulseVector.setY(impulseVectMatrixA.get(1));
-		impulseVector.setZ(impulseVectMatrixA.get(2));
-		impulseVectors.add(impulseVector);
-		
-		//Change the sign for second object as they should be applied impulses in opposite directions
-		DenseMatrix64F impulseVectMatrixB = new DenseMatrix64F(3,1,true,1,1,1);
-		CommonOps.scale(imb, I, impulseVectMatrixB);//Multiply impulse by object inverse mass
-		CommonOps.changeSign(impulseVectMatrixB);//Change the sign for impulse in the other direction
-		//Add second impulse to list
-		Position impulseVectorB=new Position();
-		impulseVectorB.setX(impulseVectMatrixB.get(0));
-		impulseVectorB.setY(impulseVectMatrixB.get(1));
-		impulseVectorB.setZ(impulseVectMatrixB.get(2));
-		impulseVectors.add(impulseVectorB);
-		//Return the list
-		return impulseVectors;
-	}
-	/**
-	 * Checks if any vertices in the first AABB specified are within the second AABB
-	 * @param box1 The first AABB
-	 * @param box2 The second AABB
-	 * @return True if any vertices from box1 are inside box2, False otherwise
-	 */
-	private boolean checkAABB(AABB box1, AABB box2)
-	{
-		//For every vertex in the first box
-		for(int i=0;i<box1.getVertices().size();i++)
-		{
-			Vertex tempVert=box1.getVertices().get(i);
-			if(tempVert.getX()>=box2.getMinX()&&tempVert.getX()<=box2.getMaxX())//The vertex is within the X boundary of the box
-			{
-				if(tempVert.getY()>=box2.getMinY()&&tempVert.getY()<=box2.getMaxY())//Y
+		//Put each pair in the island of its moving object, pairs never have two objects that can't move
+		islandCount=0;
+		for(int k=0; k<collisionPairs.size();k++)
+		{
+			int body=pairs[2*k];
+			if(staticWorld.isStatic(body))
+			{
+				body=pairs[2*k+1];
+			}
+			int root=findIslandRoot(body);
+			if(islandNos[root]==-1)
+			{
+				islandNos[root]=islandCount;
+				if(islands.size()==islandCount)
 				{
-					if(tempVert.getZ()>=box2.getMinZ()&&tempVert.getZ()<=box2.getMaxZ())//Z
-					{
-						//The vertex is within x,y and z boundaries of box so is in the box
-						return true;
-					}
+					islands.add(new IntList());
+				}
+				islands.get(islandCount).clear();
+				islandCount++;
+			}
+			islands.get(islandNos[root]).add(k);
+		}
+	}
+	/**
+	 * Finds the root object of the island an object is in, shortening the path to the root on the way
+	 * @param objNo The object
+	 * @return The root object
+	 */
+	private int findIslandRoot(int objNo)
+	{
+		while(islandParents[objNo]!=objNo)
+		{
+			islandParents[objNo]=islandParents[islandParents[objNo]];
+			objNo=islandParents[objNo];
+		}
+		return objNo;
+	}
+	/**
+	 * Resolves the collisions in an island up to "colResolves" times, checking the pairs again after each time.
+	 * Each time the colliding objects are moved back to where they hit and the contact solver works out their new velocities.
+	 * Stops as soon as the island has no collisions left.
+	 * Only changes the moving objects in the island so islands can be resolved at the same time.
+	 * @param inpPairs The collision pairs in the island, already checked once
+	 * @param inpAABBs The AABBs of the objects
+	 * @param time The time step for this update
+	 * @param s The working storage of the thread resolving the island
+	 */
+	private void resolveIsland(IntList inpPairs, ArrayList<AABB> inpAABBs, double time, CollisionScratch s)
+	{
+		int[] pairs=collisionPairs.getPairs();
+		ArrayList<ContactManifold> manifolds=s.manifolds;
+		for(int x=0; x<colResolves;x++)
+		{
+			if(x>0)
+			{
+				//The objects have moved so check the pairs again
+				for(int c=0; c<inpPairs.size();c++)
+				{
+					int k=inpPairs.get(c);
+					checkCollision(pairs[2*k],pairs[2*k+1],time,inpAABBs.get(pairs[2*k]),inpAABBs.get(pairs[2*k+1]),pairSlots[k],s,contacts.get(k));
+				}
+			}
+			manifolds.clear();
+			for(int c=0; c<inpPairs.size();c++)
+			{
+				ContactManifold manifold=contacts.get(inpPairs.get(c));
+				if(manifold.isColliding())
+				{
+					moveToContact(manifold);//Move the objects back to where they hit
+					manifolds.add(manifold);
+				}
+			}
+			//If there were no collisions the island is done
+			if(manifolds.size()==0)
+			{
+				return;
+			}
+			//Only warm start the first time, after that the velocities already have last update's impulses in them
+			solver.solve(manifolds,objects,x==0 ? pairCache : null,stepCount-1,s.solver);
+		}
+	}
+	/**
+	 * Resolves a range of the islands, splitting the range in half and resolving the halves at the same time if it has more than one island.
+	 * @author Sam Dark
+	 *
+	 */
+	private class IslandTask extends RecursiveAction
+	{
+		/** Serialisation version */
+		private static final long serialVersionUID = 1L;
+		/** The AABBs of the objects */
+		private ArrayList<AABB> taskAABBs;
+		/** The time step of this update */
+		private double taskTime;
+		/** The first island to resolve */
+		private int start;
+		/** One past the last island to resolve */
+		private int end;
+
+		/**
+		 * Creates a task to resolve a range of the islands
+		 * @param inpAABBs The AABBs of the objects
+		 * @param inpTime The time step of this update
+		 * @param inpStart The first island to resolve
+		 * @param inpEnd One past the last island to resolve
+		 */
+		IslandTask(ArrayList<AABB> inpAABBs, double inpTime, int inpStart, int inpEnd)
+		{
+			taskAABBs=inpAABBs;
+			taskTime=inpTime;
+			start=inpStart;
+			end=inpEnd;
+		}
+		@Override
+		protected void compute()
+		{
+			if(end-start<=1||narrowphasePool==null)
+			{
+				CollisionScratch s=scratch.get();
+				for(int i=start; i<end;i++)
+				{
+					resolveIsland(islands.get(i),taskAABBs,taskTime,s);
+				}
+			}
+			else
+			{
+				int mid=(start+end)>>>1;
+				invokeAll(new IslandTask(taskAABBs,taskTime,start,mid),new IslandTask(taskAABBs,taskTime,mid,end));
+			}
+		}
+	}
+	/**
+	 * Works out the face neighbours of the objects in pairs checked using their meshes, and the actual low poly vertices
+	 * of the first object of each pair at the start and end of the update.
+	 * Objects work them out the first time they are asked for them, doing it before the collision checks
+	 * means the checks only read them and can run at the same time.
+	 * Pairs where both objects have shapes never use them, so objects only in those pairs don't have them worked out,
+	 * and neither do pairs the pair cache already knows are still apart. Call after finding the pairs' slots in the cache.
+	 */
+	private void prepareMeshPairs()
+	{
+		int[] pairs=collisionPairs.getPairs();
+		for(int k=0; k<collisionPairs.size();k++)
+		{
+			int i=pairs[2*k];
+			int j=pairs[2*k+1];
+			if(pairCache.isSeparated(pairSlots[k],objects.get(i).getTransformVersion(),objects.get(j).getTransformVersion()))
+			{
+				continue;
+			}
+			if(objects.get(i).getCollider()==null||objects.get(j).getCollider()==null)
+			{
+				objects.get(i).getLPFaceNeighbours();
+				objects.get(j).getLPFaceNeighbours();
+				objects.get(i).getPrevActualLPCoords();
+				objects.get(i).getActualLPCoords();
+			}
+		}
+	}
+	/**
+	 * Checks a range of the collision pairs for collisions and stores the contacts found in the contact buffer.
+	 * Big ranges are split in half and the halves are checked at the same time.
+	 * @author Sam Dark
+	 *
+	 */
+	private class NarrowphaseTask extends RecursiveAction
+	{
+		/** Serialisation version */
+		private static final long serialVersionUID = 1L;
+		/** The AABBs of the objects */
+		private ArrayList<AABB> taskAABBs;
+		/** The time step of this update */
+		private double taskTime;
+		/** The first pair to check */
+		private int start;
+		/** One past the last pair to check */
+		private int end;
+
+		/**
+		 * Creates a task to check a range of the collision pairs
+		 * @param inpAABBs The AABBs of the objects
+		 * @param inpTime The time step of this update
+		 * @param inpStart The first pair to check
+		 * @param inpEnd One past the last pair to check
+		 */
+		NarrowphaseTask(ArrayList<AABB> inpAABBs, double inpTime, int inpStart, int inpEnd)
+		{
+			taskAABBs=inpAABBs;
+			taskTime=inpTime;
+			start=inpStart;
+			end=inpEnd;
+		}
+		@Override
+		protected void compute()
+		{
+			if(end-start<=PAIRS_PER_TASK)
+			{
+				CollisionScratch s=scratch.get();
+				int[] pairs=collisionPairs.getPairs();
+				for(int k=start; k<end;k++)
+				{
+					int i=pairs[2*k];
+					int j=pairs[2*k+1];
+					checkCollision(i,j,taskTime,taskAABBs.get(i),taskAABBs.get(j),pairSlots[k],s,contacts.get(k));
 				}
 			}
+			else
+			{
+				int mid=(start+end)>>>1;
+				invokeAll(new NarrowphaseTask(taskAABBs,taskTime,start,mid),new NarrowphaseTask(taskAABBs,taskTime,mid,end));
+			}
+		}
+	}
+	/**
+	 * Moves two colliding objects back to the point in the update where they hit.
+	 * Objects that were already touching are then pushed apart so they just touch, the one that can move more going further.
+	 * @param manifold The contacts found between the objects
+	 */
+	private void moveToContact(ContactManifold manifold)
+	{
+		CustomObject obj1=objects.get(manifold.getBodyA());
+		CustomObject obj2=objects.get(manifold.getBodyB());
+		Contact contact=manifold.get(0);
+		//Undo the movement of both objects
+		obj1.undoPosRot();
+		obj2.undoPosRot();
+		//Move them to the point of collision
+		obj1.postCollisionMove(contact.time);
+		obj2.postCollisionMove(contact.time);
+		if(contact.pushOut>0)
+		{
+			double inverseMass1=obj1.canMove() ? obj1.getInverseMass() : 0;
+			double inverseMass2=obj2.canMove() ? obj2.getInverseMass() : 0;
+			if(inverseMass1+inverseMass2>0)
+			{
+				//The normal points from the second object to the first
+				double push1=contact.pushOut*inverseMass1/(inverseMass1+inverseMass2);
+				double push2=contact.pushOut-push1;
+				obj1.shift(push1*contact.normalX,push1*contact.normalY,push1*contact.normalZ);
+				obj2.shift(-push2*contact.normalX,-push2*contact.normalY,-push2*contact.normalZ);
+			}
 		}
-		//None of the vertices are in the box
-		return false;
 	}
 	/**
 	 * Updates the position, velocity, acceleration etc of all the objects by the given time step
@@ -457,15 +891,40 @@ public class PhysicsSimulation extends Thread
 	 */
 	protected void updateObjects(double time)
 	{
-		//For all objects
+		bindBodies();
+		//Accelerate and move all the objects in one pass over the body store
+		bodies.integrate(time);
+		//Update the transformation matrices of the objects that moved
 		for(int i=0; i<objects.size();i++)
 		{
-			//Accelerate the object
-			objects.get(i).accelerate(time);
-			//Move the object
-			objects.get(i).move(time);
+			if(objects.get(i).isActive())
+			{
+				objects.get(i).updateMatrices();
+			}
 		}
 	}
+	/**
+	 * Moves the physics state of all the objects into one body store, with each object's body number the same as its object number.
+	 * Does nothing if they are already in it. In quaternion mode the objects' rotations are converted to quaternions as they are moved.
+	 */
+	private void bindBodies()
+	{
+		boolean bound=bodies.size()==objects.size()&&bodies.isQuaternions()==quaternions;
+		for(int i=0; i<objects.size()&&bound;i++)
+		{
+			bound=objects.get(i).getBodyStore()==bodies&&objects.get(i).getBodyId()==i;
+		}
+		if(bound)
+		{
+			return;
+		}
+		BodyStore store=new BodyStore(objects.size(),quaternions);
+		for(int i=0; i<objects.size();i++)
+		{
+			objects.get(i).moveToStore(store);
+		}
+		bodies=store;
+	}
 	/**
 	 * Gets the middle point of an object using the AABB for that object
 	 * @param objNo The object to get the middle point of
@@ -486,275 +945,360 @@ public class PhysicsSimulation extends Thread
 	 */
 	protected AABB getAABB(CustomObject inpObj)
 	{
-		//Get the vertices of the object
-		ArrayList<Vertex> vertices=inpObj.getActualLPVertices();
-		//Get the vertices on the extremes, min/max X,Y and Z as those are the edges of the box
-		Vertex firstVert=vertices.get(0);
-		double maxX=firstVert.getX();
-		double maxY=firstVert.getY();
-		double maxZ=firstVert.getZ();
-		double minX=maxX;
-		double minY=maxY;
-		double minZ=maxZ;
-				
-		for(int i=0;i<vertices.size();i++)
+		//The box is worked out from the box and sphere around the object's own vertices, so none of its vertices have to be moved
+		inpObj.getLPLocalMesh().transformBounds(inpObj.getTransform(),bounds);
+		Collider collider=inpObj.getCollider();
+		if(collider!=null)
+		{
+			//The shape can stick out past the vertices
+			collider.growBounds(inpObj.getTransform(),bounds);
+		}
+		return new AABB(bounds[0],bounds[3],bounds[1],bounds[4],bounds[2],bounds[5]);
+	}
+	/**
+	 * Checks for a collision between two objects and returns the results of the check.
+	 * Objects that both have shapes (colliders) are checked using the shapes, directly for the simplest pairs and as convex
+	 * shapes otherwise. Any other pair has the vertices of the first object checked against the low poly faces of the second,
+	 * which is what objects with dents, like most static scenery, use.
+	 * Uses what the pair cache remembers about the pair: a pair that was apart and hasn't moved since isn't checked again,
+	 * and a pair that hit a face last time checks that face and then its neighbours first. Any other face hit earlier has
+	 * to be hit on the part of a ray before the cached hit, so only the faces around those parts are searched, and a hit at
+	 * the start of the update, like a resting contact, needs no search at all.
+	 * @param objNo1 The first object to check
+	 * @param objNo2 The second object to check with
+	 * @param time The time step of this update (used to calculate the collision time)
+	 * @param AABB1 The AABB of the first object
+	 * @param AABB2 The AABB of the second object
+	 * @param slot The slot of the pair in the pair cache, only changed by this check
+	 * @param s The working storage of the thread doing the check
+	 * @param output The manifold to put the contacts in, left empty if there is no collision
+	 */
+	private void checkCollision(int objNo1, int objNo2, double time, AABB AABB1, AABB AABB2, int slot, CollisionScratch s, ContactManifold output)
+	{
+		output.reset(objNo1,objNo2);
+		CustomObject obj1=objects.get(objNo1);
+		CustomObject obj2=objects.get(objNo2);
+		//Neither object has moved since the pair was found apart so it still is
+		int version1=obj1.getTransformVersion();
+		int version2=obj2.getTransformVersion();
+		if(pairCache.isSeparated(slot,version1,version2))
+		{
+			return;
+		}
+		//Objects with shapes are checked using them
+		if(s.primitives.collide(obj1,obj2,time,output))
+		{
+			if(output.isColliding())
+			{
+				pairCache.setLastFace(slot,-1);
+			}
+			else
+			{
+				pairCache.setSeparated(slot,version1,version2);
+			}
+			return;
+		}
+		
+		//The first object keeps its vertices in actual space at the start and end of the update, they are moved into the
+		//second object's space so the rays are checked against its faces as they were imported and none of its vertices have to be moved.
+		//The whole mesh is moved at once by the vertex kernels, which get the boxes around the moved vertices on the way
+		VertexCoords actualStart=obj1.getPrevActualLPCoords();
+		VertexCoords actualEnd=obj1.getActualLPCoords();
+		int count=actualEnd.size();
+		if(count==0)
+		{
+			pairCache.setSeparated(slot,version1,version2);
+			return;
+		}
+		LocalMesh mesh=obj2.getLPLocalMesh();
+		DistanceField field=obj2.getDistanceField();
+		RigidTransform toRelative=s.toRelative;
+		toRelative.set(obj2.getTransform());
+		toRelative.invert();
+		//Before moving any vertices, move the box around both ends of their paths into the second object's space.
+		//If it misses the second object's box, or its field for objects with one, no vertex can start or end near it
+		double[] pathBounds=s.pathBounds;
+		for(int k=0; k<3; k++)
+		{
+			pathBounds[k]=Math.min(actualStart.bounds[k], actualEnd.bounds[k]);
+			pathBounds[k+3]=Math.max(actualStart.bounds[k+3], actualEnd.bounds[k+3]);
+		}
+		double[] relativeBounds=s.relativeBounds;
+		toRelative.transformBox(pathBounds,relativeBounds);
+		//Grow the box slightly so rounding when moving it doesn't miss vertices on its edges
+		double margin=1e-9*(1+Math.max(relativeBounds[3]-relativeBounds[0], Math.max(relativeBounds[4]-relativeBounds[1], relativeBounds[5]-relativeBounds[2])));
+		for(int k=0; k<3; k++)
+		{
+			relativeBounds[k]-=margin;
+			relativeBounds[k+3]+=margin;
+		}
+		if(field!=null ? !field.overlapsBounds(relativeBounds) : !mesh.overlapsBounds(relativeBounds))
+		{
+			pairCache.setSeparated(slot,version1,version2);
+			return;
+		}
+		//Static scenery is usually at the origin and not rotated, then its space is actual space and the vertices are used as they are
+		boolean moveVertices=!toRelative.isIdentity();
+		VertexCoords end=actualEnd;
+		if(moveVertices)
 		{
-			Vertex vert=vertices.get(i);
-			double vertX=vert.getX();
-			double vertY=vert.getY();
-			double vertZ=vert.getZ();
-			if(vertX<minX)
+			end=s.relativeEnd;
+			end.ensureCapacity(count);
+			VERTEX_KERNELS.transform(toRelative,actualEnd.xs,actualEnd.ys,actualEnd.zs,count,end.xs,end.ys,end.zs,end.bounds);
+		}
+		//Objects with distance fields are checked using them instead of their faces
+		if(field!=null)
+		{
+			if(checkDistanceField(obj2,field,actualStart,end,count,time,s,output))
 			{
-				minX=vertX;
+				pairCache.setLastFace(slot,-1);
 			}
-			if(vertX>maxX)
+			else
 			{
-				maxX=vertX;
+				pairCache.setSeparated(slot,version1,version2);
 			}
-			if(vertY<minY)
+			return;
+		}
+		VertexCoords start=actualStart;
+		if(moveVertices)
+		{
+			start=s.relativeStart;
+			start.ensureCapacity(count);
+			VERTEX_KERNELS.transform(toRelative,actualStart.xs,actualStart.ys,actualStart.zs,count,start.xs,start.ys,start.zs,start.bounds);
+		}
+		//If no vertex starts or ends within the box of the second object there are no rays to check
+		if(!mesh.overlapsBounds(start.bounds)&&!mesh.overlapsBounds(end.bounds))
+		{
+			pairCache.setSeparated(slot,version1,version2);
+			return;
+		}
+		//Keep the rays of the vertices that start or end within the box of the second object
+		if(s.rays.length<6*count)
+		{
+			s.rays=new double[6*count];
+		}
+		double[] rays=s.rays;
+		int rayCount=0;
+		//When every vertex starts and ends within the box, like an object resting on static scenery, none need checking
+		boolean allInBounds=mesh.containsBounds(start.bounds)&&mesh.containsBounds(end.bounds);
+		for(int j=0; j<count; j++)
+		{
+			if(allInBounds||mesh.isInBounds(start.xs[j],start.ys[j],start.zs[j])||mesh.isInBounds(end.xs[j],end.ys[j],end.zs[j]))
 			{
-				minY=vertY;
+				rays[6*rayCount]=start.xs[j];
+				rays[6*rayCount+1]=start.ys[j];
+				rays[6*rayCount+2]=start.zs[j];
+				rays[6*rayCount+3]=end.xs[j];
+				rays[6*rayCount+4]=end.ys[j];
+				rays[6*rayCount+5]=end.zs[j];
+				rayCount++;
 			}
-			if(vertY>maxY)
+		}
+		//If there are no rays no collision
+		if(rayCount==0)
+		{
+			pairCache.setSeparated(slot,version1,version2);
+			return;
+		}
+		
+		IntList candidateFaces=s.candidateFaces;
+		RayHit hit=s.hit;
+		hit.clear();
+		int face=-1;
+		//Try the face hit last time on its own, then the faces around it
+		int lastFace=pairCache.getLastFace(slot);
+		if(lastFace!=-1&&lastFace<mesh.getFaceCount())
+		{
+			candidateFaces.clear();
+			candidateFaces.add(lastFace);
+			testCandidateFaces(mesh,rayCount,s);
+			if(!hit.isHit())
 			{
-				maxY=vertY;
+				FaceNeighbours neighbours=obj2.getLPFaceNeighbours();
+				candidateFaces.clear();
+				for(int n=neighbours.getStart(lastFace); n<neighbours.getEnd(lastFace); n++)
+				{
+					candidateFaces.add(neighbours.get(n));
+				}
+				testCandidateFaces(mesh,rayCount,s);
 			}
-			if(vertZ<minZ)
+			if(hit.isHit())
 			{
-				minZ=vertZ;
+				face=candidateFaces.get(hit.index);
 			}
-			if(vertZ>maxZ)
+		}
+		//Check the faces of object 2 that could be hit for collisions with the vertices of object 1,
+		//only up to the cached hit if there is one as nothing can be hit before the start of the update
+		if(face==-1||hit.fraction>0)
+		{
+			double cachedFraction=hit.fraction;
+			findCandidateFaces(obj2,mesh,rayCount,Math.min(1, cachedFraction),s);
+			testCandidateFaces(mesh,rayCount,s);
+			//Hits only replace earlier ones if they are sooner
+			if(hit.fraction<cachedFraction)
 			{
-				maxZ=vertZ;
+				face=candidateFaces.get(hit.index);
 			}
-			
 		}
-		//return the AABB
-		return new AABB(minX,maxX,minY,maxY,minZ,maxZ);
+		//If we got no hits the collision check failed and there was no collision
+		if(face==-1)
+		{
+			pairCache.setSeparated(slot,version1,version2);
+			return;
+		}
+		//The normal of the face that was hit was worked out when the mesh was imported and only needs rotating into actual space,
+		//the depth is in units of its length which moving into the object's space doesn't change
+		double[] normal=s.normal;
+		mesh.getNormal(obj2.getTransform(),face,normal);
+		output.addContact().set(face,normal[0],normal[1],normal[2],hit.fraction*time,hit.depth/mesh.normalLengths[face]);
+		pairCache.setLastFace(slot,face);
 	}
 	/**
-	 * Checks for a collision between two objects and returns the results of the check.
-	 * @param obj1 The first object to check
-	 * @param obj2 The second object to check with
-	 * @param time The time step of this update (used to calculate the collision time)
-	 * @param AABB1 The AABB of the first object
-	 * @param AABB2 The AABB of the second object
-	 * @return The results of the check. results[0] is -1 if the check failed to find a collision otherwise 1.  results[1] is the time the collision occurred during the update. results[2] is the face of object 2 that the object 1 intersected
+	 * Checks the vertices of an object against the distance field of another, adding a contact for the vertex that touches first.
+	 * Each vertex's distance is sampled where it starts and ends the update. A vertex that gets within touching distance hits
+	 * where the distance along its path reaches half of that, found by assuming the distance changes in a straight line along it.
+	 * A vertex that was already touching is only a hit if it moves further in, and is pushed back out to half the touching distance.
+	 * The normal is the way out of the field where the vertex hits.
+	 * @param obj2 The object with the field
+	 * @param inpField The field of the second object
+	 * @param actualStart The vertices of the first object at the start of the update, in actual space.
+	 * Only the few that end close enough to touch are moved into the second object's space
+	 * @param end The vertices of the first object at the end of the update, in the second object's space
+	 * @param count The number of vertices
+	 * @param time The time step of this update
+	 * @param s The working storage of the thread doing the check, its toRelative moves actual space into the second object's space
+	 * @param output The manifold to put the contact in
+	 * @return True if there was a hit, False otherwise
 	 */
-	private double[] checkCollision(CustomObject obj1, CustomObject obj2, double time, AABB AABB1, AABB AABB2)
+	private boolean checkDistanceField(CustomObject obj2, DistanceField inpField, VertexCoords actualStart, VertexCoords end, int count, double time,
+			CollisionScratch s, ContactManifold output)
 	{
-
-		double[] result= new double[10];
-		
-		//Get the vertices of each object
-		ArrayList<Vertex> o2Verts=obj2.getActualLPVertices();
-		ArrayList<Vertex> o1Verts=obj1.getActualLPVertices();
-		
-		//Check which points of the first object are within the AABB of the second object and add them to a list
-		ArrayList<Position> points= new ArrayList<Position>();
-		for(int j=0; j<obj1.getLPVertices().size(); j++)
+		double touching=inpField.getTouchingDistance();
+		double[] start=s.relativeStartPoint;
+		double[] sample=s.sample;
+		double bestFraction=Double.MAX_VALUE, bestEndDistance=Double.MAX_VALUE;
+		double bestX=0, bestY=0, bestZ=0;
+		for(int j=0; j<count; j++)
 		{
-			Position p1=obj1.getPrevActualLPVertex(j);
-			Position p2=o1Verts.get(j);
-			if(isPointInBoundingBox(p1,AABB2)||isPointInBoundingBox(p2,AABB2))
+			if(!inpField.sample(end.xs[j],end.ys[j],end.zs[j],sample)||sample[0]>touching)
 			{
-				points.add(p1);
-				points.add(p2);
+				continue;//Too far away to touch at the end of the update
 			}
-			
-		}
-		//If there are no points no collision
-		if(points.size()==0)
-		{
-			result[0]=-1;
-			return result;
-		}
-		
-		//Check every face of object 2 for collisions with the vertices of object 1
-		for(int i=0; i<obj2.getLPFaces().size(); i++)
-		{
-			//Get the vertices of the face we are checking
-			Position v1=o2Verts.get(obj2.getLPFaces().get(i).getVertices().get(0)-1);
-			Position v2=o2Verts.get(obj2.getLPFaces().get(i).getVertices().get(1)-1);
-			Position v3=o2Verts.get(obj2.getLPFaces().get(i).getVertices().get(2)-1);
-			
-			//Don't bother checking for collisions with faces that don't have any vertices within the first objects AABB
-			//As these can't possibly be the intersecting points
-			if(isPointInBoundingBox(v1,AABB1)||isPointInBoundingBox(v2,AABB1)||isPointInBoundingBox(v3,AABB1))
+			double endDistance=sample[0];
+			s.toRelative.transformPoint(actualStart.xs[j],actualStart.ys[j],actualStart.zs[j],start,0);
+			double fraction;
+			boolean outside=!inpField.sample(start[0],start[1],start[2],sample);
+			if(outside)
+			{
+				fraction=0;//Came from outside the grid in one update so it is not known where it arrived, go back to the start
+			}
+			else if(sample[0]>touching)
+			{
+				fraction=Math.min(1, (sample[0]-0.5*touching)/(sample[0]-endDistance));
+			}
+			else if(endDistance<sample[0])
 			{
-				//Check the points that are in the bounding box of the second object with the face that is in the bounding box of the first object
-				result=checkFaceRayCollision(v1,v2,v3,points,time);
+				fraction=1;//Already touching and moving further in
 			}
 			else
 			{
-				result[0]=-1;
+				continue;//Already touching and moving out
 			}
-			//If we got a collision result stop searching and return the result
-			if(result[0]!=-1)
+			//Keep the earliest hit, or the deepest if they hit at the same time
+			if(fraction<bestFraction||(fraction==bestFraction&&endDistance<bestEndDistance))
 			{
-				result[2]=i;//Add the face on the second object that the first object collided with
-				return result;
+				bestFraction=fraction;
+				bestEndDistance=endDistance;
+				//The way out is found where it hit, or where it ended if it started outside the grid
+				double along=outside ? 1 : fraction;
+				bestX=start[0]+along*(end.xs[j]-start[0]);
+				bestY=start[1]+along*(end.ys[j]-start[1]);
+				bestZ=start[2]+along*(end.zs[j]-start[2]);
 			}
-			
 		}
-		//If we got no results the collision check failed and there was no collision
-		double[] failed= {-1};
-		return failed;
+		if(bestFraction==Double.MAX_VALUE)
+		{
+			return false;
+		}
+		//The way out of the field where the vertex hit, rotated into actual space
+		inpField.sample(bestX,bestY,bestZ,sample);
+		double[] normal=s.normal;
+		obj2.getTransform().transformVector(sample[1],sample[2],sample[3],normal);
+		double pushOut=bestFraction==1 ? Math.max(0, 0.5*touching-bestEndDistance) : 0;
+		PrimitiveCollisions.setContact(output,normal[0],normal[1],normal[2],bestFraction,time,Math.max(0, -bestEndDistance),pushOut);
+		return true;
 	}
 	/**
-	 * Gets if a point is within a bounding box
-	 * @param point The point to test
-	 * @param box The box to test
-	 * @return True if the point is within the box, False otherwise
+	 * Tests the thread's rays against its candidate faces of a mesh and keeps the earliest hit in the thread's hit.
+	 * The hit's index is the position of the face in the candidate faces and the batch of triangles.
+	 * @param inpMesh The mesh with the faces
+	 * @param rayCount The number of rays in the thread's rays, in the mesh's own space
+	 * @param s The working storage of the thread doing the check
 	 */
-	private boolean isPointInBoundingBox(Position point, AABB box)
+	private void testCandidateFaces(LocalMesh inpMesh, int rayCount, CollisionScratch s)
 	{
-		if(point.getX()>=box.getMinX()&&point.getX()<=box.getMaxX())//Check if it's within x boundary
+		TriangleBatch triangles=s.triangles;
+		triangles.clear();
+		for(int c=0; c<s.candidateFaces.size(); c++)
 		{
-			if(point.getY()>=box.getMinY()&&point.getY()<=box.getMaxY())//Check y
+			triangles.add(inpMesh,s.candidateFaces.get(c));
+		}
+		//Test every ray against all the faces at once and keep the earliest hit
+		RayHit hit=s.hit;
+		double[] rays=s.rays;
+		for(int j=0; j<6*rayCount; j+=6)
+		{
+			RAY_KERNELS.intersect(rays[j],rays[j+1],rays[j+2],rays[j+3],rays[j+4],rays[j+5],triangles,hit);
+		}
+	}
+	/**
+	 * Finds the low poly faces of an object that could be hit by the thread's rays and puts them in the thread's candidateFaces,
+	 * smallest face number first. Uses the object's face hierarchy to only visit faces whose bounds overlap the bounds
+	 * of the rays, so the cost grows with the log of the number of faces.
+	 * @param obj The object with the faces
+	 * @param inpMesh The low poly mesh of the object
+	 * @param rayCount The number of rays in the thread's rays, in the object's own space
+	 * @param reach How far along the rays to look, 1 for all of them
+	 * @param s The working storage of the thread doing the check, the faces are put in its candidateFaces
+	 */
+	private void findCandidateFaces(CustomObject obj, LocalMesh inpMesh, int rayCount, double reach, CollisionScratch s)
+	{
+		IntList candidateFaces=s.candidateFaces;
+		candidateFaces.clear();
+		//The rays are already in the object's space so just get the bounds of the part of them being looked at
+		double[] rays=s.rays;
+		double minX=Double.MAX_VALUE, minY=Double.MAX_VALUE, minZ=Double.MAX_VALUE;
+		double maxX=-Double.MAX_VALUE, maxY=-Double.MAX_VALUE, maxZ=-Double.MAX_VALUE;
+		for(int j=0; j<6*rayCount; j+=6)
+		{
+			double endX=rays[j]+reach*(rays[j+3]-rays[j]);
+			double endY=rays[j+1]+reach*(rays[j+4]-rays[j+1]);
+			double endZ=rays[j+2]+reach*(rays[j+5]-rays[j+2]);
+			minX=Math.min(minX, Math.min(rays[j], endX));
+			minY=Math.min(minY, Math.min(rays[j+1], endY));
+			minZ=Math.min(minZ, Math.min(rays[j+2], endZ));
+			maxX=Math.max(maxX, Math.max(rays[j], endX));
+			maxY=Math.max(maxY, Math.max(rays[j+1], endY));
+			maxZ=Math.max(maxZ, Math.max(rays[j+2], endZ));
+		}
+		//Grow the bounds slightly so rounding when moving the points doesn't miss faces they touch
+		double margin=1e-9*(1+Math.max(maxX-minX, Math.max(maxY-minY, maxZ-minZ)));
+		BoundingVolumeHierarchy hierarchy=obj.getLPFaceHierarchy();
+		if(hierarchy==null)
+		{
+			//No hierarchy so check the bounds of every face
+			for(int i=0; i<inpMesh.getFaceCount(); i++)
 			{
-				if(point.getZ()>=box.getMinZ()&&point.getZ()<=box.getMaxZ())//Check z
+				if(inpMesh.faceOverlaps(i,minX-margin,minY-margin,minZ-margin,maxX+margin,maxY+margin,maxZ+margin))
 				{
-					//It is within the box
-					return true;
+					candidateFaces.add(i);
 				}
 			}
+			return;
 		}
-		//It is not within the box
-		return false;
-	}
-	/**
-	 * Checks for collisions between a list of rays and a face
-	 * @param a The first vertex of the face
-	 * @param b The second vertex of the face
-	 * @param c The third vertex of the face
-	 * @param points The points of the rays
-	 * @param time The time step of the current update
-	 * @return The results. results[0] is -1 if no collision or 1 if one of the rays collides. results[1] is the time of collision.
-	 */
-	private double[] checkFaceRayCollision(Position a, Position b, Position c, ArrayList<Position> points, double time)
-	{
-		//Precalculate some values used by all the tests
-		//Two vectors used by all tests
-		ab.set(0, b.getX()-a.getX());
-		ab.set(1, b.getY()-a.getY());
-		ab.set(2, b.getZ()-a.getZ());
-		ac.set(0, c.getX()-a.getX());
-		ac.set(1, c.getY()-a.getY());
-		ac.set(2, c.getZ()-a.getZ());
-		n=crossProduct(ab,ac);//Normal of the triangle used for all tests
-		//Storage for results
-		double[] results= new double[10];
-		results[0]=-1;
-		//Test all the rays
-		for(int i=0; i<points.size();i++)
-		{
-			results=rayPlaneIntersectTest(points.get(i),points.get(i+1),a,b,c,time,n,ab,ac);//Check if the ray intersects the triangle
-			//If it does don't run any more tests
-			if(results[0]!=-1)
-			{
-				return results;
-			}
-			i++;//Otherwise continue testing
-		}
-		//The tests failed and no collisions
-		double[] failed={-1};
-		return failed;
-	}
-	/**
-	 * Tests for intersection between a ray and a plane (triangle) and returns the time of collision.
-	 * 
-	 * @param p The start point of the ray
-	 * @param q The end point of the ray
-	 * @param a The first point of the triangle
-	 * @param b The second point of the triangle
-	 * @param c The third point of the triangle
-	 * @param time The time of the current update step
-	 * @param n The normal of the triangle
-	 * @param ab b-a
-	 * @param ac c-a
-	 * @return The results of the test. results[0] is -1 if no intersection or 1 if there is intersection. results[1] is the time of intersection.
-	 */
-	private double[] rayPlaneIntersectTest(Position p, Position q, Position a, Position b, Position c, double time, DenseMatrix64F n,DenseMatrix64F ab, DenseMatrix64F ac)
-	{
-		//For outputting the results
-		double[] output=new double[10];
-		//p-q
-		qp.set(0,p.getX()-q.getX());
-		qp.set(1,p.getY()-q.getY());
-		qp.set(2,p.getZ()-q.getZ());
-		
-		//Check if the ray is pointing at the triangle
-		//d=0 means ray is parallel d<0 means ray facing away
-		double d=VectorVectorMult.innerProd(qp, n);
-		if(d<=0.0)
-		{
-			//Ray is not even pointing at triangle so can't be intersecting
-			output[0]=-1;
-			return output;
-		}
-		//p-a
-		ap.set(0,p.getX()-a.getX());
-		ap.set(1,p.getY()-a.getY());
-		ap.set(2,p.getZ()-a.getZ());
-		//t is dot product of ap and n
-		double t=VectorVectorMult.innerProd(ap,n);
-		//If t<0 not intersecting
-		if(t<0.0)
-		{
-			output[0]=-1;
-			return output;
-		}
-		//If t>d not intersecting
-		if(t>d)
-		{
-			output[0]=-1;
-			return output;
-		}
-		//e is croos product of qp and ap
-		e=crossProduct(qp, ap);
-		
-		//If v>d or v<0 not intersecting
-		double v = VectorVectorMult.innerProd(ac,e);//Dot product
-		if(v<0.0 || v>d)
-		{
-			output[0]=-1;
-			return output;
-		}
-		//If v+w>d or w<0 not intersecting
-		double w= -VectorVectorMult.innerProd(ab,e);//Dot product
-		if(w<0.0 || v+w>d)
-		{
-			output[0]=-1;
-			return output;
-		}
-		//It intersects so output results
-		double ood = 1.0/d;
-		t*=ood;
-		output[0]=1;//intersected
-		output[1]=t*time;//time of intersection
-		//Optional barycentric coordinates of the collision
-		//v*=ood;
-		//w*=ood;
-		//double u=1.0 - v - w;
-		//output[2]=u;
-		//output[3]=v;
-		//output[4]=w;
-		return output;
-	}
-	/**
-	 * Gets the cross product of two vectors
-	 * @param a The first vector
-	 * @param b The second vector
-	 * @return The cross product of the two vectors
-	 */
-	private DenseMatrix64F crossProduct(DenseMatrix64F a, DenseMatrix64F b)
-	{
-		DenseMatrix64F output= new DenseMatrix64F(1,3);
-		output.set(0,(a.get(1)*b.get(2))-(a.get(2)*b.get(1)));
-		output.set(1,(a.get(2)*b.get(0))-(a.get(0)*b.get(2)));
-		output.set(2,(a.get(0)*b.get(1))-(a.get(1)*b.get(0)));
-		return output;
+		hierarchy.query(minX-margin,minY-margin,minZ-margin,maxX+margin,maxY+margin,maxZ+margin,candidateFaces);
+		//Check the faces in order so the same face is found as when checking every face
+		candidateFaces.sort();
 	}
 	/**
 	 * Gets the gravity value of the simulation
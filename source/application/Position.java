@@ -19,7 +19,9 @@ public class Position
 	 */
 	Position()
 	{
-		setPosition(0,0,0);
+		x=0;
+		y=0;
+		z=0;
 	}
 	/**
 	 * Creates a new position object with custom position
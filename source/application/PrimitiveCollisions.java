@@ -0,0 +1,266 @@
+package application;
+
+/**
+ * Checks for collisions between objects whose low poly meshes have been replaced by simple shapes (colliders),
+ * working the time of the hit out directly from the shapes instead of testing every vertex against every face.
+ * Handles sphere against sphere, and sphere or capsule against plane. Any other pair of shapes, or a hit that could be off the
+ * edge of a plane, is checked as a pair of convex shapes. Objects without a shape are left for the mesh check.
+ * Like the mesh check the shapes are moved in a straight line from where they were last update to where they are now,
+ * and the earliest time they touch is the time of the hit. Shapes that were already touching at the start of the update,
+ * like a ball rolling along a floor, hit at the end of the update if they are moving closer and are pushed back out,
+ * otherwise moving them back to the time of the hit would stop them sliding along each other.
+ * Each thread checking collisions has its own as it keeps working values between checks.
+ * @author Sam Dark
+ *
+ */
+public class PrimitiveCollisions
+{
+	/** A point moved into an object's own space */
+	private double[] relativePoint=new double[3];
+	/** The start and end of the centre of the first shape */
+	private double[] start1=new double[3], end1=new double[3];
+	/** The start and end of the centre of the second shape */
+	private double[] start2=new double[3], end2=new double[3];
+	/** The normal of a plane at the start and end of the update */
+	private double[] startNormal=new double[3], endNormal=new double[3];
+	/** Checks for pairs of shapes that can't be worked out directly */
+	private ConvexCollisions convex=new ConvexCollisions();
+
+	/**
+	 * Creates the working values for checking collisions
+	 */
+	PrimitiveCollisions()
+	{
+	}
+	/**
+	 * Checks for a collision between two objects using their colliders, if both objects have them.
+	 * A hit is added to the manifold as one contact with no face.
+	 * @param obj1 The first object
+	 * @param obj2 The second object
+	 * @param time The time step of this update (used to calculate the collision time)
+	 * @param output The manifold to put the contact in, already reset for the pair
+	 * @return True if the check was done, False if the meshes need checking instead
+	 */
+	public boolean collide(CustomObject obj1, CustomObject obj2, double time, ContactManifold output)
+	{
+		Collider collider1=obj1.getCollider();
+		Collider collider2=obj2.getCollider();
+		if(collider1==null||collider2==null)
+		{
+			return false;
+		}
+		if(collider1.type==Collider.SPHERE&&collider2.type==Collider.SPHERE)
+		{
+			sphereSphere(obj1,collider1,obj2,collider2,time,output);
+			return true;
+		}
+		if(isRound(collider1)&&collider2.type==Collider.PLANE&&roundPlane(obj1,collider1,obj2,collider2,time,1,output))
+		{
+			return true;
+		}
+		//The normal has to point from the second object to the first so it is flipped
+		if(isRound(collider2)&&collider1.type==Collider.PLANE&&roundPlane(obj2,collider2,obj1,collider1,time,-1,output))
+		{
+			return true;
+		}
+		convex.collide(collider1,prevTransform(obj1),obj1.getTransform(),collider2,prevTransform(obj2),obj2.getTransform(),time,output);
+		return true;
+	}
+	/**
+	 * Gets if a shape is a sphere or capsule
+	 * @param collider The shape
+	 * @return True if it is round
+	 */
+	private static boolean isRound(Collider collider)
+	{
+		return collider.type==Collider.SPHERE||collider.type==Collider.CAPSULE;
+	}
+	/**
+	 * Checks two moving spheres for a hit. The gap between the centres moves in a straight line over the update, so the
+	 * time they touch is where that line first gets as close as the sum of the radii.
+	 * @param obj1 The first object
+	 * @param collider1 The sphere of the first object
+	 * @param obj2 The second object
+	 * @param collider2 The sphere of the second object
+	 * @param time The time step of this update
+	 * @param output The manifold to put the contact in
+	 */
+	private void sphereSphere(CustomObject obj1, Collider collider1, CustomObject obj2, Collider collider2, double time, ContactManifold output)
+	{
+		toActual(prevTransform(obj1),collider1.centerX,collider1.centerY,collider1.centerZ,start1);
+		toActual(obj1.getTransform(),collider1.centerX,collider1.centerY,collider1.centerZ,end1);
+		toActual(prevTransform(obj2),collider2.centerX,collider2.centerY,collider2.centerZ,start2);
+		toActual(obj2.getTransform(),collider2.centerX,collider2.centerY,collider2.centerZ,end2);
+		//The gap from the second centre to the first at the start and end of the update
+		double px=start1[0]-start2[0], py=start1[1]-start2[1], pz=start1[2]-start2[2];
+		double ex=end1[0]-end2[0], ey=end1[1]-end2[1], ez=end1[2]-end2[2];
+		double radii=collider1.radius+collider2.radius;
+		double startGap=Math.sqrt(px*px+py*py+pz*pz)-radii;
+		double endGap=Math.sqrt(ex*ex+ey*ey+ez*ez)-radii;
+		if(startGap<=Collider.TOUCHING*radii)
+		{
+			//Already touching, only a hit if they are moving closer
+			if(endGap>=startGap)
+			{
+				return;
+			}
+			setContact(output,ex,ey,ez,1,time,Math.max(0, -endGap),Math.max(0, -endGap));
+			return;
+		}
+		//How the gap changes over the update, |p+td|=radii is a*t^2+2*b*t+c=0
+		double dx=ex-px, dy=ey-py, dz=ez-pz;
+		double a=dx*dx+dy*dy+dz*dz;
+		double b=px*dx+py*dy+pz*dz;
+		double c=px*px+py*py+pz*pz-radii*radii;
+		double discriminant=b*b-a*c;
+		//Moving apart or never getting close enough
+		if(b>=0||discriminant<0)
+		{
+			return;
+		}
+		double fraction=(-b-Math.sqrt(discriminant))/a;
+		if(fraction>1)
+		{
+			return;//Don't touch until after this update
+		}
+		//The normal points along the gap where they touch
+		setContact(output,px+fraction*dx,py+fraction*dy,pz+fraction*dz,fraction,time,Math.max(0, -endGap),0);
+	}
+	/**
+	 * Adds a contact to a manifold, normalising its normal
+	 * @param output The manifold
+	 * @param nx The x component of the normal
+	 * @param ny The y component of the normal
+	 * @param nz The z component of the normal
+	 * @param fraction How far through the update the contact happened
+	 * @param time The time step of this update
+	 * @param penetration How far the shapes overlap at the end of the update
+	 * @param pushOut How far the objects have to be pushed apart after moving to the time of the contact
+	 */
+	static void setContact(ContactManifold output, double nx, double ny, double nz, double fraction, double time, double penetration, double pushOut)
+	{
+		double length=Math.sqrt(nx*nx+ny*ny+nz*nz);
+		if(length==0)
+		{
+			//The centres are in the same place so there is no direction to push them apart in, push straight up
+			ny=1;
+			length=1;
+		}
+		Contact contact=output.addContact();
+		contact.set(-1,nx/length,ny/length,nz/length,fraction*time,penetration);
+		contact.pushOut=pushOut;
+	}
+	/**
+	 * Checks a sphere or capsule against a plane for a hit. A capsule is checked as the spheres at the ends of its segment.
+	 * Each sphere is checked against the side of the plane its centre started on, the distance from that side moves
+	 * in a straight line over the update so the time of the hit is where the distance reaches the radius.
+	 * The check isn't done if a centre is inside the plane or the hit could be off the edge of the plane.
+	 * @param round The object with the sphere or capsule
+	 * @param roundCollider The sphere or capsule
+	 * @param flat The object with the plane
+	 * @param planeCollider The plane
+	 * @param time The time step of this update
+	 * @param sign 1 if the plane is the second object of the pair, -1 if it is the first
+	 * @param output The manifold to put the contact in
+	 * @return True if the check was done, False if the shapes need checking as convex shapes instead
+	 */
+	private boolean roundPlane(CustomObject round, Collider roundCollider, CustomObject flat, Collider planeCollider, double time, double sign, ContactManifold output)
+	{
+		RigidTransform flatTransform=flat.getTransform();
+		int axis=planeCollider.axis;
+		//The normal of the plane and the middle of the plane at the start and end of the update
+		prevTransform(flat).transformVector(axis==0 ? 1 : 0, axis==1 ? 1 : 0, axis==2 ? 1 : 0, startNormal);
+		flatTransform.transformVector(axis==0 ? 1 : 0, axis==1 ? 1 : 0, axis==2 ? 1 : 0, endNormal);
+		toActual(prevTransform(flat),planeCollider.centerX,planeCollider.centerY,planeCollider.centerZ,start2);
+		toActual(flatTransform,planeCollider.centerX,planeCollider.centerY,planeCollider.centerZ,end2);
+		int ends=roundCollider.type==Collider.CAPSULE ? 2 : 1;
+		double bestFraction=Double.POSITIVE_INFINITY, bestSide=1, bestPenetration=0;
+		boolean bestTouching=false;
+		for(int e=0; e<ends; e++)
+		{
+			//The centre of the sphere, or the end of the capsule's segment
+			double offset=ends==1 ? 0 : (e==0 ? -roundCollider.halfLength : roundCollider.halfLength);
+			double x=roundCollider.centerX+(roundCollider.axis==0 ? offset : 0);
+			double y=roundCollider.centerY+(roundCollider.axis==1 ? offset : 0);
+			double z=roundCollider.centerZ+(roundCollider.axis==2 ? offset : 0);
+			toActual(prevTransform(round),x,y,z,start1);
+			toActual(round.getTransform(),x,y,z,end1);
+			//How far the centre is from the middle of the plane
+			double startDistance=(start1[0]-start2[0])*startNormal[0]+(start1[1]-start2[1])*startNormal[1]+(start1[2]-start2[2])*startNormal[2];
+			double endDistance=(end1[0]-end2[0])*endNormal[0]+(end1[1]-end2[1])*endNormal[1]+(end1[2]-end2[2])*endNormal[2];
+			double side=startDistance>=0 ? 1 : -1;
+			if(side*startDistance<planeCollider.halfLength)
+			{
+				return false;//The centre started inside the plane
+			}
+			//How far the sphere is from the surface on that side
+			double startGap=side*startDistance-planeCollider.halfLength-roundCollider.radius;
+			double endGap=side*endDistance-planeCollider.halfLength-roundCollider.radius;
+			double fraction;
+			boolean touching=startGap<=Collider.TOUCHING*roundCollider.radius;
+			if(!touching&&endGap<0)
+			{
+				fraction=startGap/(startGap-endGap);
+			}
+			else if(touching&&endGap<startGap)
+			{
+				fraction=1;//Already touching at the start and moving closer
+			}
+			else
+			{
+				continue;//Not touching at the end, or already touching but moving apart
+			}
+			//Only a hit if the centre is over the plane where it hits, past the edge the mesh has to be checked
+			flatTransform.inverseTransformPoint(start1[0]+fraction*(end1[0]-start1[0]),start1[1]+fraction*(end1[1]-start1[1]),
+					start1[2]+fraction*(end1[2]-start1[2]),relativePoint);
+			for(int k=0; k<3; k++)
+			{
+				if(k!=axis&&(relativePoint[k]<planeCollider.min[k]||relativePoint[k]>planeCollider.max[k]))
+				{
+					return false;
+				}
+			}
+			//Keep the earliest hit, or the deepest if they are at the same time
+			if(fraction<bestFraction||(fraction==bestFraction&&-endGap>bestPenetration))
+			{
+				bestFraction=fraction;
+				bestSide=side;
+				bestPenetration=Math.max(0, -endGap);
+				bestTouching=touching;
+			}
+		}
+		if(bestFraction==Double.POSITIVE_INFINITY)
+		{
+			return true;//No hit
+		}
+		double normalSign=sign*bestSide;
+		//Only push the objects apart if they were already touching
+		setContact(output,normalSign*endNormal[0],normalSign*endNormal[1],normalSign*endNormal[2],bestFraction,time,bestPenetration,
+				bestTouching ? bestPenetration : 0);
+		return true;
+	}
+	/**
+	 * Gets the transform of an object at the start of the update. Objects that can't move are where they always were.
+	 * @param obj The object
+	 * @return The transform
+	 */
+	private static RigidTransform prevTransform(CustomObject obj)
+	{
+		return obj.canMove() ? obj.getPrevTransform() : obj.getTransform();
+	}
+	/**
+	 * Moves a point from an object's own space to actual space
+	 * @param inpTransform The transform of the object
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output Array of at least 3 to put the actual x,y,z in
+	 */
+	private void toActual(RigidTransform inpTransform, double x, double y, double z, double[] output)
+	{
+		inpTransform.transformVector(x,y,z,output);
+		output[0]+=inpTransform.getTranslationX();
+		output[1]+=inpTransform.getTranslationY();
+		output[2]+=inpTransform.getTranslationZ();
+	}
+}
@@ -0,0 +1,33 @@
+package application;
+
+/**
+ * The earliest hit found by the ray tests so far. Reused between checks so testing rays creates no garbage.
+ * @author Sam Dark
+ *
+ */
+public class RayHit
+{
+	/** How far along the ray the hit is, 0 at the start and 1 at the end. Infinity if nothing has been hit */
+	double fraction=Double.POSITIVE_INFINITY;
+	/** The position in the triangle batch of the triangle that was hit, -1 if nothing has been hit */
+	int index=-1;
+	/** How far the end of the ray is behind the plane of the triangle that was hit, in units of the length of the triangle's normal */
+	double depth=0;
+
+	/**
+	 * Forgets any hit so a new search can start
+	 */
+	public void clear()
+	{
+		fraction=Double.POSITIVE_INFINITY;
+		index=-1;
+	}
+	/**
+	 * Gets if anything has been hit
+	 * @return True if something has been hit, False otherwise
+	 */
+	public boolean isHit()
+	{
+		return index!=-1;
+	}
+}
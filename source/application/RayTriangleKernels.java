@@ -0,0 +1,47 @@
+package application;
+
+/**
+ * Tests a ray against a whole batch of triangles at once. The triangles are stored as flat arrays in a TriangleBatch
+ * so they can be worked through in a tight loop, several at a time when SIMD instructions are available.
+ * Use create() to get the fastest version available.
+ * @author Sam Dark
+ *
+ */
+public interface RayTriangleKernels
+{
+	/**
+	 * Tests the ray from p to q against every triangle in a batch. Only hits on the front of a triangle count,
+	 * that is where the ray is going against the triangle's normal.
+	 * If a hit is earlier along the ray than the one already in hit, hit is changed to it.
+	 * When two hits are at the same point the one earliest in the batch is kept.
+	 * @param px The x coord of the start of the ray
+	 * @param py The y coord of the start of the ray
+	 * @param pz The z coord of the start of the ray
+	 * @param qx The x coord of the end of the ray
+	 * @param qy The y coord of the end of the ray
+	 * @param qz The z coord of the end of the ray
+	 * @param triangles The triangles to test
+	 * @param hit The earliest hit so far, changed if an earlier one is found
+	 */
+	public void intersect(double px, double py, double pz, double qx, double qy, double qz, TriangleBatch triangles, RayHit hit);
+
+	/**
+	 * Gets the fastest kernels available. Uses the SIMD kernels if they were compiled from the simd source folder and the
+	 * jdk.incubator.vector module has been added (run with --add-modules jdk.incubator.vector), otherwise the scalar ones.
+	 * They are only found by name so the rest of the application compiles without them.
+	 * @return The kernels
+	 */
+	public static RayTriangleKernels create()
+	{
+		try
+		{
+			Class.forName("jdk.incubator.vector.DoubleVector");
+			return (RayTriangleKernels)Class.forName("application.SimdRayTriangleKernels").getDeclaredConstructor().newInstance();
+		}
+		catch(Throwable e)
+		{
+			//Vector module not there, or the SIMD kernels weren't compiled
+			return new ScalarRayTriangleKernels();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package application;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Runs scenes without a display and checks the objects end up where they should, so a change to the physics that
+ * changes how the shipped configs behave is noticed. Uses the same objects and configs folders as the simulation,
+ * so run it from the folder they are in.
+ * Prints the result of each check and exits with 1 if any of them failed.
+ *
+ * Usage: RegressionChecks
+ * @author Sam Dark
+ *
+ */
+public class RegressionChecks
+{
+	/** The length of each step (in ms), the same as the simulation uses at 60fps */
+	private static final double STEP=16;
+	/** The number of checks that failed */
+	private static int failures=0;
+
+	/**
+	 * Runs all the checks
+	 * @param args Not used
+	 */
+	public static void main(String[] args)
+	{
+		checkSlopes();
+		checkHighElasticity();
+		checkSlideIntoWall();
+		if(failures>0)
+		{
+			System.out.println(failures+" checks failed");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+	/**
+	 * Slopes has no friction setting so the objects should slide down the slopes the same as they did before the
+	 * contact solver had friction, not stop on them. After 600 steps the capsule is past the bottom of the slopes and still moving.
+	 */
+	private static void checkSlopes()
+	{
+		ArrayList<CustomObject> objects=run("configs/Slopes.conf",600);
+		if(objects==null)
+		{
+			return;
+		}
+		CustomObject capsule=objects.get(0);
+		Position pos=capsule.getPosition();
+		Position vel=capsule.getVel();
+		double speed=Math.sqrt(vel.getX()*vel.getX()+vel.getY()*vel.getY()+vel.getZ()*vel.getZ());
+		check("Slopes capsule slides off the slope",pos.getX()>0&&pos.getY()<0&&speed>1&&!capsule.isAsleep(),
+				"pos=("+pos.getX()+", "+pos.getY()+") speed="+speed);
+	}
+	/**
+	 * HighElasticity has an elasticity of 1, which the old collision response turned into a bounce that gave a moving object
+	 * hitting a floor all of its speed back. The highest sphere lands on the 25 degree slope falling at 10.24 and should
+	 * bounce off it with all of its speed along the normal, which takes it about 1.08 back up.
+	 */
+	private static void checkHighElasticity()
+	{
+		Config config=read("configs/HighElasticity.conf");
+		if(config==null)
+		{
+			return;
+		}
+		ArrayList<CustomObject> objects=HeadlessSimulation.importObjects(config);
+		//Find the highest moving object before the simulation sorts the objects
+		CustomObject ball=null;
+		double highest=-Double.MAX_VALUE;
+		for(int i=0; i<config.objs.size(); i++)
+		{
+			if(config.objs.get(i).canMove&&config.objs.get(i).pos.getY()>highest)
+			{
+				highest=config.objs.get(i).pos.getY();
+				ball=objects.get(i);
+			}
+		}
+		PhysicsSimulation sim=new PhysicsSimulation();
+		sim.init(new HeadlessFrameSink(),objects,config);
+		double bounceY=Double.NaN, peak=-Double.MAX_VALUE, lastVelY=0;
+		for(int i=0; i<800; i++)
+		{
+			sim.runSteps(1,STEP);
+			double y=ball.getPosition().getY(), velY=ball.getVel().getY();
+			if(Double.isNaN(bounceY))
+			{
+				//The bounce is the first update the ball goes from falling to rising
+				if(lastVelY<-1&&velY>0)
+				{
+					bounceY=y;
+				}
+			}
+			else if(velY<0)
+			{
+				break;//Past the top of the bounce
+			}
+			else
+			{
+				peak=Math.max(peak, y);
+			}
+			lastVelY=velY;
+		}
+		double rebound=peak-bounceY;
+		check("HighElasticity sphere bounces back up off the slope",rebound>0.9&&rebound<1.2,"bounce at y="+bounceY+" rebound="+rebound);
+	}
+	/**
+	 * SlideIntoWall has a sphere landing on a slope and sliding down it into a thin wall that is part of the same mesh,
+	 * so the face the sphere is touching is cached when it reaches the wall. The wall is at 5 and the sphere's radius is
+	 * about 1, so after 300 steps it should be resting against the wall, not through it.
+	 */
+	private static void checkSlideIntoWall()
+	{
+		ArrayList<CustomObject> objects=run("configs/SlideIntoWall.conf",300);
+		if(objects==null)
+		{
+			return;
+		}
+		Position pos=objects.get(0).getPosition();
+		check("SlideIntoWall sphere stops at the wall",pos.getX()>3.9&&pos.getX()<5,"pos=("+pos.getX()+", "+pos.getY()+")");
+	}
+	/**
+	 * Reads a config
+	 * @param configPath The path of the config
+	 * @return The config, or null if it couldn't be read
+	 */
+	private static Config read(String configPath)
+	{
+		try
+		{
+			return ConfigReader.readConfig(configPath);
+		}
+		catch(IOException e)
+		{
+			check("Read "+configPath,false,e.getMessage());
+			return null;
+		}
+	}
+	/**
+	 * Runs a config for a number of steps
+	 * @param configPath The path of the config
+	 * @param steps The number of steps
+	 * @return The objects after the steps, or null if the config couldn't be read
+	 */
+	private static ArrayList<CustomObject> run(String configPath, int steps)
+	{
+		Config config=read(configPath);
+		if(config==null)
+		{
+			return null;
+		}
+		ArrayList<CustomObject> objects=HeadlessSimulation.importObjects(config);
+		PhysicsSimulation sim=new PhysicsSimulation();
+		sim.init(new HeadlessFrameSink(),objects,config);
+		sim.runSteps(steps,STEP);
+		return objects;
+	}
+	/**
+	 * Prints the result of a check and counts it if it failed
+	 * @param name What was checked
+	 * @param passed Did the check pass
+	 * @param detail The values the check looked at, printed if it failed
+	 */
+	private static void check(String name, boolean passed, String detail)
+	{
+		if(passed)
+		{
+			System.out.println("PASS "+name);
+		}
+		else
+		{
+			System.out.println("FAIL "+name+" ("+detail+")");
+			failures++;
+		}
+	}
+}
@@ -28,7 +28,7 @@ import com.jogamp.opengl.util.texture.TextureIO;
  * @author Sam Dark
  *
  */
-public class Renderer implements GLEventListener
+public class Renderer implements GLEventListener, FrameSink
 {
 	/** The FPS counter for displaying fps (and other strings) to the screen */
 	private FPSSystem FPSCounter;//Object for handling fps tracking and displaying strings to the screen
@@ -0,0 +1,263 @@
+package application;
+
+/**
+ * A rotation followed by a translation, stored as a 3x3 rotation matrix and a translation vector.
+ * Used for moving points between an object's own space and actual space without general 4x4 matrices.
+ * All the operations change the transform in place so nothing is created while the simulation runs.
+ * @author Sam Dark
+ *
+ */
+public class RigidTransform
+{
+	/** Row 0 of the rotation matrix */
+	private double m00=1, m01=0, m02=0;
+	/** Row 1 of the rotation matrix */
+	private double m10=0, m11=1, m12=0;
+	/** Row 2 of the rotation matrix */
+	private double m20=0, m21=0, m22=1;
+	/** The translation */
+	private double tx=0, ty=0, tz=0;
+
+	/**
+	 * Creates a transform that doesn't move anything
+	 */
+	RigidTransform()
+	{
+	}
+	/**
+	 * Sets the transform to one that doesn't move anything
+	 */
+	public void setIdentity()
+	{
+		m00=1; m01=0; m02=0;
+		m10=0; m11=1; m12=0;
+		m20=0; m21=0; m22=1;
+		tx=0; ty=0; tz=0;
+	}
+	/**
+	 * Checks if the transform doesn't move anything, like the transform of an object at the origin that isn't rotated
+	 * @return True if it is the identity, False otherwise
+	 */
+	public boolean isIdentity()
+	{
+		return m00==1&&m01==0&&m02==0&&m10==0&&m11==1&&m12==0&&m20==0&&m21==0&&m22==1&&tx==0&&ty==0&&tz==0;
+	}
+	/**
+	 * Sets the transform to a copy of another one
+	 * @param inpTransform The transform to copy
+	 */
+	public void set(RigidTransform inpTransform)
+	{
+		m00=inpTransform.m00; m01=inpTransform.m01; m02=inpTransform.m02;
+		m10=inpTransform.m10; m11=inpTransform.m11; m12=inpTransform.m12;
+		m20=inpTransform.m20; m21=inpTransform.m21; m22=inpTransform.m22;
+		tx=inpTransform.tx; ty=inpTransform.ty; tz=inpTransform.tz;
+	}
+	/**
+	 * Sets the rotation part to an x, y and z axis rotation. The z rotation is applied first, then y, then x.
+	 * @param xDegrees The x axis rotation in degrees
+	 * @param yDegrees The y axis rotation in degrees
+	 * @param zDegrees The z axis rotation in degrees
+	 */
+	public void setRotation(double xDegrees, double yDegrees, double zDegrees)
+	{
+		double cx=Math.cos(Math.toRadians(xDegrees));
+		double sx=Math.sin(Math.toRadians(xDegrees));
+		double cy=Math.cos(Math.toRadians(yDegrees));
+		double sy=Math.sin(Math.toRadians(yDegrees));
+		double cz=Math.cos(Math.toRadians(zDegrees));
+		double sz=Math.sin(Math.toRadians(zDegrees));
+		//y rotation times z rotation
+		double a00=cy*cz, a01=cy*-sz, a02=sy;
+		double a10=sz, a11=cz;
+		double a20=-sy*cz, a21=-sy*-sz, a22=cy;
+		//x rotation times that
+		m00=a00; m01=a01; m02=a02;
+		m10=cx*a10+(-sx)*a20; m11=cx*a11+(-sx)*a21; m12=(-sx)*a22;
+		m20=sx*a10+cx*a20; m21=sx*a11+cx*a21; m22=cx*a22;
+	}
+	/**
+	 * Sets the rotation part to the rotation of a quaternion
+	 * @param x The x component of the quaternion
+	 * @param y The y component of the quaternion
+	 * @param z The z component of the quaternion
+	 * @param w The w component of the quaternion
+	 */
+	public void setRotationQuaternion(double x, double y, double z, double w)
+	{
+		m00=1-2*(y*y+z*z); m01=2*(x*y-z*w); m02=2*(x*z+y*w);
+		m10=2*(x*y+z*w); m11=1-2*(x*x+z*z); m12=2*(y*z-x*w);
+		m20=2*(x*z-y*w); m21=2*(y*z+x*w); m22=1-2*(x*x+y*y);
+	}
+	/**
+	 * Sets the translation part
+	 * @param inpX The x translation
+	 * @param inpY The y translation
+	 * @param inpZ The z translation
+	 */
+	public void setTranslation(double inpX, double inpY, double inpZ)
+	{
+		tx=inpX;
+		ty=inpY;
+		tz=inpZ;
+	}
+	/**
+	 * Sets the transform to first applying b then applying a. Either can be this transform.
+	 * @param a The transform applied second
+	 * @param b The transform applied first
+	 */
+	public void compose(RigidTransform a, RigidTransform b)
+	{
+		double r00=a.m00*b.m00+a.m01*b.m10+a.m02*b.m20;
+		double r01=a.m00*b.m01+a.m01*b.m11+a.m02*b.m21;
+		double r02=a.m00*b.m02+a.m01*b.m12+a.m02*b.m22;
+		double r10=a.m10*b.m00+a.m11*b.m10+a.m12*b.m20;
+		double r11=a.m10*b.m01+a.m11*b.m11+a.m12*b.m21;
+		double r12=a.m10*b.m02+a.m11*b.m12+a.m12*b.m22;
+		double r20=a.m20*b.m00+a.m21*b.m10+a.m22*b.m20;
+		double r21=a.m20*b.m01+a.m21*b.m11+a.m22*b.m21;
+		double r22=a.m20*b.m02+a.m21*b.m12+a.m22*b.m22;
+		double x=a.m00*b.tx+a.m01*b.ty+a.m02*b.tz+a.tx;
+		double y=a.m10*b.tx+a.m11*b.ty+a.m12*b.tz+a.ty;
+		double z=a.m20*b.tx+a.m21*b.ty+a.m22*b.tz+a.tz;
+		m00=r00; m01=r01; m02=r02;
+		m10=r10; m11=r11; m12=r12;
+		m20=r20; m21=r21; m22=r22;
+		tx=x; ty=y; tz=z;
+	}
+	/**
+	 * Changes the transform to its inverse, the inverse of a rotation matrix is its transpose
+	 */
+	public void invert()
+	{
+		double temp=m01; m01=m10; m10=temp;
+		temp=m02; m02=m20; m20=temp;
+		temp=m12; m12=m21; m21=temp;
+		double x=-(m00*tx+m01*ty+m02*tz);
+		double y=-(m10*tx+m11*ty+m12*tz);
+		double z=-(m20*tx+m21*ty+m22*tz);
+		tx=x;
+		ty=y;
+		tz=z;
+	}
+	/**
+	 * Transforms a point, rotating it then translating it
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output The position to put the transformed point in
+	 */
+	public void transformPoint(double x, double y, double z, Position output)
+	{
+		output.setPosition(m00*x+m01*y+m02*z+tx, m10*x+m11*y+m12*z+ty, m20*x+m21*y+m22*z+tz);
+	}
+	/**
+	 * Transforms a point, rotating it then translating it
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output Array to put the transformed x,y,z in
+	 * @param offset Where in the array the x goes, the y and z go after it
+	 */
+	public void transformPoint(double x, double y, double z, double[] output, int offset)
+	{
+		output[offset]=m00*x+m01*y+m02*z+tx;
+		output[offset+1]=m10*x+m11*y+m12*z+ty;
+		output[offset+2]=m20*x+m21*y+m22*z+tz;
+	}
+	/**
+	 * Transforms a direction, only rotating it
+	 * @param x The x component of the direction
+	 * @param y The y component of the direction
+	 * @param z The z component of the direction
+	 * @param output Array of at least 3 to put the transformed x,y,z in
+	 */
+	public void transformVector(double x, double y, double z, double[] output)
+	{
+		output[0]=m00*x+m01*y+m02*z;
+		output[1]=m10*x+m11*y+m12*z;
+		output[2]=m20*x+m21*y+m22*z;
+	}
+	/**
+	 * Works out the box around a box after it has been transformed, by moving its centre and adding up how far each of
+	 * its half widths reaches along each axis, the same as transforming its 8 corners
+	 * @param input The box {minX,minY,minZ,maxX,maxY,maxZ}
+	 * @param output Array of at least 6 to put the transformed box in, not the input
+	 */
+	public void transformBox(double[] input, double[] output)
+	{
+		double x=0.5*(input[0]+input[3]), y=0.5*(input[1]+input[4]), z=0.5*(input[2]+input[5]);
+		double halfX=0.5*(input[3]-input[0]), halfY=0.5*(input[4]-input[1]), halfZ=0.5*(input[5]-input[2]);
+		double reachX=Math.abs(m00)*halfX+Math.abs(m01)*halfY+Math.abs(m02)*halfZ;
+		double reachY=Math.abs(m10)*halfX+Math.abs(m11)*halfY+Math.abs(m12)*halfZ;
+		double reachZ=Math.abs(m20)*halfX+Math.abs(m21)*halfY+Math.abs(m22)*halfZ;
+		transformPoint(x,y,z,output,0);
+		output[3]=output[0]+reachX;
+		output[4]=output[1]+reachY;
+		output[5]=output[2]+reachZ;
+		output[0]-=reachX;
+		output[1]-=reachY;
+		output[2]-=reachZ;
+	}
+	/**
+	 * Transforms a point by the inverse of this transform, untranslating it then unrotating it
+	 * @param x The x coord of the point
+	 * @param y The y coord of the point
+	 * @param z The z coord of the point
+	 * @param output Array of at least 3 to put the transformed x,y,z in
+	 */
+	public void inverseTransformPoint(double x, double y, double z, double[] output)
+	{
+		x-=tx;
+		y-=ty;
+		z-=tz;
+		output[0]=m00*x+m10*y+m20*z;
+		output[1]=m01*x+m11*y+m21*z;
+		output[2]=m02*x+m12*y+m22*z;
+	}
+	/**
+	 * Gets an element of the rotation matrix
+	 * @param row The row (0-2)
+	 * @param col The column (0-2)
+	 * @return The element
+	 */
+	public double getRotation(int row, int col)
+	{
+		switch(3*row+col)
+		{
+			case 0: return m00;
+			case 1: return m01;
+			case 2: return m02;
+			case 3: return m10;
+			case 4: return m11;
+			case 5: return m12;
+			case 6: return m20;
+			case 7: return m21;
+			default: return m22;
+		}
+	}
+	/**
+	 * Gets the x translation
+	 * @return The x translation
+	 */
+	public double getTranslationX()
+	{
+		return tx;
+	}
+	/**
+	 * Gets the y translation
+	 * @return The y translation
+	 */
+	public double getTranslationY()
+	{
+		return ty;
+	}
+	/**
+	 * Gets the z translation
+	 * @return The z translation
+	 */
+	public double getTranslationZ()
+	{
+		return tz;
+	}
+}
@@ -50,11 +50,11 @@ public class Rotation
 	 */
 	Rotation(Rotation inpRot)
 	{
-		thetaX=inpRot.thetaX;
-		thetaY=inpRot.thetaY;
-		thetaZ=inpRot.thetaZ;
-		acc=inpRot.acc;
-		vel=inpRot.acc;
+		thetaX=inpRot.getX();
+		thetaY=inpRot.getY();
+		thetaZ=inpRot.getZ();
+		acc=inpRot.getAcc();
+		vel=inpRot.getVel();
 	}
 	/**
 	 * Sets the rotation for each axis.
@@ -0,0 +1,89 @@
+package application;
+
+/**
+ * Tests rays against triangles one triangle at a time. Used when the SIMD kernels aren't available,
+ * and by the SIMD kernels for the triangles left over that don't fill a whole vector.
+ * @author Sam Dark
+ *
+ */
+public class ScalarRayTriangleKernels implements RayTriangleKernels
+{
+	/**
+	 * Tests the ray from p to q against every triangle in a batch. Only hits on the front of a triangle count,
+	 * that is where the ray is going against the triangle's normal.
+	 * If a hit is earlier along the ray than the one already in hit, hit is changed to it.
+	 * When two hits are at the same point the one earliest in the batch is kept.
+	 * @param px The x coord of the start of the ray
+	 * @param py The y coord of the start of the ray
+	 * @param pz The z coord of the start of the ray
+	 * @param qx The x coord of the end of the ray
+	 * @param qy The y coord of the end of the ray
+	 * @param qz The z coord of the end of the ray
+	 * @param triangles The triangles to test
+	 * @param hit The earliest hit so far, changed if an earlier one is found
+	 */
+	@Override
+	public void intersect(double px, double py, double pz, double qx, double qy, double qz, TriangleBatch triangles, RayHit hit)
+	{
+		intersect(px,py,pz,qx,qy,qz,triangles,0,hit);
+	}
+	/**
+	 * Tests the ray from p to q against the triangles in a batch from a starting position to the end of the batch
+	 * @param px The x coord of the start of the ray
+	 * @param py The y coord of the start of the ray
+	 * @param pz The z coord of the start of the ray
+	 * @param qx The x coord of the end of the ray
+	 * @param qy The y coord of the end of the ray
+	 * @param qz The z coord of the end of the ray
+	 * @param triangles The triangles to test
+	 * @param start The position of the first triangle to test
+	 * @param hit The earliest hit so far, changed if an earlier one is found
+	 */
+	static void intersect(double px, double py, double pz, double qx, double qy, double qz, TriangleBatch triangles, int start, RayHit hit)
+	{
+		//p-q
+		double qpx=px-qx, qpy=py-qy, qpz=pz-qz;
+		for(int i=start; i<triangles.size(); i++)
+		{
+			//Check if the ray is pointing at the triangle
+			//d=0 means ray is parallel d<0 means ray facing away
+			double d=qpx*triangles.nx[i]+qpy*triangles.ny[i]+qpz*triangles.nz[i];
+			if(d<=0.0)
+			{
+				continue;
+			}
+			//p-a
+			double apx=px-triangles.ax[i], apy=py-triangles.ay[i], apz=pz-triangles.az[i];
+			//If t<0 or t>d the ray doesn't reach the plane of the triangle
+			double t=apx*triangles.nx[i]+apy*triangles.ny[i]+apz*triangles.nz[i];
+			if(t<0.0 || t>d)
+			{
+				continue;
+			}
+			//e is the cross product of qp and ap
+			double ex=(qpy*apz)-(qpz*apy);
+			double ey=(qpz*apx)-(qpx*apz);
+			double ez=(qpx*apy)-(qpy*apx);
+			//If v>d or v<0 not intersecting
+			double v=triangles.acx[i]*ex+triangles.acy[i]*ey+triangles.acz[i]*ez;
+			if(v<0.0 || v>d)
+			{
+				continue;
+			}
+			//If v+w>d or w<0 not intersecting
+			double w=-(triangles.abx[i]*ex+triangles.aby[i]*ey+triangles.abz[i]*ez);
+			if(w<0.0 || v+w>d)
+			{
+				continue;
+			}
+			//It intersects, keep it if it is the earliest
+			double fraction=t*(1.0/d);
+			if(fraction<hit.fraction)
+			{
+				hit.fraction=fraction;
+				hit.index=i;
+				hit.depth=d-t;
+			}
+		}
+	}
+}
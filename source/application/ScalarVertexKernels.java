@@ -0,0 +1,56 @@
+package application;
+
+/**
+ * Transforms meshes of vertices one coordinate at a time. Used when the SIMD kernels aren't available.
+ * @author Sam Dark
+ *
+ */
+public class ScalarVertexKernels implements VertexKernels
+{
+	/**
+	 * Transforms vertices from an object's own space to actual space and works out the box around them in the same pass
+	 * @param inpTransform The transform to apply
+	 * @param xs The x coords of the vertices
+	 * @param ys The y coords of the vertices
+	 * @param zs The z coords of the vertices
+	 * @param count The number of vertices, at least 1
+	 * @param outXs The array to put the transformed x coords in
+	 * @param outYs The array to put the transformed y coords in
+	 * @param outZs The array to put the transformed z coords in
+	 * @param bounds Array of at least 6 to put the box around the transformed vertices in, {minX,minY,minZ,maxX,maxY,maxZ}
+	 */
+	@Override
+	public void transform(RigidTransform inpTransform, double[] xs, double[] ys, double[] zs, int count,
+			double[] outXs, double[] outYs, double[] outZs, double[] bounds)
+	{
+		double m00=inpTransform.getRotation(0,0), m01=inpTransform.getRotation(0,1), m02=inpTransform.getRotation(0,2);
+		double m10=inpTransform.getRotation(1,0), m11=inpTransform.getRotation(1,1), m12=inpTransform.getRotation(1,2);
+		double m20=inpTransform.getRotation(2,0), m21=inpTransform.getRotation(2,1), m22=inpTransform.getRotation(2,2);
+		double tx=inpTransform.getTranslationX(), ty=inpTransform.getTranslationY(), tz=inpTransform.getTranslationZ();
+		double minX=Double.MAX_VALUE, minY=Double.MAX_VALUE, minZ=Double.MAX_VALUE;
+		double maxX=-Double.MAX_VALUE, maxY=-Double.MAX_VALUE, maxZ=-Double.MAX_VALUE;
+		for(int i=0;i<count;i++)
+		{
+			double x=xs[i], y=ys[i], z=zs[i];
+			double outX=m00*x+m01*y+m02*z+tx;
+			double outY=m10*x+m11*y+m12*z+ty;
+			double outZ=m20*x+m21*y+m22*z+tz;
+			outXs[i]=outX;
+			outYs[i]=outY;
+			outZs[i]=outZ;
+			//Plain comparisons as Math.min and Math.max are slow for doubles and the coords are never NaN
+			minX=outX<minX ? outX : minX;
+			minY=outY<minY ? outY : minY;
+			minZ=outZ<minZ ? outZ : minZ;
+			maxX=outX>maxX ? outX : maxX;
+			maxY=outY>maxY ? outY : maxY;
+			maxZ=outZ>maxZ ? outZ : maxZ;
+		}
+		bounds[0]=minX;
+		bounds[1]=minY;
+		bounds[2]=minZ;
+		bounds[3]=maxX;
+		bounds[4]=maxY;
+		bounds[5]=maxZ;
+	}
+}
@@ -0,0 +1,127 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * Working storage for the contact solver, one for each thread resolving islands.
+ * The velocities of the moving objects in the island and the rows of the solver (one for each contact) are kept in flat arrays
+ * that grow as needed and are reused every update.
+ * @author Sam Dark
+ *
+ */
+public class SolverScratch
+{
+	/** The solver body of each object, -1 if the object isn't in the island being solved */
+	int[] bodyOf=new int[0];
+	/** The object number of each solver body */
+	int[] objNos=new int[16];
+	/** The velocity of each solver body while the solver runs */
+	double[] velX=new double[16], velY=new double[16], velZ=new double[16];
+	/** The inverse mass of each solver body */
+	double[] invMass=new double[16];
+	/** The number of solver bodies */
+	int bodyCount=0;
+
+	/** The contact each row is for */
+	Contact[] contacts=new Contact[16];
+	/** The solver body of the first object of each row, -1 if it can't move */
+	int[] bodyA=new int[16];
+	/** The solver body of the second object of each row, -1 if it can't move */
+	int[] bodyB=new int[16];
+	/** The normal of each row, pointing from the second object to the first */
+	double[] normalX=new double[16], normalY=new double[16], normalZ=new double[16];
+	/** The first friction direction of each row */
+	double[] tangent1X=new double[16], tangent1Y=new double[16], tangent1Z=new double[16];
+	/** The second friction direction of each row */
+	double[] tangent2X=new double[16], tangent2Y=new double[16], tangent2Z=new double[16];
+	/** The mass the impulses of each row act on, 1/(inverse mass A + inverse mass B) */
+	double[] effectiveMass=new double[16];
+	/** The speed each row's objects should be separating at after solving, from restitution */
+	double[] bias=new double[16];
+	/** The normal impulse built up by each row */
+	double[] normalImpulse=new double[16];
+	/** The impulse along the first tangent built up by each row */
+	double[] tangentImpulse1=new double[16];
+	/** The impulse along the second tangent built up by each row */
+	double[] tangentImpulse2=new double[16];
+	/** The number of rows */
+	int rowCount=0;
+
+	/**
+	 * Empties the storage ready for solving an island
+	 * @param objectCount The number of objects in the simulation
+	 */
+	public void clear(int objectCount)
+	{
+		if(bodyOf.length<objectCount)
+		{
+			bodyOf=new int[Math.max(objectCount, 2*bodyOf.length)];
+			Arrays.fill(bodyOf, -1);
+		}
+		//Only the entries of the last island were set so only they need clearing
+		for(int i=0; i<bodyCount; i++)
+		{
+			bodyOf[objNos[i]]=-1;
+		}
+		bodyCount=0;
+		rowCount=0;
+	}
+	/**
+	 * Adds a solver body for a moving object, growing the arrays if they are full
+	 * @param objNo The object number
+	 * @param inpVelX The x velocity of the object
+	 * @param inpVelY The y velocity of the object
+	 * @param inpVelZ The z velocity of the object
+	 * @param inpInvMass The inverse mass of the object
+	 * @return The solver body
+	 */
+	public int addBody(int objNo, double inpVelX, double inpVelY, double inpVelZ, double inpInvMass)
+	{
+		if(bodyCount==objNos.length)
+		{
+			int capacity=2*objNos.length;
+			objNos=Arrays.copyOf(objNos, capacity);
+			velX=Arrays.copyOf(velX, capacity);
+			velY=Arrays.copyOf(velY, capacity);
+			velZ=Arrays.copyOf(velZ, capacity);
+			invMass=Arrays.copyOf(invMass, capacity);
+		}
+		objNos[bodyCount]=objNo;
+		velX[bodyCount]=inpVelX;
+		velY[bodyCount]=inpVelY;
+		velZ[bodyCount]=inpVelZ;
+		invMass[bodyCount]=inpInvMass;
+		bodyOf[objNo]=bodyCount;
+		bodyCount++;
+		return bodyCount-1;
+	}
+	/**
+	 * Adds a row, growing the arrays if they are full. The values of the row are left over from before and need setting.
+	 * @return The row
+	 */
+	public int addRow()
+	{
+		if(rowCount==contacts.length)
+		{
+			int capacity=2*contacts.length;
+			contacts=Arrays.copyOf(contacts, capacity);
+			bodyA=Arrays.copyOf(bodyA, capacity);
+			bodyB=Arrays.copyOf(bodyB, capacity);
+			normalX=Arrays.copyOf(normalX, capacity);
+			normalY=Arrays.copyOf(normalY, capacity);
+			normalZ=Arrays.copyOf(normalZ, capacity);
+			tangent1X=Arrays.copyOf(tangent1X, capacity);
+			tangent1Y=Arrays.copyOf(tangent1Y, capacity);
+			tangent1Z=Arrays.copyOf(tangent1Z, capacity);
+			tangent2X=Arrays.copyOf(tangent2X, capacity);
+			tangent2Y=Arrays.copyOf(tangent2Y, capacity);
+			tangent2Z=Arrays.copyOf(tangent2Z, capacity);
+			effectiveMass=Arrays.copyOf(effectiveMass, capacity);
+			bias=Arrays.copyOf(bias, capacity);
+			normalImpulse=Arrays.copyOf(normalImpulse, capacity);
+			tangentImpulse1=Arrays.copyOf(tangentImpulse1, capacity);
+			tangentImpulse2=Arrays.copyOf(tangentImpulse2, capacity);
+		}
+		rowCount++;
+		return rowCount-1;
+	}
+}
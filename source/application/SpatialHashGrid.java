@@ -0,0 +1,380 @@
+package application;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A uniform grid broadphase for scenes with lots of objects of a similar size.
+ * Each AABB is hashed into the grid cells it covers and only boxes sharing a cell are tested against each other.
+ * The cell size is picked each update from the median size of the boxes.
+ * All the cells are stored in primitive arrays that are reused, so rebuilding the grid each update makes no garbage.
+ * Boxes that would cover too many cells (floors etc) are kept out of the grid and tested against every box instead.
+ * @author Sam Dark
+ *
+ */
+public class SpatialHashGrid implements Broadphase
+{
+	/** The most cells a box can cover before it is treated as oversized and kept out of the grid */
+	private int maxCellsPerBox=64;
+	/** The size of the grid cells used in the last update */
+	private double cellSize=1;
+	/** The number of boxes in the last update */
+	private int count=0;
+	/** The min coords of each box, stored {x,y,z} for box 0 then box 1 etc */
+	private double[] mins= new double[0];
+	/** The max coords of each box, stored the same as mins */
+	private double[] maxs= new double[0];
+	/** Is the object each box belongs to active (can move and is awake)? */
+	private boolean[] movable= new boolean[0];
+	/** The largest side of each box, used for finding the median box size */
+	private double[] extents= new double[0];
+	/** The boxes too big to put in the grid */
+	private int[] oversized= new int[0];
+	/** Is each box too big to put in the grid? */
+	private boolean[] isOversized= new boolean[0];
+	/** The number of oversized boxes */
+	private int oversizedCount=0;
+	/** The box of each grid entry, in the order they were added */
+	private int[] entryBox= new int[0];
+	/** The packed cell coords of each grid entry, in the order they were added */
+	private long[] entryCell= new long[0];
+	/** The hash table bucket of each grid entry */
+	private int[] entryBucket= new int[0];
+	/** The box of each grid entry, sorted by bucket */
+	private int[] sortedBox= new int[0];
+	/** The packed cell coords of each grid entry, sorted by bucket */
+	private long[] sortedCell= new long[0];
+	/** Where each bucket starts in the sorted entries, bucket b is from bucketStart[b] to bucketStart[b+1] */
+	private int[] bucketStart= new int[1];
+	/** The number of entries in the grid */
+	private int entryCount=0;
+	/** The overlapping pairs found in the last update */
+	private PairList pairs= new PairList();
+
+	/**
+	 * Rebuilds the grid with the given AABBs and finds all the pairs of overlapping boxes.
+	 */
+	@Override
+	public int findPairs(ArrayList<AABB> inpAABBs, ArrayList<CustomObject> inpObjs)
+	{
+		int size=inpAABBs.size();
+		if(size!=count)
+		{
+			resize(size);
+		}
+		//Copy the box bounds in
+		for(int i=0;i<size;i++)
+		{
+			AABB box=inpAABBs.get(i);
+			mins[3*i]=box.getMinX();
+			mins[3*i+1]=box.getMinY();
+			mins[3*i+2]=box.getMinZ();
+			maxs[3*i]=box.getMaxX();
+			maxs[3*i+1]=box.getMaxY();
+			maxs[3*i+2]=box.getMaxZ();
+			movable[i]=inpObjs.get(i).isActive();
+			extents[i]=Math.max(maxs[3*i]-mins[3*i], Math.max(maxs[3*i+1]-mins[3*i+1], maxs[3*i+2]-mins[3*i+2]));
+		}
+		pairs.clear();
+		if(size>0)
+		{
+			//Cells the size of the median box mean most boxes only cover a few cells
+			cellSize=median(extents,size);
+			if(cellSize<=0)
+			{
+				cellSize=1;
+			}
+			fillGrid(size);
+			findGridPairs();
+			findOversizedPairs(size);
+		}
+		//Sort the pairs so they are always resolved in the same order
+		pairs.sort();
+		return pairs.size();
+	}
+	@Override
+	public int[] getPairs()
+	{
+		return pairs.getPairs();
+	}
+	@Override
+	public int getPairCount()
+	{
+		return pairs.size();
+	}
+	/**
+	 * Sets the most cells a box can cover before it is kept out of the grid and tested against every other box
+	 * @param inpMax The maximum number of cells
+	 */
+	public void setMaxCellsPerBox(int inpMax)
+	{
+		maxCellsPerBox=Math.max(1, inpMax);
+	}
+	/**
+	 * Gets the cell size used in the last update
+	 * @return The cell size
+	 */
+	public double getCellSize()
+	{
+		return cellSize;
+	}
+	/**
+	 * Makes new per box arrays for a different number of boxes
+	 * @param size The number of boxes
+	 */
+	private void resize(int size)
+	{
+		count=size;
+		mins=new double[3*size];
+		maxs=new double[3*size];
+		movable=new boolean[size];
+		extents=new double[size];
+		oversized=new int[size];
+		isOversized=new boolean[size];
+	}
+	/**
+	 * Puts every box that isn't oversized into the cells it covers, then sorts the entries by hash bucket
+	 * with a counting sort so the boxes in each bucket are next to each other.
+	 * @param size The number of boxes
+	 */
+	private void fillGrid(int size)
+	{
+		entryCount=0;
+		oversizedCount=0;
+		for(int i=0;i<size;i++)
+		{
+			int minX=cell(mins[3*i]);
+			int minY=cell(mins[3*i+1]);
+			int minZ=cell(mins[3*i+2]);
+			int maxX=cell(maxs[3*i]);
+			int maxY=cell(maxs[3*i+1]);
+			int maxZ=cell(maxs[3*i+2]);
+			long cells=(long)(maxX-minX+1)*(maxY-minY+1)*(maxZ-minZ+1);
+			isOversized[i]=cells>maxCellsPerBox;
+			if(isOversized[i])
+			{
+				oversized[oversizedCount]=i;
+				oversizedCount++;
+				continue;
+			}
+			ensureEntryCapacity(entryCount+(int)cells);
+			for(int x=minX;x<=maxX;x++)
+			{
+				for(int y=minY;y<=maxY;y++)
+				{
+					for(int z=minZ;z<=maxZ;z++)
+					{
+						entryBox[entryCount]=i;
+						entryCell[entryCount]=packCell(x,y,z);
+						entryCount++;
+					}
+				}
+			}
+		}
+		//Use a table at least twice the number of entries so buckets are mostly one cell each
+		int buckets=Integer.highestOneBit(Math.max(entryCount,1))*2;
+		if(bucketStart.length!=buckets+1)
+		{
+			bucketStart=new int[buckets+1];
+		}
+		else
+		{
+			Arrays.fill(bucketStart, 0);
+		}
+		//Count the entries in each bucket
+		for(int e=0;e<entryCount;e++)
+		{
+			entryBucket[e]=hash(entryCell[e])&(buckets-1);
+			bucketStart[entryBucket[e]+1]++;
+		}
+		//Turn the counts into start positions
+		for(int b=0;b<buckets;b++)
+		{
+			bucketStart[b+1]+=bucketStart[b];
+		}
+		//Put the entries in bucket order, using entryBucket as the next free slot of each bucket
+		for(int e=0;e<entryCount;e++)
+		{
+			int bucket=entryBucket[e];
+			int slot=bucketStart[bucket];
+			bucketStart[bucket]++;
+			sortedBox[slot]=entryBox[e];
+			sortedCell[slot]=entryCell[e];
+		}
+		//Each start position has moved along to the next bucket's start, shift them back
+		for(int b=buckets;b>0;b--)
+		{
+			bucketStart[b]=bucketStart[b-1];
+		}
+		bucketStart[0]=0;
+	}
+	/**
+	 * Tests the boxes in each bucket against each other.
+	 * A pair is only reported from the cell holding the lowest corner of the region where the boxes overlap,
+	 * so pairs that share lots of cells are still only reported once.
+	 */
+	private void findGridPairs()
+	{
+		for(int b=0;b<bucketStart.length-1;b++)
+		{
+			int end=bucketStart[b+1];
+			for(int e1=bucketStart[b];e1<end;e1++)
+			{
+				for(int e2=e1+1;e2<end;e2++)
+				{
+					//Different cells can hash to the same bucket
+					if(sortedCell[e1]!=sortedCell[e2])
+					{
+						continue;
+					}
+					int a=sortedBox[e1];
+					int c=sortedBox[e2];
+					if(a==c||(!movable[a]&&!movable[c])||!overlaps(a,c))
+					{
+						continue;
+					}
+					long firstCell=packCell(cell(Math.max(mins[3*a],mins[3*c])),cell(Math.max(mins[3*a+1],mins[3*c+1])),cell(Math.max(mins[3*a+2],mins[3*c+2])));
+					if(firstCell==sortedCell[e1])
+					{
+						pairs.add(a,c);
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * Tests the oversized boxes against every other box
+	 * @param size The number of boxes
+	 */
+	private void findOversizedPairs(int size)
+	{
+		for(int k=0;k<oversizedCount;k++)
+		{
+			int a=oversized[k];
+			for(int i=0;i<size;i++)
+			{
+				//Oversized against oversized pairs are only tested one way around
+				if(i==a||(isOversized[i]&&i<a))
+				{
+					continue;
+				}
+				if((movable[a]||movable[i])&&overlaps(a,i))
+				{
+					pairs.add(a,i);
+				}
+			}
+		}
+	}
+	/**
+	 * Checks if two boxes overlap
+	 * @param a The first box
+	 * @param b The second box
+	 * @return True if the boxes overlap or touch
+	 */
+	private boolean overlaps(int a, int b)
+	{
+		for(int axis=0;axis<3;axis++)
+		{
+			if(mins[3*a+axis]>maxs[3*b+axis]||mins[3*b+axis]>maxs[3*a+axis])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Gets the grid cell coord a value is in
+	 * @param value The coord on one axis
+	 * @return The cell coord on that axis
+	 */
+	private int cell(double value)
+	{
+		return (int)Math.floor(value/cellSize);
+	}
+	/**
+	 * Packs three cell coords into one long, 21 bits each
+	 * @param x The x cell coord
+	 * @param y The y cell coord
+	 * @param z The z cell coord
+	 * @return The packed cell coords
+	 */
+	private static long packCell(int x, int y, int z)
+	{
+		return (((long)x&0x1FFFFF)<<42)|(((long)y&0x1FFFFF)<<21)|((long)z&0x1FFFFF);
+	}
+	/**
+	 * Hashes packed cell coords
+	 * @param cell The packed cell coords
+	 * @return The hash
+	 */
+	private static int hash(long cell)
+	{
+		long h=cell*0x9E3779B97F4A7C15L;
+		return (int)(h^(h>>>32));
+	}
+	/**
+	 * Makes sure the entry arrays can hold a given number of entries, growing them if they can't
+	 * @param capacity The number of entries needed
+	 */
+	private void ensureEntryCapacity(int capacity)
+	{
+		if(capacity>entryBox.length)
+		{
+			int newSize=Math.max(capacity, entryBox.length*2);
+			entryBox=Arrays.copyOf(entryBox, newSize);
+			entryCell=Arrays.copyOf(entryCell, newSize);
+			entryBucket=Arrays.copyOf(entryBucket, newSize);
+			sortedBox=new int[newSize];
+			sortedCell=new long[newSize];
+		}
+	}
+	/**
+	 * Finds the median of the first values in an array using quickselect. Reorders the array.
+	 * @param values The values
+	 * @param size The number of values to use
+	 * @return The median value
+	 */
+	private static double median(double[] values, int size)
+	{
+		int k=size/2;
+		int left=0;
+		int right=size-1;
+		while(left<right)
+		{
+			double pivot=values[(left+right)>>>1];
+			int i=left;
+			int j=right;
+			while(i<=j)
+			{
+				while(values[i]<pivot)
+				{
+					i++;
+				}
+				while(values[j]>pivot)
+				{
+					j--;
+				}
+				if(i<=j)
+				{
+					double temp=values[i];
+					values[i]=values[j];
+					values[j]=temp;
+					i++;
+					j--;
+				}
+			}
+			if(k<=j)
+			{
+				right=j;
+			}
+			else if(k>=i)
+			{
+				left=i;
+			}
+			else
+			{
+				break;
+			}
+		}
+		return values[k];
+	}
+}
@@ -0,0 +1,118 @@
+package application;
+import java.util.ArrayList;
+
+/**
+ * Holds the collision information of all the objects that can't move.
+ * These objects never change so everything is worked out once when the simulation starts: their AABBs from their actual
+ * low poly vertices and a bounding volume hierarchy over the AABBs. Their faces are checked in their own space like every other object's.
+ * Moving objects search the hierarchy each update instead of being checked against every object that can't move.
+ * @author Sam Dark
+ *
+ */
+public class StaticWorld
+{
+	/** The number of objects in the simulation when the static world was built */
+	private int objectCount=0;
+	/** The position of each object in the static lists, -1 for objects that can move */
+	private int[] staticNos= new int[0];
+	/** The object number of each static object */
+	private int[] objectNos= new int[0];
+	/** The AABB of each static object */
+	private ArrayList<AABB> AABBs= new ArrayList<AABB>();
+	/** Hierarchy over the static AABBs, used for finding which static objects a moving object could hit */
+	private BoundingVolumeHierarchy index=null;
+	/** The results of the last search, here for garbage collection reasons */
+	private IntList results= new IntList();
+
+	/**
+	 * Builds the static world from the objects that can't move. Call once the objects are in their starting positions.
+	 * @param inpObjs All the objects in the simulation
+	 */
+	public void build(ArrayList<CustomObject> inpObjs)
+	{
+		objectCount=inpObjs.size();
+		staticNos=new int[objectCount];
+		AABBs=new ArrayList<AABB>();
+		int staticCount=0;
+		for(int i=0;i<objectCount;i++)
+		{
+			staticNos[i]=-1;
+			if(inpObjs.get(i).canMove()==false)
+			{
+				staticNos[i]=staticCount;
+				staticCount++;
+			}
+		}
+		objectNos=new int[staticCount];
+		double[] boxes=new double[6*staticCount];
+		for(int i=0;i<objectCount;i++)
+		{
+			int staticNo=staticNos[i];
+			if(staticNo==-1)
+			{
+				continue;
+			}
+			CustomObject obj=inpObjs.get(i);
+			objectNos[staticNo]=i;
+			//The exact box around the actual vertices, it never needs working out again
+			double[] bounds=obj.getActualLPBounds();
+			AABB box=new AABB(bounds[0],bounds[3],bounds[1],bounds[4],bounds[2],bounds[5]);
+			if(obj.getDistanceField()!=null)
+			{
+				//Objects resting on a distance field are left a little above it, grow the box so they still overlap it
+				double grow=obj.getDistanceField().getTouchingDistance();
+				box=new AABB(box.getMinX()-grow,box.getMaxX()+grow,box.getMinY()-grow,box.getMaxY()+grow,box.getMinZ()-grow,box.getMaxZ()+grow);
+			}
+			AABBs.add(box);
+			boxes[6*staticNo]=box.getMinX();
+			boxes[6*staticNo+1]=box.getMinY();
+			boxes[6*staticNo+2]=box.getMinZ();
+			boxes[6*staticNo+3]=box.getMaxX();
+			boxes[6*staticNo+4]=box.getMaxY();
+			boxes[6*staticNo+5]=box.getMaxZ();
+		}
+		index=new BoundingVolumeHierarchy(boxes,staticCount);
+	}
+	/**
+	 * Checks if the static world was built for a different set of objects and needs building again
+	 * @param inpObjs All the objects in the simulation
+	 * @return True if it needs building again
+	 */
+	public boolean needsRebuild(ArrayList<CustomObject> inpObjs)
+	{
+		return index==null||inpObjs.size()!=objectCount;
+	}
+	/**
+	 * Checks if an object is in the static world
+	 * @param objNo The object number
+	 * @return True if the object can't move and is in the static world
+	 */
+	public boolean isStatic(int objNo)
+	{
+		return objNo<objectCount&&staticNos[objNo]!=-1;
+	}
+	/**
+	 * Gets the AABB of a static object
+	 * @param objNo The object number
+	 * @return The AABB, worked out when the static world was built
+	 */
+	public AABB getAABB(int objNo)
+	{
+		return AABBs.get(staticNos[objNo]);
+	}
+	/**
+	 * Finds the static objects whose AABBs overlap a moving object's AABB and adds the pairs to a list
+	 * @param objNo The moving object's number
+	 * @param box The moving object's AABB
+	 * @param output The list to add the pairs to
+	 */
+	public void findPairs(int objNo, AABB box, PairList output)
+	{
+		results.clear();
+		index.query(box.getMinX(),box.getMinY(),box.getMinZ(),box.getMaxX(),box.getMaxY(),box.getMaxZ(),results);
+		for(int k=0;k<results.size();k++)
+		{
+			output.add(objNo,objectNos[results.get(k)]);
+		}
+	}
+}
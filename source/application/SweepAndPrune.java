@@ -0,0 +1,224 @@
+package application;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An incremental sweep and prune broadphase used to find which objects have overlapping AABBs.
+ * Keeps a sorted list of the AABB endpoints on each axis between updates. Objects only move a small amount each update
+ * so the lists are almost sorted already and an insertion sort puts them back in order in close to linear time.
+ * The pairs are then found by sweeping along one axis and only testing the boxes that are open at the same time.
+ * @author Sam Dark
+ *
+ */
+public class SweepAndPrune implements Broadphase
+{
+	/** The number of boxes the endpoint lists were built for */
+	private int count=0;
+	/** The endpoint values on each axis, sorted smallest to largest */
+	private double[][] endValues= new double[3][0];
+	/** The box each endpoint belongs to, stored as box*2 for a min endpoint and box*2+1 for a max endpoint */
+	private int[][] endBoxes= new int[3][0];
+	/** The min coords of each box, stored {x,y,z} for box 0 then box 1 etc */
+	private double[] mins= new double[0];
+	/** The max coords of each box, stored the same as mins */
+	private double[] maxs= new double[0];
+	/** Is the object each box belongs to active (can move and is awake)? */
+	private boolean[] movable= new boolean[0];
+	/** The boxes currently open during the sweep */
+	private int[] active= new int[0];
+	/** The position of each box in the active list, -1 if it isn't in the list */
+	private int[] activePos= new int[0];
+	/** The overlapping pairs found in the last update */
+	private PairList pairs= new PairList();
+	/** The sum of the box centres on each axis, used to pick the sweep axis */
+	private double[] sum= new double[3];
+	/** The sum of the squared box centres on each axis, used to pick the sweep axis */
+	private double[] sumSq= new double[3];
+
+	/**
+	 * Updates the endpoint lists with the given AABBs and finds all the pairs of overlapping boxes.
+	 */
+	@Override
+	public int findPairs(ArrayList<AABB> inpAABBs, ArrayList<CustomObject> inpObjs)
+	{
+		int size=inpAABBs.size();
+		//If objects have been added or removed the lists have to be made again
+		if(size!=count)
+		{
+			rebuild(size);
+		}
+		//Copy the new box bounds in and get the spread of the box centres on each axis
+		Arrays.fill(sum, 0);
+		Arrays.fill(sumSq, 0);
+		for(int i=0;i<size;i++)
+		{
+			AABB box=inpAABBs.get(i);
+			mins[3*i]=box.getMinX();
+			mins[3*i+1]=box.getMinY();
+			mins[3*i+2]=box.getMinZ();
+			maxs[3*i]=box.getMaxX();
+			maxs[3*i+1]=box.getMaxY();
+			maxs[3*i+2]=box.getMaxZ();
+			movable[i]=inpObjs.get(i).isActive();
+			for(int axis=0;axis<3;axis++)
+			{
+				double centre=(mins[3*i+axis]+maxs[3*i+axis])*0.5;
+				sum[axis]+=centre;
+				sumSq[axis]+=centre*centre;
+			}
+		}
+		//Put the endpoints back in order on every axis, keeping all three sorted means the sweep axis can change for free
+		int sweepAxis=0;
+		double bestSpread=-1;
+		for(int axis=0;axis<3;axis++)
+		{
+			updateEndpoints(axis);
+			insertionSort(axis);
+			double spread=sumSq[axis]-(sum[axis]*sum[axis]/Math.max(size,1));
+			if(spread>bestSpread)
+			{
+				bestSpread=spread;
+				sweepAxis=axis;
+			}
+		}
+		sweep(sweepAxis);
+		return pairs.size();
+	}
+	@Override
+	public int[] getPairs()
+	{
+		return pairs.getPairs();
+	}
+	@Override
+	public int getPairCount()
+	{
+		return pairs.size();
+	}
+	/**
+	 * Makes new endpoint lists for a different number of boxes
+	 * @param size The number of boxes
+	 */
+	private void rebuild(int size)
+	{
+		count=size;
+		mins=new double[3*size];
+		maxs=new double[3*size];
+		movable=new boolean[size];
+		active=new int[size];
+		activePos=new int[size];
+		for(int axis=0;axis<3;axis++)
+		{
+			endValues[axis]=new double[2*size];
+			endBoxes[axis]=new int[2*size];
+			for(int i=0;i<2*size;i++)
+			{
+				endBoxes[axis][i]=i;//Min and max of each box one after the other, the sort will order them
+			}
+		}
+	}
+	/**
+	 * Copies the current box bounds into the endpoint list of an axis without changing the order
+	 * @param axis The axis to update (0=x, 1=y, 2=z)
+	 */
+	private void updateEndpoints(int axis)
+	{
+		double[] values=endValues[axis];
+		int[] boxes=endBoxes[axis];
+		for(int i=0;i<values.length;i++)
+		{
+			int box=boxes[i]>>1;
+			if((boxes[i]&1)==0)
+			{
+				values[i]=mins[3*box+axis];
+			}
+			else
+			{
+				values[i]=maxs[3*box+axis];
+			}
+		}
+	}
+	/**
+	 * Sorts the endpoints of an axis with an insertion sort. Fast when the list is almost sorted already.
+	 * Min endpoints go before max endpoints with the same value so touching boxes count as overlapping.
+	 * @param axis The axis to sort
+	 */
+	private void insertionSort(int axis)
+	{
+		double[] values=endValues[axis];
+		int[] boxes=endBoxes[axis];
+		for(int i=1;i<values.length;i++)
+		{
+			double value=values[i];
+			int box=boxes[i];
+			int j=i-1;
+			//Shift everything bigger than this endpoint up one
+			while(j>=0&&(values[j]>value||(values[j]==value&&(boxes[j]&1)>(box&1))))
+			{
+				values[j+1]=values[j];
+				boxes[j+1]=boxes[j];
+				j--;
+			}
+			values[j+1]=value;
+			boxes[j+1]=box;
+		}
+	}
+	/**
+	 * Sweeps along an axis keeping a list of the boxes that are open.
+	 * When a box opens it is tested against every open box on the other two axes.
+	 * @param axis The axis to sweep along
+	 */
+	private void sweep(int axis)
+	{
+		pairs.clear();
+		int activeCount=0;
+		Arrays.fill(activePos, -1);
+		int axis1=(axis+1)%3;
+		int axis2=(axis+2)%3;
+		int[] boxes=endBoxes[axis];
+		for(int i=0;i<boxes.length;i++)
+		{
+			int box=boxes[i]>>1;
+			if((boxes[i]&1)==0)
+			{
+				//Box opening, test it against all the open boxes
+				for(int k=0;k<activeCount;k++)
+				{
+					int other=active[k];
+					//Don't report pairs between objects that don't move
+					if(movable[box]||movable[other])
+					{
+						if(overlaps(box,other,axis1)&&overlaps(box,other,axis2))
+						{
+							pairs.add(box,other);
+						}
+					}
+				}
+				active[activeCount]=box;
+				activePos[box]=activeCount;
+				activeCount++;
+			}
+			else
+			{
+				//Box closing, swap the last open box into its place
+				int pos=activePos[box];
+				activeCount--;
+				active[pos]=active[activeCount];
+				activePos[active[pos]]=pos;
+				activePos[box]=-1;
+			}
+		}
+		//Sort the pairs so they are always resolved in the same order
+		pairs.sort();
+	}
+	/**
+	 * Checks if two boxes overlap on an axis
+	 * @param a The first box
+	 * @param b The second box
+	 * @param axis The axis to check
+	 * @return True if the boxes overlap or touch on that axis
+	 */
+	private boolean overlaps(int a, int b, int axis)
+	{
+		return mins[3*a+axis]<=maxs[3*b+axis]&&mins[3*b+axis]<=maxs[3*a+axis];
+	}
+}
@@ -0,0 +1,119 @@
+package application;
+import java.util.Arrays;
+
+/**
+ * A list of triangles stored as flat arrays, one array for each coordinate of each value, so the ray tests can work through
+ * several triangles at a time. For each triangle the first vertex a, the edges ab and ac and the normal ab x ac are stored,
+ * the edges and normal are worked out once when the triangle is added instead of once for every ray tested against it.
+ * @author Sam Dark
+ *
+ */
+public class TriangleBatch
+{
+	/** The first vertex of each triangle */
+	double[] ax, ay, az;
+	/** The edge from a to b of each triangle */
+	double[] abx, aby, abz;
+	/** The edge from a to c of each triangle */
+	double[] acx, acy, acz;
+	/** The normal of each triangle, ab x ac, not normalised */
+	double[] nx, ny, nz;
+	/** The number of triangles in the batch */
+	private int count=0;
+
+	/**
+	 * Creates an empty batch
+	 */
+	TriangleBatch()
+	{
+		setCapacity(16);
+	}
+	/**
+	 * Empties the batch
+	 */
+	public void clear()
+	{
+		count=0;
+	}
+	/**
+	 * Adds a triangle to the end of the batch, growing the batch if it is full
+	 * @param a The first vertex of the triangle
+	 * @param b The second vertex of the triangle
+	 * @param c The third vertex of the triangle
+	 */
+	public void add(Position a, Position b, Position c)
+	{
+		if(count==ax.length)
+		{
+			setCapacity(ax.length*2);
+		}
+		double abX=b.getX()-a.getX(), abY=b.getY()-a.getY(), abZ=b.getZ()-a.getZ();
+		double acX=c.getX()-a.getX(), acY=c.getY()-a.getY(), acZ=c.getZ()-a.getZ();
+		ax[count]=a.getX();
+		ay[count]=a.getY();
+		az[count]=a.getZ();
+		abx[count]=abX;
+		aby[count]=abY;
+		abz[count]=abZ;
+		acx[count]=acX;
+		acy[count]=acY;
+		acz[count]=acZ;
+		//Normal is the cross product of the two edges
+		nx[count]=(abY*acZ)-(abZ*acY);
+		ny[count]=(abZ*acX)-(abX*acZ);
+		nz[count]=(abX*acY)-(abY*acX);
+		count++;
+	}
+	/**
+	 * Adds a face of a mesh to the end of the batch, copying the edges and normal worked out when the mesh was imported
+	 * @param inpMesh The mesh
+	 * @param face The face to add
+	 */
+	public void add(LocalMesh inpMesh, int face)
+	{
+		if(count==ax.length)
+		{
+			setCapacity(ax.length*2);
+		}
+		ax[count]=inpMesh.ax[face];
+		ay[count]=inpMesh.ay[face];
+		az[count]=inpMesh.az[face];
+		abx[count]=inpMesh.abx[face];
+		aby[count]=inpMesh.aby[face];
+		abz[count]=inpMesh.abz[face];
+		acx[count]=inpMesh.acx[face];
+		acy[count]=inpMesh.acy[face];
+		acz[count]=inpMesh.acz[face];
+		nx[count]=inpMesh.nx[face];
+		ny[count]=inpMesh.ny[face];
+		nz[count]=inpMesh.nz[face];
+		count++;
+	}
+	/**
+	 * Gets the number of triangles in the batch
+	 * @return The number of triangles
+	 */
+	public int size()
+	{
+		return count;
+	}
+	/**
+	 * Changes the size of the arrays, keeping the triangles already in them
+	 * @param capacity The new size of the arrays
+	 */
+	private void setCapacity(int capacity)
+	{
+		if(ax==null)
+		{
+			ax=new double[capacity]; ay=new double[capacity]; az=new double[capacity];
+			abx=new double[capacity]; aby=new double[capacity]; abz=new double[capacity];
+			acx=new double[capacity]; acy=new double[capacity]; acz=new double[capacity];
+			nx=new double[capacity]; ny=new double[capacity]; nz=new double[capacity];
+			return;
+		}
+		ax=Arrays.copyOf(ax, capacity); ay=Arrays.copyOf(ay, capacity); az=Arrays.copyOf(az, capacity);
+		abx=Arrays.copyOf(abx, capacity); aby=Arrays.copyOf(aby, capacity); abz=Arrays.copyOf(abz, capacity);
+		acx=Arrays.copyOf(acx, capacity); acy=Arrays.copyOf(acy, capacity); acz=Arrays.copyOf(acz, capacity);
+		nx=Arrays.copyOf(nx, capacity); ny=Arrays.copyOf(ny, capacity); nz=Arrays.copyOf(nz, capacity);
+	}
+}
@@ -0,0 +1,55 @@
+package application;
+
+/**
+ * The vertices of a mesh as flat arrays of coordinates, one array for x, one for y and one for z, along with the box around them.
+ * Reused from update to update so working them out creates no garbage.
+ * @author Sam Dark
+ *
+ */
+public class VertexCoords
+{
+	/** The x coords of the vertices */
+	double[] xs=new double[0];
+	/** The y coords of the vertices */
+	double[] ys=new double[0];
+	/** The z coords of the vertices */
+	double[] zs=new double[0];
+	/** The box around the vertices {minX,minY,minZ,maxX,maxY,maxZ} */
+	double[] bounds=new double[6];
+	/** The transform version of the object the vertices were worked out at, -1 if they never have been */
+	int version=-1;
+
+	/**
+	 * Makes the arrays the right length for a number of vertices, keeping them if they already are
+	 * @param count The number of vertices
+	 */
+	void setSize(int count)
+	{
+		if(xs.length!=count)
+		{
+			xs=new double[count];
+			ys=new double[count];
+			zs=new double[count];
+			version=-1;
+		}
+	}
+	/**
+	 * Makes the arrays at least long enough for a number of vertices, so the same coords can be reused for meshes of different sizes
+	 * @param count The number of vertices
+	 */
+	void ensureCapacity(int count)
+	{
+		if(xs.length<count)
+		{
+			setSize(count);
+		}
+	}
+	/**
+	 * Gets the number of vertices
+	 * @return The number of vertices
+	 */
+	public int size()
+	{
+		return xs.length;
+	}
+}
@@ -0,0 +1,46 @@
+package application;
+
+/**
+ * Transforms whole meshes of vertices at once. The vertices are stored as flat arrays of coordinates, one array for x, one for y and one for z,
+ * so they can be worked through in a tight loop instead of one Vertex object at a time.
+ * Use create() to get the fastest version available.
+ * @author Sam Dark
+ *
+ */
+public interface VertexKernels
+{
+	/**
+	 * Transforms vertices from an object's own space to actual space and works out the box around them in the same pass
+	 * @param inpTransform The transform to apply
+	 * @param xs The x coords of the vertices
+	 * @param ys The y coords of the vertices
+	 * @param zs The z coords of the vertices
+	 * @param count The number of vertices, at least 1
+	 * @param outXs The array to put the transformed x coords in
+	 * @param outYs The array to put the transformed y coords in
+	 * @param outZs The array to put the transformed z coords in
+	 * @param bounds Array of at least 6 to put the box around the transformed vertices in, {minX,minY,minZ,maxX,maxY,maxZ}
+	 */
+	public void transform(RigidTransform inpTransform, double[] xs, double[] ys, double[] zs, int count,
+			double[] outXs, double[] outYs, double[] outZs, double[] bounds);
+
+	/**
+	 * Gets the fastest kernels available. Uses the SIMD kernels if they were compiled from the simd source folder and the
+	 * jdk.incubator.vector module has been added (run with --add-modules jdk.incubator.vector), otherwise the scalar ones.
+	 * They are only found by name so the rest of the application compiles without them.
+	 * @return The kernels
+	 */
+	public static VertexKernels create()
+	{
+		try
+		{
+			Class.forName("jdk.incubator.vector.DoubleVector");
+			return (VertexKernels)Class.forName("application.SimdVertexKernels").getDeclaredConstructor().newInstance();
+		}
+		catch(Throwable e)
+		{
+			//Vector module not there, or the SIMD kernels weren't compiled
+			return new ScalarVertexKernels();
+		}
+	}
+}
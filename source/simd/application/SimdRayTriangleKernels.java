@@ -0,0 +1,105 @@
+package application;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Tests rays against several triangles at a time (4 with AVX2, 8 with AVX-512) using the SIMD instructions of the processor.
+ * Needs the jdk.incubator.vector module (compile and run with --add-modules jdk.incubator.vector), so it is kept in the
+ * separate simd source folder and compiled after the rest of the application, which then builds without the module.
+ * RayTriangleKernels.create() only uses this class if it was compiled and the module is there.
+ * Gives exactly the same results as ScalarRayTriangleKernels as the adds and multiplies are done in the same order.
+ * @author Sam Dark
+ *
+ */
+public class SimdRayTriangleKernels implements RayTriangleKernels
+{
+	/** The widest vector of doubles the processor supports */
+	private static final VectorSpecies<Double> SPECIES=DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Tests the ray from p to q against every triangle in a batch. Only hits on the front of a triangle count,
+	 * that is where the ray is going against the triangle's normal.
+	 * If a hit is earlier along the ray than the one already in hit, hit is changed to it.
+	 * When two hits are at the same point the one earliest in the batch is kept.
+	 * @param px The x coord of the start of the ray
+	 * @param py The y coord of the start of the ray
+	 * @param pz The z coord of the start of the ray
+	 * @param qx The x coord of the end of the ray
+	 * @param qy The y coord of the end of the ray
+	 * @param qz The z coord of the end of the ray
+	 * @param triangles The triangles to test
+	 * @param hit The earliest hit so far, changed if an earlier one is found
+	 */
+	@Override
+	public void intersect(double px, double py, double pz, double qx, double qy, double qz, TriangleBatch triangles, RayHit hit)
+	{
+		//p-q, the same for every triangle
+		double qpxs=px-qx, qpys=py-qy, qpzs=pz-qz;
+		DoubleVector qpx=DoubleVector.broadcast(SPECIES, qpxs);
+		DoubleVector qpy=DoubleVector.broadcast(SPECIES, qpys);
+		DoubleVector qpz=DoubleVector.broadcast(SPECIES, qpzs);
+		DoubleVector pxs=DoubleVector.broadcast(SPECIES, px);
+		DoubleVector pys=DoubleVector.broadcast(SPECIES, py);
+		DoubleVector pzs=DoubleVector.broadcast(SPECIES, pz);
+		DoubleVector zero=DoubleVector.zero(SPECIES);
+		DoubleVector one=DoubleVector.broadcast(SPECIES, 1.0);
+		DoubleVector missed=DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+		int i=0;
+		int bound=SPECIES.loopBound(triangles.size());
+		for(;i<bound;i+=SPECIES.length())
+		{
+			DoubleVector nx=DoubleVector.fromArray(SPECIES, triangles.nx, i);
+			DoubleVector ny=DoubleVector.fromArray(SPECIES, triangles.ny, i);
+			DoubleVector nz=DoubleVector.fromArray(SPECIES, triangles.nz, i);
+			//Is the ray pointing at the triangle
+			DoubleVector d=qpx.mul(nx).add(qpy.mul(ny)).add(qpz.mul(nz));
+			VectorMask<Double> hits=d.compare(VectorOperators.GT, zero);
+			if(!hits.anyTrue())
+			{
+				continue;
+			}
+			//p-a
+			DoubleVector apx=pxs.sub(DoubleVector.fromArray(SPECIES, triangles.ax, i));
+			DoubleVector apy=pys.sub(DoubleVector.fromArray(SPECIES, triangles.ay, i));
+			DoubleVector apz=pzs.sub(DoubleVector.fromArray(SPECIES, triangles.az, i));
+			//Does the ray reach the plane of the triangle
+			DoubleVector t=apx.mul(nx).add(apy.mul(ny)).add(apz.mul(nz));
+			hits=hits.and(t.compare(VectorOperators.GE, zero)).and(t.compare(VectorOperators.LE, d));
+			if(!hits.anyTrue())
+			{
+				continue;
+			}
+			//e is the cross product of qp and ap
+			DoubleVector ex=qpy.mul(apz).sub(qpz.mul(apy));
+			DoubleVector ey=qpz.mul(apx).sub(qpx.mul(apz));
+			DoubleVector ez=qpx.mul(apy).sub(qpy.mul(apx));
+			//Is the point on the plane inside the triangle
+			DoubleVector v=DoubleVector.fromArray(SPECIES, triangles.acx, i).mul(ex)
+					.add(DoubleVector.fromArray(SPECIES, triangles.acy, i).mul(ey))
+					.add(DoubleVector.fromArray(SPECIES, triangles.acz, i).mul(ez));
+			DoubleVector w=DoubleVector.fromArray(SPECIES, triangles.abx, i).mul(ex)
+					.add(DoubleVector.fromArray(SPECIES, triangles.aby, i).mul(ey))
+					.add(DoubleVector.fromArray(SPECIES, triangles.abz, i).mul(ez)).neg();
+			hits=hits.and(v.compare(VectorOperators.GE, zero)).and(v.compare(VectorOperators.LE, d))
+					.and(w.compare(VectorOperators.GE, zero)).and(v.add(w).compare(VectorOperators.LE, d));
+			if(!hits.anyTrue())
+			{
+				continue;
+			}
+			//Keep the earliest hit, the first triangle in the batch if two are at the same point
+			DoubleVector fractions=missed.blend(t.mul(one.div(d)), hits);
+			double earliest=fractions.reduceLanes(VectorOperators.MIN);
+			if(earliest<hit.fraction)
+			{
+				hit.fraction=earliest;
+				int lane=fractions.compare(VectorOperators.EQ, earliest).firstTrue();
+				hit.index=i+lane;
+				hit.depth=d.sub(t).lane(lane);
+			}
+		}
+		//The triangles left over that don't fill a whole vector
+		ScalarRayTriangleKernels.intersect(px,py,pz,qx,qy,qz,triangles,i,hit);
+	}
+}
@@ -0,0 +1,90 @@
+package application;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Transforms meshes of vertices several coordinates at a time using the SIMD instructions of the processor.
+ * Needs the jdk.incubator.vector module (compile and run with --add-modules jdk.incubator.vector), so it is kept in the
+ * separate simd source folder and compiled after the rest of the application, which then builds without the module.
+ * VertexKernels.create() only uses this class if it was compiled and the module is there.
+ * Gives exactly the same results as ScalarVertexKernels as the adds and multiplies are done in the same order.
+ * @author Sam Dark
+ *
+ */
+public class SimdVertexKernels implements VertexKernels
+{
+	/** The widest vector of doubles the processor supports */
+	private static final VectorSpecies<Double> SPECIES=DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Transforms vertices from an object's own space to actual space and works out the box around them in the same pass
+	 * @param inpTransform The transform to apply
+	 * @param xs The x coords of the vertices
+	 * @param ys The y coords of the vertices
+	 * @param zs The z coords of the vertices
+	 * @param count The number of vertices, at least 1
+	 * @param outXs The array to put the transformed x coords in
+	 * @param outYs The array to put the transformed y coords in
+	 * @param outZs The array to put the transformed z coords in
+	 * @param bounds Array of at least 6 to put the box around the transformed vertices in, {minX,minY,minZ,maxX,maxY,maxZ}
+	 */
+	@Override
+	public void transform(RigidTransform inpTransform, double[] xs, double[] ys, double[] zs, int count,
+			double[] outXs, double[] outYs, double[] outZs, double[] bounds)
+	{
+		double m00=inpTransform.getRotation(0,0), m01=inpTransform.getRotation(0,1), m02=inpTransform.getRotation(0,2);
+		double m10=inpTransform.getRotation(1,0), m11=inpTransform.getRotation(1,1), m12=inpTransform.getRotation(1,2);
+		double m20=inpTransform.getRotation(2,0), m21=inpTransform.getRotation(2,1), m22=inpTransform.getRotation(2,2);
+		double tx=inpTransform.getTranslationX(), ty=inpTransform.getTranslationY(), tz=inpTransform.getTranslationZ();
+		DoubleVector minX=DoubleVector.broadcast(SPECIES, Double.MAX_VALUE);
+		DoubleVector minY=minX, minZ=minX;
+		DoubleVector maxX=DoubleVector.broadcast(SPECIES, -Double.MAX_VALUE);
+		DoubleVector maxY=maxX, maxZ=maxX;
+		int i=0;
+		int bound=SPECIES.loopBound(count);
+		for(;i<bound;i+=SPECIES.length())
+		{
+			DoubleVector x=DoubleVector.fromArray(SPECIES, xs, i);
+			DoubleVector y=DoubleVector.fromArray(SPECIES, ys, i);
+			DoubleVector z=DoubleVector.fromArray(SPECIES, zs, i);
+			DoubleVector outX=x.mul(m00).add(y.mul(m01)).add(z.mul(m02)).add(tx);
+			DoubleVector outY=x.mul(m10).add(y.mul(m11)).add(z.mul(m12)).add(ty);
+			DoubleVector outZ=x.mul(m20).add(y.mul(m21)).add(z.mul(m22)).add(tz);
+			outX.intoArray(outXs, i);
+			outY.intoArray(outYs, i);
+			outZ.intoArray(outZs, i);
+			minX=minX.min(outX);
+			minY=minY.min(outY);
+			minZ=minZ.min(outZ);
+			maxX=maxX.max(outX);
+			maxY=maxY.max(outY);
+			maxZ=maxZ.max(outZ);
+		}
+		double minXs=minX.reduceLanes(VectorOperators.MIN), minYs=minY.reduceLanes(VectorOperators.MIN), minZs=minZ.reduceLanes(VectorOperators.MIN);
+		double maxXs=maxX.reduceLanes(VectorOperators.MAX), maxYs=maxY.reduceLanes(VectorOperators.MAX), maxZs=maxZ.reduceLanes(VectorOperators.MAX);
+		//The vertices left over that don't fill a whole vector
+		for(;i<count;i++)
+		{
+			double x=xs[i], y=ys[i], z=zs[i];
+			double outX=m00*x+m01*y+m02*z+tx;
+			double outY=m10*x+m11*y+m12*z+ty;
+			double outZ=m20*x+m21*y+m22*z+tz;
+			outXs[i]=outX;
+			outYs[i]=outY;
+			outZs[i]=outZ;
+			minXs=outX<minXs ? outX : minXs;
+			minYs=outY<minYs ? outY : minYs;
+			minZs=outZ<minZs ? outZ : minZs;
+			maxXs=outX>maxXs ? outX : maxXs;
+			maxYs=outY>maxYs ? outY : maxYs;
+			maxZs=outZ>maxZs ? outZ : maxZs;
+		}
+		bounds[0]=minXs;
+		bounds[1]=minYs;
+		bounds[2]=minZs;
+		bounds[3]=maxXs;
+		bounds[4]=maxYs;
+		bounds[5]=maxZs;
+	}
+}